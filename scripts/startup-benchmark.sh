@@ -0,0 +1,33 @@
+#!/usr/bin/env bash
+# Time to ready and RSS for each way of starting the application, using startup-report.sh:
+#
+#   jvm       the fat jar as built
+#   aot       the fat jar with the Spring AOT initializers
+#   cds       the extracted jar with an AppCDS archive from a training run, as in the Dockerfile
+#   aot+cds   both, as in the Dockerfile with SPRING_AOT_ENABLED=true
+#   native    the native executable, when target/post-generator has been built (mvn -Pnative native:compile)
+#
+# Build the jar first (mvn package). The database and model settings come from the environment.
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+report=scripts/startup-report.sh
+
+jar=$(ls target/postgen-*.jar | head -n 1)
+work=target/startup-benchmark
+rm -rf "$work"
+java -Djarmode=tools -jar "$jar" extract --destination "$work" >/dev/null
+app_jar="$work/$(basename "$jar")"
+
+# Same training run as the Dockerfile
+java -XX:ArchiveClassesAtExit="$work/application.jsa" -Dspring.context.exit=onRefresh \
+    -Dspring.profiles.active=training -jar "$app_jar" >"$work/training.log" 2>&1 || test -f "$work/application.jsa"
+
+"$report" jvm java -jar "$jar"
+"$report" aot java -Dspring.aot.enabled=true -jar "$jar"
+"$report" cds java -XX:SharedArchiveFile="$work/application.jsa" -jar "$app_jar"
+"$report" aot+cds java -XX:SharedArchiveFile="$work/application.jsa" -Dspring.aot.enabled=true -jar "$app_jar"
+
+if [ -x target/post-generator ]; then
+  "$report" native target/post-generator
+fi
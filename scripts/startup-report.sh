@@ -0,0 +1,46 @@
+#!/usr/bin/env bash
+# Starts the application, waits for /actuator/health to report UP, checks that the essay list answers,
+# and prints the time to ready and the resident memory at that point. Run it once per build to compare:
+#
+#   scripts/startup-report.sh jvm java -jar target/postgen-*.jar
+#   scripts/startup-report.sh native target/post-generator
+#
+# The database and model settings come from the environment, as for a normal run.
+set -euo pipefail
+
+if [ $# -lt 2 ]; then
+  echo "Usage: $0 <label> <command> [args...]" >&2
+  exit 2
+fi
+
+label=$1
+shift
+port=${SERVER_PORT:-8080}
+timeout_seconds=${STARTUP_TIMEOUT:-120}
+log_file=$(mktemp)
+
+start_ns=$(date +%s%N)
+"$@" >"$log_file" 2>&1 &
+pid=$!
+trap 'kill "$pid" 2>/dev/null || true; wait "$pid" 2>/dev/null || true; rm -f "$log_file"' EXIT
+
+deadline=$(( $(date +%s) + timeout_seconds ))
+until curl -fs "http://localhost:${port}/actuator/health" | grep -q '"status":"UP"'; do
+  if ! kill -0 "$pid" 2>/dev/null || [ "$(date +%s)" -ge "$deadline" ]; then
+    echo "${label}: not ready after ${timeout_seconds}s, last log lines:" >&2
+    tail -n 20 "$log_file" >&2
+    exit 1
+  fi
+  sleep 0.05
+done
+ready_ms=$(( ($(date +%s%N) - start_ns) / 1000000 ))
+
+rss_kb=$(ps -o rss= -p "$pid" | tr -d ' ')
+
+status=$(curl -s -o /dev/null -w '%{http_code}' "http://localhost:${port}/api/v1/essays")
+if [ "$status" != "200" ]; then
+  echo "${label}: GET /api/v1/essays returned ${status}" >&2
+  exit 1
+fi
+
+printf '%-10s ready in %6d ms   RSS %6d MB\n' "$label" "$ready_ms" $(( rss_kb / 1024 ))
@@ -1,12 +1,15 @@
 package com.codehacks.postgen;
 
+import com.codehacks.postgen.config.NativeRuntimeHints;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 /**
  * Main application class for Post Generator.
  */
 @SpringBootApplication
+@ImportRuntimeHints(NativeRuntimeHints.class)
 public class PostGeneratorApplication {
 
 	public static void main(String[] args) {
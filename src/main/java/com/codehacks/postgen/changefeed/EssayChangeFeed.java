@@ -0,0 +1,386 @@
+package com.codehacks.postgen.changefeed;
+
+import com.codehacks.postgen.config.ChangeFeedProperties;
+import com.codehacks.postgen.dto.EssayChangeResponse;
+import com.codehacks.postgen.exception.ChangeFeedFullException;
+import com.codehacks.postgen.outbox.EssayChangeEvent;
+import com.codehacks.postgen.repository.OutboxStore;
+import com.codehacks.postgen.repository.OutboxStore.PublishedEvent;
+import com.codehacks.postgen.repository.OutboxStore.PublishedPosition;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Fans essay changes out to server-sent event subscribers.
+ * <p>
+ * Every node tails the published rows of the outbox table, so its subscribers see the changes
+ * whichever node's relay published them. Changes are read in publication order, which is not
+ * always id order, and each is rendered once. Each subscriber has a bounded queue that a shared
+ * pool of send threads writes out, so a slow client holds up neither the feed nor the other
+ * subscribers; one whose queue fills up is disconnected. A client that reconnects resumes after the
+ * change in its Last-Event-ID header, from the recent changes kept in memory or, for older
+ * positions, from the outbox table.
+ */
+public class EssayChangeFeed {
+
+    private static final Logger logger = LoggerFactory.getLogger(EssayChangeFeed.class);
+
+    /** Event telling a client its position can no longer be resumed and it should reload the essays. */
+    static final String RESET_EVENT = "reset";
+
+    private static final Frame HEARTBEAT = new Frame(-1, SseEmitter.event().comment("heartbeat").build());
+
+    private static final Frame RESET = new Frame(-1, SseEmitter.event().name(RESET_EVENT).data("{}").build());
+
+    private final OutboxStore outboxStore;
+    private final ObjectMapper objectMapper;
+    private final Executor sendExecutor;
+    private final ChangeFeedProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+
+    /** Recently published changes in the order they arrived, guarded by itself. */
+    private final Deque<Frame> recent = new ArrayDeque<>();
+    private final Set<Long> recentIds = new HashSet<>();
+
+    /** The last change read from the outbox, or null before the first poll; only touched by {@link #poll()}. */
+    private PublishedPosition position;
+
+    private final Counter received;
+    private final Counter sent;
+    private final Counter rejected;
+
+    /**
+     * @param outboxStore the outbox, tailed for published changes and read when resuming
+     * @param objectMapper renders the changes
+     * @param sendExecutor the threads writing to subscribers
+     * @param properties the change feed settings
+     * @param meterRegistry the registry for change feed metrics
+     */
+    public EssayChangeFeed(OutboxStore outboxStore, ObjectMapper objectMapper, Executor sendExecutor,
+                           ChangeFeedProperties properties, MeterRegistry meterRegistry) {
+        this.outboxStore = outboxStore;
+        this.objectMapper = objectMapper;
+        this.sendExecutor = sendExecutor;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("essay.changefeed.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open change feed subscriptions")
+                .register(meterRegistry);
+        this.received = Counter.builder("essay.changefeed.events")
+                .description("Changes received from the outbox")
+                .register(meterRegistry);
+        this.sent = Counter.builder("essay.changefeed.sent")
+                .description("Changes written to subscribers")
+                .register(meterRegistry);
+        this.rejected = Counter.builder("essay.changefeed.rejected")
+                .description("Subscriptions rejected at the subscriber limit")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens a subscription.
+     * @param lastEventId the id of the last change the client saw, or null to start with the next change
+     * @return the emitter the changes are sent on
+     * @throws ChangeFeedFullException if the node is at its subscriber limit
+     */
+    public SseEmitter subscribe(Long lastEventId) {
+        if (subscriberCount.incrementAndGet() > properties.getMaxSubscribers()) {
+            subscriberCount.decrementAndGet();
+            rejected.increment();
+            throw new ChangeFeedFullException(properties.getMaxSubscribers());
+        }
+        SseEmitter emitter = newEmitter(properties.getTimeout().toMillis());
+        Subscriber subscriber = new Subscriber(emitter);
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> remove(subscriber));
+        emitter.onError(e -> remove(subscriber));
+        try {
+            // Registered first, so changes published while the replay is read are queued behind it
+            subscriber.start(lastEventId == null ? List.of() : replay(lastEventId));
+        } catch (RuntimeException e) {
+            remove(subscriber);
+            throw e;
+        }
+        return emitter;
+    }
+
+    /**
+     * Reads the changes published since the last poll, by any node, and queues them to the subscribers.
+     * The first poll starts after the latest published change.
+     */
+    @Scheduled(initialDelayString = "${app.changefeed.poll-interval:PT0.5S}",
+            fixedDelayString = "${app.changefeed.poll-interval:PT0.5S}")
+    public void poll() {
+        try {
+            if (position == null) {
+                position = outboxStore.findLastPosition().orElse(PublishedPosition.START);
+            }
+            List<PublishedEvent> events;
+            do {
+                events = outboxStore.fetchPublishedAfter(position, properties.getReplaySize());
+                for (PublishedEvent published : events) {
+                    onChange(published.event());
+                    position = published.position();
+                }
+            } while (events.size() == properties.getReplaySize());
+        } catch (RuntimeException e) {
+            logger.warn("Reading essay changes from the outbox failed; retrying on the next poll", e);
+        }
+    }
+
+    /**
+     * Queues a published change to every subscriber. A change already queued is recognised by id
+     * and dropped.
+     * @param event the change
+     */
+    void onChange(EssayChangeEvent event) {
+        Frame frame = render(event);
+        synchronized (recent) {
+            if (!recentIds.add(event.id())) {
+                return;
+            }
+            recent.addLast(frame);
+            while (recent.size() > properties.getReplaySize()) {
+                recentIds.remove(recent.removeFirst().id());
+            }
+        }
+        received.increment();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.offer(frame);
+        }
+    }
+
+    /**
+     * Sends a comment to subscribers with nothing queued.
+     */
+    @Scheduled(initialDelayString = "${app.changefeed.heartbeat-interval:PT15S}",
+            fixedDelayString = "${app.changefeed.heartbeat-interval:PT15S}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.heartbeat();
+        }
+    }
+
+    /**
+     * @return the number of open subscriptions
+     */
+    public int subscriberCount() {
+        return subscriberCount.get();
+    }
+
+    SseEmitter newEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    private List<Frame> replay(long lastEventId) {
+        List<Frame> newer = new ArrayList<>();
+        synchronized (recent) {
+            // In publication order, which is the order the client saw them in
+            boolean found = false;
+            for (Frame frame : recent) {
+                if (found) {
+                    newer.add(frame);
+                } else if (frame.id() == lastEventId) {
+                    found = true;
+                }
+            }
+            if (found) {
+                resumed("memory");
+                return newer;
+            }
+        }
+
+        Optional<PublishedPosition> after = outboxStore.findPosition(lastEventId);
+        List<PublishedEvent> missed = after.isEmpty() ? List.of()
+                : outboxStore.fetchPublishedAfter(after.get(), properties.getReplaySize());
+        if (after.isEmpty() || missed.size() >= properties.getReplaySize()) {
+            // Purged, or further behind than we replay
+            resumed("reset");
+            return List.of(RESET);
+        }
+        // Everything in memory was read from the table before this, so the table has it too
+        resumed("database");
+        return missed.stream().map(published -> render(published.event())).toList();
+    }
+
+    private Frame render(EssayChangeEvent event) {
+        EssayChangeResponse change = EssayChangeResponse.builder()
+                .id(event.id())
+                .essayId(event.essayId())
+                .type(event.type().name())
+                .essay(event.payload())
+                .createdAt(event.createdAt())
+                .build();
+        try {
+            return new Frame(event.id(), SseEmitter.event()
+                    .id(String.valueOf(event.id()))
+                    .data(objectMapper.writeValueAsString(change))
+                    .build());
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not render essay change " + event.id(), e);
+        }
+    }
+
+    private void remove(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            subscriberCount.decrementAndGet();
+        }
+    }
+
+    private void resumed(String source) {
+        Counter.builder("essay.changefeed.resumes")
+                .description("Subscriptions resumed from a last event id")
+                .tag("source", source)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    private void disconnected(String reason) {
+        Counter.builder("essay.changefeed.disconnects")
+                .description("Subscribers disconnected by the feed")
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * A rendered change, shared by every subscriber it is sent to.
+     * @param id the outbox id, or -1 for control frames
+     * @param data the server-sent event
+     */
+    private record Frame(long id, Set<DataWithMediaType> data) {
+    }
+
+    /**
+     * One open subscription. At most one send thread drains its queue at a time.
+     */
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final BlockingQueue<Frame> queue = new LinkedBlockingQueue<>(properties.getBufferSize());
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicReference<String> closeReason = new AtomicReference<>();
+        private volatile List<Frame> replay = List.of();
+        private volatile Set<Long> replayed = Set.of();
+        private volatile boolean started;
+
+        Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        void start(List<Frame> frames) {
+            replay = frames;
+            replayed = frames.stream().map(Frame::id).collect(Collectors.toSet());
+            started = true;
+            schedule();
+        }
+
+        void offer(Frame frame) {
+            if (closeReason.get() != null) {
+                return;
+            }
+            if (!queue.offer(frame)) {
+                close("slow");
+                return;
+            }
+            if (started) {
+                schedule();
+            }
+        }
+
+        void heartbeat() {
+            if (started && queue.isEmpty()) {
+                offer(HEARTBEAT);
+            }
+        }
+
+        private void close(String reason) {
+            if (closeReason.compareAndSet(null, reason)) {
+                queue.clear();
+                schedule();
+            }
+        }
+
+        private void schedule() {
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    sendExecutor.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    // Shutting down
+                    remove(this);
+                }
+            }
+        }
+
+        private void drain() {
+            do {
+                try {
+                    if (closeReason.get() != null) {
+                        finish(closeReason.get());
+                        return;
+                    }
+                    List<Frame> frames = replay;
+                    replay = List.of();
+                    for (Frame frame : frames) {
+                        send(frame);
+                    }
+                    Frame frame;
+                    while (closeReason.get() == null && (frame = queue.poll()) != null) {
+                        if (frame.id() < 0 || !replayed.contains(frame.id())) {
+                            send(frame);
+                        }
+                    }
+                } catch (IOException | IllegalStateException e) {
+                    // The client has gone away, or the subscription timed out
+                    logger.debug("Dropping change feed subscriber: {}", e.getMessage());
+                    closeReason.compareAndSet(null, "error");
+                    finish(closeReason.get());
+                    return;
+                }
+                draining.set(false);
+            } while ((closeReason.get() != null || !queue.isEmpty()) && draining.compareAndSet(false, true));
+        }
+
+        private void send(Frame frame) throws IOException {
+            emitter.send(frame.data());
+            if (frame.id() >= 0) {
+                sent.increment();
+            }
+        }
+
+        private void finish(String reason) {
+            remove(this);
+            disconnected(reason);
+            emitter.complete();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.codehacks.postgen.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration for fetching many essays by id.
+ */
+@Configuration
+@EnableConfigurationProperties(BatchGetProperties.class)
+public class BatchGetConfig {
+}
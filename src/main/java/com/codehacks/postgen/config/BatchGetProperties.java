@@ -0,0 +1,37 @@
+package com.codehacks.postgen.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for fetching many essays by id in one request, and for the cache in front of it.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.batch-get")
+public class BatchGetProperties {
+
+    /** Most ids one request may ask for; longer lists are rejected with 400. */
+    private int maxIds = 100;
+
+    private Cache cache = new Cache();
+
+    /**
+     * Per-node cache of essays, in front of the essays and essay_contents tables.
+     */
+    @Data
+    public static class Cache {
+
+        private boolean enabled = true;
+
+        /** Essays kept; the least recently used are dropped beyond this. */
+        private int maxEntries = 10000;
+
+        /**
+         * How long a cached essay is served. Writes on this node evict it at once; this bounds how
+         * long a write on another node can go unseen here.
+         */
+        private Duration ttl = Duration.ofSeconds(30);
+    }
+}
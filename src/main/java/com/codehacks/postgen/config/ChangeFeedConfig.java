@@ -0,0 +1,52 @@
+package com.codehacks.postgen.config;
+
+import com.codehacks.postgen.changefeed.EssayChangeFeed;
+import com.codehacks.postgen.repository.OutboxStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Configuration for the live essay change feed. The feed tails the outbox table, so it sees changes
+ * published by any node's relay.
+ */
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties(ChangeFeedProperties.class)
+public class ChangeFeedConfig {
+
+    /**
+     * Threads writing changes to feed subscribers. A subscriber has at most one send queued at a time,
+     * so the queue is bounded by the number of subscribers.
+     * @param properties the change feed settings
+     * @return the ExecutorService
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService changeFeedSendPool(ChangeFeedProperties properties) {
+        return Executors.newFixedThreadPool(properties.getSendThreads(), new CustomizableThreadFactory("essay-changefeed-"));
+    }
+
+    /**
+     * Fans essay changes out to server-sent event subscribers.
+     * @param outboxStore the outbox, tailed for changes and read when resuming subscribers
+     * @param objectMapper the application's object mapper
+     * @param changeFeedSendPool the threads writing to subscribers
+     * @param properties the change feed settings
+     * @param meterRegistry the registry for change feed metrics
+     * @return the EssayChangeFeed
+     */
+    @Bean
+    public EssayChangeFeed essayChangeFeed(OutboxStore outboxStore, ObjectMapper objectMapper,
+                                           @Qualifier("changeFeedSendPool") ExecutorService changeFeedSendPool,
+                                           ChangeFeedProperties properties, MeterRegistry meterRegistry) {
+        return new EssayChangeFeed(outboxStore, objectMapper, changeFeedSendPool, properties, meterRegistry);
+    }
+}
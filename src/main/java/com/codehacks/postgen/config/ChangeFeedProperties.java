@@ -0,0 +1,52 @@
+package com.codehacks.postgen.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for the live essay change feed.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.changefeed")
+public class ChangeFeedProperties {
+
+    /**
+     * Events a subscriber may have waiting to be sent. A subscriber that falls further behind is
+     * disconnected and resumes from its last event id when it reconnects.
+     */
+    private int bufferSize = 256;
+
+    /**
+     * Recent events kept in memory to resume reconnecting subscribers from. Older positions are
+     * resumed from the outbox table.
+     */
+    private int replaySize = 1000;
+
+    /**
+     * How often the node reads newly published changes from the outbox table.
+     */
+    private Duration pollInterval = Duration.ofMillis(500);
+
+    /**
+     * Subscribers this node accepts; further subscriptions are rejected with 503.
+     */
+    private int maxSubscribers = 10000;
+
+    /**
+     * How long a subscription stays open before the client has to reconnect.
+     */
+    private Duration timeout = Duration.ofMinutes(30);
+
+    /**
+     * How often idle subscribers get a comment line, which keeps proxies from closing the
+     * connection and finds clients that have gone away.
+     */
+    private Duration heartbeatInterval = Duration.ofSeconds(15);
+
+    /**
+     * Threads writing events to subscribers.
+     */
+    private int sendThreads = 4;
+}
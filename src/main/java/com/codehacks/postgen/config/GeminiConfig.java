@@ -1,15 +1,28 @@
 package com.codehacks.postgen.config;
 
-import org.springframework.ai.chat.client.ChatClient;
+import com.codehacks.postgen.llm.HedgePolicy;
+import com.codehacks.postgen.llm.LlmCallExecutor;
+import com.codehacks.postgen.llm.RoutingChatModel;
+import com.google.cloud.vertexai.VertexAI;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.openai.OpenAiChatModel;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.ai.openai.api.OpenAiApi;
 import org.springframework.ai.vertexai.gemini.VertexAiGeminiChatModel;
-// For free Google AI Studio API:
-// import org.springframework.ai.openai.OpenAiChatModel;
-// import org.springframework.ai.openai.api.OpenAiApi;
-
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.ai.vertexai.gemini.VertexAiGeminiChatOptions;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Profile;
+import org.springframework.retry.support.RetryTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
 
 /**
  * Configuration for Google Gemini (Vertex AI) ChatClient.
@@ -18,49 +31,69 @@ import org.springframework.context.annotation.Profile;
 @Profile("!test")
 public class GeminiConfig {
 
+    private static final Logger logger = LoggerFactory.getLogger(GeminiConfig.class);
+
     /**
-     * Configures a ChatClient bean for Google Gemini (Vertex AI).
+     * Routes model calls across the auto-configured Vertex AI Gemini model and any additional
+     * providers listed under app.llm.routing.providers.
      *
      * To use this:
-     * 1. Ensure 'spring-ai-vertex-ai-gemini-spring-boot-starter' is in your pom.xml.
-     * 2. Set the following in application.yml:
+     * 1. Set the following in application.yml:
      * spring.ai.vertex.ai.gemini.project-id: your-google-cloud-project-id
      * spring.ai.vertex.ai.gemini.location: us-central1 (or your region)
      * spring.ai.vertex.ai.gemini.chat.options.model: gemini-pro (or gemini-1.5-pro, etc.)
      * spring.ai.vertex.ai.gemini.api-key: ${GEMINI_API_KEY} (or use Application Default Credentials)
+     * 2. Optionally add providers, e.g. a second Vertex model or the free Google AI Studio
+     * OpenAI-compatible endpoint (type: openai, base-url:
+     * https://generativelanguage.googleapis.com/v1beta/openai, api-key: ${GEMINI_API_KEY}).
      *
      * Note: For local development with Vertex AI, Google recommends Application Default Credentials (ADC)
      * rather than an API key directly. You'd typically use `gcloud auth application-default login`.
-     * An API key might be used for the public `generativelanguage.googleapis.com` endpoint (AI Studio).
      *
-     * This bean creates a ChatClient that can be injected into your services.
+     * Retries are handled once, by LlmCallExecutor, so the providers built here do not retry on their own.
+     * With app.llm.hedging.enabled, slow calls are hedged on the LLM call thread pool, each hedge taking
+     * its own room in the executor's adaptive limit and bulkhead.
      */
     @Bean
-    public ChatClient geminiChatClient(VertexAiGeminiChatModel chatModel) {
-        // You can add more customization to the ChatClient.Builder if needed,
-        // such as default system prompts, or tool integration.
-        return ChatClient.builder(chatModel).build();
-    }
+    @Primary
+    public RoutingChatModel routingChatModel(VertexAiGeminiChatModel geminiChatModel, VertexAI vertexAi,
+                                             LlmProperties properties, MeterRegistry meterRegistry,
+                                             @Qualifier("llmCallThreadPool") ExecutorService llmCallThreadPool,
+                                             LlmCallExecutor llmCallExecutor) {
+        LlmProperties.Routing routing = properties.getRouting();
+        List<RoutingChatModel.NamedModel> models = new ArrayList<>();
+        models.add(new RoutingChatModel.NamedModel(routing.getPrimaryName(), geminiChatModel));
+        for (LlmProperties.Provider provider : routing.getProviders()) {
+            models.add(new RoutingChatModel.NamedModel(provider.getName(), createProvider(provider, vertexAi)));
+        }
 
+        HedgePolicy hedgePolicy = properties.getHedging().isEnabled()
+                ? new HedgePolicy(properties.getHedging(), meterRegistry)
+                : null;
+        RoutingChatModel routingChatModel = new RoutingChatModel(models, routing.getDecay(),
+                routing.getExplorationRate(), hedgePolicy, llmCallThreadPool, llmCallExecutor,
+                meterRegistry);
+        logger.info("Routing model calls across providers: {}", routingChatModel.getProviderNames());
+        return routingChatModel;
+    }
 
-    /*
-    // --- ALTERNATIVE: For free Google AI Studio API (OpenAI Compatible Endpoint) ---
-    // If you choose this, make sure 'spring-ai-openai-spring-boot-starter' is in your pom.xml instead.
-    // And set the following in application.yml:
-    // spring.ai.openai.api-key: ${GEMINI_API_KEY}
-    // spring.ai.openai.base-url: https://generativelanguage.googleapis.com/v1beta/openai
-    // spring.ai.openai.chat.completions-path: /chat/completions
-    // spring.ai.openai.chat.options.model: gemini-pro (or gemini-1.5-pro, gemini-1.5-flash, etc.)
-
-    @Bean
-    public ChatClient geminiAiStudioChatClient(
-            @Value("${spring.ai.openai.api-key}") String apiKey,
-            @Value("${spring.ai.openai.base-url}") String baseUrl,
-            @Value("${spring.ai.openai.chat.completions-path}") String completionsPath) {
-
-        OpenAiApi openAiApi = new OpenAiApi(baseUrl, apiKey);
-        OpenAiChatModel chatModel = new OpenAiChatModel(openAiApi);
-        return ChatClient.builder(chatModel).build();
+    private ChatModel createProvider(LlmProperties.Provider provider, VertexAI vertexAi) {
+        RetryTemplate noRetry = RetryTemplate.builder().maxAttempts(1).build();
+        return switch (provider.getType()) {
+            case VERTEX -> VertexAiGeminiChatModel.builder()
+                    .vertexAI(vertexAi)
+                    .defaultOptions(VertexAiGeminiChatOptions.builder().model(provider.getModel()).build())
+                    .retryTemplate(noRetry)
+                    .build();
+            case OPENAI -> OpenAiChatModel.builder()
+                    .openAiApi(OpenAiApi.builder()
+                            .baseUrl(provider.getBaseUrl())
+                            .apiKey(provider.getApiKey())
+                            .completionsPath(provider.getCompletionsPath())
+                            .build())
+                    .defaultOptions(OpenAiChatOptions.builder().model(provider.getModel()).build())
+                    .retryTemplate(noRetry)
+                    .build();
+        };
     }
-    */
-}
\ No newline at end of file
+}
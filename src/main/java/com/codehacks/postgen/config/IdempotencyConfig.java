@@ -0,0 +1,55 @@
+package com.codehacks.postgen.config;
+
+import com.codehacks.postgen.idempotency.IdempotencyFilter;
+import com.codehacks.postgen.idempotency.IdempotentRequests;
+import com.codehacks.postgen.repository.IdempotencyKeyStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Configuration for Idempotency-Key handling on the essay write endpoints.
+ */
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties(IdempotencyProperties.class)
+@ConditionalOnProperty(prefix = "app.idempotency", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class IdempotencyConfig {
+
+    /**
+     * Tracks idempotency keys in memory and in Postgres.
+     * @param store the shared key store
+     * @param properties the idempotency settings
+     * @param meterRegistry the registry for idempotency metrics
+     * @return the IdempotentRequests
+     */
+    @Bean
+    public IdempotentRequests idempotentRequests(IdempotencyKeyStore store, IdempotencyProperties properties,
+                                                 MeterRegistry meterRegistry) {
+        return new IdempotentRequests(store, properties, meterRegistry);
+    }
+
+    /**
+     * Registers the idempotency filter ahead of the rate limiter, so that replayed retries cost
+     * the client no tokens.
+     * @param idempotentRequests the key tracker
+     * @param properties the idempotency settings
+     * @param rateLimitProperties the rate limit settings, for the API key header keys are scoped to
+     * @return the filter registration
+     */
+    @Bean
+    public FilterRegistrationBean<IdempotencyFilter> idempotencyFilter(IdempotentRequests idempotentRequests,
+                                                                       IdempotencyProperties properties,
+                                                                       RateLimitProperties rateLimitProperties) {
+        FilterRegistrationBean<IdempotencyFilter> registration = new FilterRegistrationBean<>(new IdempotencyFilter(
+                idempotentRequests, properties.getHeader(), rateLimitProperties.getApiKeyHeader()));
+        registration.setUrlPatterns(properties.getPaths());
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 5);
+        return registration;
+    }
+}
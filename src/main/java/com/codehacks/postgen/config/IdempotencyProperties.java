@@ -0,0 +1,68 @@
+package com.codehacks.postgen.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Settings for Idempotency-Key handling on the essay write endpoints.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.idempotency")
+public class IdempotencyProperties {
+
+    /**
+     * Whether requests carrying the header are deduplicated at all.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Header carrying the client's idempotency key.
+     */
+    private String header = "Idempotency-Key";
+
+    /**
+     * How long a response is replayed to retries of its request.
+     */
+    private Duration ttl = Duration.ofHours(24);
+
+    /**
+     * How long a claim on a key holds unless it is renewed. A node renews the claims of its running
+     * requests every heartbeat-interval; once one stops renewing, another node may take the key
+     * over after this long, on the assumption that the first one died.
+     */
+    private Duration lockTimeout = Duration.ofMinutes(2);
+
+    /**
+     * How often a node renews the claims of requests it is still running. Keep it well below lock-timeout.
+     */
+    private Duration heartbeatInterval = Duration.ofSeconds(30);
+
+    /**
+     * How long a duplicate waits for the request running under its key before getting 409.
+     */
+    private Duration maxWait = Duration.ofSeconds(30);
+
+    /**
+     * How often a duplicate checks the database while the request runs on another node.
+     */
+    private Duration pollInterval = Duration.ofMillis(250);
+
+    /**
+     * Responses kept in memory in front of the database.
+     */
+    private int cacheSize = 1000;
+
+    /**
+     * How often expired keys are deleted.
+     */
+    private Duration purgeInterval = Duration.ofHours(1);
+
+    /**
+     * URL patterns the filter is applied to; only POST, PUT and PATCH requests are deduplicated.
+     */
+    private List<String> paths = new ArrayList<>(List.of("/api/v1/essays", "/api/v1/essays/*"));
+}
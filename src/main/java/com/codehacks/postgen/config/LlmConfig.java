@@ -0,0 +1,197 @@
+package com.codehacks.postgen.config;
+
+import com.codehacks.postgen.llm.AdaptiveConcurrencyLimiter;
+import com.codehacks.postgen.llm.EssayPromptBuilder;
+import com.codehacks.postgen.llm.LlmCallExecutor;
+import com.codehacks.postgen.llm.LlmCallRecorder;
+import com.codehacks.postgen.llm.LlmRetryPolicy;
+import com.codehacks.postgen.llm.LongFormGenerator;
+import com.codehacks.postgen.llm.ModelCascade;
+import com.codehacks.postgen.llm.OutputLimiter;
+import com.codehacks.postgen.llm.TopicBatcher;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.timelimiter.TimeLimiterRegistry;
+import io.micrometer.context.ContextExecutorService;
+import io.micrometer.context.ContextSnapshotFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuration for the outbound AI model call pipeline.
+ */
+@Configuration
+@EnableConfigurationProperties(LlmProperties.class)
+public class LlmConfig {
+
+    /**
+     * Name of the resilience4j circuit breaker, bulkhead and time limiter instances guarding model calls.
+     */
+    public static final String LLM_INSTANCE = "llm";
+
+    /**
+     * Pool model calls run on, so the time limiter can give up on a call without pinning the request thread.
+     * Tasks carry the caller's trace context and MDC.
+     * <p>
+     * Each call the bulkhead admits takes one thread, and with hedging a second one for its attempts, which
+     * is where hedges run too; the pool has exactly that many. A call that timed out gives its bulkhead
+     * permit back but keeps its thread until the client gives up, so the pool does not grow with such calls:
+     * once it is full, new calls are rejected and answered as unavailable.
+     * @param properties the model call settings
+     * @param bulkheadRegistry the resilience4j bulkhead registry
+     * @return the ExecutorService
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService llmCallThreadPool(LlmProperties properties, BulkheadRegistry bulkheadRegistry) {
+        int maxConcurrentCalls = bulkheadRegistry.bulkhead(LLM_INSTANCE).getBulkheadConfig().getMaxConcurrentCalls();
+        int threads = properties.getHedging().isEnabled() ? 2 * maxConcurrentCalls : maxConcurrentCalls;
+        return withCallerContext(new ThreadPoolExecutor(0, threads, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), new CustomizableThreadFactory("llm-call-"),
+                new ThreadPoolExecutor.AbortPolicy()));
+    }
+
+    /**
+     * Executor that every model call goes through. The bulkhead is the hard ceiling, so it must admit at least
+     * the adaptive limiter's max-limit; otherwise calls the limiter lets through would be rejected as overload.
+     * @param properties the model call settings
+     * @param meterRegistry the registry for limiter metrics
+     * @param circuitBreakerRegistry the resilience4j circuit breaker registry
+     * @param bulkheadRegistry the resilience4j bulkhead registry
+     * @param timeLimiterRegistry the resilience4j time limiter registry
+     * @param llmCallThreadPool the pool model calls run on
+     * @return the LlmCallExecutor
+     */
+    @Bean
+    public LlmCallExecutor llmCallExecutor(LlmProperties properties, MeterRegistry meterRegistry,
+                                           CircuitBreakerRegistry circuitBreakerRegistry,
+                                           BulkheadRegistry bulkheadRegistry,
+                                           TimeLimiterRegistry timeLimiterRegistry,
+                                           @Qualifier("llmCallThreadPool") ExecutorService llmCallThreadPool) {
+        Bulkhead bulkhead = bulkheadRegistry.bulkhead(LLM_INSTANCE);
+        int maxConcurrentCalls = bulkhead.getBulkheadConfig().getMaxConcurrentCalls();
+        if (properties.getConcurrency().isEnabled() && properties.getConcurrency().getMaxLimit() > maxConcurrentCalls) {
+            throw new IllegalStateException("app.llm.concurrency.max-limit (" + properties.getConcurrency().getMaxLimit()
+                    + ") must not exceed resilience4j.bulkhead.instances." + LLM_INSTANCE + ".maxConcurrentCalls ("
+                    + maxConcurrentCalls + ")");
+        }
+        AdaptiveConcurrencyLimiter limiter = properties.getConcurrency().isEnabled()
+                ? new AdaptiveConcurrencyLimiter(properties.getConcurrency(), meterRegistry)
+                : null;
+        LlmRetryPolicy retryPolicy = properties.getRetry().isEnabled()
+                ? new LlmRetryPolicy(properties.getRetry(), meterRegistry)
+                : null;
+        return new LlmCallExecutor(retryPolicy, limiter,
+                circuitBreakerRegistry.circuitBreaker(LLM_INSTANCE),
+                bulkhead,
+                timeLimiterRegistry.timeLimiter(LLM_INSTANCE),
+                llmCallThreadPool);
+    }
+
+    /**
+     * Model tiers essays are generated with: the fast model first when the cascade is enabled, then the strong one.
+     * @param properties the model call settings
+     * @param meterRegistry the registry for cascade metrics
+     * @return the ModelCascade
+     */
+    @Bean
+    public ModelCascade modelCascade(LlmProperties properties, MeterRegistry meterRegistry) {
+        return new ModelCascade(properties.getCascade(), meterRegistry);
+    }
+
+    /**
+     * Packs concurrent generation requests into multi-essay prompts when batching is enabled.
+     * @param properties the model call settings
+     * @param meterRegistry the registry for batching metrics
+     * @return the TopicBatcher
+     */
+    @Bean
+    public TopicBatcher topicBatcher(LlmProperties properties, MeterRegistry meterRegistry) {
+        return new TopicBatcher(properties.getBatching(), meterRegistry);
+    }
+
+    /**
+     * Bounded pool long-form essay sections are generated on. When it is full the requesting
+     * thread generates the section itself, which slows that request down instead of queueing without limit.
+     * Tasks carry the caller's trace context and MDC.
+     * @param properties the model call settings
+     * @return the ExecutorService
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ExecutorService essaySectionThreadPool(LlmProperties properties) {
+        LlmProperties.LongForm longForm = properties.getLongForm();
+        return withCallerContext(new ThreadPoolExecutor(longForm.getSectionThreads(), longForm.getSectionThreads(),
+                0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(longForm.getSectionQueueCapacity()),
+                new CustomizableThreadFactory("essay-section-"),
+                new ThreadPoolExecutor.CallerRunsPolicy()));
+    }
+
+    /**
+     * Generates long essays as an outline plus parallel sections.
+     * @param properties the model call settings
+     * @param essaySectionThreadPool the pool sections run on
+     * @param essayPromptBuilder fits additional context to each prompt's budget
+     * @param meterRegistry the registry for long-form metrics
+     * @return the LongFormGenerator
+     */
+    @Bean
+    public LongFormGenerator longFormGenerator(LlmProperties properties,
+                                               @Qualifier("essaySectionThreadPool") ExecutorService essaySectionThreadPool,
+                                               EssayPromptBuilder essayPromptBuilder, MeterRegistry meterRegistry) {
+        return new LongFormGenerator(properties.getLongForm(), essaySectionThreadPool, essayPromptBuilder,
+                meterRegistry);
+    }
+
+    /**
+     * Builds essay prompts within the input-token budget.
+     * @param properties the model call settings
+     * @param meterRegistry the registry for prompt metrics
+     * @return the EssayPromptBuilder
+     */
+    @Bean
+    public EssayPromptBuilder essayPromptBuilder(LlmProperties properties, MeterRegistry meterRegistry) {
+        return new EssayPromptBuilder(properties.getPrompt(), meterRegistry);
+    }
+
+    /**
+     * Maps target lengths to output-token limits and stops streamed essays at the content limit.
+     * @param properties the model call settings
+     * @param meterRegistry the registry for output metrics
+     * @return the OutputLimiter
+     */
+    @Bean
+    public OutputLimiter outputLimiter(LlmProperties properties, MeterRegistry meterRegistry) {
+        return new OutputLimiter(properties.getOutput(), meterRegistry);
+    }
+
+    /**
+     * Records latency, time to first token, token counts and throughput of model calls.
+     * @param meterRegistry the registry for model call metrics
+     * @param observationRegistry the registry for model call spans
+     * @return the LlmCallRecorder
+     */
+    @Bean
+    public LlmCallRecorder llmCallRecorder(MeterRegistry meterRegistry, ObservationRegistry observationRegistry) {
+        return new LlmCallRecorder(meterRegistry, observationRegistry);
+    }
+
+    /**
+     * Makes tasks run with the submitting thread's context (current observation, trace ids in the MDC),
+     * so spans for work done on a pool stay children of the request's span.
+     */
+    private static ExecutorService withCallerContext(ExecutorService executor) {
+        return ContextExecutorService.wrap(executor, ContextSnapshotFactory.builder().build());
+    }
+}
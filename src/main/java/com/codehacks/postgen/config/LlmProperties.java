@@ -0,0 +1,371 @@
+package com.codehacks.postgen.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Settings for outbound calls to the AI model.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.llm")
+public class LlmProperties {
+
+    private Concurrency concurrency = new Concurrency();
+
+    private Retry retry = new Retry();
+
+    private Routing routing = new Routing();
+
+    private Hedging hedging = new Hedging();
+
+    private Cascade cascade = new Cascade();
+
+    private Batching batching = new Batching();
+
+    private LongForm longForm = new LongForm();
+
+    private Prompt prompt = new Prompt();
+
+    private Output output = new Output();
+
+    /**
+     * Adaptive (AIMD) concurrency limit for in-flight model calls.
+     */
+    @Data
+    public static class Concurrency {
+
+        /**
+         * Whether calls go through the adaptive limiter.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Limit the limiter starts from before it has seen any traffic.
+         */
+        private int initialLimit = 4;
+
+        /**
+         * Lower bound for the limit.
+         */
+        private int minLimit = 1;
+
+        /**
+         * Upper bound for the limit.
+         */
+        private int maxLimit = 64;
+
+        /**
+         * Factor the limit is multiplied by on a throttle, timeout or latency spike.
+         */
+        private double backoffRatio = 0.9;
+
+        /**
+         * How far latency per output character may rise above the no-load baseline of calls of the same
+         * kind and similar length before it counts as congestion.
+         */
+        private double latencyTolerance = 2.0;
+
+        /**
+         * Number of samples of one kind and length after which their no-load baseline is re-measured.
+         */
+        private int baselineResetSamples = 500;
+
+        /**
+         * Maximum number of calls allowed to wait for a slot.
+         */
+        private int maxQueueSize = 32;
+
+        /**
+         * Maximum time a call waits for a slot before being shed.
+         */
+        private Duration maxQueueWait = Duration.ofSeconds(2);
+    }
+
+    /**
+     * Server-side retries for transient model failures (timeouts, throttling, provider errors).
+     */
+    @Data
+    public static class Retry {
+
+        /**
+         * Whether transient failures are retried.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Maximum number of attempts per call, including the first one.
+         */
+        private int maxAttempts = 3;
+
+        /**
+         * Smallest delay between attempts.
+         */
+        private Duration baseDelay = Duration.ofMillis(200);
+
+        /**
+         * Largest delay between attempts.
+         */
+        private Duration maxDelay = Duration.ofSeconds(5);
+
+        /**
+         * Retries allowed as a fraction of first attempts (0.1 = at most one retry per ten calls).
+         */
+        private double budgetRatio = 0.1;
+
+        /**
+         * Retries always allowed per second regardless of traffic, so a quiet node can still retry.
+         */
+        private double minRetriesPerSecond = 0.2;
+
+        /**
+         * Maximum number of retries the budget can bank during quiet periods.
+         */
+        private int maxBudget = 20;
+    }
+
+    /**
+     * Latency-aware routing across several model providers.
+     */
+    @Data
+    public static class Routing {
+
+        /**
+         * Name the auto-configured Vertex AI Gemini model is routed and reported under.
+         */
+        private String primaryName = "gemini";
+
+        /**
+         * Weight of the newest sample in the latency and error-rate moving averages.
+         */
+        private double decay = 0.2;
+
+        /**
+         * Share of calls sent to a random provider, so a provider that was penalised can prove it has recovered.
+         */
+        private double explorationRate = 0.02;
+
+        /**
+         * Additional providers routed alongside the primary model.
+         */
+        private List<Provider> providers = new ArrayList<>();
+    }
+
+    /**
+     * Hedged model calls: a second attempt is started when the first one is slower than most recent calls.
+     */
+    @Data
+    public static class Hedging {
+
+        /**
+         * Whether slow calls are hedged.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Percentile of recent call latency after which a hedge is fired (0.95 = slower than 95% of recent calls).
+         */
+        private double percentile = 0.95;
+
+        /**
+         * Number of recent call latencies the percentile is computed over.
+         */
+        private int windowSize = 200;
+
+        /**
+         * Calls that must be observed before hedging starts.
+         */
+        private int minSamples = 20;
+
+        /**
+         * Shortest wait before hedging, however fast recent calls were.
+         */
+        private Duration minDelay = Duration.ofMillis(500);
+
+        /**
+         * Maximum number of hedges fired per minute, capping the extra token cost.
+         */
+        private int maxHedgesPerMinute = 10;
+    }
+
+    /**
+     * Tiered model cascade: a fast model is tried first and the call escalates to the strong model
+     * only when the draft fails validation or the quality check.
+     */
+    @Data
+    public static class Cascade {
+
+        /**
+         * Whether the fast tier is tried first. When disabled every call goes straight to the strong model.
+         */
+        private boolean enabled = false;
+
+        /**
+         * Model used for the first, fast tier.
+         */
+        private String fastModel = "gemini-1.5-flash";
+
+        /**
+         * Model used for the escalation tier. Empty uses the provider's configured default model.
+         */
+        private String strongModel;
+
+        /**
+         * Fewest paragraphs a fast-tier draft needs to be accepted.
+         */
+        private int minParagraphs = 3;
+
+        /**
+         * Whether a fast-tier draft must end on a complete sentence to be accepted.
+         */
+        private boolean requireCompleteEnding = true;
+    }
+
+    /**
+     * Micro-batching of concurrent generation requests into one multi-essay prompt.
+     */
+    @Data
+    public static class Batching {
+
+        /**
+         * Whether concurrent requests are batched.
+         */
+        private boolean enabled = false;
+
+        /**
+         * How long the first request of a batch waits for others to join it.
+         */
+        private Duration window = Duration.ofMillis(50);
+
+        /**
+         * Most topics packed into one prompt. Keep it small: every essay in a batch shares one response.
+         */
+        private int maxSize = 4;
+    }
+
+    /**
+     * Long-form generation: an outline call, then the sections in parallel.
+     */
+    @Data
+    public static class LongForm {
+
+        /**
+         * Most sections taken from the outline.
+         */
+        private int maxSections = 6;
+
+        /**
+         * Fewest sections the outline must have; shorter outlines fail the generation.
+         */
+        private int minSections = 2;
+
+        /**
+         * Words the whole essay aims for, shared out between the sections.
+         */
+        private int targetWords = 1200;
+
+        /**
+         * Threads generating sections, shared by all long-form requests.
+         */
+        private int sectionThreads = 8;
+
+        /**
+         * Sections allowed to wait for a thread; beyond that the requesting thread generates the section itself.
+         */
+        private int sectionQueueCapacity = 32;
+    }
+
+    /**
+     * Prompt size limits.
+     */
+    @Data
+    public static class Prompt {
+
+        /**
+         * Estimated input tokens a generation prompt may use; additional context is trimmed to fit.
+         */
+        private int maxInputTokens = 1024;
+
+        /**
+         * Characters per token used to estimate prompt size.
+         */
+        private double charsPerToken = 4.0;
+
+        /**
+         * Smallest useful amount of additional context; if less than this fits, the context is left out.
+         */
+        private int minContextTokens = 16;
+    }
+
+    /**
+     * Output length control.
+     */
+    @Data
+    public static class Output {
+
+        /**
+         * Whether essays are streamed, so a response can be stopped as soon as it reaches the content limit.
+         */
+        private boolean streaming = false;
+
+        /**
+         * Tokens per word used to turn a target word count into a max-output-token setting.
+         */
+        private double tokensPerWord = 1.4;
+
+        /**
+         * Allowance on top of the target, so the model can finish its last paragraph.
+         */
+        private double headroom = 1.25;
+    }
+
+    /**
+     * One additional model provider.
+     */
+    @Data
+    public static class Provider {
+
+        /**
+         * Name used in logs and metrics.
+         */
+        private String name;
+
+        /**
+         * Kind of API the provider speaks.
+         */
+        private ProviderType type = ProviderType.VERTEX;
+
+        /**
+         * Model to call.
+         */
+        private String model;
+
+        /**
+         * Base URL, for OpenAI-compatible providers.
+         */
+        private String baseUrl;
+
+        /**
+         * API key, for OpenAI-compatible providers.
+         */
+        private String apiKey;
+
+        /**
+         * Chat completions path, for OpenAI-compatible providers.
+         */
+        private String completionsPath = "/chat/completions";
+    }
+
+    /**
+     * Supported provider APIs.
+     */
+    public enum ProviderType {
+        /** Vertex AI Gemini, sharing the auto-configured Vertex AI connection. */
+        VERTEX,
+        /** Any OpenAI-compatible chat completions endpoint, e.g. Google AI Studio. */
+        OPENAI
+    }
+}
@@ -0,0 +1,93 @@
+package com.codehacks.postgen.config;
+
+import com.codehacks.postgen.dto.EssayChangeResponse;
+import com.codehacks.postgen.dto.EssayFullUpdateRequest;
+import com.codehacks.postgen.dto.EssayLookupResponse;
+import com.codehacks.postgen.dto.EssayRequest;
+import com.codehacks.postgen.dto.EssayResponse;
+import com.codehacks.postgen.dto.EssayRevisionResponse;
+import com.codehacks.postgen.dto.EssayUpdateStatusRequest;
+import com.codehacks.postgen.model.Essay;
+import com.codehacks.postgen.model.EssayContent;
+import com.codehacks.postgen.model.EssayRevision;
+import com.codehacks.postgen.model.EssayStatus;
+import com.codehacks.postgen.model.RateLimitBucket;
+import com.codehacks.postgen.outbox.EssayChangeEvent;
+import com.codehacks.postgen.repository.EssayRevisionRepository;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+/**
+ * Reflection, proxy and resource hints for the native image, for what Spring's AOT processing
+ * cannot infer on its own. Registered at build time; the JVM build ignores them.
+ */
+public class NativeRuntimeHints implements RuntimeHintsRegistrar {
+
+    private static final String VERTEX_AI_MESSAGES = "com.google.cloud.vertexai.api";
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        // JDK proxies created by StatementCountingDataSource
+        for (Class<?> type : new Class<?>[] {Connection.class, Statement.class, PreparedStatement.class,
+                CallableStatement.class, ResultSet.class}) {
+            hints.proxies().registerJdkProxy(type);
+        }
+
+        // Entities Hibernate populates through their fields
+        for (Class<?> type : new Class<?>[] {Essay.class, EssayContent.class, EssayRevision.class,
+                RateLimitBucket.class, EssayStatus.class}) {
+            hints.reflection().registerType(type, MemberCategory.DECLARED_FIELDS,
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.INVOKE_DECLARED_METHODS);
+        }
+
+        // DTOs springdoc introspects for the OpenAPI schema, beyond the binding Spring MVC registers
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), EssayRequest.class,
+                EssayResponse.class, EssayFullUpdateRequest.class, EssayUpdateStatusRequest.class,
+                EssayRevisionResponse.class, EssayLookupResponse.class);
+
+        // Written as JSON by FileOutboxSink and EssayChangeFeed
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), EssayChangeEvent.class,
+                EssayChangeResponse.class);
+
+        // Built by a JPQL constructor expression
+        hints.reflection().registerType(EssayRevisionRepository.RevisionSummary.class,
+                MemberCategory.INVOKE_DECLARED_CONSTRUCTORS);
+
+        hints.resources().registerPattern("db/migration/*.sql");
+        hints.resources().registerPattern("META-INF/resources/webjars/swagger-ui/**");
+
+        // Protobuf messages of the Vertex AI client look up their accessors reflectively
+        registerPackage(hints, classLoader, VERTEX_AI_MESSAGES, MemberCategory.INVOKE_PUBLIC_METHODS);
+    }
+
+    private static void registerPackage(RuntimeHints hints, ClassLoader classLoader, String packageName,
+                                        MemberCategory... categories) {
+        String path = packageName.replace('.', '/');
+        try {
+            Resource[] classes = new PathMatchingResourcePatternResolver(classLoader)
+                    .getResources("classpath*:" + path + "/*.class");
+            for (Resource resource : classes) {
+                String fileName = resource.getFilename();
+                if (fileName != null && !fileName.equals("package-info.class")) {
+                    String className = packageName + "." + fileName.substring(0, fileName.length() - ".class".length());
+                    hints.reflection().registerType(TypeReference.of(className), categories);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to scan " + packageName + " for native hints", e);
+        }
+    }
+}
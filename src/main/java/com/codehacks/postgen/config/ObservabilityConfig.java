@@ -0,0 +1,122 @@
+package com.codehacks.postgen.config;
+
+import com.codehacks.postgen.observability.MethodTimingAspect;
+import com.codehacks.postgen.observability.RepositoryObservationAspect;
+import com.codehacks.postgen.observability.SqlStatementCounter;
+import com.codehacks.postgen.observability.SqlStatementMetricsFilter;
+import com.codehacks.postgen.observability.StatementCountingDataSource;
+import com.codehacks.postgen.observability.StatementListener;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import io.opentelemetry.exporter.logging.LoggingSpanExporter;
+import io.opentelemetry.sdk.trace.export.SpanExporter;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Configuration for method timers, per-request SQL statement metrics and tracing.
+ * Hibernate statistics are published by Spring Boot's Hibernate metrics support; spans are
+ * created through the Observation API and exported by Spring Boot's OpenTelemetry support,
+ * which also puts the trace and span ids in the logging MDC.
+ */
+@Configuration
+@EnableConfigurationProperties(ObservabilityProperties.class)
+public class ObservabilityConfig {
+
+    private static final String DATA_SOURCE_BEAN = "dataSource";
+
+    /**
+     * Times public controller and service methods.
+     * @param meterRegistry the registry for method timers
+     * @return the MethodTimingAspect
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "app.observability", name = "method-timers", havingValue = "true",
+            matchIfMissing = true)
+    public MethodTimingAspect methodTimingAspect(MeterRegistry meterRegistry) {
+        return new MethodTimingAspect(meterRegistry);
+    }
+
+    /**
+     * Observes repository calls as spans.
+     * @param observationRegistry the registry for repository spans
+     * @return the RepositoryObservationAspect
+     */
+    @Bean
+    public RepositoryObservationAspect repositoryObservationAspect(ObservationRegistry observationRegistry) {
+        return new RepositoryObservationAspect(observationRegistry);
+    }
+
+    /**
+     * Wraps the application data source so executed statements are counted per request, and reported
+     * to any other StatementListener beans. Only the dataSource bean is wrapped: the pools behind a
+     * read/write routing data source are reached through it, and would otherwise be counted twice.
+     * Static, so the post-processor is registered before the data source is created.
+     * @param extraListeners further listeners, such as a test's statement recorder
+     * @return the post-processor
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "app.observability.sql", name = "enabled", havingValue = "true",
+            matchIfMissing = true)
+    public static BeanPostProcessor statementCountingDataSourcePostProcessor(
+            ObjectProvider<StatementListener> extraListeners) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource && !(bean instanceof StatementCountingDataSource)
+                        && DATA_SOURCE_BEAN.equals(beanName)) {
+                    List<StatementListener> listeners = new ArrayList<>();
+                    listeners.add(SqlStatementCounter.LISTENER);
+                    extraListeners.orderedStream().forEach(listeners::add);
+                    return new StatementCountingDataSource(dataSource, listeners);
+                }
+                return bean;
+            }
+        };
+    }
+
+    /**
+     * Publishes per-request statement counts and logs requests over the thresholds.
+     * Runs first, so statements made by other filters, such as the rate limiter, are counted too.
+     * @param meterRegistry the registry for per-request SQL metrics
+     * @param properties the observability settings
+     * @return the filter registration
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "app.observability.sql", name = "enabled", havingValue = "true",
+            matchIfMissing = true)
+    public FilterRegistrationBean<SqlStatementMetricsFilter> sqlStatementMetricsFilter(
+            MeterRegistry meterRegistry, ObservabilityProperties properties) {
+        ObservabilityProperties.Sql sql = properties.getSql();
+        FilterRegistrationBean<SqlStatementMetricsFilter> registration = new FilterRegistrationBean<>(
+                new SqlStatementMetricsFilter(meterRegistry, sql.getWarnStatements(), sql.getWarnTime()));
+        registration.addUrlPatterns("/api/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE);
+        return registration;
+    }
+
+    /**
+     * Writes finished spans to the log, alongside any OTLP exporter, for local runs without a collector.
+     */
+    @Configuration(proxyBeanMethods = false)
+    @ConditionalOnClass(name = "io.opentelemetry.exporter.logging.LoggingSpanExporter")
+    @ConditionalOnProperty(prefix = "app.observability.tracing", name = "log-spans", havingValue = "true")
+    static class LoggingSpanExportConfig {
+
+        @Bean
+        SpanExporter loggingSpanExporter() {
+            return LoggingSpanExporter.create();
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.codehacks.postgen.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Settings for method timers, per-request SQL statement metrics and trace export.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.observability")
+public class ObservabilityProperties {
+
+    /**
+     * Whether public controller and service methods are timed.
+     */
+    private boolean methodTimers = true;
+
+    private Sql sql = new Sql();
+
+    private Tracing tracing = new Tracing();
+
+    /**
+     * Per-request JDBC statement counting.
+     */
+    @Data
+    public static class Sql {
+
+        /**
+         * Whether the data source is wrapped to count statements and their execution time.
+         */
+        private boolean enabled = true;
+
+        /**
+         * Requests running more statements than this are logged at WARN.
+         */
+        private int warnStatements = 20;
+
+        /**
+         * Requests spending longer than this executing statements are logged at WARN.
+         */
+        private Duration warnTime = Duration.ofMillis(500);
+    }
+
+    /**
+     * Local trace export. OTLP export is configured with Spring Boot's management.otlp.tracing settings.
+     */
+    @Data
+    public static class Tracing {
+
+        /**
+         * Whether finished spans are also written to the application log, for local runs without a collector.
+         */
+        private boolean logSpans = false;
+    }
+}
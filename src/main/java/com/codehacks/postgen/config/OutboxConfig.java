@@ -0,0 +1,79 @@
+package com.codehacks.postgen.config;
+
+import com.codehacks.postgen.outbox.ApplicationEventOutboxSink;
+import com.codehacks.postgen.outbox.FileOutboxSink;
+import com.codehacks.postgen.outbox.LocalBrokerOutboxSink;
+import com.codehacks.postgen.outbox.OutboxRelay;
+import com.codehacks.postgen.outbox.OutboxSink;
+import com.codehacks.postgen.repository.OutboxStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.util.List;
+
+/**
+ * Configuration for the essay change outbox: the sinks enabled under app.outbox and the relay
+ * that publishes to them. Any other {@link OutboxSink} bean is published to as well.
+ */
+@Configuration
+@EnableScheduling
+@EnableConfigurationProperties(OutboxProperties.class)
+public class OutboxConfig {
+
+    /**
+     * Publishes essay changes as application events.
+     * @param eventPublisher the application's event publisher
+     * @return the sink
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "app.outbox.events", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public ApplicationEventOutboxSink applicationEventOutboxSink(ApplicationEventPublisher eventPublisher) {
+        return new ApplicationEventOutboxSink(eventPublisher);
+    }
+
+    /**
+     * Appends essay changes to a JSON lines file.
+     * @param properties the outbox settings
+     * @param objectMapper the application's object mapper
+     * @return the sink
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "app.outbox.file", name = "enabled", havingValue = "true")
+    public FileOutboxSink fileOutboxSink(OutboxProperties properties, ObjectMapper objectMapper) {
+        return new FileOutboxSink(properties.getFile().getPath(), objectMapper);
+    }
+
+    /**
+     * Keeps recent essay changes on an in-memory topic.
+     * @param properties the outbox settings
+     * @return the sink
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "app.outbox.broker", name = "enabled", havingValue = "true")
+    public LocalBrokerOutboxSink localBrokerOutboxSink(OutboxProperties properties) {
+        return new LocalBrokerOutboxSink(properties.getBroker().getCapacity());
+    }
+
+    /**
+     * Publishes the outbox to every sink on a schedule.
+     * @param outboxStore the outbox
+     * @param sinks all sink beans
+     * @param properties the outbox settings
+     * @param transactionOperations the transaction template
+     * @param meterRegistry the registry for relay metrics
+     * @return the relay
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "app.outbox", name = "relay-enabled", havingValue = "true", matchIfMissing = true)
+    public OutboxRelay outboxRelay(OutboxStore outboxStore, List<OutboxSink> sinks, OutboxProperties properties,
+                                   TransactionOperations transactionOperations, MeterRegistry meterRegistry) {
+        return new OutboxRelay(outboxStore, sinks, properties, transactionOperations, meterRegistry);
+    }
+}
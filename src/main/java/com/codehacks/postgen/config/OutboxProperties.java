@@ -0,0 +1,97 @@
+package com.codehacks.postgen.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Settings for the essay change outbox and its relay.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.outbox")
+public class OutboxProperties {
+
+    /**
+     * Whether this node runs the relay. Changes are always written to the outbox; only one node
+     * publishes at a time either way.
+     */
+    private boolean relayEnabled = true;
+
+    /**
+     * How long the relay waits between polls once the outbox is drained.
+     */
+    private Duration pollInterval = Duration.ofMillis(500);
+
+    /**
+     * Events published per batch, in one transaction.
+     */
+    private int batchSize = 100;
+
+    /**
+     * Batches published per poll before the relay yields.
+     */
+    private int maxBatchesPerPoll = 10;
+
+    /**
+     * Published events are deleted after this long.
+     */
+    private Duration retention = Duration.ofDays(7);
+
+    /**
+     * How often published events past the retention are deleted.
+     */
+    private Duration purgeInterval = Duration.ofHours(1);
+
+    /**
+     * Publishes events as Spring application events, for in-process listeners.
+     */
+    private Sink events = new Sink(true);
+
+    private FileSink file = new FileSink();
+
+    private BrokerSink broker = new BrokerSink();
+
+    /**
+     * Settings of a sink that only needs switching on or off.
+     */
+    @Data
+    public static class Sink {
+
+        private boolean enabled;
+
+        public Sink() {
+        }
+
+        public Sink(boolean enabled) {
+            this.enabled = enabled;
+        }
+    }
+
+    /**
+     * Appends events as JSON lines to a file.
+     */
+    @Data
+    public static class FileSink {
+
+        private boolean enabled = false;
+
+        private Path path = Path.of("outbox", "essay-events.jsonl");
+    }
+
+    /**
+     * Keeps the most recent events in an in-memory topic that consumers read by offset,
+     * standing in for a message broker.
+     */
+    @Data
+    public static class BrokerSink {
+
+        private boolean enabled = false;
+
+        /**
+         * Events the topic retains; older ones are dropped.
+         */
+        private int capacity = 1000;
+    }
+}
@@ -1,28 +1,37 @@
 package com.codehacks.postgen.config;
 
-import io.github.resilience4j.ratelimiter.RateLimiter;
-import io.github.resilience4j.ratelimiter.RateLimiterConfig;
+import com.codehacks.postgen.ratelimit.ClientRateLimitFilter;
+import com.codehacks.postgen.ratelimit.ClientRateLimiter;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import java.time.Duration;
+import org.springframework.core.Ordered;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * Configuration for rate limiting.
  */
 @Configuration
+@EnableScheduling
+@EnableConfigurationProperties(RateLimitProperties.class)
 public class RateLimitConfig {
 
     /**
-     * Bean for essay generation rate limiter.
-     * @return the RateLimiter
+     * Registers the per-client rate limit filter on the essay generation endpoints.
+     * @param rateLimiter the shared client rate limiter
+     * @param properties the rate limit settings
+     * @return the filter registration
      */
     @Bean
-    public RateLimiter essayGenerationRateLimiter() {
-        RateLimiterConfig config = RateLimiterConfig.custom()
-                .limitForPeriod(3) // 3 requests
-                .limitRefreshPeriod(Duration.ofSeconds(5)) // every 5 seconds
-                .timeoutDuration(Duration.ofSeconds(1)) // wait up to 1 second
-                .build();
-        return RateLimiter.of("customEssayRateLimiter", config);
+    @ConditionalOnProperty(prefix = "app.rate-limit", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public FilterRegistrationBean<ClientRateLimitFilter> essayGenerationRateLimitFilter(
+            ClientRateLimiter rateLimiter, RateLimitProperties properties) {
+        FilterRegistrationBean<ClientRateLimitFilter> registration =
+                new FilterRegistrationBean<>(new ClientRateLimitFilter(rateLimiter, properties.getApiKeyHeader()));
+        registration.setUrlPatterns(properties.getPaths());
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
     }
-}
\ No newline at end of file
+}
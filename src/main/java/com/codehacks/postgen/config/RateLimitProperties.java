@@ -0,0 +1,79 @@
+package com.codehacks.postgen.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Per-client rate limiting settings for the essay generation endpoints.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.rate-limit")
+public class RateLimitProperties {
+
+    /**
+     * Whether the per-client limiter is applied at all.
+     */
+    private boolean enabled = true;
+
+    /**
+     * Maximum number of tokens a client bucket can hold (the burst size).
+     */
+    private int capacity = 3;
+
+    /**
+     * Number of tokens added back to a bucket every refill period.
+     */
+    private int refillTokens = 3;
+
+    /**
+     * Period over which refillTokens are added back.
+     */
+    private Duration refillPeriod = Duration.ofSeconds(5);
+
+    /**
+     * Number of tokens a node claims from the shared bucket in one round trip. Leased tokens are
+     * spent locally without touching the database, but only on the node that leased them, and are
+     * lost if still unspent when the lease expires. Keep it at most capacity divided by the number
+     * of nodes, or a client spread over several nodes is rejected before it reaches its limit.
+     */
+    private int leaseSize = 1;
+
+    /**
+     * How long unspent leased tokens stay valid on a node.
+     */
+    private Duration leaseTtl = Duration.ofSeconds(2);
+
+    /**
+     * Buckets that have been idle for longer than this are purged from the shared store.
+     */
+    private Duration idleBucketTtl = Duration.ofMinutes(10);
+
+    /**
+     * How often idle buckets are purged, locally and from the shared store.
+     */
+    private Duration purgeInterval = Duration.ofMinutes(1);
+
+    /**
+     * Header carrying the client's API key. Requests without it are limited per remote IP.
+     */
+    private String apiKeyHeader = "X-API-Key";
+
+    /**
+     * URL patterns the limiter is applied to.
+     */
+    private List<String> paths = new ArrayList<>(List.of(
+            "/api/v1/essays/generate",
+            "/api/v1/essays/generate/*"));
+
+    /**
+     * Refill rate expressed in tokens per second.
+     * @return tokens per second
+     */
+    public double refillRatePerSecond() {
+        return refillTokens / (refillPeriod.toMillis() / 1000.0);
+    }
+}
@@ -0,0 +1,95 @@
+package com.codehacks.postgen.config;
+
+import com.codehacks.postgen.datasource.ReadWriteRoutingDataSource;
+import com.codehacks.postgen.datasource.ReplicaLagMonitor;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.StringUtils;
+
+import javax.sql.DataSource;
+
+/**
+ * Replaces the single auto-configured pool with a primary and a replica pool when a read replica
+ * is configured. {@code @Transactional(readOnly = true)} methods read from the replica, everything
+ * else uses the primary. Both pools are beans, so each gets its own hikaricp.* metrics, tagged
+ * with the pool name.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.datasource.replica", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(ReplicaDataSourceProperties.class)
+public class ReadReplicaConfig {
+
+    /**
+     * The primary pool, configured by the usual spring.datasource settings.
+     * @param properties the spring.datasource settings
+     * @return the primary pool
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    /**
+     * The replica pool. Its connections are read-only, so a misrouted write fails instead of
+     * reaching a standby.
+     * @param primary the spring.datasource settings, for the driver and default credentials
+     * @param replica the replica settings
+     * @return the replica pool
+     */
+    @Bean
+    @ConfigurationProperties(prefix = "app.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource(DataSourceProperties primary, ReplicaDataSourceProperties replica) {
+        HikariDataSource dataSource = DataSourceBuilder.create()
+                .type(HikariDataSource.class)
+                .driverClassName(primary.determineDriverClassName())
+                .url(replica.getUrl())
+                .username(StringUtils.hasText(replica.getUsername()) ? replica.getUsername() : primary.determineUsername())
+                .password(replica.getPassword() != null ? replica.getPassword() : primary.determinePassword())
+                .build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    /**
+     * Checks the replica's lag on a schedule.
+     * @param replicaDataSource the replica pool
+     * @param properties the replica settings
+     * @param meterRegistry the registry for the lag gauge
+     * @return the ReplicaLagMonitor
+     */
+    @Bean
+    public ReplicaLagMonitor replicaLagMonitor(@Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                               ReplicaDataSourceProperties properties, MeterRegistry meterRegistry) {
+        return new ReplicaLagMonitor(new JdbcTemplate(replicaDataSource), properties.getMaxLag(), meterRegistry);
+    }
+
+    /**
+     * The data source JPA and JDBC use: routes each transaction to the primary or the replica.
+     * @param primaryDataSource the primary pool
+     * @param replicaDataSource the replica pool
+     * @param lagMonitor tells whether the replica may be used
+     * @param meterRegistry the registry for routing counters
+     * @return the routing data source
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(@Qualifier("primaryDataSource") DataSource primaryDataSource,
+                                 @Qualifier("replicaDataSource") DataSource replicaDataSource,
+                                 ReplicaLagMonitor lagMonitor, MeterRegistry meterRegistry) {
+        return new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource, lagMonitor, meterRegistry).lazy();
+    }
+}
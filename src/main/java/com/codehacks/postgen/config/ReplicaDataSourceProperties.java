@@ -0,0 +1,44 @@
+package com.codehacks.postgen.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+/**
+ * Read replica settings. Pool settings for the replica go under app.datasource.replica.hikari.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.datasource.replica")
+public class ReplicaDataSourceProperties {
+
+    /**
+     * Whether read-only transactions are sent to the replica.
+     */
+    private boolean enabled = false;
+
+    /**
+     * JDBC URL of the replica.
+     */
+    private String url;
+
+    /**
+     * Replica user; defaults to the primary's user.
+     */
+    private String username;
+
+    /**
+     * Replica password; defaults to the primary's password.
+     */
+    private String password;
+
+    /**
+     * Reads go to the primary while the replica is further behind than this.
+     */
+    private Duration maxLag = Duration.ofSeconds(5);
+
+    /**
+     * How often the replica's lag is checked.
+     */
+    private Duration lagCheckInterval = Duration.ofSeconds(2);
+}
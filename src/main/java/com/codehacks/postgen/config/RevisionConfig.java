@@ -0,0 +1,12 @@
+package com.codehacks.postgen.config;
+
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Configuration for the essay revision history.
+ */
+@Configuration
+@EnableConfigurationProperties(RevisionProperties.class)
+public class RevisionConfig {
+}
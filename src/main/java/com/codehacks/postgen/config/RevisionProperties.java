@@ -0,0 +1,19 @@
+package com.codehacks.postgen.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Settings for the essay revision history.
+ */
+@Data
+@ConfigurationProperties(prefix = "app.revisions")
+public class RevisionProperties {
+
+    /**
+     * A full snapshot of the text is stored every this many revisions; the ones in between store
+     * a delta against the previous revision. Rebuilding a revision applies at most this many
+     * deltas minus one.
+     */
+    private int snapshotInterval = 10;
+}
@@ -0,0 +1,68 @@
+package com.codehacks.postgen.controller;
+
+import com.codehacks.postgen.changefeed.EssayChangeFeed;
+import com.codehacks.postgen.dto.EssayChangeResponse;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping(EssayController.BASE_PATH)
+@Tag(name = "Essays", description = "API for managing generated essays")
+public class EssayChangeController {
+
+    private static final Logger logger = LoggerFactory.getLogger(EssayChangeController.class);
+    public static final String LAST_EVENT_ID_HEADER = "Last-Event-ID";
+
+    private final EssayChangeFeed changeFeed;
+
+    public EssayChangeController(EssayChangeFeed changeFeed) {
+        this.changeFeed = changeFeed;
+    }
+
+    /**
+     * Streams essay changes as server-sent events.
+     *
+     * @param lastEventId The id of the last change the client received, sent by EventSource when it reconnects.
+     * @return SseEmitter sending each create, update, status change and delete as it is published.
+     */
+    @GetMapping(path = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream essay changes",
+            description = "Sends essay changes as server-sent events, starting after Last-Event-ID when given. "
+                    + "A 'reset' event means the changes since Last-Event-ID are no longer available and the essays should be reloaded.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Change stream opened",
+                    content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE,
+                            schema = @Schema(implementation = EssayChangeResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid Last-Event-ID",
+                    content = @Content(mediaType = "text/plain")),
+            @ApiResponse(responseCode = "503", description = "Too many subscribers on this node",
+                    content = @Content(mediaType = "text/plain"))
+    })
+    public SseEmitter streamChanges(
+            @Parameter(description = "Id of the last change received")
+            @RequestHeader(value = LAST_EVENT_ID_HEADER, required = false) String lastEventId) {
+        Long after = null;
+        if (lastEventId != null && !lastEventId.isBlank()) {
+            try {
+                after = Long.parseLong(lastEventId.trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid Last-Event-ID: " + lastEventId);
+            }
+        }
+        logger.debug("Opening change feed subscription after event {}", after);
+        return changeFeed.subscribe(after);
+    }
+}
@@ -1,11 +1,14 @@
 package com.codehacks.postgen.controller;
 
+import com.codehacks.postgen.dto.EssayLookupResponse;
 import com.codehacks.postgen.dto.EssayRequest;
 import com.codehacks.postgen.dto.EssayResponse;
+import com.codehacks.postgen.dto.EssayRevisionResponse;
 import com.codehacks.postgen.dto.EssayUpdateStatusRequest;
 import com.codehacks.postgen.dto.EssayFullUpdateRequest;
 import com.codehacks.postgen.exception.EssayServiceException;
 import com.codehacks.postgen.model.Essay;
+import com.codehacks.postgen.model.EssayRevision;
 import com.codehacks.postgen.service.EssayService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -26,9 +29,11 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
 import java.util.List;
+import java.util.Map;
 
 
 @RestController
@@ -48,7 +53,7 @@ public class EssayController {
     /**
      * Generates a new essay based on the provided topic and saves it.
      *
-     * @param request The EssayRequest DTO containing the topic.
+     * @param request The EssayRequest DTO containing the topic, and optionally additional context and a target length.
      * @return ResponseEntity with the created EssayResponse and HTTP status 201.
      */
     @PostMapping("/generate")
@@ -59,11 +64,38 @@ public class EssayController {
             @ApiResponse(responseCode = "400", description = "Invalid input or duplicate topic",
                     content = @Content(mediaType = "application/json")),
             @ApiResponse(responseCode = "500", description = "Internal server error during essay generation or saving",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "503", description = "AI model temporarily at capacity; see Retry-After",
                     content = @Content(mediaType = "application/json"))
     })
     public ResponseEntity<EssayResponse> generateEssay(@Valid @RequestBody EssayRequest request) {
         logger.info("Received request to generate essay for topic: {}", request.getTopic());
-        Essay newEssay = essayService.generateAndSaveEssay(request.getTopic());
+        Essay newEssay = essayService.generateAndSaveEssay(request.getTopic(), request.getAdditionalContext(),
+                request.getTargetWords());
+        return new ResponseEntity<>(convertToDto(newEssay), HttpStatus.CREATED);
+    }
+
+    /**
+     * Generates a new long essay from an outline and sections written in parallel, and saves it.
+     *
+     * @param request The EssayRequest DTO containing the topic, and optionally additional context.
+     * @return ResponseEntity with the created EssayResponse and HTTP status 201.
+     */
+    @PostMapping("/generate/long")
+    @Operation(summary = "Generate a new long essay", description = "Generates an outline, then writes its sections in parallel, and saves the stitched essay with DRAFT status.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "201", description = "Essay successfully generated and saved",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = EssayResponse.class))),
+            @ApiResponse(responseCode = "400", description = "Invalid input or duplicate topic",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "500", description = "Internal server error during essay generation or saving",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "503", description = "AI model temporarily at capacity; see Retry-After",
+                    content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<EssayResponse> generateLongEssay(@Valid @RequestBody EssayRequest request) {
+        logger.info("Received request to generate long essay for topic: {}", request.getTopic());
+        Essay newEssay = essayService.generateAndSaveLongEssay(request.getTopic(), request.getAdditionalContext());
         return new ResponseEntity<>(convertToDto(newEssay), HttpStatus.CREATED);
     }
 
@@ -121,6 +153,104 @@ public class EssayController {
         return new ResponseEntity<>(essayResponses, HttpStatus.OK);
     }
 
+    /**
+     * Retrieves several essays by their IDs in one request.
+     *
+     * @param ids The IDs of the essays, comma separated or repeated.
+     * @return ResponseEntity with one EssayLookupResponse per requested ID, in the requested order, and HTTP status 200.
+     */
+    @GetMapping(params = "ids")
+    @Operation(summary = "Get essays by IDs", description = "Retrieves up to app.batch-get.max-ids essays in one request. Each requested ID gets an entry, in the order requested, marked as found or not.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Essays looked up",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = EssayLookupResponse.class))),
+            @ApiResponse(responseCode = "400", description = "No IDs, or more IDs than allowed",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "500", description = "Internal server error",
+                    content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<List<EssayLookupResponse>> getEssaysByIds(
+            @Parameter(description = "IDs of the essays to retrieve") @RequestParam List<Long> ids) {
+        logger.info("Received request to get {} essays by ID.", ids.size());
+        Map<Long, Essay> essays = essayService.getEssaysByIds(ids);
+        List<EssayLookupResponse> lookups = ids.stream()
+                .map(id -> {
+                    Essay essay = id == null ? null : essays.get(id);
+                    return EssayLookupResponse.builder()
+                            .id(id)
+                            .found(essay != null)
+                            .essay(essay == null ? null : convertToDto(essay))
+                            .build();
+                })
+                .toList();
+        return new ResponseEntity<>(lookups, HttpStatus.OK);
+    }
+
+    /**
+     * Lists the revisions of an essay.
+     *
+     * @param id The ID of the essay.
+     * @return ResponseEntity with the revisions, oldest first and without their content, or 404 if not found.
+     */
+    @GetMapping("/{id}/revisions")
+    @Operation(summary = "List essay revisions", description = "Lists every saved revision of an essay's topic and content, with the storage each one takes.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Revisions retrieved successfully",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = EssayRevisionResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Essay not found",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "500", description = "Internal server error",
+                    content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<List<EssayRevisionResponse>> getRevisions(
+            @Parameter(description = "ID of the essay") @PathVariable Long id) {
+        logger.info("Received request to list revisions of essay with ID: {}", id);
+        if (id == null || id <= 0) {
+            logger.warn("Invalid essay ID: {}. Returning 404.", id);
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        // Every essay has at least its first revision
+        List<EssayRevision> revisions = essayService.getRevisions(id);
+        if (revisions.isEmpty()) {
+            logger.warn("Essay with ID {} not found.", id);
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return new ResponseEntity<>(revisions.stream().map(this::convertToDto).toList(), HttpStatus.OK);
+    }
+
+    /**
+     * Retrieves one revision of an essay with its content.
+     *
+     * @param id The ID of the essay.
+     * @param revision The revision number, starting at 1.
+     * @return ResponseEntity with the EssayRevisionResponse and HTTP status 200, or 404 if not found.
+     */
+    @GetMapping("/{id}/revisions/{revision}")
+    @Operation(summary = "Get essay revision", description = "Retrieves one revision of an essay, with its content rebuilt from the nearest stored snapshot.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Revision found",
+                    content = @Content(mediaType = "application/json", schema = @Schema(implementation = EssayRevisionResponse.class))),
+            @ApiResponse(responseCode = "404", description = "Essay or revision not found",
+                    content = @Content(mediaType = "application/json")),
+            @ApiResponse(responseCode = "500", description = "Internal server error",
+                    content = @Content(mediaType = "application/json"))
+    })
+    public ResponseEntity<EssayRevisionResponse> getRevision(
+            @Parameter(description = "ID of the essay") @PathVariable Long id,
+            @Parameter(description = "Revision number, starting at 1") @PathVariable int revision) {
+        logger.info("Received request to get revision {} of essay with ID: {}", revision, id);
+        if (id == null || id <= 0 || revision <= 0) {
+            logger.warn("Invalid essay ID or revision: {} / {}. Returning 404.", id, revision);
+            return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+        }
+        return essayService.getRevision(id, revision)
+                .map(essayRevision -> new ResponseEntity<>(convertToDto(essayRevision), HttpStatus.OK))
+                .orElseGet(() -> {
+                    logger.warn("Revision {} of essay with ID {} not found.", revision, id);
+                    return new ResponseEntity<>(HttpStatus.NOT_FOUND);
+                });
+    }
+
     /**
      * Updates an existing essay.
      *
@@ -205,7 +335,7 @@ public class EssayController {
             @ApiResponse(responseCode = "204", description = "Essay deleted successfully"),
             @ApiResponse(responseCode = "400", description = "Invalid ID supplied",
                     content = @Content(mediaType = "application/json")),
-            @ApiResponse(responseCode = "404", description = "Essay not found", // Service logs warning, doesn't throw 404, but API should reflect
+            @ApiResponse(responseCode = "404", description = "Essay not found",
                     content = @Content(mediaType = "application/json")),
             @ApiResponse(responseCode = "500", description = "Internal server error",
                     content = @Content(mediaType = "application/json"))
@@ -217,11 +347,10 @@ public class EssayController {
             return new ResponseEntity<>(HttpStatus.NOT_FOUND);
         }
         try {
-            if (essayService.getEssayById(id).isEmpty()) {
+            if (!essayService.deleteEssay(id)) {
                 logger.warn("Attempted to delete non-existent essay with ID: {}. Returning 404.", id);
                 return new ResponseEntity<>(HttpStatus.NOT_FOUND);
             }
-            essayService.deleteEssay(id);
             return new ResponseEntity<>(HttpStatus.NO_CONTENT);
         } catch (EssayServiceException e) {
             logger.error("Error deleting essay with ID: {}", id, e);
@@ -239,6 +368,22 @@ public class EssayController {
                 .createdAt(essay.getCreatedAt())
                 .updatedAt(essay.getUpdatedAt())
                 .status(essay.getStatus())
+                .model(essay.getModel())
+                .promptTokens(essay.getPromptTokens())
+                .completionTokens(essay.getCompletionTokens())
+                .generationMillis(essay.getGenerationMillis())
+                .build();
+    }
+
+    private EssayRevisionResponse convertToDto(EssayRevision revision) {
+        return EssayRevisionResponse.builder()
+                .revision(revision.getRevision())
+                .topic(revision.getTopic())
+                .content(revision.getContent())
+                .snapshot(revision.isSnapshot())
+                .contentLength(revision.getContentLength())
+                .storedBytes(revision.getStoredBytes())
+                .createdAt(revision.getCreatedAt())
                 .build();
     }
 }
@@ -0,0 +1,81 @@
+package com.codehacks.postgen.datasource;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Sends connections for read-only transactions to the replica pool and everything else to the
+ * primary. Reads fall back to the primary while the {@link ReplicaLagMonitor} reports the replica
+ * as lagging or unreachable.
+ * <p>
+ * The transaction's read-only flag is only known once the transaction has begun, after the JPA
+ * transaction manager has asked for a connection, so this data source must sit behind a
+ * {@link LazyConnectionDataSourceProxy}; see {@link #lazy()}.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    /**
+     * The pool a connection is taken from.
+     */
+    enum Route {
+        PRIMARY, REPLICA
+    }
+
+    private final ReplicaLagMonitor lagMonitor;
+    private final Counter writes;
+    private final Counter replicaReads;
+    private final Counter fallbackReads;
+
+    /**
+     * @param primary the primary pool, for writes and fallback reads
+     * @param replica the replica pool, for read-only transactions
+     * @param lagMonitor tells whether the replica may be used
+     * @param meterRegistry the registry for routing counters
+     */
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, ReplicaLagMonitor lagMonitor,
+                                      MeterRegistry meterRegistry) {
+        this.lagMonitor = lagMonitor;
+        this.writes = routeCounter(meterRegistry, "primary", false);
+        this.replicaReads = routeCounter(meterRegistry, "replica", true);
+        this.fallbackReads = routeCounter(meterRegistry, "primary", true);
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        setLenientFallback(false);
+        afterPropertiesSet();
+    }
+
+    /**
+     * @return this data source behind a proxy that takes the connection at the first statement
+     */
+    public DataSource lazy() {
+        return new LazyConnectionDataSourceProxy(this);
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            writes.increment();
+            return Route.PRIMARY;
+        }
+        if (lagMonitor.isReplicaUsable()) {
+            replicaReads.increment();
+            return Route.REPLICA;
+        }
+        fallbackReads.increment();
+        return Route.PRIMARY;
+    }
+
+    private static Counter routeCounter(MeterRegistry registry, String target, boolean readOnly) {
+        return Counter.builder("essay.db.route")
+                .description("Connections handed out per pool, by transaction type")
+                .tag("target", target)
+                .tag("read_only", String.valueOf(readOnly))
+                .register(registry);
+    }
+}
@@ -0,0 +1,90 @@
+package com.codehacks.postgen.datasource;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Duration;
+
+/**
+ * Tracks how far the read replica is behind the primary, so reads can go back to the primary
+ * while the replica is lagging or unreachable.
+ * <p>
+ * The replica counts as caught up when it has replayed all the WAL it received; otherwise the lag
+ * is the time since the last replayed transaction. Until the first successful check the replica
+ * is not used.
+ */
+public class ReplicaLagMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaLagMonitor.class);
+
+    static final String LAG_SQL = """
+            SELECT CASE
+                WHEN NOT pg_is_in_recovery() OR pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0)
+            END
+            """;
+
+    private final JdbcOperations replicaJdbc;
+    private final double maxLagSeconds;
+
+    private volatile double lagSeconds = Double.NaN;
+    private volatile boolean replicaUsable;
+
+    /**
+     * @param replicaJdbc JDBC access to the replica pool
+     * @param maxLag reads go to the primary while the replica is further behind than this
+     * @param meterRegistry the registry for the lag gauge
+     */
+    public ReplicaLagMonitor(JdbcOperations replicaJdbc, Duration maxLag, MeterRegistry meterRegistry) {
+        this.replicaJdbc = replicaJdbc;
+        this.maxLagSeconds = maxLag.toMillis() / 1000.0;
+        Gauge.builder("essay.db.replica.lag", this, ReplicaLagMonitor::getLagSeconds)
+                .description("Replication lag of the read replica; NaN while it is unreachable")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Measures the replica's lag and decides whether reads may use it.
+     */
+    @Scheduled(fixedDelayString = "${app.datasource.replica.lag-check-interval:PT2S}")
+    public void checkLag() {
+        boolean wasUsable = replicaUsable;
+        try {
+            Double lag = replicaJdbc.queryForObject(LAG_SQL, Double.class);
+            lagSeconds = lag == null ? 0.0 : lag;
+            replicaUsable = lagSeconds <= maxLagSeconds;
+        } catch (DataAccessException e) {
+            lagSeconds = Double.NaN;
+            replicaUsable = false;
+            if (wasUsable) {
+                logger.warn("Read replica unreachable, sending reads to the primary", e);
+            }
+            return;
+        }
+        if (wasUsable && !replicaUsable) {
+            logger.warn("Read replica is {}s behind (max {}s), sending reads to the primary", lagSeconds, maxLagSeconds);
+        } else if (!wasUsable && replicaUsable) {
+            logger.info("Read replica caught up ({}s behind), sending reads to it", lagSeconds);
+        }
+    }
+
+    /**
+     * @return whether reads may currently go to the replica
+     */
+    public boolean isReplicaUsable() {
+        return replicaUsable;
+    }
+
+    /**
+     * @return the last measured lag in seconds, or NaN when the replica could not be reached
+     */
+    public double getLagSeconds() {
+        return lagSeconds;
+    }
+}
@@ -0,0 +1,28 @@
+package com.codehacks.postgen.dto;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * DTO for an essay change sent on the change feed. The essay is the outbox payload as stored:
+ * the essay's metadata after the change, or just its id after a delete.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EssayChangeResponse {
+
+    private Long id;
+    private Long essayId;
+    private String type;
+    @JsonRawValue
+    private String essay;
+    private Instant createdAt;
+
+}
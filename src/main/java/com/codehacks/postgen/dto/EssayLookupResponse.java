@@ -0,0 +1,23 @@
+package com.codehacks.postgen.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * DTO for one requested ID of a multi-get. The essay is only included when it was found.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EssayLookupResponse {
+
+    private Long id;
+    private Boolean found;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private EssayResponse essay;
+
+}
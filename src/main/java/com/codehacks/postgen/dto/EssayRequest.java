@@ -1,5 +1,7 @@
 package com.codehacks.postgen.dto;
 
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
@@ -23,4 +25,8 @@ public class EssayRequest {
     @Size(max = 1000, message = "Additional context must not exceed 1000 characters")
     private String additionalContext;
 
+    @Min(value = 100, message = "Target word count must be at least 100")
+    @Max(value = 1500, message = "Target word count must not exceed 1500")
+    private Integer targetWords;
+
 } 
\ No newline at end of file
@@ -23,5 +23,9 @@ public class EssayResponse {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     private EssayStatus status;
+    private String model;
+    private Integer promptTokens;
+    private Integer completionTokens;
+    private Long generationMillis;
 
 } 
\ No newline at end of file
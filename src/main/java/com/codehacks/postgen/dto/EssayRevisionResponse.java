@@ -0,0 +1,28 @@
+package com.codehacks.postgen.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import java.time.LocalDateTime;
+
+/**
+ * DTO for an essay revision. The content is only included when a single revision is fetched.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class EssayRevisionResponse {
+
+    private Integer revision;
+    private String topic;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String content;
+    private Boolean snapshot;
+    private Integer contentLength;
+    private Integer storedBytes;
+    private LocalDateTime createdAt;
+
+}
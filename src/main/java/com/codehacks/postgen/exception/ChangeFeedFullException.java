@@ -0,0 +1,16 @@
+package com.codehacks.postgen.exception;
+
+/**
+ * Exception for change feed subscriptions rejected because the node serves as many subscribers
+ * as it accepts.
+ */
+public class ChangeFeedFullException extends RuntimeException {
+
+    /**
+     * Constructor with the subscriber limit.
+     * @param maxSubscribers the subscribers a node accepts
+     */
+    public ChangeFeedFullException(int maxSubscribers) {
+        super("The change feed is at its limit of " + maxSubscribers + " subscribers");
+    }
+}
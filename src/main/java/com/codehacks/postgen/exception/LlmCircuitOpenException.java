@@ -0,0 +1,17 @@
+package com.codehacks.postgen.exception;
+
+/**
+ * Exception for calls rejected because the AI model circuit breaker is open.
+ */
+public class LlmCircuitOpenException extends LlmUnavailableException {
+
+    /**
+     * Constructor with message, retry hint and cause.
+     * @param message the error message
+     * @param retryAfterSeconds seconds until the circuit breaker lets calls through again
+     * @param cause the cause
+     */
+    public LlmCircuitOpenException(String message, long retryAfterSeconds, Throwable cause) {
+        super(message, retryAfterSeconds, cause);
+    }
+}
@@ -0,0 +1,17 @@
+package com.codehacks.postgen.exception;
+
+/**
+ * Exception for AI model calls that did not complete within the configured time limit.
+ */
+public class LlmTimeoutException extends LlmUnavailableException {
+
+    /**
+     * Constructor with message, retry hint and cause.
+     * @param message the error message
+     * @param retryAfterSeconds seconds the client should wait before retrying
+     * @param cause the cause
+     */
+    public LlmTimeoutException(String message, long retryAfterSeconds, Throwable cause) {
+        super(message, retryAfterSeconds, cause);
+    }
+}
@@ -0,0 +1,38 @@
+package com.codehacks.postgen.exception;
+
+/**
+ * Exception for when the AI model cannot take the call right now (overloaded or shedding load).
+ */
+public class LlmUnavailableException extends RuntimeException {
+
+    private final long retryAfterSeconds;
+
+    /**
+     * Constructor with message and retry hint.
+     * @param message the error message
+     * @param retryAfterSeconds seconds the client should wait before retrying
+     */
+    public LlmUnavailableException(String message, long retryAfterSeconds) {
+        super(message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Constructor with message, retry hint and cause.
+     * @param message the error message
+     * @param retryAfterSeconds seconds the client should wait before retrying
+     * @param cause the cause
+     */
+    public LlmUnavailableException(String message, long retryAfterSeconds, Throwable cause) {
+        super(message, cause);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    /**
+     * Seconds the client should wait before retrying.
+     * @return the retry hint in seconds
+     */
+    public long getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+}
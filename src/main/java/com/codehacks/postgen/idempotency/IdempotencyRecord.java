@@ -0,0 +1,24 @@
+package com.codehacks.postgen.idempotency;
+
+import java.time.Instant;
+
+/**
+ * What is stored under an idempotency key: the request it was first used with and, once that request
+ * has finished, its response.
+ * @param requestHash hash of the method, path and body of the first request
+ * @param status the response status, or null while the first request is still running
+ * @param contentType the response content type, if any
+ * @param location the response Location header, if any
+ * @param body the response body
+ * @param expiresAt when the key may be reused for another request
+ */
+public record IdempotencyRecord(String requestHash, Integer status, String contentType, String location,
+                                byte[] body, Instant expiresAt) {
+
+    /**
+     * @return whether the first request has finished and its response can be replayed
+     */
+    public boolean completed() {
+        return status != null;
+    }
+}
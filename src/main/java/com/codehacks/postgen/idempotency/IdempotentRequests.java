@@ -0,0 +1,314 @@
+package com.codehacks.postgen.idempotency;
+
+import com.codehacks.postgen.config.IdempotencyProperties;
+import com.codehacks.postgen.repository.IdempotencyKeyStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Decides what happens to a request sent with an idempotency key: run it, replay the response
+ * stored for an earlier identical request, or turn it away.
+ * <p>
+ * Finished responses are looked up in memory first and in Postgres after that. A duplicate of a
+ * request still running on this node waits for its result in memory; one running on another node
+ * is polled for in the database until it finishes or {@code max-wait} runs out.
+ * <p>
+ * A key is claimed with a random token, and the claim is renewed every {@code heartbeat-interval}
+ * while its request runs, so a slow generation keeps its key. Only the holder of the token can
+ * store a response for the key or give it up.
+ */
+public class IdempotentRequests {
+
+    private static final Logger logger = LoggerFactory.getLogger(IdempotentRequests.class);
+
+    private final IdempotencyKeyStore store;
+    private final IdempotencyProperties properties;
+    private final MeterRegistry meterRegistry;
+
+    /** Requests running on this node, completed with their response, or null if they gave up the key. */
+    private final Map<String, CompletableFuture<IdempotencyRecord>> running = new ConcurrentHashMap<>();
+
+    /** Tokens of the keys claimed by requests running on this node. */
+    private final Map<String, UUID> claims = new ConcurrentHashMap<>();
+
+    /** Most recently used finished responses, guarded by itself. */
+    private final Map<String, IdempotencyRecord> cache;
+
+    /**
+     * @param store the shared key store
+     * @param properties the idempotency settings
+     * @param meterRegistry the registry for idempotency metrics
+     */
+    public IdempotentRequests(IdempotencyKeyStore store, IdempotencyProperties properties, MeterRegistry meterRegistry) {
+        this.store = store;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        int cacheSize = properties.getCacheSize();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, IdempotencyRecord> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * Looks up a key, claiming it when no request has used it yet. A duplicate of a running request
+     * blocks until that request finishes or the wait limit is reached.
+     * @param key the scoped idempotency key
+     * @param requestHash hash of the request
+     * @return the decision; after {@link Decision.Kind#EXECUTE} the caller must call {@link #complete} or {@link #abandon}
+     */
+    public Decision begin(String key, String requestHash) {
+        long deadline = System.nanoTime() + properties.getMaxWait().toNanos();
+        while (true) {
+            IdempotencyRecord cached = cached(key);
+            if (cached != null) {
+                return replay(cached, requestHash, "replayed");
+            }
+
+            CompletableFuture<IdempotencyRecord> mine = new CompletableFuture<>();
+            CompletableFuture<IdempotencyRecord> other = running.putIfAbsent(key, mine);
+            if (other != null) {
+                IdempotencyRecord result = await(other, deadline);
+                if (result != null) {
+                    return replay(result, requestHash, "waited");
+                }
+                if (!other.isDone()) {
+                    return decision(Decision.Kind.IN_PROGRESS, null);
+                }
+                // The request gave up its key; claim it ourselves
+                continue;
+            }
+
+            Optional<IdempotencyRecord> stored;
+            try {
+                UUID token = UUID.randomUUID();
+                if (store.claim(key, requestHash, token, properties.getLockTimeout(), properties.getTtl())) {
+                    claims.put(key, token);
+                    return decision(Decision.Kind.EXECUTE, null);
+                }
+                stored = store.find(key);
+            } catch (RuntimeException e) {
+                release(key, mine, null);
+                throw e;
+            }
+            if (stored.isPresent() && stored.get().completed()) {
+                cache(key, stored.get());
+                release(key, mine, stored.get());
+                return replay(stored.get(), requestHash, "replayed");
+            }
+            release(key, mine, null);
+            if (stored.isPresent() && !stored.get().requestHash().equals(requestHash)) {
+                return decision(Decision.Kind.MISMATCH, null);
+            }
+            // Running on another node
+            if (System.nanoTime() + properties.getPollInterval().toNanos() > deadline || !sleep()) {
+                return decision(Decision.Kind.IN_PROGRESS, null);
+            }
+        }
+    }
+
+    /**
+     * Stores the response of a request that was told to execute, and hands it to waiting duplicates.
+     * @param key the scoped idempotency key
+     * @param requestHash hash of the request
+     * @param status the response status
+     * @param contentType the response content type
+     * @param location the response Location header
+     * @param body the response body
+     */
+    public void complete(String key, String requestHash, int status, String contentType, String location, byte[] body) {
+        IdempotencyRecord record = new IdempotencyRecord(requestHash, status, contentType, location, body,
+                Instant.now().plus(properties.getTtl()));
+        boolean takenOver = false;
+        try {
+            UUID token = claims.get(key);
+            takenOver = token == null || !store.complete(key, token, record);
+            if (takenOver) {
+                logger.warn("Idempotency key was taken over before its response was stored");
+            }
+        } catch (RuntimeException e) {
+            // The claim expires after the lock timeout and a later retry runs the request again
+            logger.warn("Could not store the response for an idempotency key", e);
+        }
+        claims.remove(key);
+        CompletableFuture<IdempotencyRecord> future = running.remove(key);
+        if (takenOver) {
+            // The key's new holder stores its own response; waiting duplicates look it up from there
+            if (future != null) {
+                future.complete(null);
+            }
+            return;
+        }
+        cache(key, record);
+        if (future != null) {
+            future.complete(record);
+        }
+    }
+
+    /**
+     * Gives up the key of a request that was told to execute but produced no response worth
+     * replaying, so that a retry runs it again.
+     * @param key the scoped idempotency key
+     */
+    public void abandon(String key) {
+        UUID token = claims.remove(key);
+        try {
+            if (token != null) {
+                store.release(key, token);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not release an idempotency key", e);
+        }
+        CompletableFuture<IdempotencyRecord> future = running.remove(key);
+        if (future != null) {
+            future.complete(null);
+        }
+    }
+
+    /**
+     * Renews the claims of requests running on this node, so that other nodes do not take their keys
+     * over while they are still being worked on.
+     */
+    @Scheduled(initialDelayString = "${app.idempotency.heartbeat-interval:PT30S}",
+            fixedDelayString = "${app.idempotency.heartbeat-interval:PT30S}")
+    public void renewClaims() {
+        Map<String, UUID> held = Map.copyOf(claims);
+        if (held.isEmpty()) {
+            return;
+        }
+        try {
+            // Keys completed or abandoned since the copy are not renewed either; only report the rest
+            long lost = store.renew(held, properties.getLockTimeout()).stream()
+                    .filter(key -> held.get(key).equals(claims.get(key)))
+                    .count();
+            if (lost > 0) {
+                logger.warn("{} idempotency keys were taken over while their requests were still running", lost);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Could not renew idempotency key claims", e);
+        }
+    }
+
+    /**
+     * Deletes expired keys from the store and the cache.
+     */
+    @Scheduled(initialDelayString = "${app.idempotency.purge-interval:PT1H}",
+            fixedDelayString = "${app.idempotency.purge-interval:PT1H}")
+    public void purge() {
+        Instant now = Instant.now();
+        synchronized (cache) {
+            cache.values().removeIf(record -> record.expiresAt().isBefore(now));
+        }
+        int purged = store.purgeExpired();
+        if (purged > 0) {
+            logger.debug("Purged {} expired idempotency keys", purged);
+        }
+    }
+
+    private IdempotencyRecord cached(String key) {
+        synchronized (cache) {
+            IdempotencyRecord record = cache.get(key);
+            if (record != null && record.expiresAt().isBefore(Instant.now())) {
+                cache.remove(key);
+                return null;
+            }
+            return record;
+        }
+    }
+
+    private void cache(String key, IdempotencyRecord record) {
+        synchronized (cache) {
+            cache.put(key, record);
+        }
+    }
+
+    private void release(String key, CompletableFuture<IdempotencyRecord> mine, IdempotencyRecord result) {
+        running.remove(key, mine);
+        mine.complete(result);
+    }
+
+    private IdempotencyRecord await(CompletableFuture<IdempotencyRecord> future, long deadline) {
+        try {
+            return future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private boolean sleep() {
+        try {
+            Thread.sleep(properties.getPollInterval().toMillis());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private Decision replay(IdempotencyRecord record, String requestHash, String outcome) {
+        if (!record.requestHash().equals(requestHash)) {
+            return decision(Decision.Kind.MISMATCH, null);
+        }
+        count(outcome);
+        return new Decision(Decision.Kind.REPLAY, record);
+    }
+
+    private Decision decision(Decision.Kind kind, IdempotencyRecord record) {
+        count(switch (kind) {
+            case EXECUTE -> "executed";
+            case MISMATCH -> "mismatched";
+            case IN_PROGRESS -> "in_progress";
+            case REPLAY -> "replayed";
+        });
+        return new Decision(kind, record);
+    }
+
+    private void count(String outcome) {
+        Counter.builder("essay.idempotency.requests")
+                .description("Requests sent with an idempotency key, by what was done with them")
+                .tag("outcome", outcome)
+                .register(meterRegistry)
+                .increment();
+    }
+
+    /**
+     * What to do with a request.
+     * @param kind the decision
+     * @param response the stored response, for {@link Kind#REPLAY}
+     */
+    public record Decision(Kind kind, IdempotencyRecord response) {
+
+        /**
+         * The possible decisions.
+         */
+        public enum Kind {
+            /** Run the request; the key is claimed for it. */
+            EXECUTE,
+            /** Send the stored response of an identical earlier request. */
+            REPLAY,
+            /** The key was used for a different request. */
+            MISMATCH,
+            /** An identical request is still running. */
+            IN_PROGRESS
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.codehacks.postgen.llm;
+
+import com.codehacks.postgen.config.LlmProperties;
+import com.codehacks.postgen.exception.LlmUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Concurrency limiter for model calls whose limit follows the provider's observed capacity.
+ * <p>
+ * The limit grows additively while latency stays close to the no-load baseline and the limit is
+ * actually being used, and shrinks multiplicatively on throttling, timeouts or a latency spike
+ * (AIMD with a latency congestion signal). Calls over the limit wait in a bounded queue for a
+ * bounded time, after which they are shed with {@link LlmUnavailableException}.
+ * <p>
+ * Latency grows with the length of the answer, so a call is only compared with earlier calls of
+ * the same kind (usually the model) whose answers were of a similar length, by time per character
+ * of output. A short outline call therefore never makes a full-length essay look congested.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AdaptiveConcurrencyLimiter.class);
+
+    private static final String DEFAULT_KIND = "default";
+
+    /** Answers shorter than this are measured as if they were this long; length classes double from here. */
+    static final int MIN_OUTPUT_CHARS = 128;
+
+    private final LlmProperties.Concurrency settings;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotAvailable = lock.newCondition();
+
+    private double limit;
+    private int inFlight;
+    private int queued;
+
+    /** No-load latency per output character, by call kind and output length class. */
+    private final Map<String, Baseline> baselines = new HashMap<>();
+
+    private final Timer queueWait;
+    private final Counter shed;
+
+    public AdaptiveConcurrencyLimiter(LlmProperties.Concurrency settings, MeterRegistry meterRegistry) {
+        this.settings = settings;
+        this.limit = settings.getInitialLimit();
+
+        Gauge.builder("essay.llm.concurrency.limit", this, AdaptiveConcurrencyLimiter::getLimit)
+                .description("Current adaptive concurrency limit for model calls")
+                .register(meterRegistry);
+        Gauge.builder("essay.llm.concurrency.inflight", this, AdaptiveConcurrencyLimiter::getInFlight)
+                .description("Model calls currently in flight")
+                .register(meterRegistry);
+        Gauge.builder("essay.llm.concurrency.queued", this, AdaptiveConcurrencyLimiter::getQueued)
+                .description("Model calls waiting for a concurrency slot")
+                .register(meterRegistry);
+        this.queueWait = Timer.builder("essay.llm.concurrency.queue.wait")
+                .description("Time spent waiting for a concurrency slot")
+                .register(meterRegistry);
+        this.shed = Counter.builder("essay.llm.concurrency.shed")
+                .description("Model calls rejected because no slot became free in time")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the call once a concurrency slot is free and feeds its outcome back into the limit.
+     * @param call the model call
+     * @param <T> the result type
+     * @return the call's result
+     * @throws LlmUnavailableException if no slot became free within the queue limits
+     */
+    public <T> T execute(Supplier<T> call) {
+        return execute(null, call);
+    }
+
+    /**
+     * Runs the call once a concurrency slot is free and feeds its outcome back into the limit.
+     * @param kind what the call's latency is compared with, such as the model it goes to; null for the default
+     * @param call the model call; a text result is measured by its length
+     * @param <T> the result type
+     * @return the call's result
+     * @throws LlmUnavailableException if no slot became free within the queue limits
+     */
+    public <T> T execute(String kind, Supplier<T> call) {
+        int inFlightAtStart = acquire();
+        long start = System.nanoTime();
+        try {
+            T result = call.get();
+            int outputChars = result instanceof CharSequence text ? text.length() : 0;
+            onSuccess(kind, System.nanoTime() - start, outputChars, inFlightAtStart);
+            return result;
+        } catch (RuntimeException e) {
+            if (LlmErrorClassifier.isOverload(e)) {
+                onOverload();
+            }
+            throw e;
+        } finally {
+            release();
+        }
+    }
+
+    /**
+     * Takes a slot without queueing, for an extra attempt of a call that already holds one, such as a
+     * hedge. The attempt's outcome does not feed the limit.
+     * @return true if a slot was free; give it back with {@link #releaseSlot()}
+     */
+    public boolean tryAcquireSlot() {
+        lock.lock();
+        try {
+            if (inFlight < currentLimit()) {
+                inFlight++;
+                return true;
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Gives back a slot taken with {@link #tryAcquireSlot()}.
+     */
+    public void releaseSlot() {
+        release();
+    }
+
+    private int acquire() {
+        long waitStart = System.nanoTime();
+        lock.lock();
+        try {
+            if (inFlight < currentLimit()) {
+                return ++inFlight;
+            }
+            if (queued >= settings.getMaxQueueSize()) {
+                shed.increment();
+                throw new LlmUnavailableException("AI model is at capacity, please retry shortly", 1);
+            }
+            queued++;
+            try {
+                long remaining = settings.getMaxQueueWait().toNanos();
+                while (inFlight >= currentLimit()) {
+                    if (remaining <= 0) {
+                        shed.increment();
+                        throw new LlmUnavailableException("Timed out waiting for AI model capacity", 1);
+                    }
+                    remaining = slotAvailable.awaitNanos(remaining);
+                }
+                return ++inFlight;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new LlmUnavailableException("Interrupted while waiting for AI model capacity", 1, e);
+            } finally {
+                queued--;
+            }
+        } finally {
+            lock.unlock();
+            queueWait.record(System.nanoTime() - waitStart, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void release() {
+        lock.lock();
+        try {
+            inFlight--;
+            slotAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onSuccess(String kind, long rttNanos, int outputChars, int inFlightAtStart) {
+        int chars = Math.max(outputChars, MIN_OUTPUT_CHARS);
+        double nanosPerChar = (double) rttNanos / chars;
+        lock.lock();
+        try {
+            // Within a class lengths differ by less than 2x, so the time to the first token, which is not
+            // spread over the output, moves time per character less than a real slowdown does
+            Baseline baseline = baselines.computeIfAbsent(
+                    (kind == null ? DEFAULT_KIND : kind) + "/" + lengthClass(chars), key -> new Baseline());
+            baseline.samples++;
+            boolean resetBaseline = settings.getBaselineResetSamples() > 0
+                    && baseline.samples % settings.getBaselineResetSamples() == 0;
+            if (nanosPerChar < baseline.nanosPerChar || resetBaseline) {
+                baseline.nanosPerChar = nanosPerChar;
+            }
+            if (nanosPerChar > baseline.nanosPerChar * settings.getLatencyTolerance()) {
+                decrease("latency " + TimeUnit.NANOSECONDS.toMillis(rttNanos) + "ms");
+            } else if (inFlightAtStart * 2 >= limit) {
+                // Only grow when the current limit is actually being used, otherwise it drifts up without evidence.
+                double previous = currentLimit();
+                limit = Math.min(settings.getMaxLimit(), limit + 1.0 / limit);
+                if (currentLimit() > previous) {
+                    slotAvailable.signalAll();
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void onOverload() {
+        lock.lock();
+        try {
+            decrease("throttled or timed out");
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void decrease(String reason) {
+        double previous = limit;
+        limit = Math.max(settings.getMinLimit(), limit * settings.getBackoffRatio());
+        if (currentLimit() < (int) previous) {
+            logger.debug("Reduced model concurrency limit from {} to {} ({})", (int) previous, currentLimit(), reason);
+        }
+    }
+
+    private int currentLimit() {
+        return Math.max(settings.getMinLimit(), (int) limit);
+    }
+
+    private static int lengthClass(int chars) {
+        return 31 - Integer.numberOfLeadingZeros(chars / MIN_OUTPUT_CHARS);
+    }
+
+    /**
+     * Current concurrency limit.
+     * @return the limit
+     */
+    public int getLimit() {
+        lock.lock();
+        try {
+            return currentLimit();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of calls currently in flight.
+     * @return the in-flight count
+     */
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Number of calls waiting for a slot.
+     * @return the queue length
+     */
+    public int getQueued() {
+        lock.lock();
+        try {
+            return queued;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Lowest latency seen for one kind and length class of call.
+     */
+    private static final class Baseline {
+
+        private double nanosPerChar = Double.MAX_VALUE;
+        private long samples;
+    }
+}
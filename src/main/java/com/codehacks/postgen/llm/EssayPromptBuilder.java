@@ -0,0 +1,195 @@
+package com.codehacks.postgen.llm;
+
+import com.codehacks.postgen.config.LlmProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.util.StringUtils;
+
+import java.text.BreakIterator;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds essay prompts from templates compiled once at startup, within an input-token budget.
+ * <p>
+ * The topic and length instruction are always kept. Additional context gets whatever budget is
+ * left: it is cut back to the sentences that fit, and left out entirely when too little room
+ * remains to be useful. Token counts are estimated from characters, which is close enough to
+ * keep prompt size, and so latency and cost, predictable.
+ */
+public class EssayPromptBuilder {
+
+    private static final Template ESSAY = Template.compile("Write a comprehensive essay on the topic: {topic}");
+    private static final Template LENGTH = Template.compile("\n\nAim for about {words} words.");
+    private static final Template CONTEXT = Template.compile("\n\nTake this additional context into account:\n{context}");
+
+    private final int maxInputTokens;
+    private final double charsPerToken;
+    private final int minContextTokens;
+
+    private final DistributionSummary promptTokens;
+    private final Counter contextIncluded;
+    private final Counter contextTrimmed;
+    private final Counter contextDropped;
+
+    /**
+     * @param settings the prompt settings
+     * @param meterRegistry the registry for prompt metrics
+     */
+    public EssayPromptBuilder(LlmProperties.Prompt settings, MeterRegistry meterRegistry) {
+        this.maxInputTokens = settings.getMaxInputTokens();
+        this.charsPerToken = settings.getCharsPerToken();
+        this.minContextTokens = settings.getMinContextTokens();
+        this.promptTokens = DistributionSummary.builder("essay.llm.prompt.tokens")
+                .description("Estimated input tokens per essay prompt")
+                .baseUnit("tokens")
+                .register(meterRegistry);
+        this.contextIncluded = context(meterRegistry, "included");
+        this.contextTrimmed = context(meterRegistry, "trimmed");
+        this.contextDropped = context(meterRegistry, "dropped");
+    }
+
+    /**
+     * Builds the prompt for one essay.
+     * @param topic the essay topic
+     * @param additionalContext optional extra context from the requester
+     * @param targetWords optional target length in words
+     * @return the prompt
+     */
+    public String essayPrompt(String topic, String additionalContext, Integer targetWords) {
+        StringBuilder prompt = new StringBuilder(ESSAY.render(Map.of("topic", topic)));
+        if (targetWords != null) {
+            prompt.append(LENGTH.render(Map.of("words", targetWords)));
+        }
+        prompt.append(contextBlock(fitContext(additionalContext, estimateTokens(prompt))));
+        promptTokens.record(estimateTokens(prompt));
+        return prompt.toString();
+    }
+
+    /**
+     * Renders fitted context as the block appended to a prompt.
+     * @param context context returned by fitContext, may be null
+     * @return the block, or an empty string when there is no context
+     */
+    public String contextBlock(String context) {
+        return context == null ? "" : CONTEXT.render(Map.of("context", context));
+    }
+
+    /**
+     * Cuts additional context down to what fits beside a prompt of the given size.
+     * @param additionalContext the requester's context, may be null
+     * @param usedTokens tokens already used by the rest of the prompt
+     * @return the context to include, or null to leave it out
+     */
+    public String fitContext(String additionalContext, int usedTokens) {
+        if (!StringUtils.hasText(additionalContext)) {
+            return null;
+        }
+        String context = additionalContext.trim();
+        int available = maxInputTokens - usedTokens - estimateTokens(CONTEXT.literalLength());
+        if (available < minContextTokens) {
+            contextDropped.increment();
+            return null;
+        }
+        if (estimateTokens(context) <= available) {
+            contextIncluded.increment();
+            return context;
+        }
+
+        int maxChars = (int) (available * charsPerToken);
+        String trimmed = leadingSentences(context, maxChars);
+        if (trimmed.isEmpty()) {
+            // Not even the first sentence fits: fall back to a cut on a word boundary.
+            int cut = context.lastIndexOf(' ', maxChars);
+            trimmed = context.substring(0, cut > 0 ? cut : maxChars).trim();
+        }
+        contextTrimmed.increment();
+        return trimmed;
+    }
+
+    /**
+     * Estimates the token count of some text.
+     * @param text the text
+     * @return the estimated token count
+     */
+    public int estimateTokens(CharSequence text) {
+        return estimateTokens(text.length());
+    }
+
+    /**
+     * Estimates the token count of text of a given length.
+     * @param chars the length in characters
+     * @return the estimated token count
+     */
+    public int estimateTokens(int chars) {
+        return (int) Math.ceil(chars / charsPerToken);
+    }
+
+    private static String leadingSentences(String text, int maxChars) {
+        BreakIterator sentences = BreakIterator.getSentenceInstance(Locale.ROOT);
+        sentences.setText(text);
+        int end = 0;
+        for (int next = sentences.next(); next != BreakIterator.DONE && next <= maxChars; next = sentences.next()) {
+            end = next;
+        }
+        return text.substring(0, end).trim();
+    }
+
+    private static Counter context(MeterRegistry registry, String outcome) {
+        return Counter.builder("essay.llm.prompt.context")
+                .description("Additional context handling in essay prompts")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+
+    /**
+     * A prompt template parsed once into literal text and named placeholders.
+     */
+    static final class Template {
+
+        private static final Pattern PLACEHOLDER = Pattern.compile("\\{(\\w+)}");
+
+        private final List<String> literals;
+        private final List<String> names;
+
+        private Template(List<String> literals, List<String> names) {
+            this.literals = literals;
+            this.names = names;
+        }
+
+        static Template compile(String source) {
+            List<String> literals = new ArrayList<>();
+            List<String> names = new ArrayList<>();
+            Matcher matcher = PLACEHOLDER.matcher(source);
+            int start = 0;
+            while (matcher.find()) {
+                literals.add(source.substring(start, matcher.start()));
+                names.add(matcher.group(1));
+                start = matcher.end();
+            }
+            literals.add(source.substring(start));
+            return new Template(List.copyOf(literals), List.copyOf(names));
+        }
+
+        String render(Map<String, ?> values) {
+            StringBuilder out = new StringBuilder(literalLength() + 64);
+            for (int i = 0; i < names.size(); i++) {
+                Object value = values.get(names.get(i));
+                if (value == null) {
+                    throw new IllegalArgumentException("No value for template placeholder: " + names.get(i));
+                }
+                out.append(literals.get(i)).append(value);
+            }
+            return out.append(literals.get(names.size())).toString();
+        }
+
+        int literalLength() {
+            return literals.stream().mapToInt(String::length).sum();
+        }
+    }
+}
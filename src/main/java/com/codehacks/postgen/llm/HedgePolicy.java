@@ -0,0 +1,126 @@
+package com.codehacks.postgen.llm;
+
+import com.codehacks.postgen.config.LlmProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides when a slow model call gets a second, hedged attempt.
+ * <p>
+ * The hedge delay is a percentile of recently observed call latencies, so only calls that are
+ * already in the slow tail are hedged. Hedges are capped per minute, which bounds the extra
+ * token spend even when the provider as a whole slows down.
+ */
+public class HedgePolicy {
+
+    private static final long WINDOW_NANOS = TimeUnit.MINUTES.toNanos(1);
+
+    private final double percentile;
+    private final int minSamples;
+    private final long minDelayMillis;
+    private final int maxHedgesPerMinute;
+
+    private final long[] latenciesMillis;
+    private int sampleCount;
+    private int nextSample;
+
+    private long budgetWindowStart;
+    private int hedgesInWindow;
+
+    private final Counter fired;
+    private final Counter won;
+    private final Counter budgetExhausted;
+    private final Counter noCapacity;
+
+    /**
+     * @param settings the hedging settings
+     * @param meterRegistry the registry for hedging metrics
+     */
+    public HedgePolicy(LlmProperties.Hedging settings, MeterRegistry meterRegistry) {
+        this.percentile = settings.getPercentile();
+        this.minSamples = Math.max(1, settings.getMinSamples());
+        this.minDelayMillis = settings.getMinDelay().toMillis();
+        this.maxHedgesPerMinute = settings.getMaxHedgesPerMinute();
+        this.latenciesMillis = new long[Math.max(1, settings.getWindowSize())];
+        this.budgetWindowStart = System.nanoTime();
+
+        this.fired = hedges(meterRegistry, "fired");
+        this.won = hedges(meterRegistry, "won");
+        this.budgetExhausted = hedges(meterRegistry, "budget_exhausted");
+        this.noCapacity = hedges(meterRegistry, "no_capacity");
+        Gauge.builder("essay.llm.hedge.delay", this, policy -> policy.hedgeDelayMillis())
+                .description("Current wait in milliseconds before a model call is hedged, -1 while warming up")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records the latency of a completed model call.
+     * @param latencyMillis the call latency
+     */
+    public synchronized void recordLatency(long latencyMillis) {
+        latenciesMillis[nextSample] = latencyMillis;
+        nextSample = (nextSample + 1) % latenciesMillis.length;
+        sampleCount = Math.min(sampleCount + 1, latenciesMillis.length);
+    }
+
+    /**
+     * How long to wait for the first attempt before hedging.
+     * @return the delay in milliseconds, or -1 while too few calls have been observed
+     */
+    public synchronized long hedgeDelayMillis() {
+        if (sampleCount < minSamples) {
+            return -1;
+        }
+        long[] samples = Arrays.copyOf(latenciesMillis, sampleCount);
+        Arrays.sort(samples);
+        int index = (int) Math.ceil(percentile * samples.length) - 1;
+        long delay = samples[Math.max(0, Math.min(index, samples.length - 1))];
+        return Math.max(minDelayMillis, delay);
+    }
+
+    /**
+     * Takes one hedge from this minute's budget if there is one left, and counts it as fired.
+     * @return true if the hedge may be fired
+     */
+    public boolean tryFire() {
+        synchronized (this) {
+            long now = System.nanoTime();
+            if (now - budgetWindowStart >= WINDOW_NANOS) {
+                budgetWindowStart = now;
+                hedgesInWindow = 0;
+            }
+            if (hedgesInWindow >= maxHedgesPerMinute) {
+                budgetExhausted.increment();
+                return false;
+            }
+            hedgesInWindow++;
+        }
+        fired.increment();
+        return true;
+    }
+
+    /**
+     * Records a hedge that was skipped because the concurrency limit or bulkhead had no room for it.
+     */
+    public void recordNoCapacity() {
+        noCapacity.increment();
+    }
+
+    /**
+     * Records that the hedged attempt returned before the original one.
+     */
+    public void recordWin() {
+        won.increment();
+    }
+
+    private static Counter hedges(MeterRegistry registry, String outcome) {
+        return Counter.builder("essay.llm.hedges")
+                .description("Hedged model calls by outcome")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
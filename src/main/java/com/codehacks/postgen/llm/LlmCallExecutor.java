@@ -0,0 +1,185 @@
+package com.codehacks.postgen.llm;
+
+import com.codehacks.postgen.exception.LlmCircuitOpenException;
+import com.codehacks.postgen.exception.LlmTimeoutException;
+import com.codehacks.postgen.exception.LlmUnavailableException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.timelimiter.TimeLimiter;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Single entry point for outbound model calls.
+ * Every protection applied to model traffic is layered in here, so callers only hand over the call itself.
+ * <p>
+ * From the outside in: retry, adaptive concurrency limit, circuit breaker, semaphore bulkhead, time limiter.
+ * Each retry goes through every protection again. The limiter sits outside the circuit breaker so that
+ * shed calls never count as provider failures, while timeouts raised by the time limiter still reach it
+ * as a congestion signal.
+ */
+public class LlmCallExecutor {
+
+    private final LlmRetryPolicy retryPolicy;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final TimeLimiter timeLimiter;
+    private final ExecutorService callThreadPool;
+
+    /**
+     * @param retryPolicy the retry policy, or null to run each call once
+     * @param concurrencyLimiter the adaptive limiter, or null to run calls without one
+     * @param circuitBreaker the circuit breaker guarding the provider
+     * @param bulkhead the semaphore bulkhead capping concurrent calls
+     * @param timeLimiter the time limiter bounding each call
+     * @param callThreadPool the pool calls run on so the time limiter can abandon them
+     */
+    public LlmCallExecutor(LlmRetryPolicy retryPolicy, AdaptiveConcurrencyLimiter concurrencyLimiter,
+                           CircuitBreaker circuitBreaker, Bulkhead bulkhead, TimeLimiter timeLimiter,
+                           ExecutorService callThreadPool) {
+        this.retryPolicy = retryPolicy;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+        this.timeLimiter = timeLimiter;
+        this.callThreadPool = callThreadPool;
+    }
+
+    /**
+     * Executes a model call through the configured protections.
+     * @param call the model call
+     * @param <T> the result type
+     * @return the call's result
+     * @throws LlmUnavailableException if the call was shed, rejected by an open circuit or timed out
+     */
+    public <T> T execute(Supplier<T> call) {
+        return execute(null, call);
+    }
+
+    /**
+     * Executes a model call through the configured protections.
+     * @param kind the kind of call, such as the model it goes to, whose latency the adaptive limit compares it with
+     * @param call the model call
+     * @param <T> the result type
+     * @return the call's result
+     * @throws LlmUnavailableException if the call was shed, rejected by an open circuit or timed out
+     */
+    public <T> T execute(String kind, Supplier<T> call) {
+        if (retryPolicy == null) {
+            return attempt(kind, call);
+        }
+        return retryPolicy.execute(() -> attempt(kind, call));
+    }
+
+    /**
+     * Takes room for an extra attempt of a call that is already running, such as a hedge, from the
+     * adaptive limiter and the bulkhead, without waiting for it.
+     * @return true if both had room; give it back with {@link #releaseExtraAttempt()}
+     */
+    public boolean tryAcquireExtraAttempt() {
+        if (concurrencyLimiter != null && !concurrencyLimiter.tryAcquireSlot()) {
+            return false;
+        }
+        if (!bulkhead.tryAcquirePermission()) {
+            if (concurrencyLimiter != null) {
+                concurrencyLimiter.releaseSlot();
+            }
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gives back the room taken with {@link #tryAcquireExtraAttempt()}.
+     */
+    public void releaseExtraAttempt() {
+        bulkhead.onComplete();
+        if (concurrencyLimiter != null) {
+            concurrencyLimiter.releaseSlot();
+        }
+    }
+
+    private <T> T attempt(String kind, Supplier<T> call) {
+        Supplier<T> guarded = () -> guard(call);
+        if (concurrencyLimiter == null) {
+            return guarded.get();
+        }
+        return concurrencyLimiter.execute(kind, guarded);
+    }
+
+    private <T> T guard(Supplier<T> call) {
+        Supplier<T> timed = () -> callWithTimeout(call);
+        try {
+            return circuitBreaker.executeSupplier(Bulkhead.decorateSupplier(bulkhead, timed));
+        } catch (CallNotPermittedException e) {
+            long waitSeconds = Math.max(1L, circuitBreaker.getCircuitBreakerConfig()
+                    .getWaitIntervalFunctionInOpenState().apply(1) / 1000);
+            throw new LlmCircuitOpenException("AI model circuit breaker is open", waitSeconds, e);
+        } catch (BulkheadFullException e) {
+            throw new LlmUnavailableException("Too many concurrent AI model calls", 1, e);
+        }
+    }
+
+    private <T> T callWithTimeout(Supplier<T> call) {
+        Future<T> future;
+        try {
+            future = callThreadPool.submit(call::get);
+        } catch (RejectedExecutionException e) {
+            // The pool is full of calls, some possibly timed out but still running, or shutting down
+            throw new LlmUnavailableException("No thread free for an AI model call", 1, e);
+        }
+        try {
+            return timeLimiter.executeFutureSupplier(() -> future);
+        } catch (TimeoutException e) {
+            throw new LlmTimeoutException("AI model did not respond within "
+                    + timeLimiter.getTimeLimiterConfig().getTimeoutDuration().toSeconds() + " seconds", 1, e);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            future.cancel(true);
+            throw new LlmUnavailableException("Interrupted while waiting for the AI model", 1, e);
+        } catch (Exception e) {
+            throw new IllegalStateException("AI model call failed", e);
+        }
+    }
+
+    /**
+     * Circuit breaker guarding the provider.
+     * @return the circuit breaker
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Bulkhead capping concurrent calls.
+     * @return the bulkhead
+     */
+    public Bulkhead getBulkhead() {
+        return bulkhead;
+    }
+
+    /**
+     * Time limiter bounding each call.
+     * @return the time limiter
+     */
+    public TimeLimiter getTimeLimiter() {
+        return timeLimiter;
+    }
+
+    /**
+     * Adaptive concurrency limiter, if enabled.
+     * @return the limiter, or null
+     */
+    public AdaptiveConcurrencyLimiter getConcurrencyLimiter() {
+        return concurrencyLimiter;
+    }
+}
@@ -0,0 +1,169 @@
+package com.codehacks.postgen.llm;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Records latency, time to first token, token counts and throughput for model calls, and adds
+ * each call's usage to the essay it was made for. Each call is also observed as an
+ * {@code essay.llm.call} span carrying the model and token counts.
+ */
+public class LlmCallRecorder {
+
+    private static final String UNKNOWN_MODEL = "unknown";
+
+    private final MeterRegistry meterRegistry;
+    private final ObservationRegistry observationRegistry;
+
+    /**
+     * @param meterRegistry the registry for model call metrics
+     * @param observationRegistry the registry for model call spans
+     */
+    public LlmCallRecorder(MeterRegistry meterRegistry, ObservationRegistry observationRegistry) {
+        this.meterRegistry = meterRegistry;
+        this.observationRegistry = observationRegistry;
+    }
+
+    /**
+     * Makes a blocking model call and records it.
+     * @param call the model call
+     * @param usage the essay's usage to add to, or null when the call is not attributable to one essay
+     * @return the response text
+     */
+    public String call(Supplier<ChatResponse> call, LlmUsage usage) {
+        Observation observation = observation("call").start();
+        try (Observation.Scope scope = observation.openScope()) {
+            long start = System.nanoTime();
+            ChatResponse response = call.get();
+            record(response, System.nanoTime() - start, "call", usage, observation);
+            return text(response);
+        } catch (RuntimeException e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.stop();
+        }
+    }
+
+    /**
+     * Records a streamed model call as its chunks go by.
+     * The call is recorded when the stream ends, including when it is cancelled early.
+     * @param responses the streamed responses
+     * @param usage the essay's usage to add to, or null when the call is not attributable to one essay
+     * @return the streamed text
+     */
+    public Flux<String> stream(Flux<ChatResponse> responses, LlmUsage usage) {
+        return Flux.defer(() -> {
+            Observation observation = observation("stream").start();
+            long start = System.nanoTime();
+            long[] firstChunkNanos = {-1};
+            ChatResponse[] last = {null};
+            return responses
+                    .doOnNext(response -> {
+                        if (firstChunkNanos[0] < 0) {
+                            firstChunkNanos[0] = System.nanoTime() - start;
+                        }
+                        last[0] = response;
+                    })
+                    .doOnError(observation::error)
+                    .doFinally(signal -> {
+                        String model = model(last[0]);
+                        if (firstChunkNanos[0] >= 0) {
+                            Timer.builder("essay.llm.ttft")
+                                    .description("Time to the first streamed chunk of a model response")
+                                    .tag("model", model)
+                                    .publishPercentileHistogram()
+                                    .register(meterRegistry)
+                                    .record(firstChunkNanos[0], TimeUnit.NANOSECONDS);
+                        }
+                        record(last[0], System.nanoTime() - start, "stream", usage, observation);
+                        observation.stop();
+                    })
+                    .map(LlmCallRecorder::text)
+                    .filter(StringUtils::hasLength);
+        });
+    }
+
+    private Observation observation(String mode) {
+        return Observation.createNotStarted("essay.llm.call", observationRegistry)
+                .contextualName("llm " + mode)
+                .lowCardinalityKeyValue("mode", mode);
+    }
+
+    private void record(ChatResponse response, long elapsedNanos, String mode, LlmUsage usage,
+                        Observation observation) {
+        String model = model(response);
+        observation.highCardinalityKeyValue("llm.model", model);
+        Timer.builder("essay.llm.latency")
+                .description("End-to-end latency of model calls")
+                .tag("model", model)
+                .tag("mode", mode)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+        Usage tokens = response == null || response.getMetadata() == null ? null : response.getMetadata().getUsage();
+        Integer promptTokens = tokens == null ? null : positiveOrNull(tokens.getPromptTokens());
+        Integer completionTokens = tokens == null ? null : positiveOrNull(tokens.getCompletionTokens());
+        if (promptTokens != null) {
+            tokenSummary(model, "prompt").record(promptTokens);
+            observation.highCardinalityKeyValue("llm.prompt_tokens", String.valueOf(promptTokens));
+        }
+        if (completionTokens != null) {
+            tokenSummary(model, "completion").record(completionTokens);
+            observation.highCardinalityKeyValue("llm.completion_tokens", String.valueOf(completionTokens));
+            if (elapsedNanos > 0) {
+                DistributionSummary.builder("essay.llm.throughput")
+                        .description("Completion tokens generated per second")
+                        .baseUnit("tokens/s")
+                        .tag("model", model)
+                        .register(meterRegistry)
+                        .record(completionTokens * 1_000_000_000.0 / elapsedNanos);
+            }
+        }
+        if (usage != null) {
+            usage.add(UNKNOWN_MODEL.equals(model) ? null : model, promptTokens, completionTokens);
+        }
+    }
+
+    private DistributionSummary tokenSummary(String model, String type) {
+        return DistributionSummary.builder("essay.llm.tokens")
+                .description("Tokens per model call")
+                .baseUnit("tokens")
+                .tag("model", model)
+                .tag("type", type)
+                .register(meterRegistry);
+    }
+
+    private static String model(ChatResponse response) {
+        ChatResponseMetadata metadata = response == null ? null : response.getMetadata();
+        return metadata != null && StringUtils.hasText(metadata.getModel()) ? metadata.getModel() : UNKNOWN_MODEL;
+    }
+
+    private static Integer positiveOrNull(Integer value) {
+        return value == null || value <= 0 ? null : value;
+    }
+
+    /**
+     * Text of a response's first generation.
+     * @param response the response, may be null
+     * @return the text, or null if there is none
+     */
+    public static String text(ChatResponse response) {
+        if (response == null || response.getResult() == null || response.getResult().getOutput() == null) {
+            return null;
+        }
+        return response.getResult().getOutput().getText();
+    }
+}
@@ -0,0 +1,98 @@
+package com.codehacks.postgen.llm;
+
+import com.google.api.gax.rpc.ApiException;
+import com.google.api.gax.rpc.StatusCode;
+import org.springframework.ai.retry.TransientAiException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sorts failures from the AI providers into the few categories the call pipeline cares about.
+ * Walks the whole cause chain, since provider clients tend to wrap the original error.
+ */
+public final class LlmErrorClassifier {
+
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int MAX_CAUSE_DEPTH = 10;
+
+    private LlmErrorClassifier() {
+    }
+
+    /**
+     * Failure category.
+     */
+    public enum Category {
+        /** The provider asked us to slow down (HTTP 429, RESOURCE_EXHAUSTED). */
+        THROTTLED,
+        /** The call did not complete in time. */
+        TIMEOUT,
+        /** The provider failed on its side (HTTP 5xx, UNAVAILABLE, INTERNAL). */
+        SERVER_ERROR,
+        /** Anything else, e.g. a bad request or invalid output. Not worth retrying. */
+        OTHER
+    }
+
+    /**
+     * Classifies a failure.
+     * @param error the failure
+     * @return its category
+     */
+    public static Category classify(Throwable error) {
+        Throwable current = error;
+        for (int depth = 0; current != null && depth < MAX_CAUSE_DEPTH; depth++) {
+            Category category = classifyOne(current);
+            if (category != Category.OTHER) {
+                return category;
+            }
+            current = current.getCause();
+        }
+        return Category.OTHER;
+    }
+
+    /**
+     * Whether the failure means the provider is overloaded, so we should send less traffic.
+     * @param error the failure
+     * @return true for throttling and timeouts
+     */
+    public static boolean isOverload(Throwable error) {
+        Category category = classify(error);
+        return category == Category.THROTTLED || category == Category.TIMEOUT;
+    }
+
+    /**
+     * Whether the same call may succeed if tried again.
+     * @param error the failure
+     * @return true for throttling, timeouts and provider-side errors
+     */
+    public static boolean isRetryable(Throwable error) {
+        return classify(error) != Category.OTHER;
+    }
+
+    private static Category classifyOne(Throwable error) {
+        if (error instanceof TimeoutException || error instanceof SocketTimeoutException) {
+            return Category.TIMEOUT;
+        }
+        if (error instanceof RestClientResponseException responseException) {
+            int status = responseException.getStatusCode().value();
+            if (status == TOO_MANY_REQUESTS) {
+                return Category.THROTTLED;
+            }
+            return status >= 500 ? Category.SERVER_ERROR : Category.OTHER;
+        }
+        if (error instanceof ApiException apiException) {
+            StatusCode.Code code = apiException.getStatusCode().getCode();
+            return switch (code) {
+                case RESOURCE_EXHAUSTED -> Category.THROTTLED;
+                case DEADLINE_EXCEEDED -> Category.TIMEOUT;
+                case UNAVAILABLE, INTERNAL, ABORTED -> Category.SERVER_ERROR;
+                default -> Category.OTHER;
+            };
+        }
+        if (error instanceof TransientAiException) {
+            return Category.SERVER_ERROR;
+        }
+        return Category.OTHER;
+    }
+}
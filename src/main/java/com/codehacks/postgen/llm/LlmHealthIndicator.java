@@ -0,0 +1,52 @@
+package com.codehacks.postgen.llm;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports the state of the model call protections under the "llm" health component.
+ * An open circuit is reported as UNKNOWN rather than DOWN: the application can still serve reads,
+ * so a provider outage should not take instances out of rotation.
+ */
+@Component("llmHealthIndicator")
+public class LlmHealthIndicator implements HealthIndicator {
+
+    private final LlmCallExecutor llmCallExecutor;
+
+    public LlmHealthIndicator(LlmCallExecutor llmCallExecutor) {
+        this.llmCallExecutor = llmCallExecutor;
+    }
+
+    @Override
+    public Health health() {
+        CircuitBreaker circuitBreaker = llmCallExecutor.getCircuitBreaker();
+        CircuitBreaker.Metrics cbMetrics = circuitBreaker.getMetrics();
+        Bulkhead.Metrics bulkheadMetrics = llmCallExecutor.getBulkhead().getMetrics();
+
+        CircuitBreaker.State state = circuitBreaker.getState();
+        Health.Builder builder = state == CircuitBreaker.State.OPEN || state == CircuitBreaker.State.FORCED_OPEN
+                ? Health.unknown()
+                : Health.up();
+
+        builder.withDetail("circuitBreaker.state", state)
+                .withDetail("circuitBreaker.failureRate", cbMetrics.getFailureRate())
+                .withDetail("circuitBreaker.slowCallRate", cbMetrics.getSlowCallRate())
+                .withDetail("circuitBreaker.bufferedCalls", cbMetrics.getNumberOfBufferedCalls())
+                .withDetail("circuitBreaker.notPermittedCalls", cbMetrics.getNumberOfNotPermittedCalls())
+                .withDetail("bulkhead.availableConcurrentCalls", bulkheadMetrics.getAvailableConcurrentCalls())
+                .withDetail("bulkhead.maxAllowedConcurrentCalls", bulkheadMetrics.getMaxAllowedConcurrentCalls())
+                .withDetail("timeLimiter.timeout",
+                        llmCallExecutor.getTimeLimiter().getTimeLimiterConfig().getTimeoutDuration().toString());
+
+        AdaptiveConcurrencyLimiter limiter = llmCallExecutor.getConcurrencyLimiter();
+        if (limiter != null) {
+            builder.withDetail("concurrency.limit", limiter.getLimit())
+                    .withDetail("concurrency.inFlight", limiter.getInFlight())
+                    .withDetail("concurrency.queued", limiter.getQueued());
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,111 @@
+package com.codehacks.postgen.llm;
+
+import com.codehacks.postgen.config.LlmProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Supplier;
+
+/**
+ * Retries transient model failures with decorrelated-jitter backoff, within a node-wide {@link RetryBudget}.
+ * <p>
+ * Only failures {@link LlmErrorClassifier#isRetryable(Throwable)} accepts are retried: timeouts,
+ * throttling and provider-side errors. Rejections by our own protections (open circuit, shed load)
+ * are not, since retrying them would just add load where we have already decided to shed it.
+ */
+public class LlmRetryPolicy {
+
+    private static final Logger logger = LoggerFactory.getLogger(LlmRetryPolicy.class);
+
+    private final LlmProperties.Retry settings;
+    private final RetryBudget budget;
+
+    private final Counter retries;
+    private final Counter budgetExhausted;
+    private final Counter attemptsExhausted;
+    private final Counter recovered;
+
+    public LlmRetryPolicy(LlmProperties.Retry settings, MeterRegistry meterRegistry) {
+        this.settings = settings;
+        this.budget = new RetryBudget(settings.getBudgetRatio(), settings.getMinRetriesPerSecond(),
+                settings.getMaxBudget());
+
+        this.retries = retryCounter(meterRegistry, "retried");
+        this.budgetExhausted = retryCounter(meterRegistry, "budget_exhausted");
+        this.attemptsExhausted = retryCounter(meterRegistry, "attempts_exhausted");
+        this.recovered = retryCounter(meterRegistry, "recovered");
+        Gauge.builder("essay.llm.retry.budget", budget, RetryBudget::getBalance)
+                .description("Retries currently available in the retry budget")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Runs the call, retrying transient failures while attempts and budget allow.
+     * @param attempt one attempt of the call
+     * @param <T> the result type
+     * @return the result of the first successful attempt
+     */
+    public <T> T execute(Supplier<T> attempt) {
+        budget.recordRequest();
+        long baseDelayMillis = settings.getBaseDelay().toMillis();
+        long previousDelayMillis = baseDelayMillis;
+
+        for (int attemptNumber = 1; ; attemptNumber++) {
+            try {
+                T result = attempt.get();
+                if (attemptNumber > 1) {
+                    recovered.increment();
+                }
+                return result;
+            } catch (RuntimeException e) {
+                if (!LlmErrorClassifier.isRetryable(e)) {
+                    throw e;
+                }
+                if (attemptNumber >= settings.getMaxAttempts()) {
+                    attemptsExhausted.increment();
+                    throw e;
+                }
+                if (!budget.tryWithdraw()) {
+                    budgetExhausted.increment();
+                    logger.warn("Retry budget exhausted, not retrying AI model call: {}", e.getMessage());
+                    throw e;
+                }
+
+                previousDelayMillis = nextDelay(baseDelayMillis, previousDelayMillis);
+                retries.increment();
+                logger.warn("AI model call failed ({}), retrying in {} ms (attempt {} of {})",
+                        LlmErrorClassifier.classify(e), previousDelayMillis, attemptNumber + 1, settings.getMaxAttempts());
+                sleep(previousDelayMillis, e);
+            }
+        }
+    }
+
+    /**
+     * Decorrelated jitter: a random delay between the base and three times the previous delay, capped.
+     */
+    private long nextDelay(long baseDelayMillis, long previousDelayMillis) {
+        long upper = Math.max(baseDelayMillis + 1, previousDelayMillis * 3);
+        long delay = ThreadLocalRandom.current().nextLong(baseDelayMillis, upper);
+        return Math.min(settings.getMaxDelay().toMillis(), delay);
+    }
+
+    private static void sleep(long millis, RuntimeException failure) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw failure;
+        }
+    }
+
+    private static Counter retryCounter(MeterRegistry registry, String outcome) {
+        return Counter.builder("essay.llm.retries")
+                .description("Retry decisions for failed AI model calls")
+                .tag("outcome", outcome)
+                .register(registry);
+    }
+}
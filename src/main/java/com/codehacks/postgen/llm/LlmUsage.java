@@ -0,0 +1,56 @@
+package com.codehacks.postgen.llm;
+
+/**
+ * Model and token usage collected over the model calls that produced one essay.
+ * <p>
+ * Token counts add up across calls (cascade escalations, long-form sections); the model is the one
+ * that answered last, which is the tier whose draft was accepted. Safe to share between threads.
+ */
+public class LlmUsage {
+
+    private String model;
+    private Integer promptTokens;
+    private Integer completionTokens;
+
+    /**
+     * Adds one call's usage.
+     * @param model the model that answered, may be null
+     * @param promptTokens prompt tokens reported by the provider, may be null
+     * @param completionTokens completion tokens reported by the provider, may be null
+     */
+    public synchronized void add(String model, Integer promptTokens, Integer completionTokens) {
+        if (model != null) {
+            this.model = model;
+        }
+        this.promptTokens = sum(this.promptTokens, promptTokens);
+        this.completionTokens = sum(this.completionTokens, completionTokens);
+    }
+
+    /**
+     * @return the model that answered last, or null if unknown
+     */
+    public synchronized String getModel() {
+        return model;
+    }
+
+    /**
+     * @return the total prompt tokens, or null if no provider reported any
+     */
+    public synchronized Integer getPromptTokens() {
+        return promptTokens;
+    }
+
+    /**
+     * @return the total completion tokens, or null if no provider reported any
+     */
+    public synchronized Integer getCompletionTokens() {
+        return completionTokens;
+    }
+
+    private static Integer sum(Integer total, Integer value) {
+        if (value == null) {
+            return total;
+        }
+        return total == null ? value : total + value;
+    }
+}
@@ -0,0 +1,207 @@
+package com.codehacks.postgen.llm;
+
+import com.codehacks.postgen.config.LlmProperties;
+import com.codehacks.postgen.exception.EssayGenerationException;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.BiFunction;
+import java.util.regex.Pattern;
+
+/**
+ * Generates long essays as an outline followed by sections written in parallel.
+ * <p>
+ * One model call produces the section headings; every section is then generated concurrently
+ * on a bounded pool and the results are stitched together in outline order. End-to-end latency
+ * becomes roughly one outline call plus the slowest section, instead of one call whose time
+ * grows with the length of the whole essay. The essay's length limit is shared out between the
+ * sections up front, so no section is paid for past its share. Additional context is fitted
+ * to the input-token budget separately for the outline prompt and for the longest section prompt,
+ * since every section prompt also carries the whole outline.
+ */
+public class LongFormGenerator {
+
+    private static final Logger logger = LoggerFactory.getLogger(LongFormGenerator.class);
+
+    /** Characters per word, spaces included, used to fit the word target into a section's share. */
+    private static final int CHARS_PER_WORD = 6;
+
+    private static final Pattern LIST_MARKER = Pattern.compile("^\\s*(?:[-*\\u2022#]+|\\d+[.)]|[IVXivx]+[.)])\\s*");
+
+    private final int maxSections;
+    private final int minSections;
+    private final int targetWords;
+    private final ExecutorService sectionExecutor;
+    private final EssayPromptBuilder promptBuilder;
+
+    private final Timer outlineLatency;
+    private final Timer sectionsLatency;
+    private final DistributionSummary sectionCount;
+
+    /**
+     * @param settings the long-form settings
+     * @param sectionExecutor the bounded pool sections are generated on
+     * @param promptBuilder fits additional context to the input-token budget
+     * @param meterRegistry the registry for long-form metrics
+     */
+    public LongFormGenerator(LlmProperties.LongForm settings, ExecutorService sectionExecutor,
+                             EssayPromptBuilder promptBuilder, MeterRegistry meterRegistry) {
+        this.maxSections = settings.getMaxSections();
+        this.minSections = settings.getMinSections();
+        this.targetWords = settings.getTargetWords();
+        this.sectionExecutor = sectionExecutor;
+        this.promptBuilder = promptBuilder;
+        this.outlineLatency = Timer.builder("essay.llm.longform.latency")
+                .description("Latency of the long-form generation phases")
+                .tag("phase", "outline")
+                .register(meterRegistry);
+        this.sectionsLatency = Timer.builder("essay.llm.longform.latency")
+                .description("Latency of the long-form generation phases")
+                .tag("phase", "sections")
+                .register(meterRegistry);
+        this.sectionCount = DistributionSummary.builder("essay.llm.longform.sections")
+                .description("Sections per long-form essay")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Generates the full essay text.
+     * @param topic the essay topic
+     * @param context the requester's additional context, or null; it is fitted to each prompt's budget
+     * @param maxChars the most characters the stitched essay may have
+     * @param call makes one model call for a prompt, with the most characters its reply may have
+     *             (null for no limit), and returns its text
+     * @return the stitched essay
+     */
+    public String generate(String topic, String context, int maxChars, BiFunction<String, Integer, String> call) {
+        String outlinePrompt = outlinePrompt(topic);
+        String outlineContext = promptBuilder.contextBlock(
+                promptBuilder.fitContext(context, promptBuilder.estimateTokens(outlinePrompt)));
+        List<String> headings = outlineLatency.record(
+                () -> parseOutline(call.apply(outlinePrompt + outlineContext, null)));
+        if (headings.size() < minSections) {
+            throw new EssayGenerationException("Outline for topic '" + topic + "' has fewer than "
+                    + minSections + " sections");
+        }
+        sectionCount.record(headings.size());
+        logger.info("Generating {} sections in parallel for topic: {}", headings.size(), topic);
+
+        int sectionChars = sectionChars(headings, maxChars);
+        int wordsPerSection = Math.max(50, Math.min(targetWords / headings.size(), sectionChars / CHARS_PER_WORD));
+        List<String> sections = sectionsLatency.record(
+                () -> generateSections(topic, headings, wordsPerSection, sectionChars, context, call));
+
+        StringBuilder essay = new StringBuilder();
+        for (int i = 0; i < headings.size(); i++) {
+            if (i > 0) {
+                essay.append("\n\n");
+            }
+            essay.append("## ").append(headings.get(i)).append("\n\n").append(sections.get(i).trim());
+        }
+        return essay.toString();
+    }
+
+    /**
+     * Shares the essay's length limit out between the sections, after the headings and the blank lines
+     * the sections are stitched with.
+     * @param headings the section headings
+     * @param maxChars the most characters the stitched essay may have
+     * @return the most characters one section may have
+     */
+    int sectionChars(List<String> headings, int maxChars) {
+        int stitching = 2 * (headings.size() - 1);
+        for (String heading : headings) {
+            stitching += "## ".length() + heading.length() + 2;
+        }
+        int sectionChars = (maxChars - stitching) / headings.size();
+        if (sectionChars < 50 * CHARS_PER_WORD) {
+            throw new EssayGenerationException("Outline headings leave too little room for " + headings.size()
+                    + " sections within " + maxChars + " characters");
+        }
+        return sectionChars;
+    }
+
+    private List<String> generateSections(String topic, List<String> headings, int wordsPerSection,
+                                          int sectionChars, String context,
+                                          BiFunction<String, Integer, String> call) {
+        List<String> prompts = new ArrayList<>(headings.size());
+        int longestPrompt = 0;
+        for (int i = 0; i < headings.size(); i++) {
+            String prompt = sectionPrompt(topic, headings, i, wordsPerSection);
+            prompts.add(prompt);
+            longestPrompt = Math.max(longestPrompt, prompt.length());
+        }
+        // Every section gets the same context, cut to fit beside the longest section prompt.
+        String contextBlock = promptBuilder.contextBlock(
+                promptBuilder.fitContext(context, promptBuilder.estimateTokens(longestPrompt)));
+
+        List<Future<String>> futures = new ArrayList<>(headings.size());
+        try {
+            for (String prompt : prompts) {
+                String fullPrompt = prompt + contextBlock;
+                futures.add(sectionExecutor.submit(() -> call.apply(fullPrompt, sectionChars)));
+            }
+            List<String> sections = new ArrayList<>(headings.size());
+            for (int i = 0; i < futures.size(); i++) {
+                String section = futures.get(i).get();
+                if (section == null || section.isBlank()) {
+                    throw new EssayGenerationException("AI service returned an empty section: " + headings.get(i));
+                }
+                sections.add(section);
+            }
+            return sections;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EssayGenerationException("Interrupted while generating sections for topic: " + topic, e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new EssayGenerationException("Failed to generate a section for topic: " + topic, e.getCause());
+        } finally {
+            // One failed section fails the essay; stop paying for the rest.
+            futures.forEach(future -> future.cancel(true));
+        }
+    }
+
+    private String outlinePrompt(String topic) {
+        return "Create an outline for a comprehensive essay on the topic: " + topic
+                + ". Reply with between " + minSections + " and " + maxSections
+                + " section headings, one per line, including an introduction and a conclusion,"
+                + " and nothing else.";
+    }
+
+    private String sectionPrompt(String topic, List<String> headings, int index, int words) {
+        return "You are writing one section of a comprehensive essay on the topic: " + topic
+                + ".\nThe essay's sections are:\n" + String.join("\n", headings)
+                + "\n\nWrite only the section \"" + headings.get(index) + "\", in about " + words
+                + " words of prose. Do not repeat the heading and do not write any other section.";
+    }
+
+    /**
+     * Reads section headings from the outline reply, one per non-empty line.
+     * @param outline the outline reply
+     * @return the headings, at most maxSections
+     */
+    List<String> parseOutline(String outline) {
+        List<String> headings = new ArrayList<>();
+        if (outline == null) {
+            return headings;
+        }
+        for (String line : outline.split("\\R")) {
+            String heading = LIST_MARKER.matcher(line).replaceFirst("").replace("*", "").trim();
+            if (!heading.isEmpty() && headings.size() < maxSections) {
+                headings.add(heading);
+            }
+        }
+        return headings;
+    }
+}
@@ -0,0 +1,142 @@
+package com.codehacks.postgen.llm;
+
+import com.codehacks.postgen.config.LlmProperties;
+import com.codehacks.postgen.exception.EssayGenerationException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Tries a fast model first and escalates to the strong model only when the draft is not good enough.
+ * <p>
+ * A fast-tier draft must pass the caller's validation and a cheap quality check (enough paragraphs,
+ * a complete last sentence, no refusal). The last tier only has to pass validation, so the bar is
+ * never lower than calling the strong model directly.
+ */
+public class ModelCascade {
+
+    private static final Logger logger = LoggerFactory.getLogger(ModelCascade.class);
+
+    private static final Pattern PARAGRAPH_BREAK = Pattern.compile("\\n\\s*\\n");
+    private static final List<String> REFUSAL_MARKERS = List.of("as an ai", "i'm sorry", "i am sorry", "i cannot");
+
+    private final List<Tier> tiers;
+    private final int minParagraphs;
+    private final boolean requireCompleteEnding;
+
+    /**
+     * @param settings the cascade settings
+     * @param meterRegistry the registry for cascade metrics
+     */
+    public ModelCascade(LlmProperties.Cascade settings, MeterRegistry meterRegistry) {
+        this.minParagraphs = settings.getMinParagraphs();
+        this.requireCompleteEnding = settings.isRequireCompleteEnding();
+        List<Tier> configured = new ArrayList<>(2);
+        if (settings.isEnabled()) {
+            configured.add(new Tier("fast", settings.getFastModel(), meterRegistry));
+        }
+        configured.add(new Tier("strong", settings.getStrongModel(), meterRegistry));
+        this.tiers = List.copyOf(configured);
+    }
+
+    /**
+     * Generates content, escalating through the tiers until a draft is accepted.
+     * @param call makes the model call with the given options, or with the default options when given null
+     * @param validator throws EssayGenerationException if the content is not acceptable
+     * @return the accepted content
+     */
+    public String generate(Function<ChatOptions, String> call, Consumer<String> validator) {
+        for (int i = 0; i < tiers.size(); i++) {
+            Tier tier = tiers.get(i);
+            boolean lastTier = i == tiers.size() - 1;
+
+            long start = System.nanoTime();
+            String content = call.apply(tier.options);
+            tier.latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+
+            try {
+                validator.accept(content);
+                if (!lastTier) {
+                    checkQuality(content);
+                }
+            } catch (EssayGenerationException e) {
+                if (lastTier) {
+                    tier.rejected.increment();
+                    throw e;
+                }
+                tier.escalated.increment();
+                logger.info("Escalating from the {} tier: {}", tier.name, e.getMessage());
+                continue;
+            }
+            tier.accepted.increment();
+            return content;
+        }
+        throw new IllegalStateException("Model cascade has no tiers");
+    }
+
+    /**
+     * Applies the quality check a fast-tier draft has to pass, to content from elsewhere that did not
+     * come from the strong model on its own, such as a part of a batched response.
+     * @param content the content, already validated
+     * @throws EssayGenerationException if the content fails the check
+     */
+    public void checkQuality(String content) {
+        String trimmed = content.trim();
+        if (PARAGRAPH_BREAK.split(trimmed).length < minParagraphs) {
+            throw new EssayGenerationException("Draft has fewer than " + minParagraphs + " paragraphs");
+        }
+        if (requireCompleteEnding && !trimmed.matches("(?s).*[.!?\"')\\]]$")) {
+            throw new EssayGenerationException("Draft ends mid-sentence");
+        }
+        String opening = trimmed.substring(0, Math.min(200, trimmed.length())).toLowerCase(Locale.ROOT);
+        if (REFUSAL_MARKERS.stream().anyMatch(opening::contains)) {
+            throw new EssayGenerationException("Draft looks like a refusal");
+        }
+    }
+
+    /**
+     * One model tier and its metrics.
+     */
+    private static final class Tier {
+
+        private final String name;
+        private final ChatOptions options;
+        private final Timer latency;
+        private final Counter accepted;
+        private final Counter escalated;
+        private final Counter rejected;
+
+        Tier(String name, String model, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.options = StringUtils.hasText(model) ? ChatOptions.builder().model(model).build() : null;
+            this.latency = Timer.builder("essay.llm.cascade.latency")
+                    .description("Latency of model calls per cascade tier")
+                    .tag("tier", name)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+            this.accepted = outcome(meterRegistry, name, "accepted");
+            this.escalated = outcome(meterRegistry, name, "escalated");
+            this.rejected = outcome(meterRegistry, name, "rejected");
+        }
+
+        private static Counter outcome(MeterRegistry registry, String tier, String outcome) {
+            return Counter.builder("essay.llm.cascade.drafts")
+                    .description("Drafts per cascade tier by outcome")
+                    .tag("tier", tier)
+                    .tag("outcome", outcome)
+                    .register(registry);
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.codehacks.postgen.llm;
+
+import com.codehacks.postgen.config.LlmProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+
+import java.text.BreakIterator;
+import java.util.Locale;
+
+/**
+ * Keeps generated essays within length limits without paying for output that would be thrown away.
+ * <p>
+ * A target word count becomes a max-output-token setting, so the model stops near the target.
+ * In streaming mode a response is cancelled as soon as it reaches the content limit and cut back
+ * to its last complete sentence, instead of running to the end and failing validation as too long.
+ */
+public class OutputLimiter {
+
+    private final boolean streaming;
+    private final double tokensPerWord;
+    private final double headroom;
+
+    private final Counter cutoffs;
+
+    /**
+     * @param settings the output settings
+     * @param meterRegistry the registry for output metrics
+     */
+    public OutputLimiter(LlmProperties.Output settings, MeterRegistry meterRegistry) {
+        this.streaming = settings.isStreaming();
+        this.tokensPerWord = settings.getTokensPerWord();
+        this.headroom = settings.getHeadroom();
+        this.cutoffs = Counter.builder("essay.llm.stream.cutoffs")
+                .description("Streamed responses stopped early at the content limit")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Whether responses should be streamed and collected with {@link #collect(Flux, int)}.
+     * @return true in streaming mode
+     */
+    public boolean isStreaming() {
+        return streaming;
+    }
+
+    /**
+     * Max output tokens for a target word count.
+     * @param targetWords the target length, may be null
+     * @return the token limit, or null to leave the model's default
+     */
+    public Integer maxTokens(Integer targetWords) {
+        if (targetWords == null) {
+            return null;
+        }
+        return (int) Math.ceil(targetWords * tokensPerWord * headroom);
+    }
+
+    /**
+     * Collects a streamed response, stopping the stream once it reaches the limit.
+     * @param chunks the streamed content
+     * @param maxChars the content limit
+     * @return the content, ending on a sentence boundary if it had to be cut
+     */
+    public String collect(Flux<String> chunks, int maxChars) {
+        StringBuilder content = new StringBuilder();
+        // takeUntil cancels the upstream request, so no more tokens are generated once the limit is hit.
+        chunks.doOnNext(content::append)
+                .takeUntil(chunk -> content.length() >= maxChars)
+                .blockLast();
+        if (content.length() <= maxChars) {
+            return content.toString();
+        }
+        cutoffs.increment();
+        return cutAtSentence(content.toString(), maxChars);
+    }
+
+    /**
+     * Cuts text to at most maxChars, ending on the last complete sentence, or the last word if no sentence fits.
+     * @param text the text
+     * @param maxChars the limit
+     * @return the cut text
+     */
+    static String cutAtSentence(String text, int maxChars) {
+        BreakIterator sentences = BreakIterator.getSentenceInstance(Locale.ROOT);
+        sentences.setText(text);
+        int end = sentences.preceding(maxChars + 1);
+        if (end <= 0 || end == BreakIterator.DONE) {
+            int space = text.lastIndexOf(' ', maxChars);
+            end = space > 0 ? space : maxChars;
+        }
+        return text.substring(0, end).trim();
+    }
+}
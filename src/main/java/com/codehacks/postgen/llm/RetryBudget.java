@@ -0,0 +1,69 @@
+package com.codehacks.postgen.llm;
+
+/**
+ * Node-wide cap on retries, expressed as a share of first attempts.
+ * <p>
+ * Every first attempt deposits {@code ratio} of a retry into the budget and every retry withdraws one,
+ * so retries can never exceed that share of traffic however many calls fail at once. A small
+ * time-based allowance keeps retries possible on a quiet node. The balance is capped so a long
+ * quiet period cannot bank enough retries to cause a storm later.
+ */
+public class RetryBudget {
+
+    private final double ratio;
+    private final double minPerSecond;
+    private final double maxBalance;
+
+    private double balance;
+    private long lastRefillNanos;
+
+    /**
+     * @param ratio retries earned per first attempt
+     * @param minPerSecond retries earned per second regardless of traffic
+     * @param maxBalance maximum number of retries that can be banked
+     */
+    public RetryBudget(double ratio, double minPerSecond, double maxBalance) {
+        this.ratio = ratio;
+        this.minPerSecond = minPerSecond;
+        this.maxBalance = maxBalance;
+        this.balance = Math.min(1.0, maxBalance);
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Records a first attempt, which earns a fraction of a retry.
+     */
+    public synchronized void recordRequest() {
+        refill();
+        balance = Math.min(maxBalance, balance + ratio);
+    }
+
+    /**
+     * Takes one retry from the budget if there is one.
+     * @return true if the retry may go ahead
+     */
+    public synchronized boolean tryWithdraw() {
+        refill();
+        if (balance < 1.0) {
+            return false;
+        }
+        balance -= 1.0;
+        return true;
+    }
+
+    /**
+     * Retries currently available.
+     * @return the balance
+     */
+    public synchronized double getBalance() {
+        refill();
+        return balance;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        double elapsedSeconds = (now - lastRefillNanos) / 1_000_000_000.0;
+        lastRefillNanos = now;
+        balance = Math.min(maxBalance, balance + elapsedSeconds * minPerSecond);
+    }
+}
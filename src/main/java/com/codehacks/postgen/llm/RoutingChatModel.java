@@ -0,0 +1,432 @@
+package com.codehacks.postgen.llm;
+
+import com.codehacks.postgen.exception.LlmUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.util.StringUtils;
+import reactor.core.publisher.Flux;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * ChatModel that spreads calls over several providers and fails over between them.
+ * <p>
+ * Each provider keeps an exponentially weighted moving average of its latency and error rate.
+ * A call goes to the better of two randomly picked providers (power of two choices), scored by
+ * latency, in-flight calls and error rate, so load drifts away from a slow or failing provider
+ * without every node stampeding onto the same one. A small share of calls explores a random
+ * provider so a penalised one can recover. Transient failures fail over to the next provider.
+ * <p>
+ * With a {@link HedgePolicy}, a call that is still running after the hedge delay gets a second
+ * attempt, on another provider when there is one. The first usable response wins and the other
+ * attempt is cancelled. The hedge runs outside the protections the original call went through, so
+ * it takes its own room in the adaptive limit and bulkhead, and is skipped when there is none.
+ */
+public class RoutingChatModel implements ChatModel {
+
+    private static final Logger logger = LoggerFactory.getLogger(RoutingChatModel.class);
+
+    private static final double MIN_SUCCESS_RATE = 0.05;
+
+    private final List<Provider> providers;
+    private final double decay;
+    private final double explorationRate;
+    private final HedgePolicy hedgePolicy;
+    private final ExecutorService attemptExecutor;
+    private final LlmCallExecutor hedgeCapacity;
+
+    /**
+     * @param models provider names mapped to their models, in preference order
+     * @param decay weight of the newest sample in the moving averages
+     * @param explorationRate share of calls routed to a random provider
+     * @param meterRegistry the registry for routing metrics
+     */
+    public RoutingChatModel(List<NamedModel> models, double decay, double explorationRate,
+                            MeterRegistry meterRegistry) {
+        this(models, decay, explorationRate, null, null, null, meterRegistry);
+    }
+
+    /**
+     * @param models provider names mapped to their models, in preference order
+     * @param decay weight of the newest sample in the moving averages
+     * @param explorationRate share of calls routed to a random provider
+     * @param hedgePolicy when to hedge slow calls, or null to never hedge
+     * @param attemptExecutor pool hedged attempts run on, required with a hedge policy
+     * @param hedgeCapacity the executor model calls go through, whose limiter and bulkhead each hedge
+     *                      takes room in; null to hedge without limit
+     * @param meterRegistry the registry for routing metrics
+     */
+    public RoutingChatModel(List<NamedModel> models, double decay, double explorationRate,
+                            HedgePolicy hedgePolicy, ExecutorService attemptExecutor,
+                            LlmCallExecutor hedgeCapacity, MeterRegistry meterRegistry) {
+        if (models.isEmpty()) {
+            throw new IllegalArgumentException("At least one chat model provider is required");
+        }
+        if (hedgePolicy != null && attemptExecutor == null) {
+            throw new IllegalArgumentException("Hedging requires an executor for the attempts");
+        }
+        this.decay = decay;
+        this.explorationRate = explorationRate;
+        this.hedgePolicy = hedgePolicy;
+        this.attemptExecutor = attemptExecutor;
+        this.hedgeCapacity = hedgeCapacity;
+        this.providers = models.stream()
+                .map(model -> new Provider(model.name(), model.model(), meterRegistry))
+                .toList();
+    }
+
+    @Override
+    public ChatResponse call(Prompt prompt) {
+        if (hedgePolicy != null) {
+            long hedgeDelayMillis = hedgePolicy.hedgeDelayMillis();
+            if (hedgeDelayMillis >= 0) {
+                return callHedged(prompt, hedgeDelayMillis);
+            }
+        }
+        return callWithFailover(prompt);
+    }
+
+    private ChatResponse callWithFailover(Prompt prompt) {
+        long callStart = System.nanoTime();
+        List<Provider> tried = new ArrayList<>(providers.size());
+        RuntimeException lastFailure = null;
+
+        while (tried.size() < providers.size()) {
+            Provider provider = choose(tried);
+            tried.add(provider);
+            provider.decisions.increment();
+
+            long start = provider.begin();
+            try {
+                ChatResponse response = provider.model.call(prompt);
+                provider.complete(start, true);
+                recordCallLatency(callStart);
+                return response;
+            } catch (RuntimeException e) {
+                provider.complete(start, false);
+                lastFailure = e;
+                if (!LlmErrorClassifier.isRetryable(e)) {
+                    throw e;
+                }
+                provider.failovers.increment();
+                logger.warn("Provider {} failed ({}), failing over", provider.name, LlmErrorClassifier.classify(e));
+            }
+        }
+        throw lastFailure;
+    }
+
+    private ChatResponse callHedged(Prompt prompt, long hedgeDelayMillis) {
+        long callStart = System.nanoTime();
+        BlockingQueue<Attempt> completed = new LinkedBlockingQueue<>();
+        List<Provider> tried = new ArrayList<>(providers.size());
+        List<Attempt> running = new ArrayList<>(2);
+        try {
+            running.add(start(choose(tried), prompt, false, tried, completed));
+            Attempt finished = completed.poll(hedgeDelayMillis, TimeUnit.MILLISECONDS);
+            if (finished == null) {
+                boolean hasCapacity = hedgeCapacity == null || hedgeCapacity.tryAcquireExtraAttempt();
+                if (!hasCapacity) {
+                    hedgePolicy.recordNoCapacity();
+                } else if (hedgePolicy.tryFire()) {
+                    Provider hedgeProvider = tried.size() < providers.size() ? choose(tried) : tried.get(0);
+                    logger.debug("Model call slower than {} ms, hedging on provider {}", hedgeDelayMillis,
+                            hedgeProvider.name);
+                    try {
+                        running.add(start(hedgeProvider, prompt, true, tried, completed));
+                    } catch (LlmUnavailableException e) {
+                        hedgePolicy.recordNoCapacity();
+                    }
+                } else if (hedgeCapacity != null) {
+                    hedgeCapacity.releaseExtraAttempt();
+                }
+                finished = completed.take();
+            }
+
+            RuntimeException lastFailure = null;
+            while (true) {
+                running.remove(finished);
+                if (finished.failure == null) {
+                    // An empty response is only worth skipping while another attempt may still do better.
+                    if (isUsable(finished.response) || running.isEmpty()) {
+                        if (finished.hedge) {
+                            hedgePolicy.recordWin();
+                        }
+                        recordCallLatency(callStart);
+                        return finished.response;
+                    }
+                } else {
+                    if (!LlmErrorClassifier.isRetryable(finished.failure)) {
+                        throw finished.failure;
+                    }
+                    lastFailure = finished.failure;
+                    finished.provider.failovers.increment();
+                    logger.warn("Provider {} failed ({}), failing over", finished.provider.name,
+                            LlmErrorClassifier.classify(finished.failure));
+                    if (running.isEmpty()) {
+                        if (tried.size() == providers.size()) {
+                            throw lastFailure;
+                        }
+                        running.add(start(choose(tried), prompt, false, tried, completed));
+                    }
+                }
+                finished = completed.take();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for the model", e);
+        } finally {
+            running.forEach(Attempt::cancel);
+        }
+    }
+
+    private Attempt start(Provider provider, Prompt prompt, boolean hedge, List<Provider> tried,
+                          BlockingQueue<Attempt> completed) {
+        if (!tried.contains(provider)) {
+            tried.add(provider);
+        }
+        provider.decisions.increment();
+        // A hedge holds the room it took until it ends, or until it is cancelled before it started
+        Runnable release = hedge && hedgeCapacity != null ? hedgeCapacity::releaseExtraAttempt : null;
+        Attempt attempt = new Attempt(provider, prompt, hedge, release, completed);
+        try {
+            attempt.future = attemptExecutor.submit(attempt);
+        } catch (RejectedExecutionException e) {
+            if (release != null) {
+                release.run();
+            }
+            throw new LlmUnavailableException("No thread free for an AI model call", 1, e);
+        }
+        return attempt;
+    }
+
+    private void recordCallLatency(long callStart) {
+        if (hedgePolicy != null) {
+            hedgePolicy.recordLatency(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - callStart));
+        }
+    }
+
+    private static boolean isUsable(ChatResponse response) {
+        return response != null
+                && response.getResult() != null
+                && response.getResult().getOutput() != null
+                && StringUtils.hasText(response.getResult().getOutput().getText());
+    }
+
+    @Override
+    public Flux<ChatResponse> stream(Prompt prompt) {
+        return Flux.defer(() -> {
+            Provider provider = choose(List.of());
+            provider.decisions.increment();
+            long start = provider.begin();
+            return provider.model.stream(prompt)
+                    .doOnComplete(() -> provider.complete(start, true))
+                    .doOnError(e -> provider.complete(start, false))
+                    .doOnCancel(() -> provider.complete(start, true));
+        });
+    }
+
+    /**
+     * Provider-neutral: ChatClient merges these into every prompt, so returning one provider's options
+     * would send its model name to the others on failover. Each provider applies its own defaults.
+     */
+    @Override
+    public ChatOptions getDefaultOptions() {
+        return ChatOptions.builder().build();
+    }
+
+    /**
+     * Names of the routed providers, in preference order.
+     * @return the provider names
+     */
+    public List<String> getProviderNames() {
+        return providers.stream().map(provider -> provider.name).toList();
+    }
+
+    private Provider choose(List<Provider> excluded) {
+        List<Provider> candidates = providers.stream()
+                .filter(provider -> !excluded.contains(provider))
+                .toList();
+        if (candidates.size() == 1) {
+            return candidates.get(0);
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        if (random.nextDouble() < explorationRate) {
+            return candidates.get(random.nextInt(candidates.size()));
+        }
+        int first = random.nextInt(candidates.size());
+        int second = random.nextInt(candidates.size() - 1);
+        if (second >= first) {
+            second++;
+        }
+        Provider a = candidates.get(first);
+        Provider b = candidates.get(second);
+        return a.score() <= b.score() ? a : b;
+    }
+
+    /**
+     * A provider name and its model.
+     * @param name name used in logs and metrics
+     * @param model the provider's chat model
+     */
+    public record NamedModel(String name, ChatModel model) {
+    }
+
+    /**
+     * One attempt of a hedged call, running on the attempt executor.
+     */
+    private static final class Attempt implements Runnable {
+
+        private final Provider provider;
+        private final Prompt prompt;
+        private final boolean hedge;
+        private final Runnable release;
+        private final BlockingQueue<Attempt> completed;
+        private final AtomicBoolean started = new AtomicBoolean();
+
+        private volatile Future<?> future;
+        private volatile boolean cancelled;
+        private volatile ChatResponse response;
+        private volatile RuntimeException failure;
+
+        Attempt(Provider provider, Prompt prompt, boolean hedge, Runnable release, BlockingQueue<Attempt> completed) {
+            this.provider = provider;
+            this.prompt = prompt;
+            this.hedge = hedge;
+            this.release = release;
+            this.completed = completed;
+        }
+
+        @Override
+        public void run() {
+            if (!started.compareAndSet(false, true)) {
+                // Cancelled before it started; cancel() gave back its room
+                return;
+            }
+            try {
+                call();
+            } finally {
+                if (release != null) {
+                    release.run();
+                }
+            }
+        }
+
+        private void call() {
+            long start = provider.begin();
+            boolean success = false;
+            try {
+                response = provider.model.call(prompt);
+                success = true;
+            } catch (RuntimeException e) {
+                failure = e;
+            } finally {
+                // A losing attempt we cancelled was slow, not broken: its latency counts, its error does not.
+                provider.complete(start, success || cancelled);
+                completed.offer(this);
+            }
+        }
+
+        void cancel() {
+            cancelled = true;
+            if (started.compareAndSet(false, true) && release != null) {
+                release.run();
+            }
+            if (future != null) {
+                future.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * Routing state for one provider.
+     */
+    private final class Provider {
+
+        private final String name;
+        private final ChatModel model;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final Counter decisions;
+        private final Counter failovers;
+        private final Timer successLatency;
+        private final Timer failureLatency;
+
+        private volatile double latencyEwmaMillis;
+        private volatile double errorRateEwma;
+
+        Provider(String name, ChatModel model, MeterRegistry meterRegistry) {
+            this.name = name;
+            this.model = model;
+            this.decisions = Counter.builder("essay.llm.routing.decisions")
+                    .description("Model calls routed to each provider")
+                    .tag("provider", name)
+                    .register(meterRegistry);
+            this.failovers = Counter.builder("essay.llm.routing.failovers")
+                    .description("Calls that failed on a provider and were moved to another one")
+                    .tag("provider", name)
+                    .register(meterRegistry);
+            this.successLatency = providerLatency(meterRegistry, name, "success");
+            this.failureLatency = providerLatency(meterRegistry, name, "failure");
+            Gauge.builder("essay.llm.provider.latency.ewma", this, provider -> provider.latencyEwmaMillis)
+                    .description("Moving average of provider latency in milliseconds")
+                    .tag("provider", name)
+                    .register(meterRegistry);
+            Gauge.builder("essay.llm.provider.error.rate", this, provider -> provider.errorRateEwma)
+                    .description("Moving average of the provider error rate")
+                    .tag("provider", name)
+                    .register(meterRegistry);
+        }
+
+        long begin() {
+            inFlight.incrementAndGet();
+            return System.nanoTime();
+        }
+
+        void complete(long start, boolean success) {
+            long elapsedNanos = System.nanoTime() - start;
+            inFlight.decrementAndGet();
+            (success ? successLatency : failureLatency).record(elapsedNanos, TimeUnit.NANOSECONDS);
+            synchronized (this) {
+                double elapsedMillis = elapsedNanos / 1_000_000.0;
+                latencyEwmaMillis = latencyEwmaMillis == 0.0
+                        ? elapsedMillis
+                        : latencyEwmaMillis + decay * (elapsedMillis - latencyEwmaMillis);
+                errorRateEwma = errorRateEwma + decay * ((success ? 0.0 : 1.0) - errorRateEwma);
+            }
+        }
+
+        /**
+         * Lower is better. A provider with no samples yet scores zero, so it gets tried early.
+         */
+        double score() {
+            double successRate = Math.max(MIN_SUCCESS_RATE, 1.0 - errorRateEwma);
+            return latencyEwmaMillis * (inFlight.get() + 1) / successRate;
+        }
+    }
+
+    private static Timer providerLatency(MeterRegistry registry, String provider, String outcome) {
+        return Timer.builder("essay.llm.provider.latency")
+                .description("Latency of model calls per provider")
+                .tag("provider", provider)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry);
+    }
+}
@@ -7,8 +7,8 @@ import jakarta.persistence.Enumerated;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
-import jakarta.persistence.Lob;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -34,8 +34,8 @@ public class Essay {
     @Column(nullable = false)
     private String topic;
 
-    @Lob
-    @Column(nullable = false, columnDefinition = "TEXT")
+    /** Text of the essay. Stored in essay_contents (see EssayContent) and filled in by the service. */
+    @Transient
     private String content;
 
     @Column(nullable = false)
@@ -50,4 +50,17 @@ public class Essay {
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private EssayStatus status;
+
+    /** Model that generated the content; null for essays from before usage was recorded. */
+    @Column(length = 100)
+    private String model;
+
+    /** Prompt tokens over all model calls for this essay, when the provider reports them. */
+    private Integer promptTokens;
+
+    /** Completion tokens over all model calls for this essay, when the provider reports them. */
+    private Integer completionTokens;
+
+    /** Wall-clock time spent generating the content, in milliseconds. */
+    private Long generationMillis;
 }
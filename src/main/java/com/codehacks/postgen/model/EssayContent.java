@@ -0,0 +1,42 @@
+package com.codehacks.postgen.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.MapsId;
+import jakarta.persistence.OneToOne;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+/**
+ * Text of an essay, kept in its own table so that loading, listing, status changes and deletes of
+ * essays never read or write it. Shares the essay's id.
+ */
+@Entity
+@Table(name = "essay_contents")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EssayContent {
+
+    @Id
+    private Long essayId;
+
+    @MapsId
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "essay_id")
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private Essay essay;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String content;
+}
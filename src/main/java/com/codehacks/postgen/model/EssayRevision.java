@@ -0,0 +1,67 @@
+package com.codehacks.postgen.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+
+import java.time.LocalDateTime;
+
+/**
+ * One revision of an essay's topic and text. The body is either the full text (a snapshot) or a
+ * delta against the previous revision.
+ */
+@Entity
+@Table(name = "essay_revisions")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EssayRevision {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private Long essayId;
+
+    /** Revision number, starting at 1 for the generated text. */
+    @Column(nullable = false)
+    private Integer revision;
+
+    @Column(nullable = false)
+    private String topic;
+
+    /** Whether the body is the full text rather than a delta. */
+    @Column(nullable = false)
+    private boolean snapshot;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    @ToString.Exclude
+    private String body;
+
+    /** Length of the full text of this revision, in characters. */
+    @Column(nullable = false)
+    private Integer contentLength;
+
+    /** Size of the stored body, in UTF-8 bytes. */
+    @Column(nullable = false)
+    private Integer storedBytes;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    /** Full text of this revision, rebuilt from the nearest snapshot when requested. */
+    @Transient
+    @ToString.Exclude
+    private String content;
+}
@@ -0,0 +1,38 @@
+package com.codehacks.postgen.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+/**
+ * Shared token bucket for one rate-limited client.
+ * Rows are only ever modified through an atomic upsert so that all nodes see the same bucket.
+ */
+@Entity
+@Table(name = "rate_limit_buckets")
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class RateLimitBucket {
+
+    @Id
+    @Column(length = 128)
+    private String bucketKey;
+
+    @Column(nullable = false)
+    private double tokens;
+
+    @Column(nullable = false)
+    private int lastGrant;
+
+    @Column(nullable = false)
+    private Instant refilledAt;
+}
@@ -0,0 +1,67 @@
+package com.codehacks.postgen.observability;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.http.ResponseEntity;
+
+/**
+ * Times every public controller and service method, like {@code @Timed} on each of them,
+ * with the outcome of the call as a tag.
+ * <p>
+ * The outcome is {@code success}, {@code client_error} or {@code server_error} for a returned
+ * {@link ResponseEntity} with a 4xx or 5xx status, and {@code error} when the method throws;
+ * the exception tag then names the exception.
+ */
+@Aspect
+public class MethodTimingAspect {
+
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * @param meterRegistry the registry for method timers
+     */
+    public MethodTimingAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    /**
+     * Times one method call.
+     * @param joinPoint the intercepted call
+     * @return the method's result
+     * @throws Throwable whatever the method throws
+     */
+    @Around("execution(public * com.codehacks.postgen.controller..*(..))"
+            + " || execution(public * com.codehacks.postgen.service..*(..))")
+    public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        String exception = "none";
+        try {
+            Object result = joinPoint.proceed();
+            if (result instanceof ResponseEntity<?> entity) {
+                if (entity.getStatusCode().is4xxClientError()) {
+                    outcome = "client_error";
+                } else if (entity.getStatusCode().is5xxServerError()) {
+                    outcome = "server_error";
+                }
+            }
+            return result;
+        } catch (Throwable e) {
+            outcome = "error";
+            exception = e.getClass().getSimpleName();
+            throw e;
+        } finally {
+            sample.stop(Timer.builder("essay.method")
+                    .description("Latency of controller and service methods")
+                    .tag("class", joinPoint.getSignature().getDeclaringType().getSimpleName())
+                    .tag("method", joinPoint.getSignature().getName())
+                    .tag("outcome", outcome)
+                    .tag("exception", exception)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
+        }
+    }
+}
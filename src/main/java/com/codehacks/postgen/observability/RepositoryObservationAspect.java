@@ -0,0 +1,74 @@
+package com.codehacks.postgen.observability;
+
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.util.ClassUtils;
+
+/**
+ * Observes every repository call as an {@code essay.repository} span, named after the
+ * repository and method, so database time shows up as its own step in a request's trace.
+ * The number of SQL statements the call ran is added when the request is being counted.
+ */
+@Aspect
+public class RepositoryObservationAspect {
+
+    private static final String APPLICATION_PACKAGE = "com.codehacks.postgen";
+
+    private final ObservationRegistry observationRegistry;
+
+    /**
+     * @param observationRegistry the registry for repository spans
+     */
+    public RepositoryObservationAspect(ObservationRegistry observationRegistry) {
+        this.observationRegistry = observationRegistry;
+    }
+
+    /**
+     * Observes one repository call.
+     * @param joinPoint the intercepted call
+     * @return the method's result
+     * @throws Throwable whatever the method throws
+     */
+    @Around("execution(public * com.codehacks.postgen.repository..*(..))"
+            + " || execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object observe(ProceedingJoinPoint joinPoint) throws Throwable {
+        String repository = repositoryName(joinPoint);
+        String method = joinPoint.getSignature().getName();
+        Observation observation = Observation.createNotStarted("essay.repository", observationRegistry)
+                .contextualName(repository + "." + method)
+                .lowCardinalityKeyValue("repository", repository)
+                .lowCardinalityKeyValue("method", method)
+                .start();
+        SqlStatementCounter.Counts counts = SqlStatementCounter.current();
+        int statementsBefore = counts == null ? 0 : counts.getStatements();
+        try (Observation.Scope scope = observation.openScope()) {
+            return joinPoint.proceed();
+        } catch (Throwable e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            if (counts != null) {
+                observation.highCardinalityKeyValue("db.statements",
+                        String.valueOf(counts.getStatements() - statementsBefore));
+            }
+            observation.stop();
+        }
+    }
+
+    /**
+     * The application's own repository type: the interface a Spring Data proxy implements,
+     * or the class itself for a hand-written repository.
+     */
+    private static String repositoryName(ProceedingJoinPoint joinPoint) {
+        Class<?> type = ClassUtils.getUserClass(joinPoint.getThis());
+        for (Class<?> candidate : ClassUtils.getAllInterfacesForClassAsSet(type)) {
+            if (candidate.getName().startsWith(APPLICATION_PACKAGE)) {
+                return candidate.getSimpleName();
+            }
+        }
+        return type.getSimpleName();
+    }
+}
@@ -0,0 +1,95 @@
+package com.codehacks.postgen.observability;
+
+/**
+ * Counts the JDBC statements executed on the current thread, the time spent executing them and
+ * the rows they returned.
+ * <p>
+ * Counting happens in {@link StatementCountingDataSource} through {@link #LISTENER}; whoever owns
+ * a unit of work, such as a web request, calls {@link #start()} before it and reads the totals after it.
+ */
+public final class SqlStatementCounter {
+
+    private static final ThreadLocal<Counts> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Adds statements and rows to the current thread's counts, if anything is counting.
+     */
+    public static final StatementListener LISTENER = new StatementListener() {
+        @Override
+        public void statementExecuted(String sql, long elapsedNanos) {
+            Counts counts = CURRENT.get();
+            if (counts != null) {
+                counts.statements++;
+                counts.nanos += elapsedNanos;
+            }
+        }
+
+        @Override
+        public void rowRead() {
+            Counts counts = CURRENT.get();
+            if (counts != null) {
+                counts.rows++;
+            }
+        }
+    };
+
+    private SqlStatementCounter() {
+    }
+
+    /**
+     * Starts counting on the current thread, discarding any earlier counts.
+     * @return the counts, updated as statements run on this thread
+     */
+    public static Counts start() {
+        Counts counts = new Counts();
+        CURRENT.set(counts);
+        return counts;
+    }
+
+    /**
+     * Stops counting on the current thread.
+     */
+    public static void stop() {
+        CURRENT.remove();
+    }
+
+    /**
+     * The counts for the current thread.
+     * @return the counts, or null when nothing is counting on this thread
+     */
+    public static Counts current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Statements executed, time spent executing them and rows read since counting started.
+     * Only ever updated by the thread that owns it.
+     */
+    public static final class Counts {
+
+        private int statements;
+        private long nanos;
+        private int rows;
+
+        /**
+         * @return the number of statements executed; a batch counts once
+         */
+        public int getStatements() {
+            return statements;
+        }
+
+        /**
+         * @return the time spent executing statements, in nanoseconds
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        /**
+         * @return the number of rows read from result sets
+         */
+        public int getRows() {
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.codehacks.postgen.observability;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Counts the SQL statements each request runs, how long they take and how many rows they return,
+ * and publishes all three per endpoint. Requests over the configured thresholds are logged, which
+ * is usually the first sign of an N+1 query or a missing index.
+ */
+public class SqlStatementMetricsFilter extends OncePerRequestFilter {
+
+    private static final Logger logger = LoggerFactory.getLogger(SqlStatementMetricsFilter.class);
+
+    private final MeterRegistry meterRegistry;
+    private final int warnStatements;
+    private final long warnNanos;
+
+    /**
+     * @param meterRegistry the registry for per-request SQL metrics
+     * @param warnStatements requests running more statements than this are logged
+     * @param warnTime requests spending longer than this in statements are logged
+     */
+    public SqlStatementMetricsFilter(MeterRegistry meterRegistry, int warnStatements, Duration warnTime) {
+        this.meterRegistry = meterRegistry;
+        this.warnStatements = warnStatements;
+        this.warnNanos = warnTime.toNanos();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        SqlStatementCounter.Counts counts = SqlStatementCounter.start();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            SqlStatementCounter.stop();
+            record(request, counts);
+        }
+    }
+
+    private void record(HttpServletRequest request, SqlStatementCounter.Counts counts) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        String uri = pattern == null ? "UNKNOWN" : pattern.toString();
+
+        DistributionSummary.builder("essay.http.sql.statements")
+                .description("JDBC statements executed per request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(counts.getStatements());
+        DistributionSummary.builder("essay.http.sql.rows")
+                .description("Rows read from JDBC result sets per request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(counts.getRows());
+        Timer.builder("essay.http.sql.time")
+                .description("Time spent executing JDBC statements per request")
+                .tag("method", request.getMethod())
+                .tag("uri", uri)
+                .register(meterRegistry)
+                .record(counts.getNanos(), TimeUnit.NANOSECONDS);
+
+        if (counts.getStatements() > warnStatements || counts.getNanos() > warnNanos) {
+            logger.warn("{} {} ran {} SQL statements in {} ms, reading {} rows", request.getMethod(),
+                    request.getRequestURI(), counts.getStatements(), TimeUnit.NANOSECONDS.toMillis(counts.getNanos()),
+                    counts.getRows());
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.codehacks.postgen.observability;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+/**
+ * Data source proxy that reports every executed JDBC statement, and every row read back,
+ * to a list of {@link StatementListener}s.
+ * <p>
+ * Connections, statements and result sets are wrapped in JDK proxies; only statement creation,
+ * execute calls and {@code ResultSet.next()} are intercepted, everything else goes straight to
+ * the pooled objects. A batch counts as one statement, since it is one round trip to the database.
+ */
+public class StatementCountingDataSource extends DelegatingDataSource {
+
+    private final List<StatementListener> listeners;
+
+    /**
+     * Counts statements for {@link SqlStatementCounter} only.
+     * @param target the pooled data source to wrap
+     */
+    public StatementCountingDataSource(DataSource target) {
+        this(target, List.of(SqlStatementCounter.LISTENER));
+    }
+
+    /**
+     * @param target the pooled data source to wrap
+     * @param listeners the listeners to notify
+     */
+    public StatementCountingDataSource(DataSource target, List<StatementListener> listeners) {
+        super(target);
+        this.listeners = List.copyOf(listeners);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    private Connection wrap(Connection connection) {
+        return proxy(Connection.class, new ConnectionHandler(connection));
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(StatementCountingDataSource.class.getClassLoader(),
+                new Class<?>[] {type}, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Wraps the statements a connection creates, remembering the SQL they were prepared with.
+     */
+    private final class ConnectionHandler implements InvocationHandler {
+
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = StatementCountingDataSource.invoke(target, method, args);
+            if (!(result instanceof Statement statement)) {
+                return result;
+            }
+            String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : null;
+            StatementHandler handler = new StatementHandler(statement, sql);
+            if (statement instanceof CallableStatement) {
+                return proxy(CallableStatement.class, handler);
+            }
+            if (statement instanceof PreparedStatement) {
+                return proxy(PreparedStatement.class, handler);
+            }
+            return proxy(Statement.class, handler);
+        }
+    }
+
+    /**
+     * Times and reports execute calls, and wraps the result sets they return.
+     */
+    private final class StatementHandler implements InvocationHandler {
+
+        private final Statement target;
+        private final String preparedSql;
+
+        StatementHandler(Statement target, String preparedSql) {
+            this.target = target;
+            this.preparedSql = preparedSql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (!name.startsWith("execute")) {
+                Object result = StatementCountingDataSource.invoke(target, method, args);
+                return "getResultSet".equals(name) ? wrapResultSet(result) : result;
+            }
+            String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : preparedSql;
+            long start = System.nanoTime();
+            try {
+                return wrapResultSet(StatementCountingDataSource.invoke(target, method, args));
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                for (StatementListener listener : listeners) {
+                    listener.statementExecuted(sql, elapsed);
+                }
+            }
+        }
+
+        private Object wrapResultSet(Object result) {
+            return result instanceof ResultSet resultSet ? proxy(ResultSet.class, new ResultSetHandler(resultSet)) : result;
+        }
+    }
+
+    /**
+     * Reports each row a result set moves to.
+     */
+    private final class ResultSetHandler implements InvocationHandler {
+
+        private final ResultSet target;
+
+        ResultSetHandler(ResultSet target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = StatementCountingDataSource.invoke(target, method, args);
+            if ("next".equals(method.getName()) && Boolean.TRUE.equals(result)) {
+                for (StatementListener listener : listeners) {
+                    listener.rowRead();
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.codehacks.postgen.observability;
+
+/**
+ * Notified by {@link StatementCountingDataSource} of every executed JDBC statement and every row read.
+ * Called on the thread that ran the statement, so implementations must be cheap.
+ */
+public interface StatementListener {
+
+    /**
+     * A statement was executed. A batch is reported once.
+     * @param sql the statement's SQL, or null if the driver call did not expose it
+     * @param elapsedNanos how long the execute call took
+     */
+    void statementExecuted(String sql, long elapsedNanos);
+
+    /**
+     * A row was read from a result set.
+     */
+    void rowRead();
+}
@@ -0,0 +1,31 @@
+package com.codehacks.postgen.outbox;
+
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.List;
+
+/**
+ * Publishes each event as a Spring application event, for {@code @EventListener}s of
+ * {@link EssayChangeEvent} in the same JVM. Listeners run on the relay thread.
+ */
+public class ApplicationEventOutboxSink implements OutboxSink {
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * @param eventPublisher the application's event publisher
+     */
+    public ApplicationEventOutboxSink(ApplicationEventPublisher eventPublisher) {
+        this.eventPublisher = eventPublisher;
+    }
+
+    @Override
+    public String name() {
+        return "events";
+    }
+
+    @Override
+    public void publish(List<EssayChangeEvent> events) {
+        events.forEach(eventPublisher::publishEvent);
+    }
+}
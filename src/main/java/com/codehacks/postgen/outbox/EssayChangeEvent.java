@@ -0,0 +1,14 @@
+package com.codehacks.postgen.outbox;
+
+import java.time.Instant;
+
+/**
+ * One essay change, as stored in the outbox and handed to the sinks.
+ * @param id outbox id; increases with every change, so consumers can use it as an offset
+ * @param essayId the changed essay
+ * @param type the kind of change
+ * @param payload JSON with the essay's metadata after the change (just the id for a delete)
+ * @param createdAt when the change was committed
+ */
+public record EssayChangeEvent(long id, long essayId, EssayChangeType type, String payload, Instant createdAt) {
+}
@@ -0,0 +1,11 @@
+package com.codehacks.postgen.outbox;
+
+/**
+ * Kinds of essay change published through the outbox.
+ */
+public enum EssayChangeType {
+    CREATED,
+    UPDATED,
+    STATUS_CHANGED,
+    DELETED
+}
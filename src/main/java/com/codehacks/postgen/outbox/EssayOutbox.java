@@ -0,0 +1,61 @@
+package com.codehacks.postgen.outbox;
+
+import com.codehacks.postgen.model.Essay;
+import com.codehacks.postgen.repository.OutboxStore;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Records essay changes in the outbox. Must be called inside the transaction that makes the change,
+ * so the event is committed, or rolled back, together with it.
+ */
+@Component
+public class EssayOutbox {
+
+    private final OutboxStore outboxStore;
+    private final ObjectMapper objectMapper;
+
+    public EssayOutbox(OutboxStore outboxStore, ObjectMapper objectMapper) {
+        this.outboxStore = outboxStore;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Records a change to a saved essay, with its metadata after the change.
+     * @param type the kind of change
+     * @param essay the saved essay
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void record(EssayChangeType type, Essay essay) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("id", essay.getId());
+        payload.put("topic", essay.getTopic());
+        payload.put("status", essay.getStatus());
+        payload.put("lengthWords", essay.getLengthWords());
+        payload.put("updatedAt", essay.getUpdatedAt());
+        outboxStore.append(essay.getId(), type, toJson(payload));
+    }
+
+    /**
+     * Records the deletion of an essay.
+     * @param essayId the deleted essay
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordDeleted(Long essayId) {
+        outboxStore.append(essayId, EssayChangeType.DELETED, toJson(Map.of("id", essayId)));
+    }
+
+    private String toJson(Map<String, Object> payload) {
+        try {
+            return objectMapper.writeValueAsString(payload);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize essay change", e);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.codehacks.postgen.outbox;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * In-memory stand-in for a message broker topic. Each event appended gets the next offset, and
+ * consumers read from the offset after the last message they saw, at their own pace. Only the most
+ * recent messages are retained; older ones are dropped first. Redelivered events are appended once.
+ */
+public class LocalBrokerOutboxSink implements OutboxSink {
+
+    private final int capacity;
+    private final Deque<Message> topic = new ArrayDeque<>();
+    private final Set<Long> retainedIds = new HashSet<>();
+    private long nextOffset;
+
+    /**
+     * @param capacity the number of messages retained
+     */
+    public LocalBrokerOutboxSink(int capacity) {
+        this.capacity = capacity;
+    }
+
+    @Override
+    public String name() {
+        return "broker";
+    }
+
+    @Override
+    public synchronized void publish(List<EssayChangeEvent> events) {
+        for (EssayChangeEvent event : events) {
+            if (!retainedIds.add(event.id())) {
+                continue;
+            }
+            topic.addLast(new Message(nextOffset++, event));
+            if (topic.size() > capacity) {
+                retainedIds.remove(topic.removeFirst().event().id());
+            }
+        }
+    }
+
+    /**
+     * Reads messages from an offset.
+     * @param fromOffset the first offset wanted; 0 for the oldest retained message
+     * @param maxMessages the most messages to return
+     * @return the messages, in offset order
+     */
+    public synchronized List<Message> poll(long fromOffset, int maxMessages) {
+        List<Message> messages = new ArrayList<>();
+        for (Message message : topic) {
+            if (messages.size() == maxMessages) {
+                break;
+            }
+            if (message.offset() >= fromOffset) {
+                messages.add(message);
+            }
+        }
+        return messages;
+    }
+
+    /**
+     * One event on the topic.
+     * @param offset position on the topic
+     * @param event the event
+     */
+    public record Message(long offset, EssayChangeEvent event) {
+    }
+}
@@ -0,0 +1,138 @@
+package com.codehacks.postgen.outbox;
+
+import com.codehacks.postgen.config.OutboxProperties;
+import com.codehacks.postgen.repository.OutboxStore;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the essay outbox in batches and hands each batch to every sink, in outbox order.
+ * <p>
+ * A batch is read, published and marked in one transaction that holds the relay's advisory lock,
+ * so with several nodes only one publishes at a time. When a sink fails the transaction rolls back
+ * and the batch is published again, to every sink, on the next poll.
+ */
+public class OutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxStore outboxStore;
+    private final List<OutboxSink> sinks;
+    private final OutboxProperties properties;
+    private final TransactionOperations transactionOperations;
+    private final MeterRegistry meterRegistry;
+
+    private final AtomicLong lagMillis = new AtomicLong();
+    private final DistributionSummary batchSize;
+    private final Timer publishLag;
+
+    /**
+     * @param outboxStore the outbox
+     * @param sinks the sinks every event is published to
+     * @param properties the outbox settings
+     * @param transactionOperations runs each batch in its own transaction
+     * @param meterRegistry the registry for relay metrics
+     */
+    public OutboxRelay(OutboxStore outboxStore, List<OutboxSink> sinks, OutboxProperties properties,
+                       TransactionOperations transactionOperations, MeterRegistry meterRegistry) {
+        this.outboxStore = outboxStore;
+        this.sinks = List.copyOf(sinks);
+        this.properties = properties;
+        this.transactionOperations = transactionOperations;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("essay.outbox.lag", lagMillis, lag -> lag.get() / 1000.0)
+                .description("Age of the oldest unpublished event at the last poll")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        this.batchSize = DistributionSummary.builder("essay.outbox.batch.size")
+                .description("Events published per batch")
+                .register(meterRegistry);
+        this.publishLag = Timer.builder("essay.outbox.publish.lag")
+                .description("Time from an essay change to its publication")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Publishes batches until the outbox is drained or the per-poll limit is reached.
+     */
+    @Scheduled(initialDelayString = "${app.outbox.poll-interval:PT0.5S}",
+            fixedDelayString = "${app.outbox.poll-interval:PT0.5S}")
+    public void drain() {
+        for (int batch = 0; batch < properties.getMaxBatchesPerPoll(); batch++) {
+            Integer published;
+            try {
+                published = transactionOperations.execute(status -> publishBatch());
+            } catch (RuntimeException e) {
+                logger.warn("Publishing essay change events failed; retrying on the next poll", e);
+                return;
+            }
+            if (published == null || published < properties.getBatchSize()) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Deletes published events past the retention.
+     */
+    @Scheduled(initialDelayString = "${app.outbox.purge-interval:PT1H}",
+            fixedDelayString = "${app.outbox.purge-interval:PT1H}")
+    public void purge() {
+        int purged = outboxStore.purgePublished(properties.getRetention());
+        if (purged > 0) {
+            logger.debug("Purged {} published essay change events", purged);
+        }
+    }
+
+    private int publishBatch() {
+        if (!outboxStore.tryLockRelay()) {
+            // Another node is publishing
+            return 0;
+        }
+        List<EssayChangeEvent> events = outboxStore.fetchUnpublished(properties.getBatchSize());
+        Instant now = Instant.now();
+        if (events.isEmpty()) {
+            lagMillis.set(0);
+            return 0;
+        }
+        lagMillis.set(Math.max(0, Duration.between(events.get(0).createdAt(), now).toMillis()));
+
+        for (OutboxSink sink : sinks) {
+            try {
+                sink.publish(events);
+            } catch (Exception e) {
+                Counter.builder("essay.outbox.failures")
+                        .description("Batches a sink failed to publish")
+                        .tag("sink", sink.name())
+                        .register(meterRegistry)
+                        .increment();
+                throw new IllegalStateException("Outbox sink '" + sink.name() + "' failed", e);
+            }
+            Counter.builder("essay.outbox.published")
+                    .description("Events published to a sink")
+                    .tag("sink", sink.name())
+                    .register(meterRegistry)
+                    .increment(events.size());
+        }
+        outboxStore.markPublished(events.stream().map(EssayChangeEvent::id).toList());
+
+        batchSize.record(events.size());
+        Instant published = Instant.now();
+        for (EssayChangeEvent event : events) {
+            publishLag.record(Duration.between(event.createdAt(), published));
+        }
+        return events.size();
+    }
+}
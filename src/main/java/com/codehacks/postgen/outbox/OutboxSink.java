@@ -0,0 +1,23 @@
+package com.codehacks.postgen.outbox;
+
+import java.util.List;
+
+/**
+ * Destination for published essay changes. Delivery is at least once: a batch is handed to
+ * every sink again when a later sink, or marking the batch published, fails.
+ */
+public interface OutboxSink {
+
+    /**
+     * Name used in metrics and logs.
+     * @return the sink name
+     */
+    String name();
+
+    /**
+     * Publishes one batch of events, in outbox order.
+     * @param events the events
+     * @throws Exception if the batch could not be published; it is retried on the next poll
+     */
+    void publish(List<EssayChangeEvent> events) throws Exception;
+}
@@ -0,0 +1,187 @@
+package com.codehacks.postgen.ratelimit;
+
+import com.codehacks.postgen.config.RateLimitProperties;
+import com.codehacks.postgen.repository.RateLimitBucketStore;
+import com.codehacks.postgen.repository.RateLimitBucketStore.BucketGrant;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-client token bucket limiter shared across nodes.
+ * <p>
+ * The authoritative bucket lives in Postgres. Each node leases a few tokens at a time and keeps
+ * them, together with any recent rejection, in a local bucket so that most decisions never leave
+ * the JVM. Only when the local lease is used up does a node go back to the shared bucket.
+ */
+@Component
+public class ClientRateLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClientRateLimiter.class);
+
+    private final RateLimitBucketStore bucketStore;
+    private final RateLimitProperties properties;
+    private final Map<String, LocalBucket> localBuckets = new ConcurrentHashMap<>();
+
+    private final Counter allowedLocal;
+    private final Counter allowedShared;
+    private final Counter rejectedLocal;
+    private final Counter rejectedShared;
+    private final Counter storeFailures;
+
+    public ClientRateLimiter(RateLimitBucketStore bucketStore, RateLimitProperties properties,
+                             MeterRegistry meterRegistry) {
+        this.bucketStore = bucketStore;
+        this.properties = properties;
+        this.allowedLocal = decisionCounter(meterRegistry, "allowed", "local");
+        this.allowedShared = decisionCounter(meterRegistry, "allowed", "shared");
+        this.rejectedLocal = decisionCounter(meterRegistry, "rejected", "local");
+        this.rejectedShared = decisionCounter(meterRegistry, "rejected", "shared");
+        this.storeFailures = Counter.builder("essay.ratelimit.store.failures")
+                .description("Shared bucket lookups that failed and were allowed through")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Tries to take one token for the given client.
+     * @param clientKey the client identity (API key hash or remote address)
+     * @return the limit decision
+     */
+    public Decision tryAcquire(String clientKey) {
+        LocalBucket bucket = localBuckets.computeIfAbsent(clientKey, key -> new LocalBucket());
+        long now = System.nanoTime();
+
+        Decision local = bucket.tryLocal(now);
+        if (local != null) {
+            (local.allowed() ? allowedLocal : rejectedLocal).increment();
+            return local;
+        }
+
+        // Only one thread per client and node goes to the shared bucket; the rest re-check the lease after it.
+        synchronized (bucket) {
+            local = bucket.tryLocal(System.nanoTime());
+            if (local != null) {
+                (local.allowed() ? allowedLocal : rejectedLocal).increment();
+                return local;
+            }
+            return acquireShared(clientKey, bucket);
+        }
+    }
+
+    private Decision acquireShared(String clientKey, LocalBucket bucket) {
+        BucketGrant grant;
+        try {
+            grant = bucketStore.acquire(clientKey, Math.max(1, properties.getLeaseSize()),
+                    properties.getCapacity(), properties.refillRatePerSecond());
+        } catch (DataAccessException e) {
+            // Fail open: a database hiccup should not take the generation endpoints down with it.
+            storeFailures.increment();
+            logger.warn("Rate limit store unavailable, allowing request for client {}", clientKey, e);
+            return Decision.allow();
+        }
+
+        long now = System.nanoTime();
+        if (grant.granted() > 0) {
+            bucket.lease(grant.granted() - 1, now + properties.getLeaseTtl().toNanos());
+            allowedShared.increment();
+            return Decision.allow();
+        }
+
+        double missingTokens = Math.max(0.0, 1.0 - grant.remainingTokens());
+        long retryAfterNanos = (long) Math.ceil(missingTokens / properties.refillRatePerSecond() * 1_000_000_000L);
+        bucket.rejectUntil(now + retryAfterNanos);
+        rejectedShared.increment();
+        return Decision.reject(toRetryAfterSeconds(retryAfterNanos));
+    }
+
+    /**
+     * Drops idle local buckets and purges idle shared buckets.
+     */
+    @Scheduled(fixedDelayString = "${app.rate-limit.purge-interval:PT1M}")
+    public void purgeIdleBuckets() {
+        long now = System.nanoTime();
+        localBuckets.values().removeIf(bucket -> bucket.isIdle(now));
+        try {
+            int purged = bucketStore.purgeIdle(properties.getIdleBucketTtl());
+            if (purged > 0) {
+                logger.debug("Purged {} idle rate limit buckets", purged);
+            }
+        } catch (DataAccessException e) {
+            logger.warn("Failed to purge idle rate limit buckets", e);
+        }
+    }
+
+    private static long toRetryAfterSeconds(long nanos) {
+        return Math.max(1L, TimeUnit.NANOSECONDS.toSeconds(nanos + 999_999_999L));
+    }
+
+    private static Counter decisionCounter(MeterRegistry registry, String outcome, String path) {
+        return Counter.builder("essay.ratelimit.decisions")
+                .description("Per-client rate limit decisions")
+                .tag("outcome", outcome)
+                .tag("path", path)
+                .register(registry);
+    }
+
+    /**
+     * Outcome of a rate limit check.
+     * @param allowed whether the request may proceed
+     * @param retryAfterSeconds seconds the client should wait before retrying, when rejected
+     */
+    public record Decision(boolean allowed, long retryAfterSeconds) {
+
+        private static final Decision ALLOW = new Decision(true, 0);
+
+        static Decision allow() {
+            return ALLOW;
+        }
+
+        static Decision reject(long retryAfterSeconds) {
+            return new Decision(false, retryAfterSeconds);
+        }
+    }
+
+    /**
+     * Node-local view of a client bucket: leased tokens plus the time until which the client is known to be empty.
+     */
+    private static final class LocalBucket {
+
+        private int leasedTokens;
+        private long leaseExpiresAt = System.nanoTime();
+        private long rejectedUntil = leaseExpiresAt;
+
+        synchronized Decision tryLocal(long now) {
+            if (leasedTokens > 0 && now - leaseExpiresAt < 0) {
+                leasedTokens--;
+                return Decision.allow();
+            }
+            if (now - rejectedUntil < 0) {
+                return Decision.reject(toRetryAfterSeconds(rejectedUntil - now));
+            }
+            return null;
+        }
+
+        synchronized void lease(int tokens, long expiresAt) {
+            leasedTokens = tokens;
+            leaseExpiresAt = expiresAt;
+            rejectedUntil = System.nanoTime();
+        }
+
+        synchronized void rejectUntil(long until) {
+            leasedTokens = 0;
+            rejectedUntil = until;
+        }
+
+        synchronized boolean isIdle(long now) {
+            return now - leaseExpiresAt >= 0 && now - rejectedUntil >= 0;
+        }
+    }
+}
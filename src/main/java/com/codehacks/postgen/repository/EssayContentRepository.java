@@ -0,0 +1,29 @@
+package com.codehacks.postgen.repository;
+
+import com.codehacks.postgen.model.EssayContent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Repository for essay texts, stored apart from the essays themselves.
+ */
+@Repository
+public interface EssayContentRepository extends JpaRepository<EssayContent, Long> {
+
+    @Query("select c.content from EssayContent c where c.essayId = :essayId")
+    Optional<String> findContentByEssayId(@Param("essayId") Long essayId);
+
+    List<EssayContent> findByEssayIdIn(Collection<Long> essayIds);
+
+    @Modifying
+    @Query("update EssayContent c set c.content = :content where c.essayId = :essayId")
+    int updateContent(@Param("essayId") Long essayId, @Param("content") String content);
+
+}
@@ -1,9 +1,16 @@
 package com.codehacks.postgen.repository;
 
 import com.codehacks.postgen.model.Essay;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Optional;
+
 /**
  * Repository for Essay entities.
  */
@@ -12,4 +19,22 @@ public interface EssayRepository extends JpaRepository<Essay, Long> {
 
     boolean existsByTopicIgnoreCase(String topic);
 
+    boolean existsByTopicIgnoreCaseAndIdNot(String topic, Long id);
+
+    /**
+     * Loads an essay for a write and locks its row until the transaction ends, so writes to the same
+     * essay run one after another and each sees the previous one's text and revision.
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    Optional<Essay> findWithLockById(Long id);
+
+    /**
+     * Deletes an essay in one statement, without loading it first. Its content and revisions go with it
+     * through the ON DELETE CASCADE foreign keys.
+     * @return the number of rows deleted, 0 if the essay did not exist
+     */
+    @Modifying
+    @Query("DELETE FROM Essay e WHERE e.id = :id")
+    int deleteEssayById(@Param("id") Long id);
+
 }
@@ -0,0 +1,51 @@
+package com.codehacks.postgen.repository;
+
+import com.codehacks.postgen.model.EssayRevision;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repository for essay revisions.
+ */
+@Repository
+public interface EssayRevisionRepository extends JpaRepository<EssayRevision, Long> {
+
+    @Query("select max(r.revision) from EssayRevision r where r.essayId = :essayId")
+    Integer findLatestRevision(@Param("essayId") Long essayId);
+
+    /**
+     * Revisions of an essay without their bodies.
+     */
+    @Query("select new com.codehacks.postgen.repository.EssayRevisionRepository$RevisionSummary("
+            + "r.revision, r.topic, r.snapshot, r.contentLength, r.storedBytes, r.createdAt) "
+            + "from EssayRevision r where r.essayId = :essayId order by r.revision")
+    List<RevisionSummary> findSummaries(@Param("essayId") Long essayId);
+
+    /**
+     * The revisions needed to rebuild one revision: the nearest snapshot at or before it and every
+     * delta after that snapshot up to the revision itself, in order.
+     */
+    @Query("select r from EssayRevision r where r.essayId = :essayId and r.revision <= :revision "
+            + "and r.revision >= (select max(s.revision) from EssayRevision s "
+            + "where s.essayId = :essayId and s.snapshot = true and s.revision <= :revision) "
+            + "order by r.revision")
+    List<EssayRevision> findChain(@Param("essayId") Long essayId, @Param("revision") int revision);
+
+    /**
+     * Revision metadata, as listed by the revisions endpoint.
+     * @param revision the revision number
+     * @param topic the topic at this revision
+     * @param snapshot whether the full text is stored
+     * @param contentLength length of the full text, in characters
+     * @param storedBytes size of the stored body, in bytes
+     * @param createdAt when the revision was saved
+     */
+    record RevisionSummary(int revision, String topic, boolean snapshot, int contentLength, int storedBytes,
+                           LocalDateTime createdAt) {
+    }
+}
@@ -0,0 +1,180 @@
+package com.codehacks.postgen.repository;
+
+import com.codehacks.postgen.idempotency.IdempotencyRecord;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Postgres-backed store of idempotency keys. A key is claimed with a single upsert, so of several
+ * nodes receiving the same request at once exactly one runs it; the others read its response.
+ */
+@Repository
+public class IdempotencyKeyStore {
+
+    // Takes the key when it is new, expired, or held by a node that stopped renewing its claim
+    private static final String CLAIM_SQL = """
+            INSERT INTO idempotency_keys AS k (idempotency_key, request_hash, status, claim_token, created_at,
+                                               locked_until, expires_at)
+            VALUES (:key, :requestHash, 'IN_PROGRESS', :token, now(), now() + make_interval(secs => :lockSeconds),
+                    now() + make_interval(secs => :ttlSeconds))
+            ON CONFLICT (idempotency_key) DO UPDATE SET
+                request_hash = EXCLUDED.request_hash,
+                status = 'IN_PROGRESS',
+                claim_token = EXCLUDED.claim_token,
+                response_status = NULL,
+                content_type = NULL,
+                location = NULL,
+                response_body = NULL,
+                created_at = EXCLUDED.created_at,
+                locked_until = EXCLUDED.locked_until,
+                expires_at = EXCLUDED.expires_at
+            WHERE k.expires_at < now() OR (k.status = 'IN_PROGRESS' AND k.locked_until < now())
+            RETURNING idempotency_key
+            """;
+
+    private static final String FIND_SQL = """
+            SELECT request_hash, response_status, content_type, location, response_body, expires_at
+            FROM idempotency_keys
+            WHERE idempotency_key = :key AND expires_at >= now()
+            """;
+
+    private static final String COMPLETE_SQL = """
+            UPDATE idempotency_keys SET
+                status = 'COMPLETED',
+                response_status = :status,
+                content_type = :contentType,
+                location = :location,
+                response_body = :body,
+                expires_at = :expiresAt
+            WHERE idempotency_key = :key AND status = 'IN_PROGRESS' AND claim_token = :token
+            """;
+
+    private static final String RELEASE_SQL = """
+            DELETE FROM idempotency_keys
+            WHERE idempotency_key = :key AND status = 'IN_PROGRESS' AND claim_token = :token
+            """;
+
+    private static final String RENEW_SQL = """
+            UPDATE idempotency_keys SET locked_until = now() + make_interval(secs => :lockSeconds)
+            WHERE idempotency_key = :key AND status = 'IN_PROGRESS' AND claim_token = :token
+            """;
+
+    private static final String PURGE_SQL = "DELETE FROM idempotency_keys WHERE expires_at < now()";
+
+    private static final RowMapper<IdempotencyRecord> RECORD_MAPPER = (rs, rowNum) -> new IdempotencyRecord(
+            rs.getString("request_hash"),
+            rs.getObject("response_status", Integer.class),
+            rs.getString("content_type"),
+            rs.getString("location"),
+            rs.getBytes("response_body"),
+            rs.getTimestamp("expires_at").toInstant());
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public IdempotencyKeyStore(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Claims a key for a request about to run.
+     * @param key the scoped idempotency key
+     * @param requestHash hash of the request
+     * @param token identifies this claim in later calls
+     * @param lockTimeout how long the claim holds, unless renewed, before another node may take the key over
+     * @param ttl how long the key is kept
+     * @return false if the key is in use: completed, or still running elsewhere
+     */
+    public boolean claim(String key, String requestHash, UUID token, Duration lockTimeout, Duration ttl) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("key", key)
+                .addValue("requestHash", requestHash)
+                .addValue("token", token)
+                .addValue("lockSeconds", seconds(lockTimeout))
+                .addValue("ttlSeconds", seconds(ttl));
+        return !jdbcTemplate.queryForList(CLAIM_SQL, params, String.class).isEmpty();
+    }
+
+    /**
+     * Reads an unexpired key.
+     * @param key the scoped idempotency key
+     * @return the key's request and, if it has finished, its response
+     */
+    public Optional<IdempotencyRecord> find(String key) {
+        return jdbcTemplate.query(FIND_SQL, new MapSqlParameterSource("key", key), RECORD_MAPPER).stream().findFirst();
+    }
+
+    /**
+     * Stores the response of a claimed key.
+     * @param key the scoped idempotency key
+     * @param token the token the key was claimed with
+     * @param record the response, and when it expires
+     * @return false if the claim had been taken over in the meantime
+     */
+    public boolean complete(String key, UUID token, IdempotencyRecord record) {
+        return jdbcTemplate.update(COMPLETE_SQL, new MapSqlParameterSource()
+                .addValue("key", key)
+                .addValue("token", token)
+                .addValue("status", record.status())
+                .addValue("contentType", record.contentType())
+                .addValue("location", record.location())
+                .addValue("body", record.body())
+                .addValue("expiresAt", Timestamp.from(record.expiresAt()))) > 0;
+    }
+
+    /**
+     * Gives up a claimed key without a response, so that a retry runs the request again.
+     * @param key the scoped idempotency key
+     * @param token the token the key was claimed with
+     */
+    public void release(String key, UUID token) {
+        jdbcTemplate.update(RELEASE_SQL, new MapSqlParameterSource()
+                .addValue("key", key)
+                .addValue("token", token));
+    }
+
+    /**
+     * Extends claims whose requests are still running, so that no other node takes their keys over.
+     * @param claims the tokens of the claimed keys, by key
+     * @param lockTimeout how long the claims hold from now
+     * @return the keys whose claims could not be renewed, because they were taken over or completed
+     */
+    public List<String> renew(Map<String, UUID> claims, Duration lockTimeout) {
+        List<String> keys = new ArrayList<>(claims.keySet());
+        MapSqlParameterSource[] batch = keys.stream()
+                .map(key -> new MapSqlParameterSource()
+                        .addValue("key", key)
+                        .addValue("token", claims.get(key))
+                        .addValue("lockSeconds", seconds(lockTimeout)))
+                .toArray(MapSqlParameterSource[]::new);
+        int[] rows = jdbcTemplate.batchUpdate(RENEW_SQL, batch);
+        List<String> lost = new ArrayList<>();
+        for (int i = 0; i < rows.length; i++) {
+            if (rows[i] == 0) {
+                lost.add(keys.get(i));
+            }
+        }
+        return lost;
+    }
+
+    /**
+     * Deletes expired keys.
+     * @return the number of keys deleted
+     */
+    public int purgeExpired() {
+        return jdbcTemplate.update(PURGE_SQL, new MapSqlParameterSource());
+    }
+
+    private static double seconds(Duration duration) {
+        return (double) duration.toMillis() / 1000;
+    }
+}
@@ -0,0 +1,190 @@
+package com.codehacks.postgen.repository;
+
+import com.codehacks.postgen.outbox.EssayChangeEvent;
+import com.codehacks.postgen.outbox.EssayChangeType;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Postgres-backed outbox of essay changes. Appends join the caller's transaction; the relay reads
+ * and marks batches under a transaction-scoped advisory lock, so one node publishes at a time and
+ * events go out in id order.
+ * <p>
+ * Ids are taken when a change is written, not when it commits, so a change can be published after
+ * one with a higher id. Readers that follow what has been published therefore go by publication
+ * order: batches are marked one at a time, each at its own transaction's start, so
+ * {@code (published_at, id)} only grows.
+ */
+@Repository
+public class OutboxStore {
+
+    /** Advisory lock key of the relay ("essayobx" as a number). */
+    static final long RELAY_LOCK_KEY = 0x65737361796f6278L;
+
+    private static final String APPEND_SQL = """
+            INSERT INTO essay_outbox (essay_id, event_type, payload, created_at)
+            VALUES (:essayId, :type, :payload, now())
+            """;
+
+    private static final String LOCK_SQL = "SELECT pg_try_advisory_xact_lock(:key)";
+
+    private static final String FETCH_SQL = """
+            SELECT id, essay_id, event_type, payload, created_at FROM essay_outbox
+            WHERE published_at IS NULL
+            ORDER BY id
+            LIMIT :limit
+            """;
+
+    private static final String FETCH_PUBLISHED_SQL = """
+            SELECT id, essay_id, event_type, payload, created_at, published_at FROM essay_outbox
+            WHERE published_at IS NOT NULL AND (published_at, id) > (:publishedAt, :afterId)
+            ORDER BY published_at, id
+            LIMIT :limit
+            """;
+
+    private static final String POSITION_SQL =
+            "SELECT published_at, id FROM essay_outbox WHERE id = :id AND published_at IS NOT NULL";
+
+    private static final String LAST_POSITION_SQL = """
+            SELECT published_at, id FROM essay_outbox
+            WHERE published_at IS NOT NULL
+            ORDER BY published_at DESC, id DESC
+            LIMIT 1
+            """;
+
+    private static final String MARK_SQL = "UPDATE essay_outbox SET published_at = now() WHERE id IN (:ids)";
+
+    private static final String PURGE_SQL =
+            "DELETE FROM essay_outbox WHERE published_at < now() - make_interval(secs => :retentionSeconds)";
+
+    private static final RowMapper<EssayChangeEvent> EVENT_MAPPER = (rs, rowNum) -> new EssayChangeEvent(
+            rs.getLong("id"),
+            rs.getLong("essay_id"),
+            EssayChangeType.valueOf(rs.getString("event_type")),
+            rs.getString("payload"),
+            rs.getTimestamp("created_at").toInstant());
+
+    private static final RowMapper<PublishedPosition> POSITION_MAPPER = (rs, rowNum) -> new PublishedPosition(
+            rs.getTimestamp("published_at").toInstant(),
+            rs.getLong("id"));
+
+    private static final RowMapper<PublishedEvent> PUBLISHED_MAPPER = (rs, rowNum) -> new PublishedEvent(
+            EVENT_MAPPER.mapRow(rs, rowNum),
+            POSITION_MAPPER.mapRow(rs, rowNum));
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public OutboxStore(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Adds a change to the outbox, in the caller's transaction.
+     * @param essayId the changed essay
+     * @param type the kind of change
+     * @param payload the event payload
+     */
+    public void append(long essayId, EssayChangeType type, String payload) {
+        jdbcTemplate.update(APPEND_SQL, new MapSqlParameterSource()
+                .addValue("essayId", essayId)
+                .addValue("type", type.name())
+                .addValue("payload", payload));
+    }
+
+    /**
+     * Takes the relay lock until the current transaction ends.
+     * @return false if another node holds it
+     */
+    public boolean tryLockRelay() {
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(LOCK_SQL,
+                new MapSqlParameterSource("key", RELAY_LOCK_KEY), Boolean.class));
+    }
+
+    /**
+     * Reads the oldest unpublished events.
+     * @param limit the most events to read
+     * @return the events, in id order
+     */
+    public List<EssayChangeEvent> fetchUnpublished(int limit) {
+        return jdbcTemplate.query(FETCH_SQL, new MapSqlParameterSource("limit", limit), EVENT_MAPPER);
+    }
+
+    /**
+     * Reads events published after a position, in publication order, for consumers following the
+     * outbox as it is published.
+     * @param after the position of the last event the consumer saw
+     * @param limit the most events to read
+     * @return the events with their positions
+     */
+    public List<PublishedEvent> fetchPublishedAfter(PublishedPosition after, int limit) {
+        return jdbcTemplate.query(FETCH_PUBLISHED_SQL, new MapSqlParameterSource()
+                .addValue("publishedAt", after.publishedAt().atOffset(ZoneOffset.UTC))
+                .addValue("afterId", after.id())
+                .addValue("limit", limit), PUBLISHED_MAPPER);
+    }
+
+    /**
+     * Looks up where a published event sits in publication order.
+     * @param id the outbox id
+     * @return the position, or empty if the event is unpublished or has been purged
+     */
+    public Optional<PublishedPosition> findPosition(long id) {
+        return jdbcTemplate.query(POSITION_SQL, new MapSqlParameterSource("id", id), POSITION_MAPPER)
+                .stream().findFirst();
+    }
+
+    /**
+     * Looks up the position of the most recently published event.
+     * @return the position, or empty if nothing has been published
+     */
+    public Optional<PublishedPosition> findLastPosition() {
+        return jdbcTemplate.query(LAST_POSITION_SQL, POSITION_MAPPER).stream().findFirst();
+    }
+
+    /**
+     * Marks events as published.
+     * @param ids the outbox ids
+     * @return the number of events marked
+     */
+    public int markPublished(Collection<Long> ids) {
+        return jdbcTemplate.update(MARK_SQL, new MapSqlParameterSource("ids", ids));
+    }
+
+    /**
+     * Deletes events published longer ago than the retention.
+     * @param retention how long published events are kept
+     * @return the number of events deleted
+     */
+    public int purgePublished(Duration retention) {
+        return jdbcTemplate.update(PURGE_SQL,
+                new MapSqlParameterSource("retentionSeconds", (double) retention.toSeconds()));
+    }
+
+    /**
+     * Where an event sits in publication order.
+     * @param publishedAt when its batch was published
+     * @param id the outbox id, ordering events within a batch
+     */
+    public record PublishedPosition(Instant publishedAt, long id) {
+
+        /** Before every event. */
+        public static final PublishedPosition START = new PublishedPosition(Instant.EPOCH, 0);
+    }
+
+    /**
+     * A published event with its position.
+     * @param event the event
+     * @param position where it sits in publication order
+     */
+    public record PublishedEvent(EssayChangeEvent event, PublishedPosition position) {
+    }
+}
@@ -0,0 +1,73 @@
+package com.codehacks.postgen.repository;
+
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.time.Duration;
+
+/**
+ * Postgres-backed store for the shared client token buckets.
+ * Refill and consumption happen in a single upsert so concurrent nodes never race on a bucket.
+ */
+@Repository
+public class RateLimitBucketStore {
+
+    private static final String AVAILABLE_TOKENS =
+            "LEAST(:capacity, b.tokens + EXTRACT(EPOCH FROM (now() - b.refilled_at))::double precision * :rate)";
+
+    private static final String ACQUIRE_SQL = """
+            INSERT INTO rate_limit_buckets AS b (bucket_key, tokens, last_grant, refilled_at)
+            VALUES (:key, :capacity - LEAST(:requested, :capacity), LEAST(:requested, :capacity), now())
+            ON CONFLICT (bucket_key) DO UPDATE SET
+                last_grant = LEAST(:requested, FLOOR(%1$s)),
+                tokens = %1$s - LEAST(:requested, FLOOR(%1$s)),
+                refilled_at = now()
+            RETURNING last_grant, tokens
+            """.formatted(AVAILABLE_TOKENS);
+
+    private static final String PURGE_SQL =
+            "DELETE FROM rate_limit_buckets WHERE refilled_at < now() - make_interval(secs => :idleSeconds)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public RateLimitBucketStore(NamedParameterJdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Refills the bucket for the given key and takes up to the requested number of tokens from it.
+     * @param key the bucket key
+     * @param requested the number of tokens wanted
+     * @param capacity the bucket capacity
+     * @param refillRatePerSecond tokens added back per second
+     * @return the number of tokens granted and what is left in the bucket
+     */
+    public BucketGrant acquire(String key, int requested, int capacity, double refillRatePerSecond) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("key", key)
+                .addValue("requested", requested)
+                .addValue("capacity", capacity)
+                .addValue("rate", refillRatePerSecond);
+        return jdbcTemplate.queryForObject(ACQUIRE_SQL, params,
+                (rs, rowNum) -> new BucketGrant(rs.getInt("last_grant"), rs.getDouble("tokens")));
+    }
+
+    /**
+     * Removes buckets that have not been touched for longer than the given idle time.
+     * @param idleTime how long a bucket may stay idle
+     * @return the number of buckets removed
+     */
+    public int purgeIdle(Duration idleTime) {
+        return jdbcTemplate.update(PURGE_SQL,
+                new MapSqlParameterSource("idleSeconds", (double) idleTime.toSeconds()));
+    }
+
+    /**
+     * Result of a shared bucket acquisition.
+     * @param granted tokens handed out by this call
+     * @param remainingTokens tokens left in the bucket afterwards
+     */
+    public record BucketGrant(int granted, double remainingTokens) {
+    }
+}
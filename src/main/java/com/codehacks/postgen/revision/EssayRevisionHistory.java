@@ -0,0 +1,151 @@
+package com.codehacks.postgen.revision;
+
+import com.codehacks.postgen.config.RevisionProperties;
+import com.codehacks.postgen.model.Essay;
+import com.codehacks.postgen.model.EssayRevision;
+import com.codehacks.postgen.repository.EssayRevisionRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Revision log of essay topics and texts.
+ * <p>
+ * Every save of an essay's topic or text adds a revision. Most revisions store a delta against the
+ * previous one ({@link TextDelta}); every {@code app.revisions.snapshot-interval} revisions, and
+ * whenever the delta would be no smaller than the text, the full text is stored instead, so rebuilding
+ * any revision starts from a nearby snapshot. Runs in the caller's transaction.
+ */
+@Component
+public class EssayRevisionHistory {
+
+    private final EssayRevisionRepository revisionRepository;
+    private final RevisionProperties properties;
+    private final DistributionSummary snapshotBytes;
+    private final DistributionSummary deltaBytes;
+    private final DistributionSummary chainLength;
+    private final Timer reconstructionTimer;
+
+    public EssayRevisionHistory(EssayRevisionRepository revisionRepository, RevisionProperties properties,
+                                MeterRegistry meterRegistry) {
+        this.revisionRepository = revisionRepository;
+        this.properties = properties;
+        this.snapshotBytes = storedBytes(meterRegistry, "snapshot");
+        this.deltaBytes = storedBytes(meterRegistry, "delta");
+        this.chainLength = DistributionSummary.builder("essay.revision.reconstruction.deltas")
+                .description("Deltas applied to rebuild a revision from its snapshot")
+                .register(meterRegistry);
+        this.reconstructionTimer = Timer.builder("essay.revision.reconstruction")
+                .description("Time to load and rebuild one revision")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Records the first revision of a newly saved essay.
+     * @param essay the saved essay, with its id and text
+     */
+    public void recordInitial(Essay essay) {
+        save(essay, 1, true, essay.getContent());
+    }
+
+    /**
+     * Records a revision for an update of an essay's topic or text. Nothing is recorded when neither changed.
+     * @param essay the updated essay, with its new topic and text
+     * @param previousTopic the topic before the update
+     * @param previousContent the text before the update
+     */
+    public void recordUpdate(Essay essay, String previousTopic, String previousContent) {
+        if (Objects.equals(previousTopic, essay.getTopic()) && Objects.equals(previousContent, essay.getContent())) {
+            return;
+        }
+        Integer latest = revisionRepository.findLatestRevision(essay.getId());
+        if (latest == null || previousContent == null) {
+            // Essays without history start over with a snapshot
+            save(essay, latest == null ? 1 : latest + 1, true, essay.getContent());
+            return;
+        }
+        int revision = latest + 1;
+        if ((revision - 1) % properties.getSnapshotInterval() == 0) {
+            save(essay, revision, true, essay.getContent());
+            return;
+        }
+        String delta = TextDelta.encode(previousContent, essay.getContent());
+        if (delta.length() >= essay.getContent().length()) {
+            save(essay, revision, true, essay.getContent());
+        } else {
+            save(essay, revision, false, delta);
+        }
+    }
+
+    /**
+     * Lists the revisions of an essay, oldest first, without their bodies or texts.
+     * @param essayId the essay ID
+     * @return the revisions; empty when the essay does not exist
+     */
+    public List<EssayRevision> list(Long essayId) {
+        return revisionRepository.findSummaries(essayId).stream()
+                .map(summary -> EssayRevision.builder()
+                        .essayId(essayId)
+                        .revision(summary.revision())
+                        .topic(summary.topic())
+                        .snapshot(summary.snapshot())
+                        .contentLength(summary.contentLength())
+                        .storedBytes(summary.storedBytes())
+                        .createdAt(summary.createdAt())
+                        .build())
+                .toList();
+    }
+
+    /**
+     * Loads one revision with its full text, rebuilt from the nearest snapshot before it.
+     * @param essayId the essay ID
+     * @param revision the revision number
+     * @return the revision, or empty when it does not exist
+     */
+    public Optional<EssayRevision> find(Long essayId, int revision) {
+        return reconstructionTimer.record(() -> {
+            List<EssayRevision> chain = revisionRepository.findChain(essayId, revision);
+            if (chain.isEmpty() || chain.get(chain.size() - 1).getRevision() != revision) {
+                return Optional.<EssayRevision>empty();
+            }
+            String content = chain.get(0).getBody();
+            for (EssayRevision delta : chain.subList(1, chain.size())) {
+                content = TextDelta.apply(content, delta.getBody());
+            }
+            chainLength.record(chain.size() - 1);
+            EssayRevision result = chain.get(chain.size() - 1);
+            result.setContent(content);
+            return Optional.of(result);
+        });
+    }
+
+    private void save(Essay essay, int revision, boolean snapshot, String body) {
+        int bytes = body.getBytes(StandardCharsets.UTF_8).length;
+        revisionRepository.save(EssayRevision.builder()
+                .essayId(essay.getId())
+                .revision(revision)
+                .topic(essay.getTopic())
+                .snapshot(snapshot)
+                .body(body)
+                .contentLength(essay.getContent().length())
+                .storedBytes(bytes)
+                .createdAt(LocalDateTime.now())
+                .build());
+        (snapshot ? snapshotBytes : deltaBytes).record(bytes);
+    }
+
+    private static DistributionSummary storedBytes(MeterRegistry meterRegistry, String kind) {
+        return DistributionSummary.builder("essay.revision.stored.bytes")
+                .description("Bytes stored per essay revision")
+                .baseUnit("bytes")
+                .tag("kind", kind)
+                .register(meterRegistry);
+    }
+}
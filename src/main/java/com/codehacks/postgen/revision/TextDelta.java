@@ -0,0 +1,127 @@
+package com.codehacks.postgen.revision;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Copy/insert deltas between two versions of a text.
+ * <p>
+ * A delta is a sequence of operations that rebuild the target from the base:
+ * {@code C<offset>,<length>;} copies a range of the base and {@code I<length>:<text>} inserts
+ * literal text. Matches are found through an index of every {@value #BLOCK}-character block of the
+ * base and extended in both directions, so an edit in the middle of an essay costs roughly the size
+ * of the edit rather than the size of the essay.
+ */
+public final class TextDelta {
+
+    /** Shortest run of the base worth copying instead of inserting. */
+    static final int BLOCK = 16;
+
+    private TextDelta() {
+    }
+
+    /**
+     * Encodes the target as a delta against the base.
+     * @param base the previous text
+     * @param target the new text
+     * @return the delta
+     */
+    public static String encode(String base, String target) {
+        StringBuilder delta = new StringBuilder();
+        Map<String, Integer> index = index(base);
+        int literalStart = 0;
+        int pos = 0;
+        while (pos + BLOCK <= target.length()) {
+            Integer at = index.get(target.substring(pos, pos + BLOCK));
+            if (at == null) {
+                pos++;
+                continue;
+            }
+            int length = BLOCK;
+            while (at + length < base.length() && pos + length < target.length()
+                    && base.charAt(at + length) == target.charAt(pos + length)) {
+                length++;
+            }
+            int back = 0;
+            while (back < pos - literalStart && at - back > 0
+                    && base.charAt(at - back - 1) == target.charAt(pos - back - 1)) {
+                back++;
+            }
+            insert(delta, target, literalStart, pos - back);
+            delta.append('C').append(at - back).append(',').append(length + back).append(';');
+            pos += length;
+            literalStart = pos;
+        }
+        insert(delta, target, literalStart, target.length());
+        return delta.toString();
+    }
+
+    /**
+     * Rebuilds the target text from the base and a delta made by {@link #encode}.
+     * @param base the text the delta was made against
+     * @param delta the delta
+     * @return the target text
+     * @throws IllegalArgumentException if the delta is malformed or does not fit the base
+     */
+    public static String apply(String base, String delta) {
+        StringBuilder target = new StringBuilder();
+        int pos = 0;
+        while (pos < delta.length()) {
+            char op = delta.charAt(pos);
+            if (op == 'C') {
+                int comma = delta.indexOf(',', pos);
+                int end = delta.indexOf(';', pos);
+                if (comma < 0 || end < comma) {
+                    throw malformed(pos);
+                }
+                int offset = parse(delta, pos + 1, comma);
+                int length = parse(delta, comma + 1, end);
+                if (offset < 0 || length < 0 || offset + length > base.length()) {
+                    throw new IllegalArgumentException("Delta copies outside the base text at " + pos);
+                }
+                target.append(base, offset, offset + length);
+                pos = end + 1;
+            } else if (op == 'I') {
+                int colon = delta.indexOf(':', pos);
+                if (colon < 0) {
+                    throw malformed(pos);
+                }
+                int length = parse(delta, pos + 1, colon);
+                if (length < 0 || colon + 1 + length > delta.length()) {
+                    throw malformed(pos);
+                }
+                target.append(delta, colon + 1, colon + 1 + length);
+                pos = colon + 1 + length;
+            } else {
+                throw malformed(pos);
+            }
+        }
+        return target.toString();
+    }
+
+    private static Map<String, Integer> index(String base) {
+        Map<String, Integer> index = new HashMap<>();
+        for (int i = 0; i + BLOCK <= base.length(); i++) {
+            index.putIfAbsent(base.substring(i, i + BLOCK), i);
+        }
+        return index;
+    }
+
+    private static void insert(StringBuilder delta, String target, int from, int to) {
+        if (to > from) {
+            delta.append('I').append(to - from).append(':').append(target, from, to);
+        }
+    }
+
+    private static int parse(String delta, int from, int to) {
+        try {
+            return Integer.parseInt(delta, from, to, 10);
+        } catch (NumberFormatException e) {
+            throw malformed(from);
+        }
+    }
+
+    private static IllegalArgumentException malformed(int pos) {
+        return new IllegalArgumentException("Malformed delta at " + pos);
+    }
+}
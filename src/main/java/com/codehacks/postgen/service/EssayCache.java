@@ -0,0 +1,171 @@
+package com.codehacks.postgen.service;
+
+import com.codehacks.postgen.config.BatchGetProperties;
+import com.codehacks.postgen.model.Essay;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-node cache of essays with their texts, used by multi-get so repeated ids are served without
+ * touching the database.
+ * <p>
+ * Essays are copied on the way in and out, so callers never share an instance. A write on this node
+ * evicts the essay at once and again when its transaction ends; a load that overlapped any eviction
+ * is not cached, so a read from before a write cannot be stored after it. Writes on other nodes are
+ * seen once the entry's {@code ttl} runs out.
+ */
+@Component
+public class EssayCache {
+
+    private final boolean enabled;
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final Counter hits;
+    private final Counter misses;
+
+    /** Most recently used essays, guarded by itself. */
+    private final Map<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /** Number of evictions so far, guarded by {@link #entries}. */
+    private long evictions;
+
+    public EssayCache(BatchGetProperties properties, MeterRegistry meterRegistry) {
+        BatchGetProperties.Cache cache = properties.getCache();
+        this.enabled = cache.isEnabled();
+        this.maxEntries = cache.getMaxEntries();
+        this.ttlNanos = cache.getTtl().toNanos();
+        this.hits = lookups(meterRegistry, "hit");
+        this.misses = lookups(meterRegistry, "miss");
+        Gauge.builder("essay.cache.size", this, EssayCache::size)
+                .description("Essays held in the cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Marks the start of a load. Pass the result to {@link #putAll} so that the load is only cached
+     * if no essay was evicted while it ran.
+     * @return the current eviction count
+     */
+    public long version() {
+        synchronized (entries) {
+            return evictions;
+        }
+    }
+
+    /**
+     * Looks up essays.
+     * @param ids the essay ids
+     * @return copies of the cached, unexpired essays by id; ids not cached are missing
+     */
+    public Map<Long, Essay> getAll(Collection<Long> ids) {
+        Map<Long, Essay> found = new HashMap<>();
+        if (!enabled) {
+            return found;
+        }
+        long now = System.nanoTime();
+        synchronized (entries) {
+            for (Long id : ids) {
+                Entry entry = entries.get(id);
+                if (entry != null && now - entry.cachedAt() > ttlNanos) {
+                    entries.remove(id);
+                } else if (entry != null) {
+                    found.put(id, copy(entry.essay()));
+                }
+            }
+        }
+        hits.increment(found.size());
+        misses.increment(ids.size() - found.size());
+        return found;
+    }
+
+    /**
+     * Caches loaded essays, unless an essay was evicted since the load started.
+     * @param essays the essays, with their texts
+     * @param version the {@link #version()} taken before the load
+     */
+    public void putAll(Collection<Essay> essays, long version) {
+        if (!enabled || essays.isEmpty()) {
+            return;
+        }
+        long now = System.nanoTime();
+        synchronized (entries) {
+            if (evictions != version) {
+                return;
+            }
+            for (Essay essay : essays) {
+                entries.put(essay.getId(), new Entry(copy(essay), now));
+            }
+            while (entries.size() > maxEntries) {
+                entries.remove(entries.keySet().iterator().next());
+            }
+        }
+    }
+
+    /**
+     * Evicts an essay that is being written, now and again when the current transaction ends, so a
+     * load that read the old row while the write was uncommitted is not served afterwards.
+     * @param id the essay id
+     */
+    public void evict(Long id) {
+        if (!enabled) {
+            return;
+        }
+        remove(id);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    remove(id);
+                }
+            });
+        }
+    }
+
+    private void remove(Long id) {
+        synchronized (entries) {
+            evictions++;
+            entries.remove(id);
+        }
+    }
+
+    private int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    private static Counter lookups(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("essay.cache.requests")
+                .description("Essay lookups in the cache, by whether they were found")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static Essay copy(Essay essay) {
+        return Essay.builder()
+                .id(essay.getId())
+                .topic(essay.getTopic())
+                .content(essay.getContent())
+                .lengthWords(essay.getLengthWords())
+                .createdAt(essay.getCreatedAt())
+                .updatedAt(essay.getUpdatedAt())
+                .status(essay.getStatus())
+                .model(essay.getModel())
+                .promptTokens(essay.getPromptTokens())
+                .completionTokens(essay.getCompletionTokens())
+                .generationMillis(essay.getGenerationMillis())
+                .build();
+    }
+
+    private record Entry(Essay essay, long cachedAt) {
+    }
+}
@@ -1,9 +1,11 @@
 package com.codehacks.postgen.service;
 
 import com.codehacks.postgen.model.Essay;
+import com.codehacks.postgen.model.EssayRevision;
 import com.codehacks.postgen.model.EssayStatus;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 /**
@@ -18,6 +20,23 @@ public interface EssayService {
      */
     Essay generateAndSaveEssay(String topic);
 
+    /**
+     * Generate and save a new essay, guided by optional context and target length.
+     * @param topic the essay topic
+     * @param additionalContext optional context to take into account, may be null
+     * @param targetWords optional target length in words, may be null
+     * @return the saved Essay
+     */
+    Essay generateAndSaveEssay(String topic, String additionalContext, Integer targetWords);
+
+    /**
+     * Generate and save a long essay, written as an outline followed by sections generated in parallel.
+     * @param topic the essay topic
+     * @param additionalContext optional context to take into account, may be null
+     * @return the saved Essay
+     */
+    Essay generateAndSaveLongEssay(String topic, String additionalContext);
+
     /**
      * Get an essay by its ID.
      * @param id the essay ID
@@ -25,12 +44,34 @@ public interface EssayService {
      */
     Optional<Essay> getEssayById(Long id);
 
+    /**
+     * Get several essays by their IDs, from the cache where possible and otherwise with one query.
+     * @param ids the essay IDs, at most app.batch-get.max-ids of them
+     * @return the essays found, by ID; IDs that do not exist are missing
+     */
+    Map<Long, Essay> getEssaysByIds(List<Long> ids);
+
     /**
      * Get all essays.
      * @return list of essays
      */
     List<Essay> getAllEssays();
 
+    /**
+     * List the revisions of an essay, oldest first, without their texts.
+     * @param id the essay ID
+     * @return the revisions; empty if the essay does not exist
+     */
+    List<EssayRevision> getRevisions(Long id);
+
+    /**
+     * Get one revision of an essay with its full text.
+     * @param id the essay ID
+     * @param revision the revision number
+     * @return the revision, if found
+     */
+    Optional<EssayRevision> getRevision(Long id, int revision);
+
     /**
      * Update an essay.
      * @param id the essay ID
@@ -47,10 +88,18 @@ public interface EssayService {
      */
     Optional<Essay> updateEssayStatus(Long id, EssayStatus newStatus);
 
+    /**
+     * Check whether an essay exists, without loading it.
+     * @param id the essay ID
+     * @return true if the essay exists
+     */
+    boolean essayExists(Long id);
+
     /**
      * Delete an essay by ID.
      * @param id the essay ID
+     * @return true if the essay was deleted, false if it did not exist
      */
-    void deleteEssay(Long id);
+    boolean deleteEssay(Long id);
 
 }
@@ -1,19 +1,47 @@
 package com.codehacks.postgen.service;
 
+import com.codehacks.postgen.config.BatchGetProperties;
 import com.codehacks.postgen.exception.DuplicateEssayTopicException;
 import com.codehacks.postgen.exception.EssayGenerationException;
 import com.codehacks.postgen.exception.EssayServiceException;
+import com.codehacks.postgen.exception.LlmUnavailableException;
+import com.codehacks.postgen.llm.EssayPromptBuilder;
+import com.codehacks.postgen.llm.LlmCallExecutor;
+import com.codehacks.postgen.llm.LlmCallRecorder;
+import com.codehacks.postgen.llm.LlmUsage;
+import com.codehacks.postgen.llm.LongFormGenerator;
+import com.codehacks.postgen.llm.ModelCascade;
+import com.codehacks.postgen.llm.OutputLimiter;
+import com.codehacks.postgen.llm.TopicBatcher;
 import com.codehacks.postgen.model.Essay;
+import com.codehacks.postgen.model.EssayContent;
+import com.codehacks.postgen.model.EssayRevision;
 import com.codehacks.postgen.model.EssayStatus;
+import com.codehacks.postgen.outbox.EssayChangeType;
+import com.codehacks.postgen.outbox.EssayOutbox;
+import com.codehacks.postgen.repository.EssayContentRepository;
 import com.codehacks.postgen.repository.EssayRepository;
-import jakarta.transaction.Transactional;
+import com.codehacks.postgen.revision.EssayRevisionHistory;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.prompt.ChatOptions;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionOperations;
+import org.springframework.util.StringUtils;
 import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
 
 /**
  * Implementation of EssayService.
@@ -30,57 +58,144 @@ public class EssayServiceImpl implements EssayService {
     private static final int MAX_CONTENT_LENGTH = 10000;
     private static final int MIN_WORD_COUNT = 50;
     private static final int MIN_VALID_ID = 1;
+    private static final int BATCH_DELIMITER_CHARS = 20; // "=== ESSAY N ===" and its line breaks
     private static final String INVALID_TOPIC_CHARS_REGEX = "[<>\"'&]"; // Basic XSS prevention
     
     private final EssayRepository essayRepository;
+    private final EssayContentRepository essayContentRepository;
+    private final EssayRevisionHistory revisionHistory;
+    private final EssayOutbox outbox;
+    private final EssayCache essayCache;
+    private final int maxBatchIds;
     private final ChatClient chatClient;
+    private final LlmCallExecutor llmCallExecutor;
+    private final ModelCascade modelCascade;
+    private final TopicBatcher topicBatcher;
+    private final LongFormGenerator longFormGenerator;
+    private final EssayPromptBuilder promptBuilder;
+    private final OutputLimiter outputLimiter;
+    private final LlmCallRecorder callRecorder;
+    private final ObservationRegistry observationRegistry;
+    private final TransactionOperations transactionOperations;
 
-    public EssayServiceImpl(EssayRepository essayRepository, ChatClient.Builder chatClientBuilder) {
+    public EssayServiceImpl(EssayRepository essayRepository, EssayContentRepository essayContentRepository,
+                            EssayRevisionHistory revisionHistory, EssayOutbox outbox,
+                            EssayCache essayCache, BatchGetProperties batchGetProperties,
+                            ChatClient.Builder chatClientBuilder,
+                            LlmCallExecutor llmCallExecutor, ModelCascade modelCascade,
+                            TopicBatcher topicBatcher, LongFormGenerator longFormGenerator,
+                            EssayPromptBuilder promptBuilder, OutputLimiter outputLimiter,
+                            LlmCallRecorder callRecorder, ObservationRegistry observationRegistry,
+                            TransactionOperations transactionOperations) {
         this.essayRepository = essayRepository;
+        this.essayContentRepository = essayContentRepository;
+        this.revisionHistory = revisionHistory;
+        this.outbox = outbox;
+        this.essayCache = essayCache;
+        this.maxBatchIds = batchGetProperties.getMaxIds();
         this.chatClient = chatClientBuilder.build();
+        this.llmCallExecutor = llmCallExecutor;
+        this.modelCascade = modelCascade;
+        this.topicBatcher = topicBatcher;
+        this.longFormGenerator = longFormGenerator;
+        this.promptBuilder = promptBuilder;
+        this.outputLimiter = outputLimiter;
+        this.callRecorder = callRecorder;
+        this.observationRegistry = observationRegistry;
+        this.transactionOperations = transactionOperations;
     }
 
+    /**
+     * Declared NOT_SUPPORTED as well: the call to the full overload below does not go through the
+     * transactional proxy, so this method's own attribute is the one that applies.
+     */
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public Essay generateAndSaveEssay(String topic) {
-        // Validate input
-        validateTopic(topic);
-        
-        // Check for duplicate topic
-        if (essayRepository.existsByTopicIgnoreCase(topic)) {
-            throw new DuplicateEssayTopicException("An essay with the topic '" + topic + "' already exists.");
-        }
-        
-        try {
-            String prompt = "Write a comprehensive essay on the topic: " + topic;
-            logger.info("Generating essay for topic: {}", topic);
-            
-            String generatedContent = chatClient.prompt(prompt).call().content();
-            
-            // Validate generated content
-            validateGeneratedContent(generatedContent);
-            
-            int lengthWords = calculateWordCount(generatedContent);
-            
-            Essay newEssay = Essay.builder()
-                    .topic(topic)
-                    .content(generatedContent)
-                    .lengthWords(lengthWords)
-                    .createdAt(LocalDateTime.now())
-                    .updatedAt(LocalDateTime.now())
-                    .status(EssayStatus.DRAFT)
-                    .build();
-
-            Essay savedEssay = essayRepository.save(newEssay);
-            logger.info("Successfully generated and saved essay with ID: {}", savedEssay.getId());
-            return savedEssay;
-            
-        } catch (Exception e) {
-            logger.error("Failed to generate essay for topic: {}", topic, e);
-            throw new EssayGenerationException("Failed to generate essay for topic: " + topic, e);
-        }
+        return generateAndSaveEssay(topic, null, null);
+    }
+
+    /**
+     * Runs outside a service transaction: the model call can take many seconds, and holding a
+     * transaction open across it would pin a database connection for the whole call.
+     * The duplicate check and the insert each run in their own short repository transaction.
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Essay generateAndSaveEssay(String topic, String additionalContext, Integer targetWords) {
+        return observeGeneration("single", topic, () -> {
+            // Validate input
+            stage("validate", () -> validateTopic(topic));
+
+            // Check for duplicate topic
+            stage("duplicate_check", () -> checkDuplicateTopic(topic));
+
+            try {
+                logger.info("Generating essay for topic: {}", topic);
+                long start = System.nanoTime();
+                LlmUsage usage = new LlmUsage();
+
+                // Content comes back validated, whether from a batched prompt or a call of its own.
+                // Only plain topics can share a batched prompt.
+                boolean plainTopic = !StringUtils.hasText(additionalContext) && targetWords == null;
+                String generatedContent = stage("generate", () -> plainTopic
+                        ? topicBatcher.generate(topic, new EssayBatchHandler(usage))
+                        : generateContent(promptBuilder.essayPrompt(topic, additionalContext, targetWords),
+                                targetWords, usage));
+
+                return stage("save", () -> saveGeneratedEssay(topic, generatedContent, usage, start));
+
+            } catch (LlmUnavailableException e) {
+                logger.warn("AI model unavailable for topic: {} ({})", topic, e.getMessage());
+                throw e;
+            } catch (Exception e) {
+                logger.error("Failed to generate essay for topic: {}", topic, e);
+                throw new EssayGenerationException("Failed to generate essay for topic: " + topic, e);
+            }
+        });
+    }
+
+    /**
+     * Runs outside a service transaction for the same reason as generateAndSaveEssay.
+     * The stitched essay is held to the same length and word-count rules as a single-call essay, and each
+     * section's call gets a max-output-token limit from its share of MAX_CONTENT_LENGTH.
+     */
+    @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Essay generateAndSaveLongEssay(String topic, String additionalContext) {
+        return observeGeneration("long", topic, () -> {
+            stage("validate", () -> validateTopic(topic));
+
+            stage("duplicate_check", () -> checkDuplicateTopic(topic));
+
+            try {
+                logger.info("Generating long essay for topic: {}", topic);
+                long start = System.nanoTime();
+                LlmUsage usage = new LlmUsage();
+
+                String generatedContent = stage("generate", () -> {
+                    String content = longFormGenerator.generate(topic, additionalContext, MAX_CONTENT_LENGTH,
+                            (prompt, maxChars) -> llmCallExecutor.execute(() -> complete(prompt,
+                                    withMaxTokens(null, maxChars == null ? null : promptBuilder.estimateTokens(maxChars)),
+                                    usage)));
+                    validateGeneratedContent(content);
+                    return content;
+                });
+
+                return stage("save", () -> saveGeneratedEssay(topic, generatedContent, usage, start));
+
+            } catch (LlmUnavailableException e) {
+                logger.warn("AI model unavailable for topic: {} ({})", topic, e.getMessage());
+                throw e;
+            } catch (Exception e) {
+                logger.error("Failed to generate long essay for topic: {}", topic, e);
+                throw new EssayGenerationException("Failed to generate essay for topic: " + topic, e);
+            }
+        });
     }
 
     @Override
+    @Transactional(readOnly = true)
     public Optional<Essay> getEssayById(Long id) {
         if (id == null || id < MIN_VALID_ID) {
             logger.warn("Invalid essay ID provided: {}", id);
@@ -88,7 +203,7 @@ public class EssayServiceImpl implements EssayService {
         }
         
         try {
-            return essayRepository.findById(id);
+            return essayRepository.findById(id).map(this::withContent);
         } catch (Exception e) {
             logger.error("Error retrieving essay with ID: {}", id, e);
             throw new EssayServiceException("Failed to retrieve essay with ID: " + id, e);
@@ -96,15 +211,83 @@ public class EssayServiceImpl implements EssayService {
     }
 
     @Override
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public Map<Long, Essay> getEssaysByIds(List<Long> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new IllegalArgumentException("At least one essay ID is required");
+        }
+        if (ids.size() > maxBatchIds) {
+            throw new IllegalArgumentException("At most " + maxBatchIds + " essay IDs can be fetched at once");
+        }
+
+        // Invalid IDs cannot exist, so they are answered as not found without a lookup
+        LinkedHashSet<Long> wanted = ids.stream()
+                .filter(id -> id != null && id >= MIN_VALID_ID)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        Map<Long, Essay> essays = new HashMap<>(essayCache.getAll(wanted));
+        List<Long> missing = wanted.stream().filter(id -> !essays.containsKey(id)).toList();
+        if (missing.isEmpty()) {
+            return essays;
+        }
+
+        try {
+            long version = essayCache.version();
+            // Cache hits need no transaction; misses load in a read-write one, which goes to the primary,
+            // because a replica row from before a write could be cached after that write's eviction
+            List<Essay> loaded = transactionOperations.execute(
+                    status -> withContents(essayRepository.findAllById(missing)));
+            essayCache.putAll(loaded, version);
+            loaded.forEach(essay -> essays.put(essay.getId(), essay));
+            return essays;
+        } catch (Exception e) {
+            logger.error("Error retrieving essays with IDs: {}", missing, e);
+            throw new EssayServiceException("Failed to retrieve essays", e);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
     public List<Essay> getAllEssays() {
         try {
-            return essayRepository.findAll();
+            return withContents(essayRepository.findAll());
         } catch (Exception e) {
             logger.error("Error retrieving all essays", e);
             throw new EssayServiceException("Failed to retrieve essays", e);
         }
     }
 
+    @Override
+    @Transactional(readOnly = true)
+    public List<EssayRevision> getRevisions(Long id) {
+        if (id == null || id < MIN_VALID_ID) {
+            logger.warn("Invalid essay ID provided for revisions: {}", id);
+            return List.of();
+        }
+
+        try {
+            return revisionHistory.list(id);
+        } catch (Exception e) {
+            logger.error("Error retrieving revisions of essay with ID: {}", id, e);
+            throw new EssayServiceException("Failed to retrieve revisions of essay with ID: " + id, e);
+        }
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public Optional<EssayRevision> getRevision(Long id, int revision) {
+        if (id == null || id < MIN_VALID_ID || revision < 1) {
+            logger.warn("Invalid essay ID or revision provided: {} / {}", id, revision);
+            return Optional.empty();
+        }
+
+        try {
+            return revisionHistory.find(id, revision);
+        } catch (Exception e) {
+            logger.error("Error retrieving revision {} of essay with ID: {}", revision, id, e);
+            throw new EssayServiceException("Failed to retrieve revision " + revision + " of essay with ID: " + id, e);
+        }
+    }
+
     @Override
     public Optional<Essay> updateEssay(Long id, Essay updatedEssay) {
         if (id == null || id < MIN_VALID_ID) {
@@ -121,15 +304,16 @@ public class EssayServiceImpl implements EssayService {
         validateContent(updatedEssay.getContent());
         
         // Check for duplicate topic (excluding the current essay)
-        Optional<Essay> existingWithTopic = essayRepository.findAll().stream()
-            .filter(e -> e.getTopic().equalsIgnoreCase(updatedEssay.getTopic()) && !e.getId().equals(id))
-            .findFirst();
-        if (existingWithTopic.isPresent()) {
+        if (essayRepository.existsByTopicIgnoreCaseAndIdNot(updatedEssay.getTopic(), id)) {
             throw new DuplicateEssayTopicException("An essay with the topic '" + updatedEssay.getTopic() + "' already exists.");
         }
         
         try {
-            return essayRepository.findById(id).map(existingEssay -> {
+            essayCache.evict(id);
+            // Locked, so a concurrent update cannot read the same previous text and revision
+            return essayRepository.findWithLockById(id).map(existingEssay -> {
+                String previousTopic = existingEssay.getTopic();
+                String previousContent = essayContentRepository.findContentByEssayId(id).orElse(null);
                 existingEssay.setTopic(updatedEssay.getTopic());
                 existingEssay.setContent(updatedEssay.getContent());
                 existingEssay.setLengthWords(calculateWordCount(updatedEssay.getContent()));
@@ -137,6 +321,9 @@ public class EssayServiceImpl implements EssayService {
                 existingEssay.setStatus(updatedEssay.getStatus());
                 
                 Essay savedEssay = essayRepository.save(existingEssay);
+                essayContentRepository.updateContent(id, updatedEssay.getContent());
+                revisionHistory.recordUpdate(savedEssay, previousTopic, previousContent);
+                outbox.record(EssayChangeType.UPDATED, savedEssay);
                 logger.info("Successfully updated essay with ID: {}", id);
                 return savedEssay;
             });
@@ -158,13 +345,16 @@ public class EssayServiceImpl implements EssayService {
         }
         
         try {
-            return essayRepository.findById(id).map(existingEssay -> {
+            essayCache.evict(id);
+            return essayRepository.findWithLockById(id).map(existingEssay -> {
                 existingEssay.setStatus(newStatus);
                 existingEssay.setUpdatedAt(LocalDateTime.now());
                 
+                // Only the metadata row is written; the text is read back for the response
                 Essay savedEssay = essayRepository.save(existingEssay);
+                outbox.record(EssayChangeType.STATUS_CHANGED, savedEssay);
                 logger.info("Successfully updated status to {} for essay with ID: {}", newStatus, id);
-                return savedEssay;
+                return withContent(savedEssay);
             });
         } catch (Exception e) {
             logger.error("Error updating status for essay with ID: {}", id, e);
@@ -173,25 +363,229 @@ public class EssayServiceImpl implements EssayService {
     }
 
     @Override
-    public void deleteEssay(Long id) {
+    @Transactional(readOnly = true)
+    public boolean essayExists(Long id) {
+        if (id == null || id < MIN_VALID_ID) {
+            return false;
+        }
+
+        try {
+            return essayRepository.existsById(id);
+        } catch (Exception e) {
+            logger.error("Error checking existence of essay with ID: {}", id, e);
+            throw new EssayServiceException("Failed to check essay with ID: " + id, e);
+        }
+    }
+
+    @Override
+    public boolean deleteEssay(Long id) {
         if (id == null || id < MIN_VALID_ID) {
             logger.warn("Invalid essay ID provided for deletion: {}", id);
-            return;
+            return false;
         }
         
         try {
-            if (essayRepository.existsById(id)) {
-                essayRepository.deleteById(id);
-                logger.info("Successfully deleted essay with ID: {}", id);
-            } else {
+            if (essayRepository.deleteEssayById(id) == 0) {
                 logger.warn("Attempted to delete non-existent essay with ID: {}", id);
+                return false;
             }
+            essayCache.evict(id);
+            outbox.recordDeleted(id);
+            logger.info("Successfully deleted essay with ID: {}", id);
+            return true;
         } catch (Exception e) {
             logger.error("Error deleting essay with ID: {}", id, e);
             throw new EssayServiceException("Failed to delete essay with ID: " + id, e);
         }
     }
 
+    /**
+     * Observes one essay generation as an essay.generate span. Its stages are child spans, and the
+     * topic length, word count and model are recorded as attributes.
+     * @param kind The kind of essay, single or long
+     * @param topic The essay topic
+     * @param generation The generation
+     * @return The saved essay
+     */
+    private Essay observeGeneration(String kind, String topic, Supplier<Essay> generation) {
+        Observation observation = Observation.createNotStarted("essay.generate", observationRegistry)
+                .contextualName("generate " + kind + " essay")
+                .lowCardinalityKeyValue("kind", kind)
+                .highCardinalityKeyValue("essay.topic.length", String.valueOf(topic == null ? 0 : topic.length()))
+                .start();
+        try (Observation.Scope scope = observation.openScope()) {
+            Essay essay = generation.get();
+            observation.highCardinalityKeyValue("essay.words", String.valueOf(essay.getLengthWords()));
+            if (essay.getModel() != null) {
+                observation.highCardinalityKeyValue("llm.model", essay.getModel());
+            }
+            return essay;
+        } catch (RuntimeException e) {
+            observation.error(e);
+            throw e;
+        } finally {
+            observation.stop();
+        }
+    }
+
+    /**
+     * Runs one stage of essay generation as a child span.
+     * @param name The stage name
+     * @param work The stage's work
+     * @return The stage's result
+     */
+    private <T> T stage(String name, Supplier<T> work) {
+        return stageObservation(name).observe(work);
+    }
+
+    /**
+     * Runs one stage of essay generation as a child span.
+     * @param name The stage name
+     * @param work The stage's work
+     */
+    private void stage(String name, Runnable work) {
+        stageObservation(name).observe(work);
+    }
+
+    private Observation stageObservation(String name) {
+        return Observation.createNotStarted("essay.generate.stage", observationRegistry)
+                .contextualName(name)
+                .lowCardinalityKeyValue("stage", name);
+    }
+
+    /**
+     * Rejects a topic that already has an essay.
+     * @param topic The essay topic
+     * @throws DuplicateEssayTopicException if an essay with the topic exists
+     */
+    private void checkDuplicateTopic(String topic) {
+        if (essayRepository.existsByTopicIgnoreCase(topic)) {
+            throw new DuplicateEssayTopicException("An essay with the topic '" + topic + "' already exists.");
+        }
+    }
+
+    /**
+     * Saves validated generated content as a new DRAFT essay, with the model usage that produced it.
+     * @param topic The essay topic
+     * @param generatedContent The validated content
+     * @param usage The model and tokens used to generate the content
+     * @param startNanos When generation started, from System.nanoTime()
+     * @return The saved essay
+     */
+    private Essay saveGeneratedEssay(String topic, String generatedContent, LlmUsage usage, long startNanos) {
+        int lengthWords = calculateWordCount(generatedContent);
+        long generationMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+
+        Essay newEssay = Essay.builder()
+                .topic(topic)
+                .content(generatedContent)
+                .lengthWords(lengthWords)
+                .createdAt(LocalDateTime.now())
+                .updatedAt(LocalDateTime.now())
+                .status(EssayStatus.DRAFT)
+                .model(usage.getModel())
+                .promptTokens(usage.getPromptTokens())
+                .completionTokens(usage.getCompletionTokens())
+                .generationMillis(generationMillis)
+                .build();
+
+        // Generation runs outside a transaction; the essay and its text are saved in one
+        Essay savedEssay = transactionOperations.execute(status -> {
+            Essay essay = essayRepository.save(newEssay);
+            essayContentRepository.save(EssayContent.builder().essay(essay).content(generatedContent).build());
+            revisionHistory.recordInitial(essay);
+            outbox.record(EssayChangeType.CREATED, essay);
+            return essay;
+        });
+        logger.info("Successfully generated and saved essay with ID: {} in {} ms", savedEssay.getId(), generationMillis);
+        return savedEssay;
+    }
+
+    /**
+     * Fills in the text of one essay.
+     * @param essay The essay, as loaded from the essays table
+     * @return The same essay
+     */
+    private Essay withContent(Essay essay) {
+        essayContentRepository.findContentByEssayId(essay.getId()).ifPresent(essay::setContent);
+        return essay;
+    }
+
+    /**
+     * Fills in the texts of several essays with one query.
+     * @param essays The essays, as loaded from the essays table
+     * @return The same essays
+     */
+    private List<Essay> withContents(List<Essay> essays) {
+        if (essays.isEmpty()) {
+            return essays;
+        }
+        Map<Long, String> contents = essayContentRepository
+                .findByEssayIdIn(essays.stream().map(Essay::getId).toList()).stream()
+                .collect(Collectors.toMap(EssayContent::getEssayId, EssayContent::getContent));
+        essays.forEach(essay -> essay.setContent(contents.getOrDefault(essay.getId(), essay.getContent())));
+        return essays;
+    }
+
+    /**
+     * Generates and validates the content for one prompt with its own model call(s).
+     * @param prompt The essay prompt
+     * @param targetWords The target length, or null for the model's default output limit
+     * @param usage The essay's usage, which every tier's call is added to
+     * @return The validated content
+     */
+    private String generateContent(String prompt, Integer targetWords, LlmUsage usage) {
+        Integer maxTokens = outputLimiter.maxTokens(targetWords);
+        // Each cascade tier is its own guarded model call; the content is validated before it is accepted
+        return modelCascade.generate(
+                tierOptions -> llmCallExecutor.execute(tierOptions == null ? null : tierOptions.getModel(),
+                        () -> complete(prompt, withMaxTokens(tierOptions, maxTokens), usage)),
+                this::validateGeneratedContent);
+    }
+
+    /**
+     * Makes one recorded model call. When streaming, the response is stopped at MAX_CONTENT_LENGTH
+     * on a sentence boundary instead of being generated in full and then rejected as too long.
+     * @param prompt The prompt text
+     * @param options The chat options, or null for the defaults
+     * @param usage The essay's usage to add this call to, or null when the call serves several essays
+     * @return The generated content
+     */
+    private String complete(String prompt, ChatOptions options, LlmUsage usage) {
+        if (outputLimiter.isStreaming()) {
+            return outputLimiter.collect(
+                    callRecorder.stream(request(prompt, options).stream().chatResponse(), usage), MAX_CONTENT_LENGTH);
+        }
+        return callRecorder.call(() -> request(prompt, options).call().chatResponse(), usage);
+    }
+
+    /**
+     * Adds a max-output-token limit to a cascade tier's options.
+     * @param tierOptions The tier's options, or null for the defaults
+     * @param maxTokens The token limit, or null for none
+     * @return The combined options, or null when there is nothing to override
+     */
+    private ChatOptions withMaxTokens(ChatOptions tierOptions, Integer maxTokens) {
+        if (maxTokens == null) {
+            return tierOptions;
+        }
+        return ChatOptions.builder()
+                .model(tierOptions == null ? null : tierOptions.getModel())
+                .maxTokens(maxTokens)
+                .build();
+    }
+
+    /**
+     * Builds a model request, overriding the default chat options when a cascade tier names a model.
+     * @param prompt The prompt text
+     * @param options The tier's options, or null for the defaults
+     * @return The request spec
+     */
+    private ChatClient.ChatClientRequestSpec request(String prompt, ChatOptions options) {
+        ChatClient.ChatClientRequestSpec request = chatClient.prompt(prompt);
+        return options == null ? request : request.options(options);
+    }
+
     /**
      * Validates the topic input according to business rules.
      * @param topic The topic to validate
@@ -283,4 +677,42 @@ public class EssayServiceImpl implements EssayService {
         String[] words = text.trim().split("\\s+");
         return words.length;
     }
+
+    /**
+     * Lets the topic batcher call the model and validate essays the same way single generation does.
+     * One handler serves one request, so a call made for that request alone is added to its usage.
+     */
+    private class EssayBatchHandler implements TopicBatcher.Handler {
+
+        private final LlmUsage usage;
+
+        EssayBatchHandler(LlmUsage usage) {
+            this.usage = usage;
+        }
+
+        @Override
+        public String generateOne(String topic) {
+            return generateContent(promptBuilder.essayPrompt(topic, null, null), null, usage);
+        }
+
+        @Override
+        public String generateBatch(String prompt, int topics, LlmUsage batchUsage) {
+            // Room for every essay at the content limit plus its delimiter line, as a single essay would get
+            Integer maxTokens = promptBuilder.estimateTokens(topics * (MAX_CONTENT_LENGTH + BATCH_DELIMITER_CHARS));
+            return llmCallExecutor.execute(() -> callRecorder.call(
+                    () -> request(prompt, withMaxTokens(null, maxTokens)).call().chatResponse(), batchUsage));
+        }
+
+        @Override
+        public void validate(String content) {
+            validateGeneratedContent(content);
+            // A batched part is a draft like a fast-tier one; a rejected part is generated alone through the cascade
+            modelCascade.checkQuality(content);
+        }
+
+        @Override
+        public LlmUsage usage() {
+            return usage;
+        }
+    }
 }
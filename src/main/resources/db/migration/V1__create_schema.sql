@@ -0,0 +1,23 @@
+-- Tables as Hibernate created them under ddl-auto: update. Databases that already have them are
+-- baselined at this version (spring.flyway.baseline-on-migrate), so this only runs on empty databases.
+
+CREATE TABLE essays (
+    id                BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    topic             VARCHAR(255) NOT NULL,
+    content           TEXT         NOT NULL,
+    length_words      INTEGER      NOT NULL,
+    created_at        TIMESTAMP(6) NOT NULL,
+    updated_at        TIMESTAMP(6) NOT NULL,
+    status            VARCHAR(255) NOT NULL CHECK (status IN ('DRAFT', 'PUBLISHED', 'ARCHIVED', 'REJECTED')),
+    model             VARCHAR(100),
+    prompt_tokens     INTEGER,
+    completion_tokens INTEGER,
+    generation_millis BIGINT
+);
+
+CREATE TABLE rate_limit_buckets (
+    bucket_key  VARCHAR(128)                PRIMARY KEY,
+    tokens      DOUBLE PRECISION            NOT NULL,
+    last_grant  INTEGER                     NOT NULL,
+    refilled_at TIMESTAMP(6) WITH TIME ZONE NOT NULL
+);
@@ -0,0 +1,14 @@
+-- Indexes for the queries the application actually runs. Built CONCURRENTLY so adding them to a
+-- populated table does not block writes; Flyway runs such scripts outside a transaction.
+
+-- Duplicate topic checks: Spring Data's IgnoreCase queries compare upper(topic)
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_essays_topic_upper ON essays (upper(topic));
+
+-- Listing essays by status, newest first
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_essays_status_created_at ON essays (status, created_at);
+
+-- Recently changed essays
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_essays_updated_at ON essays (updated_at);
+
+-- Purging idle rate limit buckets
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_rate_limit_buckets_refilled_at ON rate_limit_buckets (refilled_at);
@@ -0,0 +1,12 @@
+-- Essay text moves out of the essays table, so reading or updating an essay's metadata no longer
+-- touches it. Rows are removed together with their essay.
+
+CREATE TABLE essay_contents (
+    essay_id BIGINT PRIMARY KEY REFERENCES essays (id) ON DELETE CASCADE,
+    content  TEXT NOT NULL
+);
+
+INSERT INTO essay_contents (essay_id, content)
+SELECT id, content FROM essays;
+
+ALTER TABLE essays DROP COLUMN content;
@@ -0,0 +1,21 @@
+-- Revision history of essay topic and text. Each revision stores either the full text (a snapshot)
+-- or a delta against the previous revision; see TextDelta. Existing essays start at revision 1,
+-- a snapshot of their current text.
+
+CREATE TABLE essay_revisions (
+    id             BIGSERIAL PRIMARY KEY,
+    essay_id       BIGINT       NOT NULL REFERENCES essays (id) ON DELETE CASCADE,
+    revision       INTEGER      NOT NULL,
+    topic          VARCHAR(255) NOT NULL,
+    snapshot       BOOLEAN      NOT NULL,
+    body           TEXT         NOT NULL,
+    content_length INTEGER      NOT NULL,
+    stored_bytes   INTEGER      NOT NULL,
+    created_at     TIMESTAMP    NOT NULL,
+    CONSTRAINT uk_essay_revisions_essay_revision UNIQUE (essay_id, revision)
+);
+
+INSERT INTO essay_revisions (essay_id, revision, topic, snapshot, body, content_length, stored_bytes, created_at)
+SELECT e.id, 1, e.topic, TRUE, c.content, char_length(c.content), octet_length(c.content), e.updated_at
+FROM essays e
+JOIN essay_contents c ON c.essay_id = e.id;
@@ -0,0 +1,16 @@
+-- Transactional outbox of essay changes. Rows are written in the same transaction as the change and
+-- published in id order by OutboxRelay; published rows are kept for app.outbox.retention.
+
+CREATE TABLE essay_outbox (
+    id           BIGSERIAL PRIMARY KEY,
+    essay_id     BIGINT      NOT NULL,
+    event_type   VARCHAR(32) NOT NULL,
+    payload      TEXT        NOT NULL,
+    created_at   TIMESTAMPTZ NOT NULL,
+    published_at TIMESTAMPTZ
+);
+
+-- The relay only ever scans what is still unpublished
+CREATE INDEX idx_essay_outbox_unpublished ON essay_outbox (id) WHERE published_at IS NULL;
+
+CREATE INDEX idx_essay_outbox_published_at ON essay_outbox (published_at);
@@ -0,0 +1,18 @@
+-- Responses of POST/PUT/PATCH essay requests sent with an Idempotency-Key, replayed to retries of the
+-- same request until expires_at. A row is IN_PROGRESS while the first request runs; locked_until lets
+-- another node take over the key when the node running it died.
+
+CREATE TABLE idempotency_keys (
+    idempotency_key  VARCHAR(64)  PRIMARY KEY,
+    request_hash     VARCHAR(64)  NOT NULL,
+    status           VARCHAR(16)  NOT NULL,
+    response_status  INTEGER,
+    content_type     VARCHAR(255),
+    location         VARCHAR(2048),
+    response_body    BYTEA,
+    created_at       TIMESTAMPTZ  NOT NULL,
+    locked_until     TIMESTAMPTZ  NOT NULL,
+    expires_at       TIMESTAMPTZ  NOT NULL
+);
+
+CREATE INDEX idx_idempotency_keys_expires_at ON idempotency_keys (expires_at);
@@ -0,0 +1,4 @@
+-- Identifies the request holding an IN_PROGRESS key. Completing, releasing or renewing a claim matches
+-- the token, so a request whose key was taken over cannot overwrite or delete the new holder's row.
+
+ALTER TABLE idempotency_keys ADD COLUMN claim_token UUID;
@@ -1,11 +1,16 @@
 package com.codehacks.postgen;
 
 import com.codehacks.postgen.controller.EssayController;
+import com.codehacks.postgen.dto.EssayLookupResponse;
 import com.codehacks.postgen.dto.EssayRequest;
 import com.codehacks.postgen.dto.EssayResponse;
+import com.codehacks.postgen.dto.EssayRevisionResponse;
 import com.codehacks.postgen.dto.EssayFullUpdateRequest;
 import com.codehacks.postgen.dto.EssayUpdateStatusRequest;
+import com.codehacks.postgen.idempotency.IdempotencyFilter;
 import com.codehacks.postgen.model.EssayStatus;
+import com.codehacks.postgen.observability.SqlStatementRecorder;
+import com.codehacks.postgen.outbox.OutboxRelay;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.MethodOrderer;
@@ -16,8 +21,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.context.DynamicPropertyRegistry;
 import org.springframework.test.context.DynamicPropertySource;
 import org.testcontainers.containers.PostgreSQLContainer;
@@ -55,6 +63,16 @@ public class EssayE2ETest {
     @Autowired
     private ObjectMapper objectMapper;
 
+    // SQL budgets per endpoint: at most N statements and M rows, so N+1 queries and table scans fail the build.
+    @Autowired
+    private SqlStatementRecorder sqlRecorder;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OutboxRelay outboxRelay;
+
     @Container
     public static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16.8-alpine")
             .withDatabaseName("testdb")
@@ -67,7 +85,7 @@ public class EssayE2ETest {
         registry.add("spring.datasource.username", postgres::getUsername);
         registry.add("spring.datasource.password", postgres::getPassword);
 
-        registry.add("spring.jpa.hibernate.ddl-auto", () -> "create-drop");
+        registry.add("spring.jpa.hibernate.ddl-auto", () -> "validate"); // Schema comes from the Flyway migrations
         registry.add("spring.jpa.open-in-view", () -> "false"); // Good practice for REST APIs
 
         // Disable Spring AI for integration tests
@@ -87,10 +105,12 @@ public class EssayE2ETest {
     void testGenerateEssay() {
         EssayRequest generateRequest = EssayRequest.builder().topic("The Future of Green Energy").build();
 
-        ResponseEntity<EssayResponse> response = restTemplate.postForEntity(
+        // Rate limit bucket, duplicate check, then the essay, its text, its first revision and its outbox event
+        // inserted together
+        ResponseEntity<EssayResponse> response = sqlRecorder.withinBudget(6, 2, () -> restTemplate.postForEntity(
                 "http://localhost:" + port + EssayController.BASE_PATH + "/generate",
                 generateRequest,
-                EssayResponse.class);
+                EssayResponse.class));
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CREATED);
         assertThat(response.getBody()).isNotNull();
@@ -112,9 +132,10 @@ public class EssayE2ETest {
     void testGetEssayById() {
         assertThat(generatedEssayId).isNotNull();
 
-        ResponseEntity<EssayResponse> response = restTemplate.getForEntity(
+        // The essay row, then its text
+        ResponseEntity<EssayResponse> response = sqlRecorder.withinBudget(2, 2, () -> restTemplate.getForEntity(
                 "http://localhost:" + port + EssayController.BASE_PATH + "/" + generatedEssayId,
-                EssayResponse.class);
+                EssayResponse.class));
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
         assertThat(response.getBody()).isNotNull();
@@ -128,9 +149,10 @@ public class EssayE2ETest {
     @DisplayName("E2E: 3. Should retrieve all essays (GET /)")
     void testGetAllEssays() {
         // Assuming testGenerateEssay has run and populated at least one essay
-        ResponseEntity<List> response = restTemplate.getForEntity(
+        // Essays, then their texts in one query, for the one essay that exists at this point
+        ResponseEntity<List> response = sqlRecorder.withinBudget(2, 2, () -> restTemplate.getForEntity(
                 "http://localhost:" + port + EssayController.BASE_PATH,
-                List.class);
+                List.class));
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
         assertThat(response.getBody()).isNotNull();
@@ -150,11 +172,13 @@ public class EssayE2ETest {
                 .build();
 
         // Use restTemplate.exchange to get the response from PUT
-        ResponseEntity<EssayResponse> putResponse = restTemplate.exchange(
+        // Duplicate check, load of the essay, its text and latest revision number, update of the metadata row
+        // and of the text, the new revision and the outbox event: no scan of other essays
+        ResponseEntity<EssayResponse> putResponse = sqlRecorder.withinBudget(8, 3, () -> restTemplate.exchange(
                 "http://localhost:" + port + EssayController.BASE_PATH + "/" + generatedEssayId,
                 org.springframework.http.HttpMethod.PUT,
                 new org.springframework.http.HttpEntity<>(updateRequest),
-                EssayResponse.class);
+                EssayResponse.class));
 
         assertThat(putResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
         assertThat(putResponse.getBody()).isNotNull();
@@ -175,11 +199,12 @@ public class EssayE2ETest {
                 .status(EssayStatus.ARCHIVED)
                 .build();
 
-        ResponseEntity<EssayResponse> putResponse = restTemplate.exchange(
+        // Load and update of the metadata row and the outbox event; the text is only read back for the response
+        ResponseEntity<EssayResponse> putResponse = sqlRecorder.withinBudget(4, 2, () -> restTemplate.exchange(
                 "http://localhost:" + port + EssayController.BASE_PATH + "/" + generatedEssayId + "/status",
                 org.springframework.http.HttpMethod.PUT,
                 new org.springframework.http.HttpEntity<>(statusRequest),
-                EssayResponse.class);
+                EssayResponse.class));
 
         assertThat(putResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
         assertThat(putResponse.getBody()).isNotNull();
@@ -190,11 +215,48 @@ public class EssayE2ETest {
 
     @Test
     @Order(6)
-    @DisplayName("E2E: 6. Should delete the essay (DELETE /{id})")
+    @DisplayName("E2E: 6. Should list and fetch the essay's revisions (GET /{id}/revisions)")
+    void testEssayRevisions() {
+        assertThat(generatedEssayId).isNotNull();
+
+        // One query for the revision metadata, without the stored bodies
+        ResponseEntity<EssayRevisionResponse[]> listResponse = sqlRecorder.withinBudget(1, 2, () -> restTemplate.getForEntity(
+                "http://localhost:" + port + EssayController.BASE_PATH + "/" + generatedEssayId + "/revisions",
+                EssayRevisionResponse[].class));
+
+        assertThat(listResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(listResponse.getBody()).isNotNull();
+        // The generated text and the full update; the status change is not a revision
+        assertThat(listResponse.getBody()).extracting(EssayRevisionResponse::getRevision).containsExactly(1, 2);
+        assertThat(listResponse.getBody()[0].getTopic()).isEqualTo("The Future of Green Energy");
+        assertThat(listResponse.getBody()[1].getTopic()).isEqualTo("Revised Green Energy Outlook");
+        assertThat(listResponse.getBody()[1].getStoredBytes()).isPositive();
+
+        // The revision and any deltas back to its snapshot, in one query
+        ResponseEntity<EssayRevisionResponse> revisionResponse = sqlRecorder.withinBudget(1, 2, () -> restTemplate.getForEntity(
+                "http://localhost:" + port + EssayController.BASE_PATH + "/" + generatedEssayId + "/revisions/2",
+                EssayRevisionResponse.class));
+
+        assertThat(revisionResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(revisionResponse.getBody()).isNotNull();
+        assertThat(revisionResponse.getBody().getContent()).startsWith("This is the fully revised content");
+
+        ResponseEntity<String> missing = restTemplate.getForEntity(
+                "http://localhost:" + port + EssayController.BASE_PATH + "/" + generatedEssayId + "/revisions/3",
+                String.class);
+        assertThat(missing.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    @Test
+    @Order(7)
+    @DisplayName("E2E: 7. Should delete the essay (DELETE /{id})")
     void testDeleteEssay() {
         assertThat(generatedEssayId).isNotNull();
 
-        restTemplate.delete("http://localhost:" + port + EssayController.BASE_PATH + "/" + generatedEssayId);
+        // One delete (content and revisions cascade in the database) and the outbox event
+        sqlRecorder.withinBudget(2, 0, () -> restTemplate.exchange(
+                "http://localhost:" + port + EssayController.BASE_PATH + "/" + generatedEssayId,
+                org.springframework.http.HttpMethod.DELETE, null, Void.class));
 
         // Verify deletion by trying to retrieve, expecting 404
         ResponseEntity<String> response = restTemplate.getForEntity(
@@ -204,10 +266,27 @@ public class EssayE2ETest {
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
     }
 
+    @Test
+    @Order(8)
+    @DisplayName("E2E: 8. Should publish every change of the essay through the outbox")
+    void testOutboxEvents() {
+        assertThat(generatedEssayId).isNotNull();
+
+        List<String> types = jdbcTemplate.queryForList(
+                "SELECT event_type FROM essay_outbox WHERE essay_id = ? ORDER BY id", String.class, generatedEssayId);
+        assertThat(types).containsExactly("CREATED", "UPDATED", "STATUS_CHANGED", "DELETED");
+
+        outboxRelay.drain();
+
+        Integer unpublished = jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM essay_outbox WHERE published_at IS NULL", Integer.class);
+        assertThat(unpublished).isZero();
+    }
+
     // --- Edge Cases and Error Scenarios ---
 
     @Test
-    @Order(7)
+    @Order(9)
     @DisplayName("E2E: Should return 400 for invalid topic on essay generation")
     void testGenerateEssay_invalidTopic() {
         EssayRequest invalidRequest = EssayRequest.builder().topic("").build();
@@ -222,7 +301,7 @@ public class EssayE2ETest {
     }
 
     @Test
-    @Order(8)
+    @Order(10)
     @DisplayName("E2E: Should return 409 for duplicate topic on essay generation")
     void testGenerateEssay_duplicateTopic() {
         // First, generate an essay with a unique topic
@@ -235,29 +314,30 @@ public class EssayE2ETest {
         assertThat(initialResponse.getStatusCode()).isEqualTo(HttpStatus.CREATED);
 
         // Try to generate another essay with the exact same topic
-        ResponseEntity<String> duplicateResponse = restTemplate.postForEntity(
+        // Rate limit bucket and duplicate check only; nothing is written
+        ResponseEntity<String> duplicateResponse = sqlRecorder.withinBudget(2, 2, () -> restTemplate.postForEntity(
                 "http://localhost:" + port + EssayController.BASE_PATH + "/generate",
-                initialRequest, String.class);
+                initialRequest, String.class));
 
         assertThat(duplicateResponse.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
         assertThat(duplicateResponse.getBody()).contains("An essay with the topic 'UniqueTopicForDuplicateTest' already exists.");
     }
 
     @Test
-    @Order(9)
+    @Order(11)
     @DisplayName("E2E: Should return 404 when retrieving a non-existent essay")
     void testGetEssayById_notFound() {
         long nonExistentId = 99999L;
 
-        ResponseEntity<String> response = restTemplate.getForEntity(
+        ResponseEntity<String> response = sqlRecorder.withinBudget(1, 0, () -> restTemplate.getForEntity(
                 "http://localhost:" + port + EssayController.BASE_PATH + "/" + nonExistentId,
-                String.class);
+                String.class));
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
     }
 
     @Test
-    @Order(10)
+    @Order(12)
     @DisplayName("E2E: Should return 404 when updating a non-existent essay")
     void testUpdateEssay_notFound() {
         long nonExistentId = 99999L;
@@ -278,7 +358,7 @@ public class EssayE2ETest {
     }
 
     @Test
-    @Order(11)
+    @Order(13)
     @DisplayName("E2E: Should return 404 when deleting a non-existent essay")
     void testDeleteEssay_notFound() {
         long nonExistentId = 99997L;
@@ -291,4 +371,56 @@ public class EssayE2ETest {
 
         assertThat(response.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
     }
+
+    @Test
+    @Order(14)
+    @DisplayName("E2E: Should replay the response of a retried generation sent with an Idempotency-Key")
+    void testGenerateEssay_idempotentRetry() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Idempotency-Key", "e2e-retry-1");
+        EssayRequest request = EssayRequest.builder().topic("Idempotent Retries in Mobile Apps").build();
+        String url = "http://localhost:" + port + EssayController.BASE_PATH + "/generate";
+
+        ResponseEntity<EssayResponse> first = restTemplate.postForEntity(url, new HttpEntity<>(request, headers),
+                EssayResponse.class);
+        // Replayed from memory: no rate limit bucket, no duplicate check, no generation
+        ResponseEntity<EssayResponse> retry = sqlRecorder.withinBudget(0, 0, () -> restTemplate.postForEntity(url,
+                new HttpEntity<>(request, headers), EssayResponse.class));
+
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(retry.getHeaders().getFirst(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(retry.getBody()).isNotNull();
+        assertThat(retry.getBody().getId()).isEqualTo(first.getBody().getId());
+
+        EssayRequest otherRequest = EssayRequest.builder().topic("Another Topic Under The Same Key").build();
+        ResponseEntity<String> reused = restTemplate.postForEntity(url, new HttpEntity<>(otherRequest, headers),
+                String.class);
+        assertThat(reused.getStatusCode()).isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY);
+    }
+
+    @Test
+    @Order(15)
+    @DisplayName("E2E: Should fetch several essays by ID in one request, then from the cache (GET ?ids=)")
+    void testGetEssaysByIds() {
+        String generateUrl = "http://localhost:" + port + EssayController.BASE_PATH + "/generate";
+        ResponseEntity<EssayResponse> created = restTemplate.postForEntity(generateUrl,
+                EssayRequest.builder().topic("Fetching Many Records at Once").build(), EssayResponse.class);
+        assertThat(created.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        Long id = created.getBody().getId();
+        String url = "http://localhost:" + port + EssayController.BASE_PATH + "?ids=" + id + ",99996," + id;
+
+        // One IN query on essays and one on essay_contents, then nothing at all once cached
+        ResponseEntity<EssayLookupResponse[]> cold = sqlRecorder.withinBudget(2, 2, () -> restTemplate.getForEntity(
+                url, EssayLookupResponse[].class));
+        ResponseEntity<EssayLookupResponse[]> cached = sqlRecorder.withinBudget(0, 0, () -> restTemplate.getForEntity(
+                url, EssayLookupResponse[].class));
+
+        for (ResponseEntity<EssayLookupResponse[]> response : List.of(cold, cached)) {
+            assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(response.getBody()).extracting(EssayLookupResponse::getId).containsExactly(id, 99996L, id);
+            assertThat(response.getBody()).extracting(EssayLookupResponse::getFound).containsExactly(true, false, true);
+            assertThat(response.getBody()[0].getEssay().getContent()).isNotBlank();
+        }
+    }
 }
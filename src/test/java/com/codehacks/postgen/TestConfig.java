@@ -1,12 +1,18 @@
 package com.codehacks.postgen;
 
+import com.codehacks.postgen.observability.SqlStatementRecorder;
 import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Primary;
 import org.springframework.context.annotation.Profile;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
 import org.mockito.Mockito;
 
+import java.util.List;
+
 @TestConfiguration
 @Profile("test")
 public class TestConfig {
@@ -20,13 +26,14 @@ public class TestConfig {
 
         Mockito.when(mockClient.prompt(Mockito.anyString())).thenReturn(requestSpec);
         Mockito.when(requestSpec.call()).thenReturn(callResponseSpec);
-        Mockito.when(callResponseSpec.content()).thenReturn(
+        String essay =
             "This is a test essay generated for integration testing purposes. " +
             "It contains multiple sentences to meet the minimum word count requirement. " +
             "The content is structured and coherent, providing a realistic test scenario " +
             "for the essay generation functionality. This mock response ensures that " +
-            "integration tests can run without requiring actual AI service credentials."
-        );
+            "integration tests can run without requiring actual AI service credentials.";
+        Mockito.when(callResponseSpec.chatResponse())
+            .thenReturn(new ChatResponse(List.of(new Generation(new AssistantMessage(essay)))));
         return mockClient;
     }
 
@@ -37,4 +44,9 @@ public class TestConfig {
         Mockito.when(mockBuilder.build()).thenReturn(mockChatClient);
         return mockBuilder;
     }
-} 
\ No newline at end of file
+
+    @Bean
+    public SqlStatementRecorder sqlStatementRecorder() {
+        return new SqlStatementRecorder();
+    }
+}
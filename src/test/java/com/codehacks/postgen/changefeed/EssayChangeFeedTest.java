@@ -0,0 +1,337 @@
+package com.codehacks.postgen.changefeed;
+
+import com.codehacks.postgen.config.ChangeFeedProperties;
+import com.codehacks.postgen.exception.ChangeFeedFullException;
+import com.codehacks.postgen.outbox.EssayChangeEvent;
+import com.codehacks.postgen.outbox.EssayChangeType;
+import com.codehacks.postgen.repository.OutboxStore;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EssayChangeFeedTest {
+
+    @Mock
+    private OutboxStore outboxStore;
+
+    private ChangeFeedProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private List<Runnable> pendingSends;
+    private Executor sendExecutor;
+    private List<RecordingEmitter> emitters;
+    private EssayChangeFeed feed;
+
+    @BeforeEach
+    void setUp() {
+        properties = new ChangeFeedProperties();
+        properties.setBufferSize(2);
+        properties.setReplaySize(3);
+        properties.setMaxSubscribers(2);
+        meterRegistry = new SimpleMeterRegistry();
+        pendingSends = new ArrayList<>();
+        sendExecutor = Runnable::run;
+        emitters = new ArrayList<>();
+        feed = newFeed();
+    }
+
+    @Test
+    @DisplayName("Should send each change to every subscriber with the outbox id as event id")
+    void onChange_FansOutToEverySubscriber() {
+        RecordingEmitter first = subscribe(null);
+        RecordingEmitter second = subscribe(null);
+
+        feed.onChange(event(1, EssayChangeType.CREATED));
+
+        for (RecordingEmitter emitter : List.of(first, second)) {
+            assertEquals(1, emitter.frames.size());
+            String frame = emitter.frames.get(0);
+            assertTrue(frame.startsWith("id:1\n"), frame);
+            assertTrue(frame.contains("\"type\":\"CREATED\""), frame);
+            assertTrue(frame.contains("\"essay\":{\"id\":7,\"status\":\"DRAFT\"}"), frame);
+        }
+        assertEquals(2.0, meterRegistry.get("essay.changefeed.sent").counter().count());
+        assertEquals(2.0, meterRegistry.get("essay.changefeed.subscribers").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Should drop a change the relay publishes again")
+    void onChange_DropsRedeliveredChange() {
+        RecordingEmitter emitter = subscribe(null);
+
+        feed.onChange(event(1, EssayChangeType.CREATED));
+        feed.onChange(event(1, EssayChangeType.CREATED));
+
+        assertEquals(1, emitter.frames.size());
+        assertEquals(1.0, meterRegistry.get("essay.changefeed.events").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should resume after the last event id from the changes kept in memory")
+    void subscribe_ResumesFromMemory() {
+        feed.onChange(event(1, EssayChangeType.CREATED));
+        feed.onChange(event(2, EssayChangeType.UPDATED));
+        feed.onChange(event(3, EssayChangeType.STATUS_CHANGED));
+
+        RecordingEmitter emitter = subscribe(1L);
+
+        assertEquals(List.of(2L, 3L), emitter.ids());
+        verify(outboxStore, never()).fetchPublishedAfter(any(), anyInt());
+        assertEquals(1.0, meterRegistry.get("essay.changefeed.resumes").tag("source", "memory").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should resume from the outbox table, in publication order, when the last event id is no longer in memory")
+    void subscribe_ResumesFromDatabase() {
+        feed.onChange(event(3, EssayChangeType.UPDATED));
+        when(outboxStore.findPosition(1L)).thenReturn(Optional.of(position(1)));
+        // 2 committed after 3, so it was published after it
+        when(outboxStore.fetchPublishedAfter(position(1), 3)).thenReturn(List.of(
+                published(3, EssayChangeType.UPDATED, 2), published(2, EssayChangeType.CREATED, 3)));
+
+        RecordingEmitter emitter = subscribe(1L);
+
+        assertEquals(List.of(3L, 2L), emitter.ids());
+        assertEquals(1.0, meterRegistry.get("essay.changefeed.resumes").tag("source", "database").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should tell the client to reload when more changes were missed than can be replayed")
+    void subscribe_ResetsWhenTooFarBehind() {
+        when(outboxStore.findPosition(1L)).thenReturn(Optional.of(position(1)));
+        when(outboxStore.fetchPublishedAfter(position(1), 3)).thenReturn(List.of(
+                published(2, EssayChangeType.CREATED, 2), published(3, EssayChangeType.UPDATED, 3),
+                published(4, EssayChangeType.UPDATED, 4)));
+
+        RecordingEmitter emitter = subscribe(1L);
+
+        assertEquals(1, emitter.frames.size());
+        assertTrue(emitter.frames.get(0).startsWith("event:" + EssayChangeFeed.RESET_EVENT + "\n"));
+    }
+
+    @Test
+    @DisplayName("Should tell the client to reload when its last event has been purged")
+    void subscribe_ResetsWhenLastEventPurged() {
+        when(outboxStore.findPosition(1L)).thenReturn(Optional.empty());
+
+        RecordingEmitter emitter = subscribe(1L);
+
+        assertEquals(1, emitter.frames.size());
+        assertTrue(emitter.frames.get(0).startsWith("event:" + EssayChangeFeed.RESET_EVENT + "\n"));
+        verify(outboxStore, never()).fetchPublishedAfter(any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should tail the outbox table from the latest published change, including ids that committed late")
+    void poll_TailsOutboxInPublicationOrder() {
+        RecordingEmitter emitter = subscribe(null);
+        when(outboxStore.findLastPosition()).thenReturn(Optional.of(position(1)));
+        when(outboxStore.fetchPublishedAfter(position(1), 3)).thenReturn(List.of(published(3, EssayChangeType.CREATED, 2)));
+        when(outboxStore.fetchPublishedAfter(position(2, 3), 3)).thenReturn(List.of(published(2, EssayChangeType.CREATED, 3)));
+        when(outboxStore.fetchPublishedAfter(position(3, 2), 3)).thenReturn(List.of());
+
+        feed.poll();
+        feed.poll();
+        feed.poll();
+
+        assertEquals(List.of(3L, 2L), emitter.ids());
+        verify(outboxStore, times(1)).findLastPosition();
+    }
+
+    @Test
+    @DisplayName("Should keep reading while a poll returns a full batch")
+    void poll_ReadsUntilCaughtUp() {
+        RecordingEmitter emitter = subscribe(null);
+        when(outboxStore.findLastPosition()).thenReturn(Optional.empty());
+        when(outboxStore.fetchPublishedAfter(OutboxStore.PublishedPosition.START, 3)).thenReturn(List.of(
+                published(1, EssayChangeType.CREATED, 1), published(2, EssayChangeType.CREATED, 2),
+                published(3, EssayChangeType.CREATED, 3)));
+        when(outboxStore.fetchPublishedAfter(position(3), 3)).thenReturn(List.of(published(4, EssayChangeType.CREATED, 4)));
+
+        feed.poll();
+
+        assertEquals(List.of(1L, 2L, 3L, 4L), emitter.ids());
+    }
+
+    @Test
+    @DisplayName("Should retry on the next poll when reading the outbox fails")
+    void poll_RetriesAfterFailure() {
+        RecordingEmitter emitter = subscribe(null);
+        when(outboxStore.findLastPosition()).thenReturn(Optional.of(position(1)));
+        when(outboxStore.fetchPublishedAfter(position(1), 3))
+                .thenThrow(new IllegalStateException("connection lost"))
+                .thenReturn(List.of(published(2, EssayChangeType.CREATED, 2)));
+
+        feed.poll();
+        feed.poll();
+
+        assertEquals(List.of(2L), emitter.ids());
+    }
+
+    @Test
+    @DisplayName("Should send changes published during a resume after the replayed ones")
+    void subscribe_QueuesLiveChangesBehindReplay() {
+        sendExecutor = pendingSends::add;
+        feed.onChange(event(1, EssayChangeType.CREATED));
+        feed.onChange(event(2, EssayChangeType.UPDATED));
+        RecordingEmitter emitter = subscribe(1L);
+
+        feed.onChange(event(2, EssayChangeType.UPDATED));
+        feed.onChange(event(3, EssayChangeType.UPDATED));
+        runPendingSends();
+
+        assertEquals(List.of(2L, 3L), emitter.ids());
+    }
+
+    @Test
+    @DisplayName("Should disconnect a subscriber whose buffer is full")
+    void onChange_DisconnectsSlowSubscriber() {
+        sendExecutor = pendingSends::add;
+        RecordingEmitter slow = subscribe(null);
+
+        feed.onChange(event(1, EssayChangeType.CREATED));
+        feed.onChange(event(2, EssayChangeType.UPDATED));
+        feed.onChange(event(3, EssayChangeType.UPDATED));
+        runPendingSends();
+
+        assertTrue(slow.completed);
+        assertTrue(slow.frames.isEmpty());
+        assertEquals(0, feed.subscriberCount());
+        assertEquals(1.0, meterRegistry.get("essay.changefeed.disconnects").tag("reason", "slow").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should drop a subscriber when sending to it fails")
+    void onChange_DropsSubscriberOnSendFailure() {
+        RecordingEmitter gone = subscribe(null);
+        RecordingEmitter alive = subscribe(null);
+        gone.failSends = true;
+
+        feed.onChange(event(1, EssayChangeType.CREATED));
+
+        assertTrue(gone.completed);
+        assertEquals(1, alive.frames.size());
+        assertEquals(1, feed.subscriberCount());
+        assertEquals(1.0, meterRegistry.get("essay.changefeed.disconnects").tag("reason", "error").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should reject subscribers beyond the limit")
+    void subscribe_RejectsBeyondLimit() {
+        subscribe(null);
+        subscribe(null);
+
+        assertThrows(ChangeFeedFullException.class, () -> feed.subscribe(null));
+        assertEquals(2, feed.subscriberCount());
+        assertEquals(1.0, meterRegistry.get("essay.changefeed.rejected").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should send a heartbeat comment to idle subscribers")
+    void heartbeat_SendsComment() {
+        RecordingEmitter emitter = subscribe(null);
+
+        feed.heartbeat();
+
+        assertEquals(List.of(":heartbeat\n\n"), emitter.frames);
+        assertEquals(0.0, meterRegistry.get("essay.changefeed.sent").counter().count());
+    }
+
+    private EssayChangeFeed newFeed() {
+        return new EssayChangeFeed(outboxStore, new ObjectMapper().findAndRegisterModules(),
+                task -> sendExecutor.execute(task), properties, meterRegistry) {
+            @Override
+            SseEmitter newEmitter(long timeoutMillis) {
+                RecordingEmitter emitter = new RecordingEmitter();
+                emitters.add(emitter);
+                return emitter;
+            }
+        };
+    }
+
+    private RecordingEmitter subscribe(Long lastEventId) {
+        feed.subscribe(lastEventId);
+        return emitters.get(emitters.size() - 1);
+    }
+
+    private void runPendingSends() {
+        while (!pendingSends.isEmpty()) {
+            pendingSends.remove(0).run();
+        }
+    }
+
+    /**
+     * A published change; batches are a second apart, so {@code batch} orders them.
+     */
+    private static OutboxStore.PublishedEvent published(long id, EssayChangeType type, int batch) {
+        return new OutboxStore.PublishedEvent(event(id, type), position(batch, id));
+    }
+
+    private static OutboxStore.PublishedPosition position(int batch) {
+        return position(batch, batch);
+    }
+
+    private static OutboxStore.PublishedPosition position(int batch, long id) {
+        return new OutboxStore.PublishedPosition(Instant.parse("2025-06-01T10:00:00Z").plusSeconds(batch), id);
+    }
+
+    private static EssayChangeEvent event(long id, EssayChangeType type) {
+        return new EssayChangeEvent(id, 7L, type, "{\"id\":7,\"status\":\"DRAFT\"}", Instant.parse("2025-06-01T10:00:00Z"));
+    }
+
+    /**
+     * Keeps what is sent instead of writing it to a response.
+     */
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final List<String> frames = new ArrayList<>();
+        private boolean failSends;
+        private boolean completed;
+
+        @Override
+        public synchronized void send(Set<DataWithMediaType> items) throws IOException {
+            if (failSends) {
+                throw new IOException("Broken pipe");
+            }
+            StringBuilder frame = new StringBuilder();
+            items.forEach(item -> frame.append(item.getData()));
+            frames.add(frame.toString());
+        }
+
+        @Override
+        public synchronized void complete() {
+            completed = true;
+        }
+
+        List<Long> ids() {
+            return frames.stream()
+                    .map(frame -> Long.parseLong(frame.substring("id:".length(), frame.indexOf('\n'))))
+                    .toList();
+        }
+    }
+}
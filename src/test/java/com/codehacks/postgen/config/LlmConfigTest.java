@@ -0,0 +1,40 @@
+package com.codehacks.postgen.config;
+
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LlmConfigTest {
+
+    @Test
+    @DisplayName("Should size the model call pool to the bulkhead, doubled for hedged attempts")
+    void llmCallThreadPool_BoundedByBulkhead() {
+        assertThreads(false, 2);
+        assertThreads(true, 4);
+    }
+
+    private static void assertThreads(boolean hedging, int expected) {
+        LlmProperties properties = new LlmProperties();
+        properties.getHedging().setEnabled(hedging);
+        BulkheadRegistry bulkheads = BulkheadRegistry.of(BulkheadConfig.custom().maxConcurrentCalls(2).build());
+        ExecutorService pool = new LlmConfig().llmCallThreadPool(properties, bulkheads);
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            for (int i = 0; i < expected; i++) {
+                pool.submit(() -> release.await(5, TimeUnit.SECONDS));
+            }
+            assertThrows(RejectedExecutionException.class, () -> pool.submit(() -> { }));
+        } finally {
+            release.countDown();
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.codehacks.postgen.config;
+
+import com.codehacks.postgen.dto.EssayResponse;
+import com.codehacks.postgen.model.Essay;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class NativeRuntimeHintsTest {
+
+    private RuntimeHints hints;
+
+    @BeforeEach
+    void setUp() {
+        hints = new RuntimeHints();
+        new NativeRuntimeHints().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @Test
+    @DisplayName("Should allow the JDBC proxies of the statement counting data source")
+    void registersJdbcProxies() {
+        assertTrue(RuntimeHintsPredicates.proxies().forInterfaces(Connection.class).test(hints));
+        assertTrue(RuntimeHintsPredicates.proxies().forInterfaces(PreparedStatement.class).test(hints));
+        assertTrue(RuntimeHintsPredicates.proxies().forInterfaces(ResultSet.class).test(hints));
+    }
+
+    @Test
+    @DisplayName("Should register the entity and DTOs for reflection")
+    void registersEntityAndDtos() {
+        assertTrue(RuntimeHintsPredicates.reflection().onType(Essay.class)
+                .withMemberCategory(MemberCategory.DECLARED_FIELDS).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onType(EssayResponse.class).test(hints));
+    }
+
+    @Test
+    @DisplayName("Should include the Flyway migrations in the image")
+    void registersMigrations() {
+        assertTrue(RuntimeHintsPredicates.resource().forResource("db/migration/V1__create_schema.sql").test(hints));
+    }
+}
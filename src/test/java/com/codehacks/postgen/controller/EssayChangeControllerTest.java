@@ -0,0 +1,88 @@
+package com.codehacks.postgen.controller;
+
+import com.codehacks.postgen.changefeed.EssayChangeFeed;
+import com.codehacks.postgen.exception.ChangeFeedFullException;
+import com.codehacks.postgen.exception.GlobalExceptionHandler;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@ExtendWith(MockitoExtension.class)
+class EssayChangeControllerTest {
+
+    private MockMvc mockMvc;
+
+    @Mock
+    private EssayChangeFeed changeFeed;
+
+    @InjectMocks
+    private EssayChangeController changeController;
+
+    @BeforeEach
+    void setUp() {
+        mockMvc = MockMvcBuilders.standaloneSetup(changeController)
+                .setControllerAdvice(new GlobalExceptionHandler())
+                .build();
+    }
+
+    @Test
+    @DisplayName("Should open a change stream from the next change")
+    void streamChanges_Subscribes() throws Exception {
+        when(changeFeed.subscribe(null)).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get(EssayController.BASE_PATH + "/changes").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isOk())
+                .andExpect(request().asyncStarted());
+
+        verify(changeFeed).subscribe(null);
+    }
+
+    @Test
+    @DisplayName("Should resume the change stream after Last-Event-ID")
+    void streamChanges_ResumesAfterLastEventId() throws Exception {
+        when(changeFeed.subscribe(42L)).thenReturn(new SseEmitter());
+
+        mockMvc.perform(get(EssayController.BASE_PATH + "/changes")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .header(EssayChangeController.LAST_EVENT_ID_HEADER, "42"))
+                .andExpect(request().asyncStarted());
+
+        verify(changeFeed).subscribe(42L);
+    }
+
+    @Test
+    @DisplayName("Should return 400 for a Last-Event-ID that is not an outbox id")
+    void streamChanges_InvalidLastEventId() throws Exception {
+        mockMvc.perform(get(EssayController.BASE_PATH + "/changes")
+                        .accept(MediaType.TEXT_EVENT_STREAM)
+                        .header(EssayChangeController.LAST_EVENT_ID_HEADER, "abc"))
+                .andExpect(status().isBadRequest());
+
+        verify(changeFeed, never()).subscribe(any());
+    }
+
+    @Test
+    @DisplayName("Should return 503 when the node has no room for another subscriber")
+    void streamChanges_Full() throws Exception {
+        when(changeFeed.subscribe(null)).thenThrow(new ChangeFeedFullException(10));
+
+        mockMvc.perform(get(EssayController.BASE_PATH + "/changes").accept(MediaType.TEXT_EVENT_STREAM))
+                .andExpect(status().isServiceUnavailable());
+    }
+}
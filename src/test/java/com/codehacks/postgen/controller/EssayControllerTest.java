@@ -6,7 +6,9 @@ import com.codehacks.postgen.dto.EssayUpdateStatusRequest;
 import com.codehacks.postgen.exception.DuplicateEssayTopicException;
 import com.codehacks.postgen.exception.EssayServiceException;
 import com.codehacks.postgen.exception.GlobalExceptionHandler;
+import com.codehacks.postgen.exception.LlmCircuitOpenException;
 import com.codehacks.postgen.model.Essay;
+import com.codehacks.postgen.model.EssayRevision;
 import com.codehacks.postgen.model.EssayStatus;
 import com.codehacks.postgen.service.EssayService;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -23,13 +25,12 @@ import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.doNothing;
-import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
@@ -40,6 +41,7 @@ import static org.springframework.test.web.servlet.request.MockMvcRequestBuilder
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -84,7 +86,7 @@ class EssayControllerTest {
     void generateEssay_shouldReturnCreatedStatus() throws Exception {
         EssayRequest request = EssayRequest.builder().topic("New AI Essay").build();
 
-        when(essayService.generateAndSaveEssay(anyString())).thenReturn(sampleEssay);
+        when(essayService.generateAndSaveEssay(anyString(), any(), any())).thenReturn(sampleEssay);
 
         mockMvc.perform(post(EssayController.BASE_PATH + "/generate")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -93,7 +95,7 @@ class EssayControllerTest {
                 .andExpect(jsonPath("$.id").value(sampleEssay.getId()))
                 .andExpect(jsonPath("$.topic").value(sampleEssay.getTopic()));
 
-        verify(essayService, times(1)).generateAndSaveEssay(request.getTopic());
+        verify(essayService, times(1)).generateAndSaveEssay(request.getTopic(), null, null);
     }
 
     @Test
@@ -107,7 +109,7 @@ class EssayControllerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(content().string(org.hamcrest.Matchers.containsString("topic: Topic is required")));
 
-        verify(essayService, never()).generateAndSaveEssay(anyString());
+        verify(essayService, never()).generateAndSaveEssay(anyString(), any(), any());
     }
 
     @Test
@@ -121,7 +123,7 @@ class EssayControllerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(content().string(org.hamcrest.Matchers.containsString("topic: Topic is required")));
 
-        verify(essayService, never()).generateAndSaveEssay(anyString());
+        verify(essayService, never()).generateAndSaveEssay(anyString(), any(), any());
     }
 
     @Test
@@ -135,7 +137,7 @@ class EssayControllerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(content().string(org.hamcrest.Matchers.containsString("topic: Topic is required")));
 
-        verify(essayService, never()).generateAndSaveEssay(anyString());
+        verify(essayService, never()).generateAndSaveEssay(anyString(), any(), any());
     }
 
     @Test
@@ -148,7 +150,7 @@ class EssayControllerTest {
                         .content(malformedJson))
                 .andExpect(status().isInternalServerError());
 
-        verify(essayService, never()).generateAndSaveEssay(anyString());
+        verify(essayService, never()).generateAndSaveEssay(anyString(), any(), any());
     }
 
     @Test
@@ -162,7 +164,7 @@ class EssayControllerTest {
                 .andExpect(status().isBadRequest())
                 .andExpect(content().string(org.hamcrest.Matchers.containsString("topic: Topic is required")));
 
-        verify(essayService, never()).generateAndSaveEssay(anyString());
+        verify(essayService, never()).generateAndSaveEssay(anyString(), any(), any());
     }
 
     @Test
@@ -172,7 +174,7 @@ class EssayControllerTest {
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isInternalServerError());
 
-        verify(essayService, never()).generateAndSaveEssay(anyString());
+        verify(essayService, never()).generateAndSaveEssay(anyString(), any(), any());
     }
 
     @Test
@@ -180,7 +182,7 @@ class EssayControllerTest {
     void generateEssay_shouldReturnConflictForDuplicateTopic() throws Exception {
         EssayRequest request = EssayRequest.builder().topic("Existing Topic").build();
 
-        when(essayService.generateAndSaveEssay(anyString()))
+        when(essayService.generateAndSaveEssay(anyString(), any(), any()))
                 .thenThrow(new DuplicateEssayTopicException("An essay with the topic 'Existing Topic' already exists."));
 
         mockMvc.perform(post(EssayController.BASE_PATH + "/generate")
@@ -189,7 +191,59 @@ class EssayControllerTest {
                 .andExpect(status().isConflict())
                 .andExpect(content().string(org.hamcrest.Matchers.containsString("An essay with the topic 'Existing Topic' already exists.")));
 
-        verify(essayService, times(1)).generateAndSaveEssay(request.getTopic());
+        verify(essayService, times(1)).generateAndSaveEssay(request.getTopic(), null, null);
+    }
+
+    @Test
+    @DisplayName("POST: Should return 503 SERVICE UNAVAILABLE with Retry-After when the AI circuit is open")
+    void generateEssay_shouldReturnServiceUnavailableWhenCircuitOpen() throws Exception {
+        EssayRequest request = EssayRequest.builder().topic("Slow Provider Topic").build();
+
+        when(essayService.generateAndSaveEssay(anyString(), any(), any()))
+                .thenThrow(new LlmCircuitOpenException("AI model circuit breaker is open", 30, null));
+
+        mockMvc.perform(post(EssayController.BASE_PATH + "/generate")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "30"))
+                .andExpect(content().string(org.hamcrest.Matchers.containsString("circuit breaker is open")));
+    }
+
+    @Test
+    @DisplayName("POST: Should pass additional context and target length to the service")
+    void generateEssay_shouldForwardContextAndTargetWords() throws Exception {
+        EssayRequest request = EssayRequest.builder()
+                .topic("New AI Essay")
+                .additionalContext("Focus on healthcare.")
+                .targetWords(600)
+                .build();
+
+        when(essayService.generateAndSaveEssay(anyString(), any(), any())).thenReturn(sampleEssay);
+
+        mockMvc.perform(post(EssayController.BASE_PATH + "/generate")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated());
+
+        verify(essayService, times(1)).generateAndSaveEssay("New AI Essay", "Focus on healthcare.", 600);
+    }
+
+    @Test
+    @DisplayName("POST: Should generate and save long essay with 201 CREATED")
+    void generateLongEssay_shouldReturnCreatedStatus() throws Exception {
+        EssayRequest request = EssayRequest.builder().topic("Test Topic").build();
+
+        when(essayService.generateAndSaveLongEssay(anyString(), any())).thenReturn(sampleEssay);
+
+        mockMvc.perform(post(EssayController.BASE_PATH + "/generate/long")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(request)))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.id").value(sampleEssay.getId()));
+
+        verify(essayService, times(1)).generateAndSaveLongEssay(request.getTopic(), null);
+        verify(essayService, never()).generateAndSaveEssay(anyString(), any(), any());
     }
 
     // ========== GET /{id} TESTS ==========
@@ -272,6 +326,101 @@ class EssayControllerTest {
         verify(essayService, times(1)).getAllEssays();
     }
 
+    // ========== GET ?ids= TESTS ==========
+
+    @Test
+    @DisplayName("GET ids: Should return one entry per requested ID in order, marking missing ones")
+    void getEssaysByIds_shouldReturnEntriesInRequestedOrder() throws Exception {
+        Essay second = Essay.builder().id(2L).topic("Another").content("Content").build();
+        when(essayService.getEssaysByIds(List.of(2L, 9L, 1L))).thenReturn(Map.of(1L, sampleEssay, 2L, second));
+
+        mockMvc.perform(get(EssayController.BASE_PATH)
+                        .param("ids", "2,9,1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(3))
+                .andExpect(jsonPath("$[0].id").value(2))
+                .andExpect(jsonPath("$[0].found").value(true))
+                .andExpect(jsonPath("$[0].essay.topic").value("Another"))
+                .andExpect(jsonPath("$[1].id").value(9))
+                .andExpect(jsonPath("$[1].found").value(false))
+                .andExpect(jsonPath("$[1].essay").doesNotExist())
+                .andExpect(jsonPath("$[2].essay.id").value(sampleEssay.getId()));
+
+        verify(essayService, never()).getAllEssays();
+    }
+
+    @Test
+    @DisplayName("GET ids: Should return 400 BAD REQUEST when too many IDs are requested")
+    void getEssaysByIds_shouldReturnBadRequestWhenTooMany() throws Exception {
+        when(essayService.getEssaysByIds(any()))
+                .thenThrow(new IllegalArgumentException("At most 100 essay IDs can be fetched at once"));
+
+        mockMvc.perform(get(EssayController.BASE_PATH)
+                        .param("ids", "1,2,3")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isBadRequest());
+    }
+
+    // ========== GET /{id}/revisions TESTS ==========
+
+    @Test
+    @DisplayName("GET revisions: Should list revisions without their content with 200 OK")
+    void getRevisions_shouldReturnRevisions() throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        when(essayService.getRevisions(1L)).thenReturn(List.of(
+                EssayRevision.builder().essayId(1L).revision(1).topic("Test Topic").snapshot(true)
+                        .contentLength(37).storedBytes(37).createdAt(now).build(),
+                EssayRevision.builder().essayId(1L).revision(2).topic("Test Topic").snapshot(false)
+                        .contentLength(50).storedBytes(24).createdAt(now).build()));
+
+        mockMvc.perform(get(EssayController.BASE_PATH + "/{id}/revisions", 1L))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].revision").value(2))
+                .andExpect(jsonPath("$[1].snapshot").value(false))
+                .andExpect(jsonPath("$[1].storedBytes").value(24))
+                .andExpect(jsonPath("$[1].content").doesNotExist());
+    }
+
+    @Test
+    @DisplayName("GET revisions: Should return 404 NOT FOUND when the essay does not exist")
+    void getRevisions_shouldReturnNotFoundForUnknownEssay() throws Exception {
+        when(essayService.getRevisions(99L)).thenReturn(List.of());
+
+        mockMvc.perform(get(EssayController.BASE_PATH + "/{id}/revisions", 99L))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("GET revision: Should return one revision with its content with 200 OK")
+    void getRevision_shouldReturnRevisionWithContent() throws Exception {
+        EssayRevision revision = EssayRevision.builder()
+                .essayId(1L).revision(2).topic("Test Topic").snapshot(false)
+                .contentLength(20).storedBytes(12).createdAt(LocalDateTime.now())
+                .content("The second revision.")
+                .build();
+        when(essayService.getRevision(1L, 2)).thenReturn(Optional.of(revision));
+
+        mockMvc.perform(get(EssayController.BASE_PATH + "/{id}/revisions/{revision}", 1L, 2))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.revision").value(2))
+                .andExpect(jsonPath("$.content").value("The second revision."));
+    }
+
+    @Test
+    @DisplayName("GET revision: Should return 404 NOT FOUND for a missing or invalid revision")
+    void getRevision_shouldReturnNotFound() throws Exception {
+        when(essayService.getRevision(1L, 9)).thenReturn(Optional.empty());
+
+        mockMvc.perform(get(EssayController.BASE_PATH + "/{id}/revisions/{revision}", 1L, 9))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(get(EssayController.BASE_PATH + "/{id}/revisions/{revision}", 1L, 0))
+                .andExpect(status().isNotFound());
+
+        verify(essayService, never()).getRevision(1L, 0);
+    }
+
     // ========== PUT /{id} TESTS ==========
 
     @Test
@@ -484,13 +633,13 @@ class EssayControllerTest {
     void deleteEssay_shouldReturnNoContentOnSuccess() throws Exception {
         Long essayId = 1L;
 
-        when(essayService.getEssayById(essayId)).thenReturn(Optional.of(sampleEssay));
-        doNothing().when(essayService).deleteEssay(essayId);
+        when(essayService.deleteEssay(essayId)).thenReturn(true);
 
         mockMvc.perform(delete(EssayController.BASE_PATH + "/{id}", essayId))
                 .andExpect(status().isNoContent());
 
-        verify(essayService, times(1)).getEssayById(essayId);
+        verify(essayService, never()).essayExists(anyLong());
+        verify(essayService, never()).getEssayById(anyLong());
         verify(essayService, times(1)).deleteEssay(essayId);
     }
 
@@ -499,13 +648,14 @@ class EssayControllerTest {
     void deleteEssay_shouldReturnNotFoundWhenEssayDoesNotExist() throws Exception {
         Long essayId = 99L;
 
-        when(essayService.getEssayById(essayId)).thenReturn(Optional.empty());
+        when(essayService.deleteEssay(essayId)).thenReturn(false);
 
         mockMvc.perform(delete(EssayController.BASE_PATH + "/{id}", essayId))
                 .andExpect(status().isNotFound());
 
-        verify(essayService, times(1)).getEssayById(essayId);
-        verify(essayService, never()).deleteEssay(anyLong());
+        verify(essayService, never()).essayExists(anyLong());
+        verify(essayService, never()).getEssayById(anyLong());
+        verify(essayService, times(1)).deleteEssay(essayId);
     }
 
     @Test
@@ -513,15 +663,13 @@ class EssayControllerTest {
     void deleteEssay_shouldReturnInternalServerErrorOnServiceException() throws Exception {
         Long essayId = 1L;
 
-        when(essayService.getEssayById(essayId)).thenReturn(Optional.of(sampleEssay));
-
-        doThrow(new EssayServiceException("Database error during deletion")).when(essayService).deleteEssay(essayId);
+        when(essayService.deleteEssay(essayId)).thenThrow(new EssayServiceException("Database error during deletion"));
 
         mockMvc.perform(delete(EssayController.BASE_PATH + "/{id}", essayId))
                 .andExpect(status().isInternalServerError())
                 .andExpect(content().string(org.hamcrest.Matchers.containsString("An internal essay service error occurred: Database error during deletion")));
 
-        verify(essayService, times(1)).getEssayById(essayId);
+        verify(essayService, never()).getEssayById(anyLong());
         verify(essayService, times(1)).deleteEssay(essayId);
     }
 
@@ -531,6 +679,7 @@ class EssayControllerTest {
         mockMvc.perform(delete(EssayController.BASE_PATH + "/{id}", -1L))
                 .andExpect(status().isNotFound());
 
+        verify(essayService, never()).essayExists(anyLong());
         verify(essayService, never()).getEssayById(anyLong());
         verify(essayService, never()).deleteEssay(anyLong());
     }
@@ -541,6 +690,7 @@ class EssayControllerTest {
         mockMvc.perform(delete(EssayController.BASE_PATH + "/{id}", 0L))
                 .andExpect(status().isNotFound());
 
+        verify(essayService, never()).essayExists(anyLong());
         verify(essayService, never()).getEssayById(anyLong());
         verify(essayService, never()).deleteEssay(anyLong());
     }
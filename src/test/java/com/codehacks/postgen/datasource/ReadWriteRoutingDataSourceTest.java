@@ -0,0 +1,124 @@
+package com.codehacks.postgen.datasource;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ReadWriteRoutingDataSourceTest {
+
+    @Mock
+    private DataSource primary;
+
+    @Mock
+    private DataSource replica;
+
+    @Mock
+    private JdbcOperations replicaJdbc;
+
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection replicaConnection = mock(Connection.class);
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReplicaLagMonitor lagMonitor;
+    private ReadWriteRoutingDataSource routing;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        lenient().when(primary.getConnection()).thenReturn(primaryConnection);
+        lenient().when(replica.getConnection()).thenReturn(replicaConnection);
+        meterRegistry = new SimpleMeterRegistry();
+        lagMonitor = new ReplicaLagMonitor(replicaJdbc, Duration.ofSeconds(5), meterRegistry);
+        routing = new ReadWriteRoutingDataSource(primary, replica, lagMonitor, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+    }
+
+    @Test
+    @DisplayName("Should send read-only transactions to a replica that is caught up")
+    void readOnly_UsesReplica() throws Exception {
+        replicaLag(0.5);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(replicaConnection, routing.getConnection());
+        assertEquals(1.0, meterRegistry.get("essay.db.route")
+                .tags("target", "replica", "read_only", "true").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should send writes to the primary")
+    void readWrite_UsesPrimary() throws Exception {
+        replicaLag(0.0);
+
+        assertSame(primaryConnection, routing.getConnection());
+        assertEquals(1.0, meterRegistry.get("essay.db.route")
+                .tags("target", "primary", "read_only", "false").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should read from the primary while the replica lags too far behind")
+    void readOnly_FallsBackWhenLagging() throws Exception {
+        replicaLag(12.0);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(primaryConnection, routing.getConnection());
+        assertEquals(12.0, meterRegistry.get("essay.db.replica.lag").gauge().value());
+        assertEquals(1.0, meterRegistry.get("essay.db.route")
+                .tags("target", "primary", "read_only", "true").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should read from the primary while the replica is unreachable, and go back once it recovers")
+    void readOnly_FallsBackWhenUnreachable() throws Exception {
+        when(replicaJdbc.queryForObject(eq(ReplicaLagMonitor.LAG_SQL), eq(Double.class)))
+                .thenThrow(new DataAccessResourceFailureException("Connection refused"))
+                .thenReturn(1.0);
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        lagMonitor.checkLag();
+        assertFalse(lagMonitor.isReplicaUsable());
+        assertTrue(Double.isNaN(lagMonitor.getLagSeconds()));
+        assertSame(primaryConnection, routing.getConnection());
+
+        lagMonitor.checkLag();
+        assertTrue(lagMonitor.isReplicaUsable());
+        assertSame(replicaConnection, routing.getConnection());
+    }
+
+    @Test
+    @DisplayName("Should not use the replica before its lag has been checked")
+    void readOnly_PrimaryBeforeFirstCheck() throws Exception {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertSame(primaryConnection, routing.getConnection());
+    }
+
+    private void replicaLag(double seconds) {
+        when(replicaJdbc.queryForObject(eq(ReplicaLagMonitor.LAG_SQL), eq(Double.class))).thenReturn(seconds);
+        lagMonitor.checkLag();
+    }
+}
@@ -0,0 +1,162 @@
+package com.codehacks.postgen.idempotency;
+
+import com.codehacks.postgen.config.IdempotencyProperties;
+import com.codehacks.postgen.repository.IdempotencyKeyStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotencyFilterTest {
+
+    @Mock
+    private IdempotencyKeyStore store;
+
+    private IdempotencyFilter filter;
+    private List<String> bodiesSeen;
+    private int responseStatus;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(store.claim(anyString(), anyString(), any(), any(), any())).thenReturn(true);
+        lenient().when(store.complete(anyString(), any(), any())).thenReturn(true);
+        IdempotentRequests requests = new IdempotentRequests(store, new IdempotencyProperties(), new SimpleMeterRegistry());
+        filter = new IdempotencyFilter(requests, "Idempotency-Key", "X-API-Key");
+        bodiesSeen = new ArrayList<>();
+        responseStatus = 201;
+    }
+
+    @Test
+    @DisplayName("Should run a request once and replay its response to a retry")
+    void retry_ReplaysResponse() throws Exception {
+        MockHttpServletResponse first = send(post("abc", "{\"topic\":\"Tides\"}"));
+        MockHttpServletResponse retry = send(post("abc", "{\"topic\":\"Tides\"}"));
+
+        assertEquals(List.of("{\"topic\":\"Tides\"}"), bodiesSeen);
+        assertEquals(201, first.getStatus());
+        assertNull(first.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+        assertEquals(201, retry.getStatus());
+        assertEquals("{\"id\":1}", retry.getContentAsString());
+        assertEquals(first.getContentType(), retry.getContentType());
+        assertEquals("true", retry.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    @DisplayName("Should return 422 when a key is reused for a different body")
+    void differentBody_Rejected() throws Exception {
+        send(post("abc", "{\"topic\":\"Tides\"}"));
+        MockHttpServletResponse other = send(post("abc", "{\"topic\":\"Glaciers\"}"));
+
+        assertEquals(422, other.getStatus());
+        assertEquals(1, bodiesSeen.size());
+    }
+
+    @Test
+    @DisplayName("Should keep keys of different API keys apart")
+    void differentApiKeys_Independent() throws Exception {
+        MockHttpServletRequest first = post("abc", "{\"topic\":\"Tides\"}");
+        first.addHeader("X-API-Key", "client-1");
+        MockHttpServletRequest second = post("abc", "{\"topic\":\"Tides\"}");
+        second.addHeader("X-API-Key", "client-2");
+
+        send(first);
+        MockHttpServletResponse response = send(second);
+
+        assertEquals(2, bodiesSeen.size());
+        assertNull(response.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    @DisplayName("Should keep keys of anonymous callers at different addresses apart")
+    void differentAddresses_Independent() throws Exception {
+        MockHttpServletRequest first = post("abc", "{\"topic\":\"Tides\"}");
+        first.setRemoteAddr("10.0.0.1");
+        MockHttpServletRequest second = post("abc", "{\"topic\":\"Tides\"}");
+        second.setRemoteAddr("10.0.0.2");
+
+        send(first);
+        MockHttpServletResponse response = send(second);
+
+        assertEquals(2, bodiesSeen.size());
+        assertNull(response.getHeader(IdempotencyFilter.REPLAYED_HEADER));
+    }
+
+    @Test
+    @DisplayName("Should not store a server error, so a retry runs the request again")
+    void serverError_NotStored() throws Exception {
+        responseStatus = 503;
+        send(post("abc", "{\"topic\":\"Tides\"}"));
+        responseStatus = 201;
+        MockHttpServletResponse retry = send(post("abc", "{\"topic\":\"Tides\"}"));
+
+        assertEquals(2, bodiesSeen.size());
+        assertEquals(201, retry.getStatus());
+        verify(store).release(anyString(), any());
+    }
+
+    @Test
+    @DisplayName("Should pass requests without a key and GET requests straight through")
+    void withoutKey_PassesThrough() throws Exception {
+        MockHttpServletRequest get = new MockHttpServletRequest("GET", "/api/v1/essays/1");
+        get.addHeader("Idempotency-Key", "abc");
+
+        send(post(null, "{\"topic\":\"Tides\"}"));
+        send(get);
+
+        assertEquals(2, bodiesSeen.size());
+        verifyNoInteractions(store);
+    }
+
+    @Test
+    @DisplayName("Should return 400 for an empty or oversized key")
+    void invalidKey_Rejected() throws Exception {
+        assertEquals(400, send(post(" ", "{}")).getStatus());
+        assertEquals(400, send(post("k".repeat(IdempotencyFilter.MAX_KEY_LENGTH + 1), "{}")).getStatus());
+        assertEquals(0, bodiesSeen.size());
+        verify(store, never()).claim(anyString(), anyString(), any(), any(), any());
+    }
+
+    private MockHttpServletResponse send(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (req, res) -> {
+            bodiesSeen.add(new String(req.getInputStream().readAllBytes(), StandardCharsets.UTF_8));
+            HttpServletResponse httpResponse = (HttpServletResponse) res;
+            httpResponse.setStatus(responseStatus);
+            httpResponse.setContentType("application/json");
+            httpResponse.getWriter().write("{\"id\":1}");
+        };
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static MockHttpServletRequest post(String idempotencyKey, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/v1/essays/generate");
+        if (idempotencyKey != null) {
+            request.addHeader("Idempotency-Key", idempotencyKey);
+        }
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
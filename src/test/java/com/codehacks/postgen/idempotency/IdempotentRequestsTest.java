@@ -0,0 +1,212 @@
+package com.codehacks.postgen.idempotency;
+
+import com.codehacks.postgen.config.IdempotencyProperties;
+import com.codehacks.postgen.idempotency.IdempotentRequests.Decision;
+import com.codehacks.postgen.repository.IdempotencyKeyStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class IdempotentRequestsTest {
+
+    private static final byte[] BODY = "{\"id\":1}".getBytes(StandardCharsets.UTF_8);
+
+    @Mock
+    private IdempotencyKeyStore store;
+
+    private IdempotencyProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private IdempotentRequests requests;
+
+    @BeforeEach
+    void setUp() {
+        properties = new IdempotencyProperties();
+        properties.setMaxWait(Duration.ofMillis(200));
+        properties.setPollInterval(Duration.ofMillis(20));
+        meterRegistry = new SimpleMeterRegistry();
+        requests = new IdempotentRequests(store, properties, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should run the first request and replay its response from memory to a retry")
+    void begin_ExecutesThenReplaysFromMemory() {
+        when(store.claim(eq("key"), eq("hash"), any(), any(), any())).thenReturn(true);
+        when(store.complete(eq("key"), any(), any())).thenReturn(true);
+
+        assertEquals(Decision.Kind.EXECUTE, requests.begin("key", "hash").kind());
+        requests.complete("key", "hash", 201, "application/json", null, BODY);
+        Decision retry = requests.begin("key", "hash");
+
+        assertEquals(Decision.Kind.REPLAY, retry.kind());
+        assertEquals(201, retry.response().status());
+        assertArrayEquals(BODY, retry.response().body());
+        verify(store, times(1)).claim(anyString(), anyString(), any(), any(), any());
+        verify(store, never()).find(anyString());
+        assertEquals(1.0, meterRegistry.get("essay.idempotency.requests").tag("outcome", "replayed").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should reject a key reused for a different request")
+    void begin_MismatchedRequest() {
+        when(store.claim(eq("key"), eq("hash"), any(), any(), any())).thenReturn(true);
+        when(store.complete(eq("key"), any(), any())).thenReturn(true);
+        requests.begin("key", "hash");
+        requests.complete("key", "hash", 201, "application/json", null, BODY);
+
+        assertEquals(Decision.Kind.MISMATCH, requests.begin("key", "other-hash").kind());
+    }
+
+    @Test
+    @DisplayName("Should replay a response stored by another node and keep it in memory")
+    void begin_ReplaysFromDatabase() {
+        when(store.claim(eq("key"), eq("hash"), any(), any(), any())).thenReturn(false);
+        when(store.find("key")).thenReturn(Optional.of(completed("hash")));
+
+        assertEquals(Decision.Kind.REPLAY, requests.begin("key", "hash").kind());
+        assertEquals(Decision.Kind.REPLAY, requests.begin("key", "hash").kind());
+
+        verify(store, times(1)).find("key");
+    }
+
+    @Test
+    @DisplayName("Should let a concurrent duplicate wait for the running request's response")
+    void begin_DuplicateWaitsForRunningRequest() throws Exception {
+        properties.setMaxWait(Duration.ofSeconds(5));
+        when(store.claim(eq("key"), eq("hash"), any(), any(), any())).thenReturn(true);
+        when(store.complete(eq("key"), any(), any())).thenReturn(true);
+        assertEquals(Decision.Kind.EXECUTE, requests.begin("key", "hash").kind());
+
+        CompletableFuture<Decision> duplicate = CompletableFuture.supplyAsync(() -> requests.begin("key", "hash"));
+        Thread.sleep(50);
+        requests.complete("key", "hash", 201, "application/json", null, BODY);
+
+        Decision decision = duplicate.get(5, TimeUnit.SECONDS);
+        assertEquals(Decision.Kind.REPLAY, decision.kind());
+        assertArrayEquals(BODY, decision.response().body());
+        verify(store, times(1)).claim(anyString(), anyString(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should give up the key when the request is abandoned so a retry runs it again")
+    void abandon_ReleasesKey() {
+        when(store.claim(eq("key"), eq("hash"), any(), any(), any())).thenReturn(true);
+
+        requests.begin("key", "hash");
+        requests.abandon("key");
+
+        verify(store).release(eq("key"), any());
+        assertEquals(Decision.Kind.EXECUTE, requests.begin("key", "hash").kind());
+    }
+
+    @Test
+    @DisplayName("Should answer in progress when the request runs on another node past the wait limit")
+    void begin_InProgressElsewhere() {
+        when(store.claim(eq("key"), eq("hash"), any(), any(), any())).thenReturn(false);
+        when(store.find("key")).thenReturn(Optional.of(new IdempotencyRecord("hash", null, null, null, null,
+                Instant.now().plusSeconds(60))));
+
+        assertEquals(Decision.Kind.IN_PROGRESS, requests.begin("key", "hash").kind());
+        assertEquals(1.0, meterRegistry.get("essay.idempotency.requests").tag("outcome", "in_progress").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should still replay a response that could not be stored in the database")
+    void complete_StoreFailureStillCaches() {
+        when(store.claim(eq("key"), eq("hash"), any(), any(), any())).thenReturn(true);
+        when(store.complete(eq("key"), any(), any())).thenThrow(new IllegalStateException("Connection refused"));
+
+        requests.begin("key", "hash");
+        requests.complete("key", "hash", 201, "application/json", null, BODY);
+
+        assertEquals(Decision.Kind.REPLAY, requests.begin("key", "hash").kind());
+    }
+
+    @Test
+    @DisplayName("Should neither cache nor hand out a response whose key was taken over by another node")
+    void complete_TakenOverNotReplayed() throws Exception {
+        properties.setMaxWait(Duration.ofSeconds(5));
+        when(store.claim(eq("key"), eq("hash"), any(), any(), any())).thenReturn(true, false);
+        when(store.complete(eq("key"), any(), any())).thenReturn(false);
+        when(store.find("key")).thenReturn(Optional.of(completed("hash")));
+        assertEquals(Decision.Kind.EXECUTE, requests.begin("key", "hash").kind());
+
+        CompletableFuture<Decision> duplicate = CompletableFuture.supplyAsync(() -> requests.begin("key", "hash"));
+        Thread.sleep(50);
+        requests.complete("key", "hash", 200, "text/plain", null, "stale".getBytes(StandardCharsets.UTF_8));
+
+        Decision decision = duplicate.get(5, TimeUnit.SECONDS);
+        assertEquals(Decision.Kind.REPLAY, decision.kind());
+        assertArrayEquals(BODY, decision.response().body());
+        verify(store).find("key");
+    }
+
+    @Test
+    @DisplayName("Should complete and release a key with the token it was claimed with")
+    void complete_UsesClaimToken() {
+        ArgumentCaptor<UUID> claimed = ArgumentCaptor.forClass(UUID.class);
+        when(store.claim(anyString(), eq("hash"), claimed.capture(), any(), any())).thenReturn(true);
+        when(store.complete(eq("key"), any(), any())).thenReturn(true);
+
+        requests.begin("key", "hash");
+        requests.complete("key", "hash", 201, "application/json", null, BODY);
+        requests.begin("other", "hash");
+        requests.abandon("other");
+
+        verify(store).complete(eq("key"), eq(claimed.getAllValues().get(0)), any());
+        verify(store).release("other", claimed.getAllValues().get(1));
+    }
+
+    @Test
+    @DisplayName("Should renew the claims of running requests only")
+    void renewClaims_RenewsRunningRequests() {
+        ArgumentCaptor<UUID> claimed = ArgumentCaptor.forClass(UUID.class);
+        when(store.claim(anyString(), eq("hash"), claimed.capture(), any(), any())).thenReturn(true);
+        when(store.complete(eq("done"), any(), any())).thenReturn(true);
+        when(store.renew(any(), any())).thenReturn(List.of());
+        requests.begin("running", "hash");
+        requests.begin("done", "hash");
+        requests.complete("done", "hash", 201, "application/json", null, BODY);
+
+        requests.renewClaims();
+
+        verify(store).renew(Map.of("running", claimed.getAllValues().get(0)), properties.getLockTimeout());
+    }
+
+    @Test
+    @DisplayName("Should not touch the store when no request is running")
+    void renewClaims_NothingRunning() {
+        requests.renewClaims();
+
+        verify(store, never()).renew(any(), any());
+    }
+
+    private static IdempotencyRecord completed(String requestHash) {
+        return new IdempotencyRecord(requestHash, 201, "application/json", null, BODY, Instant.now().plusSeconds(60));
+    }
+}
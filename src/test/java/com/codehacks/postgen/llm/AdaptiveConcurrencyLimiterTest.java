@@ -0,0 +1,146 @@
+package com.codehacks.postgen.llm;
+
+import com.codehacks.postgen.config.LlmProperties;
+import com.codehacks.postgen.exception.LlmUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private LlmProperties.Concurrency settings;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        settings = new LlmProperties.Concurrency();
+        settings.setInitialLimit(4);
+        settings.setMinLimit(1);
+        settings.setMaxLimit(10);
+        settings.setBackoffRatio(0.5);
+        settings.setLatencyTolerance(1_000_000.0);
+        settings.setMaxQueueSize(0);
+        settings.setMaxQueueWait(Duration.ZERO);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("Should shrink the limit when the provider throttles")
+    void execute_ShrinksLimitOnThrottle() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(settings, meterRegistry);
+
+        assertThrows(HttpClientErrorException.class, () -> limiter.execute(() -> {
+            throw new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS);
+        }));
+
+        assertEquals(2, limiter.getLimit());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    @DisplayName("Should not shrink the limit for non-overload failures")
+    void execute_KeepsLimitOnOtherFailures() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(settings, meterRegistry);
+
+        assertThrows(IllegalStateException.class, () -> limiter.execute(() -> {
+            throw new IllegalStateException("bad output");
+        }));
+
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    @DisplayName("Should grow the limit while it is fully used and latency stays flat")
+    void execute_GrowsLimitWhenSaturated() {
+        settings.setInitialLimit(1);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(settings, meterRegistry);
+
+        limiter.execute(() -> "ok");
+
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    @DisplayName("Should keep the limit under steady load when answers of different lengths take different times")
+    void execute_KeepsLimitForDifferentLengths() {
+        settings.setLatencyTolerance(2.0);
+        settings.setMaxLimit(4);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(settings, meterRegistry);
+
+        for (int i = 0; i < 5; i++) {
+            // A short outline, a short essay and a long one, each a fixed 20ms plus 1ms per 100 characters
+            timedCall(limiter, 200);
+            timedCall(limiter, 1_500);
+            timedCall(limiter, 9_000);
+        }
+
+        assertEquals(4, limiter.getLimit());
+    }
+
+    @Test
+    @DisplayName("Should shrink the limit when calls of the same kind and length slow down")
+    void execute_ShrinksLimitOnSlowdown() {
+        settings.setLatencyTolerance(2.0);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(settings, meterRegistry);
+        String answer = "x".repeat(1_000);
+
+        limiter.execute("model", () -> answer);
+        limiter.execute("model", () -> sleepThen(100, answer));
+
+        assertEquals(2, limiter.getLimit());
+    }
+
+    @Test
+    @DisplayName("Should shed calls once the limit is reached and the queue is full")
+    void execute_ShedsWhenAtCapacity() throws Exception {
+        settings.setInitialLimit(1);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(settings, meterRegistry);
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        CompletableFuture<String> blocking = CompletableFuture.supplyAsync(() -> limiter.execute(() -> {
+            started.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "done";
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        LlmUnavailableException exception = assertThrows(LlmUnavailableException.class,
+                () -> limiter.execute(() -> "second"));
+        assertEquals(1, exception.getRetryAfterSeconds());
+        assertEquals(1.0, meterRegistry.get("essay.llm.concurrency.shed").counter().count());
+
+        release.countDown();
+        assertEquals("done", blocking.get(5, TimeUnit.SECONDS));
+    }
+
+    private static void timedCall(AdaptiveConcurrencyLimiter limiter, int chars) {
+        String answer = "x".repeat(chars);
+        limiter.execute("model", () -> sleepThen(20 + chars / 100, answer));
+    }
+
+    private static String sleepThen(long millis, String answer) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return answer;
+    }
+}
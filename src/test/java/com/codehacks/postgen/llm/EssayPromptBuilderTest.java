@@ -0,0 +1,71 @@
+package com.codehacks.postgen.llm;
+
+import com.codehacks.postgen.config.LlmProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EssayPromptBuilderTest {
+
+    private LlmProperties.Prompt settings;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        settings = new LlmProperties.Prompt();
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("Should build the plain topic prompt when there is no context or target length")
+    void essayPrompt_TopicOnly() {
+        EssayPromptBuilder builder = new EssayPromptBuilder(settings, meterRegistry);
+
+        assertEquals("Write a comprehensive essay on the topic: Oceans", builder.essayPrompt("Oceans", null, null));
+        assertEquals(1, meterRegistry.get("essay.llm.prompt.tokens").summary().count());
+    }
+
+    @Test
+    @DisplayName("Should include the target length and the additional context")
+    void essayPrompt_WithContextAndLength() {
+        EssayPromptBuilder builder = new EssayPromptBuilder(settings, meterRegistry);
+
+        String prompt = builder.essayPrompt("Oceans", "Focus on coral reefs.", 600);
+
+        assertTrue(prompt.startsWith("Write a comprehensive essay on the topic: Oceans"));
+        assertTrue(prompt.contains("Aim for about 600 words."));
+        assertTrue(prompt.endsWith("Focus on coral reefs."));
+        assertEquals(1.0, meterRegistry.get("essay.llm.prompt.context").tag("outcome", "included").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should trim context to whole sentences that fit the token budget")
+    void essayPrompt_TrimsContextToBudget() {
+        settings.setMaxInputTokens(60);
+        EssayPromptBuilder builder = new EssayPromptBuilder(settings, meterRegistry);
+        String context = "Focus on coral reefs. Mention " + "every ocean current and ".repeat(20) + "their history.";
+
+        String prompt = builder.essayPrompt("Oceans", context, null);
+
+        assertTrue(prompt.endsWith("Focus on coral reefs."));
+        assertTrue(builder.estimateTokens(prompt) <= 60);
+        assertEquals(1.0, meterRegistry.get("essay.llm.prompt.context").tag("outcome", "trimmed").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should leave the context out when too little budget remains")
+    void essayPrompt_DropsContextWithoutBudget() {
+        settings.setMaxInputTokens(20);
+        EssayPromptBuilder builder = new EssayPromptBuilder(settings, meterRegistry);
+
+        String prompt = builder.essayPrompt("Oceans", "Focus on coral reefs.", null);
+
+        assertFalse(prompt.contains("coral"));
+        assertEquals(1.0, meterRegistry.get("essay.llm.prompt.context").tag("outcome", "dropped").counter().count());
+    }
+}
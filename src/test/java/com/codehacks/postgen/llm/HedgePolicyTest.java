@@ -0,0 +1,82 @@
+package com.codehacks.postgen.llm;
+
+import com.codehacks.postgen.config.LlmProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HedgePolicyTest {
+
+    private LlmProperties.Hedging settings;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        settings = new LlmProperties.Hedging();
+        settings.setPercentile(0.9);
+        settings.setWindowSize(10);
+        settings.setMinSamples(5);
+        settings.setMinDelay(Duration.ZERO);
+        settings.setMaxHedgesPerMinute(2);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("Should not hedge until enough latencies have been observed")
+    void hedgeDelay_WarmsUpFirst() {
+        HedgePolicy policy = new HedgePolicy(settings, meterRegistry);
+        for (int i = 0; i < 4; i++) {
+            policy.recordLatency(100);
+        }
+
+        assertEquals(-1, policy.hedgeDelayMillis());
+    }
+
+    @Test
+    @DisplayName("Should hedge at the configured percentile of the most recent latencies")
+    void hedgeDelay_UsesRecentPercentile() {
+        HedgePolicy policy = new HedgePolicy(settings, meterRegistry);
+        for (int i = 1; i <= 10; i++) {
+            policy.recordLatency(i * 1000L);
+        }
+        assertEquals(9000, policy.hedgeDelayMillis());
+
+        // Older samples roll out of the window.
+        for (int i = 1; i <= 10; i++) {
+            policy.recordLatency(i * 10L);
+        }
+        assertEquals(90, policy.hedgeDelayMillis());
+    }
+
+    @Test
+    @DisplayName("Should never hedge sooner than the minimum delay")
+    void hedgeDelay_RespectsMinimum() {
+        settings.setMinDelay(Duration.ofMillis(500));
+        HedgePolicy policy = new HedgePolicy(settings, meterRegistry);
+        for (int i = 0; i < 10; i++) {
+            policy.recordLatency(10);
+        }
+
+        assertEquals(500, policy.hedgeDelayMillis());
+    }
+
+    @Test
+    @DisplayName("Should stop firing hedges once the per-minute budget is spent")
+    void tryFire_RespectsBudget() {
+        HedgePolicy policy = new HedgePolicy(settings, meterRegistry);
+
+        assertTrue(policy.tryFire());
+        assertTrue(policy.tryFire());
+        assertFalse(policy.tryFire());
+
+        assertEquals(2.0, meterRegistry.get("essay.llm.hedges").tag("outcome", "fired").counter().count());
+        assertEquals(1.0, meterRegistry.get("essay.llm.hedges").tag("outcome", "budget_exhausted").counter().count());
+    }
+}
@@ -0,0 +1,137 @@
+package com.codehacks.postgen.llm;
+
+import com.codehacks.postgen.config.LlmProperties;
+import com.codehacks.postgen.exception.LlmCircuitOpenException;
+import com.codehacks.postgen.exception.LlmTimeoutException;
+import com.codehacks.postgen.exception.LlmUnavailableException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.timelimiter.TimeLimiter;
+import io.github.resilience4j.timelimiter.TimeLimiterConfig;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LlmCallExecutorTest {
+
+    private ExecutorService callThreadPool;
+    private CircuitBreaker circuitBreaker;
+    private LlmCallExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        callThreadPool = Executors.newCachedThreadPool();
+        circuitBreaker = CircuitBreaker.of("llm", CircuitBreakerConfig.custom()
+                .waitDurationInOpenState(Duration.ofSeconds(30))
+                .build());
+        TimeLimiter timeLimiter = TimeLimiter.of("llm", TimeLimiterConfig.custom()
+                .timeoutDuration(Duration.ofMillis(100))
+                .cancelRunningFuture(true)
+                .build());
+        executor = new LlmCallExecutor(null, null, circuitBreaker, Bulkhead.ofDefaults("llm"), timeLimiter,
+                callThreadPool);
+    }
+
+    @AfterEach
+    void tearDown() {
+        callThreadPool.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should answer as unavailable when every pool thread is taken by a running call")
+    void execute_UnavailableWhenPoolFull() throws Exception {
+        ExecutorService singleThread = new ThreadPoolExecutor(0, 1, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(), new ThreadPoolExecutor.AbortPolicy());
+        CountDownLatch release = new CountDownLatch(1);
+        try {
+            singleThread.submit(() -> release.await(5, TimeUnit.SECONDS));
+            LlmCallExecutor full = new LlmCallExecutor(null, null, circuitBreaker, Bulkhead.ofDefaults("llm"),
+                    TimeLimiter.ofDefaults("llm"), singleThread);
+
+            LlmUnavailableException exception = assertThrows(LlmUnavailableException.class,
+                    () -> full.execute(() -> "essay"));
+            assertEquals(1, exception.getRetryAfterSeconds());
+        } finally {
+            release.countDown();
+            singleThread.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("Should return the model's result when every protection lets the call through")
+    void execute_ReturnsResult() {
+        assertEquals("essay", executor.execute(() -> "essay"));
+    }
+
+    @Test
+    @DisplayName("Should fail fast with the open-state wait as Retry-After when the circuit is open")
+    void execute_FailsFastWhenCircuitOpen() {
+        circuitBreaker.transitionToOpenState();
+
+        LlmCircuitOpenException exception = assertThrows(LlmCircuitOpenException.class,
+                () -> executor.execute(() -> "never called"));
+
+        assertEquals(30, exception.getRetryAfterSeconds());
+    }
+
+    @Test
+    @DisplayName("Should give up on a call that exceeds the time limit and record it as a failure")
+    void execute_TimesOutSlowCalls() {
+        assertThrows(LlmTimeoutException.class, () -> executor.execute(() -> {
+            try {
+                Thread.sleep(5_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "too late";
+        }));
+
+        assertEquals(1, circuitBreaker.getMetrics().getNumberOfFailedCalls());
+    }
+
+    @Test
+    @DisplayName("Should propagate provider errors unchanged")
+    void execute_PropagatesProviderErrors() {
+        assertThrows(IllegalStateException.class, () -> executor.execute(() -> {
+            throw new IllegalStateException("provider error");
+        }));
+    }
+
+    @Test
+    @DisplayName("Should only admit an extra attempt while both the limiter and the bulkhead have room")
+    void tryAcquireExtraAttempt_RespectsLimiterAndBulkhead() {
+        LlmProperties.Concurrency settings = new LlmProperties.Concurrency();
+        settings.setInitialLimit(2);
+        settings.setMinLimit(1);
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(settings, new SimpleMeterRegistry());
+        Bulkhead bulkhead = Bulkhead.of("llm", BulkheadConfig.custom().maxConcurrentCalls(1).build());
+        LlmCallExecutor gated = new LlmCallExecutor(null, limiter, circuitBreaker, bulkhead,
+                TimeLimiter.ofDefaults("llm"), callThreadPool);
+
+        assertTrue(gated.tryAcquireExtraAttempt());
+        assertFalse(gated.tryAcquireExtraAttempt());
+        assertEquals(1, limiter.getInFlight());
+
+        gated.releaseExtraAttempt();
+
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(1, bulkhead.getMetrics().getAvailableConcurrentCalls());
+    }
+}
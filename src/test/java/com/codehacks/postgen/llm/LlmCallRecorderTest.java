@@ -0,0 +1,105 @@
+package com.codehacks.postgen.llm;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import reactor.core.publisher.Flux;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LlmCallRecorderTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private LlmCallRecorder recorder;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        recorder = new LlmCallRecorder(meterRegistry, ObservationRegistry.NOOP);
+    }
+
+    @Test
+    @DisplayName("Should record latency and tokens of a call and add them to the essay's usage")
+    void call_RecordsMetricsAndUsage() {
+        LlmUsage usage = new LlmUsage();
+
+        String text = recorder.call(() -> response("An essay.", "gemini-2.0-flash", 40, 200), usage);
+
+        assertEquals("An essay.", text);
+        assertEquals("gemini-2.0-flash", usage.getModel());
+        assertEquals(40, usage.getPromptTokens());
+        assertEquals(200, usage.getCompletionTokens());
+        assertEquals(1, meterRegistry.get("essay.llm.latency")
+                .tags("model", "gemini-2.0-flash", "mode", "call").timer().count());
+        assertEquals(200.0, meterRegistry.get("essay.llm.tokens")
+                .tags("model", "gemini-2.0-flash", "type", "completion").summary().totalAmount());
+        assertEquals(1, meterRegistry.get("essay.llm.throughput").summary().count());
+    }
+
+    @Test
+    @DisplayName("Should add up tokens over several calls and keep the model that answered last")
+    void usage_AddsUpAcrossCalls() {
+        LlmUsage usage = new LlmUsage();
+
+        recorder.call(() -> response("Draft.", "gemini-1.5-flash", 40, 100), usage);
+        recorder.call(() -> response("Final.", "gemini-1.5-pro", 40, 300), usage);
+
+        assertEquals("gemini-1.5-pro", usage.getModel());
+        assertEquals(80, usage.getPromptTokens());
+        assertEquals(400, usage.getCompletionTokens());
+    }
+
+    @Test
+    @DisplayName("Should leave token counts empty when the provider reports none")
+    void call_WithoutUsageMetadata() {
+        LlmUsage usage = new LlmUsage();
+
+        String text = recorder.call(
+                () -> new ChatResponse(List.of(new Generation(new AssistantMessage("Text.")))), usage);
+
+        assertEquals("Text.", text);
+        assertNull(usage.getModel());
+        assertNull(usage.getPromptTokens());
+        assertNull(usage.getCompletionTokens());
+        assertEquals(1, meterRegistry.get("essay.llm.latency").tags("model", "unknown").timer().count());
+    }
+
+    @Test
+    @DisplayName("Should record time to first token and take usage from the last streamed chunk")
+    void stream_RecordsTimeToFirstTokenAndUsage() {
+        LlmUsage usage = new LlmUsage();
+        Flux<ChatResponse> chunks = Flux.just(
+                new ChatResponse(List.of(new Generation(new AssistantMessage("Hello ")))),
+                response("world.", "gemini-2.0-flash", 10, 2));
+
+        String text = String.join("", recorder.stream(chunks, usage).collectList().block());
+
+        assertEquals("Hello world.", text);
+        assertEquals(2, usage.getCompletionTokens());
+        assertEquals(1, meterRegistry.get("essay.llm.ttft").tags("model", "gemini-2.0-flash").timer().count());
+        assertEquals(1, meterRegistry.get("essay.llm.latency")
+                .tags("model", "gemini-2.0-flash", "mode", "stream").timer().count());
+    }
+
+    @Test
+    @DisplayName("Should return null text for a response without generations")
+    void text_NullSafe() {
+        assertNull(LlmCallRecorder.text(null));
+        assertNull(LlmCallRecorder.text(new ChatResponse(List.of())));
+    }
+
+    private static ChatResponse response(String text, String model, int promptTokens, int completionTokens) {
+        return new ChatResponse(List.of(new Generation(new AssistantMessage(text))),
+                ChatResponseMetadata.builder().model(model).usage(new DefaultUsage(promptTokens, completionTokens)).build());
+    }
+}
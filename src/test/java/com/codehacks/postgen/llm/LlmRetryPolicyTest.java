@@ -0,0 +1,100 @@
+package com.codehacks.postgen.llm;
+
+import com.codehacks.postgen.config.LlmProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LlmRetryPolicyTest {
+
+    private LlmProperties.Retry settings;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        settings = new LlmProperties.Retry();
+        settings.setMaxAttempts(3);
+        settings.setBaseDelay(Duration.ofMillis(1));
+        settings.setMaxDelay(Duration.ofMillis(5));
+        settings.setBudgetRatio(1.0);
+        settings.setMinRetriesPerSecond(0.0);
+        settings.setMaxBudget(10);
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @Test
+    @DisplayName("Should retry a provider error and return the later success")
+    void execute_RetriesServerErrors() {
+        LlmRetryPolicy policy = new LlmRetryPolicy(settings, meterRegistry);
+        AtomicInteger attempts = new AtomicInteger();
+
+        String result = policy.execute(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE);
+            }
+            return "essay";
+        });
+
+        assertEquals("essay", result);
+        assertEquals(2, attempts.get());
+        assertEquals(1.0, meterRegistry.get("essay.llm.retries").tag("outcome", "retried").counter().count());
+        assertEquals(1.0, meterRegistry.get("essay.llm.retries").tag("outcome", "recovered").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should not retry failures that are not transient")
+    void execute_DoesNotRetryClientErrors() {
+        LlmRetryPolicy policy = new LlmRetryPolicy(settings, meterRegistry);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(HttpClientErrorException.class, () -> policy.execute(() -> {
+            attempts.incrementAndGet();
+            throw new HttpClientErrorException(HttpStatus.BAD_REQUEST);
+        }));
+
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    @DisplayName("Should stop after the maximum number of attempts")
+    void execute_StopsAtMaxAttempts() {
+        LlmRetryPolicy policy = new LlmRetryPolicy(settings, meterRegistry);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(HttpClientErrorException.class, () -> policy.execute(() -> {
+            attempts.incrementAndGet();
+            throw new HttpClientErrorException(HttpStatus.TOO_MANY_REQUESTS);
+        }));
+
+        assertEquals(3, attempts.get());
+        assertEquals(1.0, meterRegistry.get("essay.llm.retries").tag("outcome", "attempts_exhausted").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should stop retrying once the retry budget is spent")
+    void execute_StopsWhenBudgetExhausted() {
+        settings.setBudgetRatio(0.0);
+        settings.setMaxBudget(1);
+        LlmRetryPolicy policy = new LlmRetryPolicy(settings, meterRegistry);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(HttpServerErrorException.class, () -> policy.execute(() -> {
+            attempts.incrementAndGet();
+            throw new HttpServerErrorException(HttpStatus.BAD_GATEWAY);
+        }));
+
+        // One banked retry, then the budget is empty.
+        assertEquals(2, attempts.get());
+        assertEquals(1.0, meterRegistry.get("essay.llm.retries").tag("outcome", "budget_exhausted").counter().count());
+    }
+}
@@ -0,0 +1,142 @@
+package com.codehacks.postgen.llm;
+
+import com.codehacks.postgen.config.LlmProperties;
+import com.codehacks.postgen.exception.EssayGenerationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LongFormGeneratorTest {
+
+    private ExecutorService sectionExecutor;
+    private LongFormGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        sectionExecutor = Executors.newFixedThreadPool(4);
+        LlmProperties.LongForm settings = new LlmProperties.LongForm();
+        settings.setMaxSections(3);
+        generator = new LongFormGenerator(settings, sectionExecutor,
+                new EssayPromptBuilder(new LlmProperties.Prompt(), new SimpleMeterRegistry()), new SimpleMeterRegistry());
+    }
+
+    @AfterEach
+    void tearDown() {
+        sectionExecutor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("Should read headings from a numbered or bulleted outline, capped at the maximum")
+    void parseOutline_StripsListMarkers() {
+        List<String> headings = generator.parseOutline("1. Introduction\n\n- **Early Days**\n* Modern Era\nConclusion");
+
+        assertEquals(List.of("Introduction", "Early Days", "Modern Era"), headings);
+    }
+
+    @Test
+    @DisplayName("Should generate sections concurrently and stitch them in outline order")
+    void generate_StitchesSectionsInOrder() {
+        CountDownLatch allSectionsStarted = new CountDownLatch(3);
+
+        String essay = generator.generate("Computing", null, 10_000, (prompt, maxChars) -> {
+            if (prompt.startsWith("Create an outline")) {
+                return "Introduction\nBody\nConclusion";
+            }
+            allSectionsStarted.countDown();
+            try {
+                // Only returns once every section is in flight, so this fails if sections run one by one.
+                assertTrue(allSectionsStarted.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return prompt.contains("\"Introduction\"") ? "Intro text." : prompt.contains("\"Body\"") ? "Body text." : "End text.";
+        });
+
+        assertEquals("## Introduction\n\nIntro text.\n\n## Body\n\nBody text.\n\n## Conclusion\n\nEnd text.", essay);
+    }
+
+    @Test
+    @DisplayName("Should fail when the outline has too few sections")
+    void generate_RejectsShortOutline() {
+        assertThrows(EssayGenerationException.class,
+                () -> generator.generate("Computing", null, 10_000, (prompt, maxChars) -> "Only one heading"));
+    }
+
+    @Test
+    @DisplayName("Should give each section call its share of the length limit, after headings and blank lines")
+    void generate_LimitsEachSection() {
+        List<Integer> sectionLimits = new CopyOnWriteArrayList<>();
+
+        generator.generate("Computing", null, 3_000, (prompt, maxChars) -> {
+            if (prompt.startsWith("Create an outline")) {
+                assertNull(maxChars);
+                return "Introduction\nBody\nConclusion";
+            }
+            sectionLimits.add(maxChars);
+            return "Section text.";
+        });
+
+        // (3000 - "## Introduction\n\n" - "## Body\n\n" - "## Conclusion\n\n" - 2 * "\n\n") / 3
+        assertEquals(List.of(985, 985, 985), sectionLimits);
+    }
+
+    @Test
+    @DisplayName("Should fail before generating sections when the length limit leaves them too little room")
+    void generate_RejectsOutlineThatCannotFit() {
+        AtomicInteger sectionCalls = new AtomicInteger();
+
+        assertThrows(EssayGenerationException.class, () -> generator.generate("Computing", null, 600,
+                (prompt, maxChars) -> {
+                    if (prompt.startsWith("Create an outline")) {
+                        return "Introduction\nBody\nConclusion";
+                    }
+                    sectionCalls.incrementAndGet();
+                    return "Section text.";
+                }));
+
+        assertEquals(0, sectionCalls.get());
+    }
+
+    @Test
+    @DisplayName("Should keep every prompt within the input budget when the outline leaves less room for context")
+    void generate_FitsContextToEachPrompt() {
+        // About 250 tokens of context: fits beside the outline prompt, but not beside a section prompt
+        // that carries the three long headings and names its own one again.
+        String context = "This sentence is part of the context. ".repeat(26);
+        String longHeading = "A".repeat(750);
+        List<String> sectionPrompts = new CopyOnWriteArrayList<>();
+        List<String> outlinePrompts = new CopyOnWriteArrayList<>();
+
+        generator.generate("Computing", context, 10_000, (prompt, maxChars) -> {
+            if (prompt.startsWith("Create an outline")) {
+                outlinePrompts.add(prompt);
+                return longHeading + "1\n" + longHeading + "2\n" + longHeading + "3";
+            }
+            sectionPrompts.add(prompt);
+            return "Section text.";
+        });
+
+        assertTrue(outlinePrompts.get(0).endsWith(context.trim()));
+        assertEquals(3, sectionPrompts.size());
+        for (String prompt : sectionPrompts) {
+            assertTrue(prompt.length() / 4.0 <= 1024, "prompt over budget: " + prompt.length() / 4.0);
+            assertFalse(prompt.endsWith(context.trim()));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.codehacks.postgen.llm;
+
+import com.codehacks.postgen.config.LlmProperties;
+import com.codehacks.postgen.exception.EssayGenerationException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.ai.chat.prompt.ChatOptions;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ModelCascadeTest {
+
+    private static final String GOOD_DRAFT = "First paragraph.\n\nSecond paragraph.\n\nThird paragraph.";
+    private static final Consumer<String> ACCEPT_NON_BLANK = content -> {
+        if (content == null || content.isBlank()) {
+            throw new EssayGenerationException("AI service returned empty content");
+        }
+    };
+
+    private LlmProperties.Cascade settings;
+    private SimpleMeterRegistry meterRegistry;
+    private List<String> modelsCalled;
+
+    @BeforeEach
+    void setUp() {
+        settings = new LlmProperties.Cascade();
+        settings.setEnabled(true);
+        settings.setFastModel("flash");
+        settings.setStrongModel("pro");
+        meterRegistry = new SimpleMeterRegistry();
+        modelsCalled = new ArrayList<>();
+    }
+
+    private String modelName(ChatOptions options) {
+        String model = options == null ? null : options.getModel();
+        modelsCalled.add(model);
+        return model;
+    }
+
+    @Test
+    @DisplayName("Should accept a good fast-tier draft without calling the strong model")
+    void generate_AcceptsFastDraft() {
+        ModelCascade cascade = new ModelCascade(settings, meterRegistry);
+
+        String content = cascade.generate(options -> {
+            modelName(options);
+            return GOOD_DRAFT;
+        }, ACCEPT_NON_BLANK);
+
+        assertEquals(GOOD_DRAFT, content);
+        assertEquals(List.of("flash"), modelsCalled);
+        assertEquals(1.0, meterRegistry.get("essay.llm.cascade.drafts")
+                .tag("tier", "fast").tag("outcome", "accepted").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should escalate to the strong model when the fast draft fails the quality check")
+    void generate_EscalatesOnQuality() {
+        ModelCascade cascade = new ModelCascade(settings, meterRegistry);
+
+        String content = cascade.generate(
+                options -> "flash".equals(modelName(options)) ? "One short paragraph that stops mid" : GOOD_DRAFT,
+                ACCEPT_NON_BLANK);
+
+        assertEquals(GOOD_DRAFT, content);
+        assertEquals(List.of("flash", "pro"), modelsCalled);
+        assertEquals(1.0, meterRegistry.get("essay.llm.cascade.drafts")
+                .tag("tier", "fast").tag("outcome", "escalated").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should only validate the last tier and surface its validation failure")
+    void generate_ThrowsWhenLastTierInvalid() {
+        ModelCascade cascade = new ModelCascade(settings, meterRegistry);
+
+        assertThrows(EssayGenerationException.class, () -> cascade.generate(options -> {
+            modelName(options);
+            return "";
+        }, ACCEPT_NON_BLANK));
+
+        assertEquals(List.of("flash", "pro"), modelsCalled);
+        assertEquals(1.0, meterRegistry.get("essay.llm.cascade.drafts")
+                .tag("tier", "strong").tag("outcome", "rejected").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should call the default model once when the cascade is disabled")
+    void generate_SingleTierWhenDisabled() {
+        ModelCascade cascade = new ModelCascade(new LlmProperties.Cascade(), meterRegistry);
+
+        String content = cascade.generate(options -> {
+            modelName(options);
+            return "single paragraph without ending";
+        }, ACCEPT_NON_BLANK);
+
+        assertEquals("single paragraph without ending", content);
+        assertEquals(1, modelsCalled.size());
+        assertNull(modelsCalled.get(0));
+    }
+}
@@ -0,0 +1,66 @@
+package com.codehacks.postgen.llm;
+
+import com.codehacks.postgen.config.LlmProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OutputLimiterTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private OutputLimiter limiter;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        limiter = new OutputLimiter(new LlmProperties.Output(), meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should map a target word count to a max-output-token limit with headroom")
+    void maxTokens_ScalesTargetWords() {
+        assertEquals(875, limiter.maxTokens(500));
+        assertNull(limiter.maxTokens(null));
+    }
+
+    @Test
+    @DisplayName("Should return a stream that stays under the limit unchanged")
+    void collect_KeepsShortResponses() {
+        assertEquals("One. Two.", limiter.collect(Flux.just("One. ", "Two."), 100));
+        assertEquals(0.0, meterRegistry.get("essay.llm.stream.cutoffs").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should stop the stream at the limit and cut back to the last full sentence")
+    void collect_CutsAtSentenceBoundary() {
+        AtomicInteger emitted = new AtomicInteger();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Flux<String> chunks = Flux.range(1, 1000)
+                .map(i -> "Sentence number " + i + " ends here. ")
+                .doOnNext(chunk -> emitted.incrementAndGet())
+                .doOnCancel(() -> cancelled.set(true));
+
+        String content = limiter.collect(chunks, 100);
+
+        assertTrue(content.length() <= 100);
+        assertTrue(content.endsWith("ends here."));
+        assertTrue(cancelled.get());
+        assertTrue(emitted.get() < 10);
+        assertEquals(1.0, meterRegistry.get("essay.llm.stream.cutoffs").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should fall back to a word boundary when no sentence fits")
+    void cutAtSentence_FallsBackToWordBoundary() {
+        assertEquals("one two", OutputLimiter.cutAtSentence("one two three four", 9));
+    }
+}
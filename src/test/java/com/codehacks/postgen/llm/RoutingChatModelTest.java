@@ -0,0 +1,179 @@
+package com.codehacks.postgen.llm;
+
+import com.codehacks.postgen.config.LlmProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.Prompt;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RoutingChatModelTest {
+
+    @Mock
+    private ChatModel primary;
+
+    @Mock
+    private ChatModel secondary;
+
+    private SimpleMeterRegistry meterRegistry;
+    private final Prompt prompt = new Prompt("Write an essay");
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    private RoutingChatModel router() {
+        return new RoutingChatModel(List.of(
+                new RoutingChatModel.NamedModel("primary", primary),
+                new RoutingChatModel.NamedModel("secondary", secondary)), 0.2, 0.0, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should fail over to another provider when one returns a transient error")
+    void call_FailsOverOnTransientError() {
+        ChatResponse response = mock(ChatResponse.class);
+        lenient().when(primary.call(any(Prompt.class)))
+                .thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+        lenient().when(secondary.call(any(Prompt.class))).thenReturn(response);
+        RoutingChatModel router = router();
+
+        for (int i = 0; i < 20; i++) {
+            assertSame(response, router.call(prompt));
+        }
+
+        assertEquals(20.0, meterRegistry.get("essay.llm.routing.decisions")
+                .tag("provider", "secondary").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should surface the last failure when every provider fails")
+    void call_ThrowsWhenAllProvidersFail() {
+        lenient().when(primary.call(any(Prompt.class)))
+                .thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+        lenient().when(secondary.call(any(Prompt.class)))
+                .thenThrow(new HttpServerErrorException(HttpStatus.SERVICE_UNAVAILABLE));
+
+        assertThrows(HttpServerErrorException.class, () -> router().call(prompt));
+
+        assertEquals(2.0, meterRegistry.get("essay.llm.routing.failovers").counters().stream()
+                .mapToDouble(counter -> counter.count()).sum());
+    }
+
+    @Test
+    @DisplayName("Should not fail over on errors that another provider would repeat")
+    void call_DoesNotFailOverOnClientError() {
+        lenient().when(primary.call(any(Prompt.class)))
+                .thenThrow(new HttpClientErrorException(HttpStatus.BAD_REQUEST));
+        lenient().when(secondary.call(any(Prompt.class)))
+                .thenThrow(new HttpClientErrorException(HttpStatus.BAD_REQUEST));
+
+        assertThrows(HttpClientErrorException.class, () -> router().call(prompt));
+
+        assertEquals(1.0, meterRegistry.get("essay.llm.routing.decisions").counters().stream()
+                .mapToDouble(counter -> counter.count()).sum());
+    }
+
+    @Test
+    @DisplayName("Should hedge a slow call and return whichever attempt answers first")
+    void call_HedgesSlowCalls() {
+        LlmProperties.Hedging settings = new LlmProperties.Hedging();
+        settings.setMinSamples(1);
+        settings.setMinDelay(Duration.ofMillis(50));
+        HedgePolicy hedgePolicy = new HedgePolicy(settings, meterRegistry);
+        hedgePolicy.recordLatency(10);
+        ChatResponse response = new ChatResponse(List.of(new Generation(new AssistantMessage("essay"))));
+        AtomicInteger calls = new AtomicInteger();
+        when(primary.call(any(Prompt.class))).thenAnswer(invocation -> {
+            if (calls.incrementAndGet() == 1) {
+                Thread.sleep(5_000);
+            }
+            return response;
+        });
+        LlmCallExecutor hedgeCapacity = mock(LlmCallExecutor.class);
+        when(hedgeCapacity.tryAcquireExtraAttempt()).thenReturn(true);
+        ExecutorService attemptExecutor = Executors.newCachedThreadPool();
+        try {
+            RoutingChatModel router = new RoutingChatModel(
+                    List.of(new RoutingChatModel.NamedModel("primary", primary)),
+                    0.2, 0.0, hedgePolicy, attemptExecutor, hedgeCapacity, meterRegistry);
+
+            assertSame(response, router.call(prompt));
+            verify(hedgeCapacity, timeout(1_000)).releaseExtraAttempt();
+        } finally {
+            attemptExecutor.shutdownNow();
+        }
+
+        assertEquals(2, calls.get());
+        assertEquals(1.0, meterRegistry.get("essay.llm.hedges").tag("outcome", "fired").counter().count());
+        assertEquals(1.0, meterRegistry.get("essay.llm.hedges").tag("outcome", "won").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should not hedge when the limiter or bulkhead has no room for another attempt")
+    void call_SkipsHedgeWithoutCapacity() {
+        LlmProperties.Hedging settings = new LlmProperties.Hedging();
+        settings.setMinSamples(1);
+        settings.setMinDelay(Duration.ofMillis(50));
+        HedgePolicy hedgePolicy = new HedgePolicy(settings, meterRegistry);
+        hedgePolicy.recordLatency(10);
+        ChatResponse response = new ChatResponse(List.of(new Generation(new AssistantMessage("essay"))));
+        when(primary.call(any(Prompt.class))).thenAnswer(invocation -> {
+            Thread.sleep(200);
+            return response;
+        });
+        LlmCallExecutor hedgeCapacity = mock(LlmCallExecutor.class);
+        when(hedgeCapacity.tryAcquireExtraAttempt()).thenReturn(false);
+        ExecutorService attemptExecutor = Executors.newCachedThreadPool();
+        try {
+            RoutingChatModel router = new RoutingChatModel(
+                    List.of(new RoutingChatModel.NamedModel("primary", primary)),
+                    0.2, 0.0, hedgePolicy, attemptExecutor, hedgeCapacity, meterRegistry);
+
+            assertSame(response, router.call(prompt));
+        } finally {
+            attemptExecutor.shutdownNow();
+        }
+
+        verify(primary, times(1)).call(any(Prompt.class));
+        verify(hedgeCapacity, never()).releaseExtraAttempt();
+        assertEquals(0.0, meterRegistry.get("essay.llm.hedges").tag("outcome", "fired").counter().count());
+        assertEquals(1.0, meterRegistry.get("essay.llm.hedges").tag("outcome", "no_capacity").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should not hand the primary provider's model name to the others as a default")
+    void getDefaultOptions_ProviderNeutral() {
+        assertNull(router().getDefaultOptions().getModel());
+    }
+}
@@ -0,0 +1,59 @@
+package com.codehacks.postgen.observability;
+
+import com.codehacks.postgen.service.EssayService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MethodTimingAspectTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private EssayService essayService;
+    private EssayService timedService;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        essayService = mock(EssayService.class);
+        AspectJProxyFactory factory = new AspectJProxyFactory(essayService);
+        factory.addInterface(EssayService.class);
+        factory.addAspect(new MethodTimingAspect(meterRegistry));
+        timedService = factory.getProxy();
+    }
+
+    @Test
+    @DisplayName("Should time successful service calls with a success outcome")
+    void timesSuccessfulCalls() {
+        when(essayService.getAllEssays()).thenReturn(List.of());
+
+        timedService.getAllEssays();
+        timedService.getEssayById(1L);
+
+        assertEquals(1, meterRegistry.get("essay.method")
+                .tags("method", "getAllEssays", "outcome", "success", "exception", "none").timer().count());
+        assertEquals(1, meterRegistry.get("essay.method").tags("method", "getEssayById").timer().count());
+    }
+
+    @Test
+    @DisplayName("Should tag failed calls with the error outcome and the exception")
+    void tagsFailedCalls() {
+        when(essayService.getEssayById(5L)).thenThrow(new IllegalStateException("boom"));
+
+        assertThrows(IllegalStateException.class, () -> timedService.getEssayById(5L));
+
+        assertEquals(1, meterRegistry.get("essay.method")
+                .tags("method", "getEssayById", "outcome", "error", "exception", "IllegalStateException")
+                .timer().count());
+        assertNull(meterRegistry.find("essay.method").tags("outcome", "success").timer());
+    }
+}
@@ -0,0 +1,62 @@
+package com.codehacks.postgen.observability;
+
+import com.codehacks.postgen.repository.EssayRepository;
+import io.micrometer.observation.tck.TestObservationRegistry;
+import io.micrometer.observation.tck.TestObservationRegistryAssert;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RepositoryObservationAspectTest {
+
+    private TestObservationRegistry observationRegistry;
+    private EssayRepository essayRepository;
+    private EssayRepository observedRepository;
+
+    @BeforeEach
+    void setUp() {
+        observationRegistry = TestObservationRegistry.create();
+        essayRepository = mock(EssayRepository.class);
+        AspectJProxyFactory factory = new AspectJProxyFactory(essayRepository);
+        factory.addInterface(EssayRepository.class);
+        factory.addAspect(new RepositoryObservationAspect(observationRegistry));
+        observedRepository = factory.getProxy();
+    }
+
+    @Test
+    @DisplayName("Should observe repository calls named after the application repository and method")
+    void observesRepositoryCalls() {
+        when(essayRepository.existsByTopicIgnoreCase("Topic")).thenReturn(true);
+
+        assertTrue(observedRepository.existsByTopicIgnoreCase("Topic"));
+        observedRepository.findById(1L);
+
+        TestObservationRegistryAssert.assertThat(observationRegistry)
+                .hasNumberOfObservationsWithNameEqualTo("essay.repository", 2)
+                .hasObservationWithNameEqualTo("essay.repository").that()
+                .hasContextualNameEqualTo("EssayRepository.existsByTopicIgnoreCase")
+                .hasLowCardinalityKeyValue("repository", "EssayRepository")
+                .hasBeenStopped();
+    }
+
+    @Test
+    @DisplayName("Should record the error of a failed repository call")
+    void recordsErrors() {
+        when(essayRepository.existsByTopicIgnoreCase("Topic"))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"));
+
+        assertThrows(DataAccessResourceFailureException.class,
+                () -> observedRepository.existsByTopicIgnoreCase("Topic"));
+
+        TestObservationRegistryAssert.assertThat(observationRegistry)
+                .hasObservationWithNameEqualTo("essay.repository").that()
+                .hasError();
+    }
+}
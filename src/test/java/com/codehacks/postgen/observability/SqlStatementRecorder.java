@@ -0,0 +1,69 @@
+package com.codehacks.postgen.observability;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Test-side statement listener that records every SQL statement and row, on any thread, while an
+ * action runs, and fails the test when the action goes over its statement or row budget.
+ * <p>
+ * Register it as a bean and {@code ObservabilityConfig} wires it into the data source proxy.
+ * Statements run on server threads are seen too, because they finish before the response is sent.
+ */
+public class SqlStatementRecorder implements StatementListener {
+
+    private final List<String> statements = new ArrayList<>();
+    private final AtomicInteger rows = new AtomicInteger();
+    private volatile boolean recording;
+
+    @Override
+    public void statementExecuted(String sql, long elapsedNanos) {
+        if (recording) {
+            synchronized (statements) {
+                statements.add(sql == null ? "<unknown>" : sql);
+            }
+        }
+    }
+
+    @Override
+    public void rowRead() {
+        if (recording) {
+            rows.incrementAndGet();
+        }
+    }
+
+    /**
+     * Runs an action and asserts it stays within a SQL budget.
+     * @param maxStatements the most statements the action may execute
+     * @param maxRows the most rows the action may read
+     * @param action the action, typically one HTTP call
+     * @return the action's result
+     * @throws AssertionError listing the statements if the action goes over budget
+     */
+    public <T> T withinBudget(int maxStatements, int maxRows, Supplier<T> action) {
+        synchronized (statements) {
+            statements.clear();
+        }
+        rows.set(0);
+        recording = true;
+        T result;
+        try {
+            result = action.get();
+        } finally {
+            recording = false;
+        }
+
+        List<String> executed;
+        synchronized (statements) {
+            executed = List.copyOf(statements);
+        }
+        if (executed.size() > maxStatements || rows.get() > maxRows) {
+            throw new AssertionError("SQL budget exceeded: expected at most " + maxStatements + " statements and "
+                    + maxRows + " rows, but " + executed.size() + " statements read " + rows.get() + " rows:\n  "
+                    + String.join("\n  ", executed));
+        }
+        return result;
+    }
+}
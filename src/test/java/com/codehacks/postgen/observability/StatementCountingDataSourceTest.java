@@ -0,0 +1,126 @@
+package com.codehacks.postgen.observability;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StatementCountingDataSourceTest {
+
+    @AfterEach
+    void tearDown() {
+        SqlStatementCounter.stop();
+    }
+
+    @Test
+    @DisplayName("Should count executed statements on the current thread, with a batch counting once")
+    void countsExecutedStatements() throws SQLException {
+        Connection connection = mock(Connection.class);
+        PreparedStatement prepared = mock(PreparedStatement.class);
+        Statement statement = mock(Statement.class);
+        when(connection.prepareStatement(anyString())).thenReturn(prepared);
+        when(connection.createStatement()).thenReturn(statement);
+        DataSource dataSource = new StatementCountingDataSource(dataSource(connection));
+
+        SqlStatementCounter.Counts counts = SqlStatementCounter.start();
+        try (Connection wrapped = dataSource.getConnection()) {
+            PreparedStatement select = wrapped.prepareStatement("select 1");
+            select.setInt(1, 1);
+            select.executeQuery();
+            select.addBatch();
+            select.executeBatch();
+            wrapped.createStatement().execute("update essays set status = 'DRAFT'");
+        }
+
+        assertEquals(3, counts.getStatements());
+        assertTrue(counts.getNanos() >= 0);
+        verify(prepared).setInt(1, 1);
+        verify(connection).close();
+    }
+
+    @Test
+    @DisplayName("Should ignore statements when nothing is counting on the thread")
+    void ignoresStatementsWithoutCounter() throws SQLException {
+        Connection connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenReturn(mock(PreparedStatement.class));
+        DataSource dataSource = new StatementCountingDataSource(dataSource(connection));
+
+        dataSource.getConnection().prepareStatement("select 1").executeQuery();
+
+        assertNull(SqlStatementCounter.current());
+    }
+
+    @Test
+    @DisplayName("Should count a failed statement and rethrow the driver's exception unchanged")
+    void countsFailedStatements() throws SQLException {
+        Connection connection = mock(Connection.class);
+        PreparedStatement prepared = mock(PreparedStatement.class);
+        when(connection.prepareStatement(anyString())).thenReturn(prepared);
+        when(prepared.executeUpdate()).thenThrow(new SQLException("duplicate key"));
+        DataSource dataSource = new StatementCountingDataSource(dataSource(connection));
+
+        SqlStatementCounter.Counts counts = SqlStatementCounter.start();
+        PreparedStatement insert = dataSource.getConnection().prepareStatement("insert");
+
+        SQLException e = assertThrows(SQLException.class, insert::executeUpdate);
+        assertEquals("duplicate key", e.getMessage());
+        assertEquals(1, counts.getStatements());
+    }
+
+    @Test
+    @DisplayName("Should count rows read and report each statement's SQL to the listeners")
+    void countsRowsAndReportsSql() throws SQLException {
+        Connection connection = mock(Connection.class);
+        PreparedStatement prepared = mock(PreparedStatement.class);
+        ResultSet resultSet = mock(ResultSet.class);
+        when(connection.prepareStatement(anyString())).thenReturn(prepared);
+        when(prepared.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+        List<String> executed = new ArrayList<>();
+        StatementListener listener = new StatementListener() {
+            @Override
+            public void statementExecuted(String sql, long elapsedNanos) {
+                executed.add(sql);
+            }
+
+            @Override
+            public void rowRead() {
+            }
+        };
+        DataSource dataSource = new StatementCountingDataSource(dataSource(connection),
+                List.of(SqlStatementCounter.LISTENER, listener));
+
+        SqlStatementCounter.Counts counts = SqlStatementCounter.start();
+        ResultSet rows = dataSource.getConnection().prepareStatement("select * from essays").executeQuery();
+        while (rows.next()) {
+            rows.getLong(1);
+        }
+
+        assertEquals(1, counts.getStatements());
+        assertEquals(2, counts.getRows());
+        assertEquals(List.of("select * from essays"), executed);
+    }
+
+    private static DataSource dataSource(Connection connection) throws SQLException {
+        DataSource dataSource = mock(DataSource.class);
+        when(dataSource.getConnection()).thenReturn(connection);
+        return dataSource;
+    }
+}
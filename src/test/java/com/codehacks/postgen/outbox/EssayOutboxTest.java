@@ -0,0 +1,70 @@
+package com.codehacks.postgen.outbox;
+
+import com.codehacks.postgen.model.Essay;
+import com.codehacks.postgen.model.EssayStatus;
+import com.codehacks.postgen.repository.OutboxStore;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class EssayOutboxTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+
+    @Mock
+    private OutboxStore outboxStore;
+
+    private EssayOutbox outbox;
+
+    @BeforeEach
+    void setUp() {
+        outbox = new EssayOutbox(outboxStore, objectMapper);
+    }
+
+    @Test
+    @DisplayName("Should store the essay's metadata, without its text, as the payload")
+    void record_StoresMetadataPayload() throws Exception {
+        Essay essay = Essay.builder()
+                .id(7L)
+                .topic("Topic")
+                .content("Long text that consumers fetch themselves.")
+                .lengthWords(6)
+                .status(EssayStatus.PUBLISHED)
+                .updatedAt(LocalDateTime.of(2025, 1, 2, 3, 4, 5))
+                .build();
+
+        outbox.record(EssayChangeType.STATUS_CHANGED, essay);
+
+        ArgumentCaptor<String> payload = ArgumentCaptor.forClass(String.class);
+        verify(outboxStore).append(eq(7L), eq(EssayChangeType.STATUS_CHANGED), payload.capture());
+        JsonNode json = objectMapper.readTree(payload.getValue());
+        assertEquals(7, json.get("id").asLong());
+        assertEquals("PUBLISHED", json.get("status").asText());
+        assertEquals("2025-01-02T03:04:05", json.get("updatedAt").asText());
+        assertFalse(json.has("content"));
+    }
+
+    @Test
+    @DisplayName("Should store only the id for a deleted essay")
+    void recordDeleted_StoresId() {
+        outbox.recordDeleted(7L);
+
+        verify(outboxStore).append(7L, EssayChangeType.DELETED, "{\"id\":7}");
+    }
+}
@@ -0,0 +1,40 @@
+package com.codehacks.postgen.outbox;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FileOutboxSinkTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("Should append one JSON line per event across batches, creating the directory")
+    void publish_AppendsJsonLines() throws Exception {
+        Path file = directory.resolve("outbox").resolve("events.jsonl");
+        FileOutboxSink sink = new FileOutboxSink(file, objectMapper);
+
+        sink.publish(List.of(event(1), event(2)));
+        sink.publish(List.of(event(3)));
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(3, lines.size());
+        assertEquals(3, objectMapper.readTree(lines.get(2)).get("id").asLong());
+        assertEquals("DELETED", objectMapper.readTree(lines.get(2)).get("type").asText());
+    }
+
+    private static EssayChangeEvent event(long id) {
+        return new EssayChangeEvent(id, id, EssayChangeType.DELETED, "{\"id\":" + id + "}", Instant.now());
+    }
+}
@@ -0,0 +1,51 @@
+package com.codehacks.postgen.outbox;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class LocalBrokerOutboxSinkTest {
+
+    @Test
+    @DisplayName("Should hand out events by offset, so each consumer reads at its own pace")
+    void poll_ReadsFromOffset() {
+        LocalBrokerOutboxSink broker = new LocalBrokerOutboxSink(10);
+        broker.publish(List.of(event(1), event(2), event(3)));
+
+        List<LocalBrokerOutboxSink.Message> first = broker.poll(0, 2);
+        List<LocalBrokerOutboxSink.Message> rest = broker.poll(first.get(1).offset() + 1, 10);
+
+        assertEquals(List.of(1L, 2L), first.stream().map(message -> message.event().id()).toList());
+        assertEquals(List.of(3L), rest.stream().map(message -> message.event().id()).toList());
+    }
+
+    @Test
+    @DisplayName("Should append a redelivered event only once")
+    void publish_IgnoresRedelivery() {
+        LocalBrokerOutboxSink broker = new LocalBrokerOutboxSink(10);
+        broker.publish(List.of(event(1), event(2)));
+        broker.publish(List.of(event(1), event(2), event(3)));
+
+        assertEquals(3, broker.poll(0, 10).size());
+    }
+
+    @Test
+    @DisplayName("Should drop the oldest events beyond its capacity")
+    void publish_DropsOldestBeyondCapacity() {
+        LocalBrokerOutboxSink broker = new LocalBrokerOutboxSink(2);
+        broker.publish(List.of(event(1), event(2), event(3)));
+
+        List<LocalBrokerOutboxSink.Message> messages = broker.poll(0, 10);
+
+        assertEquals(List.of(2L, 3L), messages.stream().map(message -> message.event().id()).toList());
+        assertEquals(1, messages.get(0).offset());
+    }
+
+    private static EssayChangeEvent event(long id) {
+        return new EssayChangeEvent(id, id, EssayChangeType.CREATED, "{}", Instant.now());
+    }
+}
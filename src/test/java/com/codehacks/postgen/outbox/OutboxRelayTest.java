@@ -0,0 +1,141 @@
+package com.codehacks.postgen.outbox;
+
+import com.codehacks.postgen.config.OutboxProperties;
+import com.codehacks.postgen.repository.OutboxStore;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionOperations;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OutboxRelayTest {
+
+    @Mock
+    private OutboxStore outboxStore;
+
+    @Mock
+    private OutboxSink firstSink;
+
+    @Mock
+    private OutboxSink secondSink;
+
+    private OutboxProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private OutboxRelay relay;
+
+    @BeforeEach
+    void setUp() {
+        properties = new OutboxProperties();
+        properties.setBatchSize(2);
+        properties.setMaxBatchesPerPoll(3);
+        meterRegistry = new SimpleMeterRegistry();
+        lenient().when(firstSink.name()).thenReturn("first");
+        lenient().when(secondSink.name()).thenReturn("second");
+        relay = new OutboxRelay(outboxStore, List.of(firstSink, secondSink), properties,
+                TransactionOperations.withoutTransaction(), meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should hand a batch to every sink in order and then mark it published")
+    void drain_PublishesToEverySinkThenMarks() throws Exception {
+        List<EssayChangeEvent> batch = List.of(event(1), event(2));
+        when(outboxStore.tryLockRelay()).thenReturn(true);
+        when(outboxStore.fetchUnpublished(2)).thenReturn(batch, List.of());
+
+        relay.drain();
+
+        InOrder order = inOrder(firstSink, secondSink, outboxStore);
+        order.verify(firstSink).publish(batch);
+        order.verify(secondSink).publish(batch);
+        order.verify(outboxStore).markPublished(List.of(1L, 2L));
+        assertEquals(2.0, meterRegistry.get("essay.outbox.published").tag("sink", "first").counter().count());
+        assertEquals(1, meterRegistry.get("essay.outbox.batch.size").summary().count());
+        assertEquals(2, meterRegistry.get("essay.outbox.publish.lag").timer().count());
+    }
+
+    @Test
+    @DisplayName("Should keep draining full batches up to the per-poll limit")
+    void drain_StopsAtMaxBatchesPerPoll() {
+        when(outboxStore.tryLockRelay()).thenReturn(true);
+        when(outboxStore.fetchUnpublished(2)).thenReturn(List.of(event(1), event(2)), List.of(event(3), event(4)),
+                List.of(event(5), event(6)));
+
+        relay.drain();
+
+        verify(outboxStore, times(3)).fetchUnpublished(2);
+        verify(outboxStore, times(3)).markPublished(any());
+    }
+
+    @Test
+    @DisplayName("Should leave a batch unpublished when a sink fails, for the next poll to retry")
+    void drain_SinkFailureLeavesBatchUnpublished() throws Exception {
+        List<EssayChangeEvent> batch = List.of(event(1));
+        when(outboxStore.tryLockRelay()).thenReturn(true);
+        when(outboxStore.fetchUnpublished(2)).thenReturn(batch);
+        doThrow(new IOException("disk full")).when(firstSink).publish(batch);
+
+        relay.drain();
+
+        verify(secondSink, never()).publish(any());
+        verify(outboxStore, never()).markPublished(any());
+        assertEquals(1.0, meterRegistry.get("essay.outbox.failures").tag("sink", "first").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should not read the outbox while another node holds the relay lock")
+    void drain_SkipsWhenLockHeldElsewhere() {
+        when(outboxStore.tryLockRelay()).thenReturn(false);
+
+        relay.drain();
+
+        verify(outboxStore, never()).fetchUnpublished(anyInt());
+    }
+
+    @Test
+    @DisplayName("Should report the age of the oldest unpublished event as the lag")
+    void drain_ReportsLag() {
+        when(outboxStore.tryLockRelay()).thenReturn(true);
+        when(outboxStore.fetchUnpublished(2)).thenReturn(
+                List.of(new EssayChangeEvent(1, 1, EssayChangeType.CREATED, "{}", Instant.now().minusSeconds(30))),
+                List.of());
+
+        relay.drain();
+        assertTrue(meterRegistry.get("essay.outbox.lag").gauge().value() >= 30.0);
+
+        relay.drain();
+        assertEquals(0.0, meterRegistry.get("essay.outbox.lag").gauge().value());
+    }
+
+    @Test
+    @DisplayName("Should purge published events past the retention")
+    void purge_UsesRetention() {
+        relay.purge();
+
+        verify(outboxStore).purgePublished(properties.getRetention());
+    }
+
+    private static EssayChangeEvent event(long id) {
+        return new EssayChangeEvent(id, 10 + id, EssayChangeType.UPDATED, "{\"id\":" + (10 + id) + "}", Instant.now());
+    }
+}
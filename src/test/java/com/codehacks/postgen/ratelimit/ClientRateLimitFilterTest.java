@@ -0,0 +1,103 @@
+package com.codehacks.postgen.ratelimit;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ClientRateLimitFilterTest {
+
+    @Mock
+    private ClientRateLimiter rateLimiter;
+
+    @Mock
+    private FilterChain filterChain;
+
+    private ClientRateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        filter = new ClientRateLimitFilter(rateLimiter, "X-API-Key");
+    }
+
+    @Test
+    @DisplayName("Should pass an allowed request on to the chain")
+    void allowed_PassesThrough() throws Exception {
+        when(rateLimiter.tryAcquire(anyString())).thenReturn(ClientRateLimiter.Decision.allow());
+        MockHttpServletRequest request = post();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(request, response, filterChain);
+
+        verify(filterChain).doFilter(request, response);
+        assertEquals(200, response.getStatus());
+    }
+
+    @Test
+    @DisplayName("Should answer 429 with Retry-After and not run the request when the client is over its limit")
+    void rejected_Returns429() throws Exception {
+        when(rateLimiter.tryAcquire(anyString())).thenReturn(ClientRateLimiter.Decision.reject(4));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(post(), response, filterChain);
+
+        verify(filterChain, never()).doFilter(any(), any());
+        assertEquals(429, response.getStatus());
+        assertEquals("4", response.getHeader("Retry-After"));
+        assertTrue(response.getContentType().startsWith("text/plain"));
+        assertEquals("Rate limit exceeded. Retry after 4 seconds.", response.getContentAsString());
+    }
+
+    @Test
+    @DisplayName("Should key clients by a hash of their API key, or by remote address without one")
+    void clientKey_HashedApiKeyOrAddress() throws Exception {
+        when(rateLimiter.tryAcquire(anyString())).thenReturn(ClientRateLimiter.Decision.allow());
+        MockHttpServletRequest withKey = post();
+        withKey.addHeader("X-API-Key", "secret-key");
+        MockHttpServletRequest withoutKey = post();
+        withoutKey.setRemoteAddr("10.1.2.3");
+
+        filter.doFilter(withKey, new MockHttpServletResponse(), filterChain);
+        filter.doFilter(withoutKey, new MockHttpServletResponse(), filterChain);
+
+        ArgumentCaptor<String> keys = ArgumentCaptor.forClass(String.class);
+        verify(rateLimiter, times(2)).tryAcquire(keys.capture());
+        String hashed = keys.getAllValues().get(0);
+        assertTrue(hashed.matches("key:[0-9a-f]{32}"));
+        assertFalse(hashed.contains("secret-key"));
+        assertEquals("ip:10.1.2.3", keys.getAllValues().get(1));
+    }
+
+    @Test
+    @DisplayName("Should not limit requests other than POST")
+    void get_NotLimited() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/essays/generate");
+
+        filter.doFilter(request, new MockHttpServletResponse(), filterChain);
+
+        verifyNoInteractions(rateLimiter);
+        verify(filterChain).doFilter(any(), any());
+    }
+
+    private static MockHttpServletRequest post() {
+        return new MockHttpServletRequest("POST", "/api/v1/essays/generate");
+    }
+}
@@ -0,0 +1,131 @@
+package com.codehacks.postgen.ratelimit;
+
+import com.codehacks.postgen.config.RateLimitProperties;
+import com.codehacks.postgen.repository.RateLimitBucketStore;
+import com.codehacks.postgen.repository.RateLimitBucketStore.BucketGrant;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class ClientRateLimiterTest {
+
+    @Mock
+    private RateLimitBucketStore bucketStore;
+
+    private RateLimitProperties properties;
+    private ClientRateLimiter rateLimiter;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RateLimitProperties();
+        properties.setCapacity(10);
+        properties.setRefillTokens(1);
+        properties.setRefillPeriod(Duration.ofSeconds(1));
+        properties.setLeaseSize(3);
+        properties.setLeaseTtl(Duration.ofMinutes(1));
+        rateLimiter = new ClientRateLimiter(bucketStore, properties, new SimpleMeterRegistry());
+    }
+
+    @Test
+    @DisplayName("Should spend leased tokens locally without going back to the shared bucket")
+    void tryAcquire_UsesLocalLease() {
+        when(bucketStore.acquire(eq("ip:1.2.3.4"), eq(3), eq(10), anyDouble()))
+                .thenReturn(new BucketGrant(3, 7.0));
+
+        assertTrue(rateLimiter.tryAcquire("ip:1.2.3.4").allowed());
+        assertTrue(rateLimiter.tryAcquire("ip:1.2.3.4").allowed());
+        assertTrue(rateLimiter.tryAcquire("ip:1.2.3.4").allowed());
+
+        verify(bucketStore, times(1)).acquire(eq("ip:1.2.3.4"), anyInt(), anyInt(), anyDouble());
+    }
+
+    @Test
+    @DisplayName("Should reject with Retry-After and cache the rejection locally")
+    void tryAcquire_RejectsWhenSharedBucketIsEmpty() {
+        when(bucketStore.acquire(eq("key:abc"), anyInt(), anyInt(), anyDouble()))
+                .thenReturn(new BucketGrant(0, 0.25));
+
+        ClientRateLimiter.Decision first = rateLimiter.tryAcquire("key:abc");
+        ClientRateLimiter.Decision second = rateLimiter.tryAcquire("key:abc");
+
+        assertFalse(first.allowed());
+        assertEquals(1, first.retryAfterSeconds());
+        assertFalse(second.allowed());
+        verify(bucketStore, times(1)).acquire(eq("key:abc"), anyInt(), anyInt(), anyDouble());
+    }
+
+    @Test
+    @DisplayName("Should keep separate buckets per client")
+    void tryAcquire_SeparatesClients() {
+        when(bucketStore.acquire(eq("ip:10.0.0.1"), anyInt(), anyInt(), anyDouble()))
+                .thenReturn(new BucketGrant(0, 0.0));
+        when(bucketStore.acquire(eq("ip:10.0.0.2"), anyInt(), anyInt(), anyDouble()))
+                .thenReturn(new BucketGrant(1, 0.0));
+
+        assertFalse(rateLimiter.tryAcquire("ip:10.0.0.1").allowed());
+        assertTrue(rateLimiter.tryAcquire("ip:10.0.0.2").allowed());
+    }
+
+    @Test
+    @DisplayName("Should not reject a client below its limit when its requests alternate between two nodes")
+    void tryAcquire_AcrossNodes() {
+        RateLimitProperties defaults = new RateLimitProperties();
+        RateLimitBucketStore sharedStore = new InMemoryBucketStore();
+        ClientRateLimiter first = new ClientRateLimiter(sharedStore, defaults, new SimpleMeterRegistry());
+        ClientRateLimiter second = new ClientRateLimiter(sharedStore, defaults, new SimpleMeterRegistry());
+
+        assertTrue(first.tryAcquire("key:abc").allowed());
+        assertTrue(second.tryAcquire("key:abc").allowed());
+        assertTrue(first.tryAcquire("key:abc").allowed());
+        assertFalse(second.tryAcquire("key:abc").allowed());
+    }
+
+    @Test
+    @DisplayName("Should allow requests when the shared store is unavailable")
+    void tryAcquire_FailsOpenOnStoreError() {
+        when(bucketStore.acquire(eq("ip:1.2.3.4"), anyInt(), anyInt(), anyDouble()))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"));
+
+        assertTrue(rateLimiter.tryAcquire("ip:1.2.3.4").allowed());
+    }
+
+    /**
+     * Shared bucket without refill, standing in for the Postgres one.
+     */
+    private static final class InMemoryBucketStore extends RateLimitBucketStore {
+
+        private final Map<String, Integer> tokens = new HashMap<>();
+
+        InMemoryBucketStore() {
+            super(null);
+        }
+
+        @Override
+        public synchronized BucketGrant acquire(String key, int requested, int capacity, double refillRatePerSecond) {
+            int available = tokens.getOrDefault(key, capacity);
+            int granted = Math.min(requested, available);
+            tokens.put(key, available - granted);
+            return new BucketGrant(granted, available - granted);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.codehacks.postgen.repository;
+
+import com.codehacks.postgen.idempotency.IdempotencyRecord;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the claim statements against Postgres. Each test uses its own key, and statements are not
+ * wrapped in a test transaction, because now() would otherwise stand still and no claim would lapse.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(IdempotencyKeyStore.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class IdempotencyKeyStoreTest {
+
+    private static final Duration TTL = Duration.ofHours(1);
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16.8-alpine");
+
+    @DynamicPropertySource
+    static void registerPgProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private IdempotencyKeyStore store;
+
+    @Test
+    @DisplayName("Should let only the current holder complete a key that was taken over")
+    void complete_OnlyByCurrentHolder() throws Exception {
+        UUID first = UUID.randomUUID();
+        UUID second = UUID.randomUUID();
+        assertTrue(store.claim("taken-over", "hash", first, Duration.ofMillis(100), TTL));
+        Thread.sleep(200);
+        assertTrue(store.claim("taken-over", "hash", second, Duration.ofMinutes(1), TTL));
+
+        assertFalse(store.complete("taken-over", first, record()));
+        store.release("taken-over", first);
+
+        assertTrue(store.find("taken-over").isPresent());
+        assertTrue(store.complete("taken-over", second, record()));
+    }
+
+    @Test
+    @DisplayName("Should keep a renewed claim from being taken over")
+    void renew_KeepsClaim() throws Exception {
+        UUID token = UUID.randomUUID();
+        assertTrue(store.claim("renewed", "hash", token, Duration.ofMillis(300), TTL));
+
+        assertEquals(List.of(), store.renew(Map.of("renewed", token), Duration.ofMinutes(1)));
+        Thread.sleep(400);
+
+        assertFalse(store.claim("renewed", "hash", UUID.randomUUID(), Duration.ofMinutes(1), TTL));
+    }
+
+    @Test
+    @DisplayName("Should report claims that are no longer held")
+    void renew_ReportsLostClaims() {
+        UUID token = UUID.randomUUID();
+        store.claim("completed", "hash", token, Duration.ofMinutes(1), TTL);
+        store.complete("completed", token, record());
+
+        assertEquals(List.of("completed"), store.renew(Map.of("completed", token), Duration.ofMinutes(1)));
+    }
+
+    private static IdempotencyRecord record() {
+        return new IdempotencyRecord("hash", 201, "application/json", null, new byte[0], Instant.now().plus(TTL));
+    }
+}
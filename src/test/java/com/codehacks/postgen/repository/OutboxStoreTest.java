@@ -0,0 +1,83 @@
+package com.codehacks.postgen.repository;
+
+import com.codehacks.postgen.outbox.EssayChangeType;
+import com.codehacks.postgen.repository.OutboxStore.PublishedEvent;
+import com.codehacks.postgen.repository.OutboxStore.PublishedPosition;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the outbox reads against Postgres. Statements are not wrapped in a test transaction, so every
+ * markPublished gets its own now(), as the relay's batches do.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(OutboxStore.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OutboxStoreTest {
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16.8-alpine");
+
+    @DynamicPropertySource
+    static void registerPgProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private OutboxStore store;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Should read published events in publication order, including a lower id published later")
+    void fetchPublishedAfter_FollowsPublicationOrder() {
+        long first = append(1L);
+        long late = append(2L);
+        long third = append(3L);
+        store.markPublished(List.of(first, third));
+        store.markPublished(List.of(late));
+
+        PublishedPosition beforeFirst = store.findPosition(first).orElseThrow();
+        List<PublishedEvent> after = store.fetchPublishedAfter(beforeFirst, 10);
+        PublishedPosition last = store.findLastPosition().orElseThrow();
+
+        assertEquals(List.of(third, late), after.stream().map(published -> published.event().id()).toList());
+        assertEquals(after.get(1).position(), last);
+        assertTrue(store.fetchPublishedAfter(last, 10).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should have no position for an event that is not published yet")
+    void findPosition_EmptyWhileUnpublished() {
+        long unpublished = append(4L);
+
+        assertTrue(store.findPosition(unpublished).isEmpty());
+    }
+
+    private long append(long essayId) {
+        store.append(essayId, EssayChangeType.CREATED, "{}");
+        return jdbcTemplate.queryForObject("SELECT max(id) FROM essay_outbox", Long.class);
+    }
+}
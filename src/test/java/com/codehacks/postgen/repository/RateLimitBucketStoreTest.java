@@ -0,0 +1,97 @@
+package com.codehacks.postgen.repository;
+
+import com.codehacks.postgen.repository.RateLimitBucketStore.BucketGrant;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the bucket upsert against Postgres. Each test uses its own bucket key, and statements are not
+ * wrapped in a test transaction, because now() would otherwise stand still and nothing would refill.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(RateLimitBucketStore.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RateLimitBucketStoreTest {
+
+    private static final double NO_REFILL = 0.000001;
+
+    @Container
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16.8-alpine");
+
+    @DynamicPropertySource
+    static void registerPgProperties(DynamicPropertyRegistry registry) {
+        registry.add("spring.datasource.url", postgres::getJdbcUrl);
+        registry.add("spring.datasource.username", postgres::getUsername);
+        registry.add("spring.datasource.password", postgres::getPassword);
+    }
+
+    @Autowired
+    private RateLimitBucketStore store;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Should create a full bucket on first use and take the requested tokens from it")
+    void acquire_CreatesBucket() {
+        BucketGrant grant = store.acquire("new-client", 2, 5, NO_REFILL);
+
+        assertEquals(2, grant.granted());
+        assertEquals(3.0, grant.remainingTokens(), 0.01);
+    }
+
+    @Test
+    @DisplayName("Should grant only the whole tokens left, and none from an empty bucket")
+    void acquire_GrantsWhatIsLeft() {
+        store.acquire("draining-client", 2, 3, NO_REFILL);
+
+        BucketGrant partial = store.acquire("draining-client", 2, 3, NO_REFILL);
+        BucketGrant empty = store.acquire("draining-client", 2, 3, NO_REFILL);
+
+        assertEquals(1, partial.granted());
+        assertEquals(0, empty.granted());
+        assertEquals(0.0, empty.remainingTokens(), 0.01);
+    }
+
+    @Test
+    @DisplayName("Should refill with elapsed time, up to the capacity")
+    void acquire_RefillsUpToCapacity() throws Exception {
+        store.acquire("refilled-client", 3, 3, 1000);
+        Thread.sleep(50);
+
+        BucketGrant grant = store.acquire("refilled-client", 5, 3, 1000);
+
+        assertEquals(3, grant.granted());
+        assertEquals(0.0, grant.remainingTokens(), 0.01);
+    }
+
+    @Test
+    @DisplayName("Should purge buckets idle for longer than the given time")
+    void purgeIdle_RemovesIdleBuckets() throws Exception {
+        store.acquire("idle-client", 1, 3, NO_REFILL);
+        Thread.sleep(1100);
+
+        store.purgeIdle(Duration.ofSeconds(1));
+
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM rate_limit_buckets WHERE bucket_key = 'idle-client'", Integer.class));
+    }
+}
@@ -0,0 +1,171 @@
+package com.codehacks.postgen.revision;
+
+import com.codehacks.postgen.config.RevisionProperties;
+import com.codehacks.postgen.model.Essay;
+import com.codehacks.postgen.model.EssayRevision;
+import com.codehacks.postgen.repository.EssayRevisionRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class EssayRevisionHistoryTest {
+
+    private static final String TEXT = "Renewable energy has moved from the margins of the grid to its centre. ".repeat(20);
+
+    @Mock
+    private EssayRevisionRepository revisionRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+    private EssayRevisionHistory history;
+
+    @BeforeEach
+    void setUp() {
+        RevisionProperties properties = new RevisionProperties();
+        properties.setSnapshotInterval(3);
+        meterRegistry = new SimpleMeterRegistry();
+        history = new EssayRevisionHistory(revisionRepository, properties, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should store the generated text as a snapshot at revision 1")
+    void recordInitial_StoresSnapshot() {
+        history.recordInitial(essay("Topic", TEXT));
+
+        EssayRevision saved = saved();
+        assertEquals(1, saved.getRevision());
+        assertTrue(saved.isSnapshot());
+        assertEquals(TEXT, saved.getBody());
+        assertEquals(TEXT.length(), saved.getStoredBytes());
+        assertEquals(1, meterRegistry.get("essay.revision.stored.bytes").tags("kind", "snapshot").summary().count());
+    }
+
+    @Test
+    @DisplayName("Should store an edit as a delta against the previous revision")
+    void recordUpdate_StoresDelta() {
+        String edited = TEXT + "One more sentence.";
+        when(revisionRepository.findLatestRevision(1L)).thenReturn(1);
+
+        history.recordUpdate(essay("Topic", edited), "Topic", TEXT);
+
+        EssayRevision saved = saved();
+        assertEquals(2, saved.getRevision());
+        assertFalse(saved.isSnapshot());
+        assertEquals(edited, TextDelta.apply(TEXT, saved.getBody()));
+        assertEquals(edited.length(), saved.getContentLength());
+        assertTrue(saved.getStoredBytes() < 50);
+    }
+
+    @Test
+    @DisplayName("Should store a snapshot every snapshot-interval revisions")
+    void recordUpdate_StoresPeriodicSnapshot() {
+        when(revisionRepository.findLatestRevision(1L)).thenReturn(3);
+
+        history.recordUpdate(essay("Topic", TEXT + "Edit."), "Topic", TEXT);
+
+        EssayRevision saved = saved();
+        assertEquals(4, saved.getRevision());
+        assertTrue(saved.isSnapshot());
+    }
+
+    @Test
+    @DisplayName("Should store a snapshot when the delta would not be smaller than the text")
+    void recordUpdate_StoresSnapshotForRewrite() {
+        when(revisionRepository.findLatestRevision(1L)).thenReturn(1);
+
+        history.recordUpdate(essay("Topic", "A completely different essay."), "Topic", TEXT);
+
+        assertTrue(saved().isSnapshot());
+    }
+
+    @Test
+    @DisplayName("Should not record a revision when neither topic nor text changed")
+    void recordUpdate_SkipsUnchanged() {
+        history.recordUpdate(essay("Topic", TEXT), "Topic", TEXT);
+
+        verify(revisionRepository, never()).findLatestRevision(anyLong());
+        verify(revisionRepository, never()).save(any(EssayRevision.class));
+    }
+
+    @Test
+    @DisplayName("Should rebuild a revision by applying the deltas after its snapshot")
+    void find_AppliesDeltas() {
+        String second = TEXT + "Second.";
+        String third = second + " Third.";
+        when(revisionRepository.findChain(1L, 3)).thenReturn(List.of(
+                revision(1, true, TEXT),
+                revision(2, false, TextDelta.encode(TEXT, second)),
+                revision(3, false, TextDelta.encode(second, third))));
+
+        Optional<EssayRevision> found = history.find(1L, 3);
+
+        assertTrue(found.isPresent());
+        assertEquals(3, found.get().getRevision());
+        assertEquals(third, found.get().getContent());
+        assertEquals(2.0, meterRegistry.get("essay.revision.reconstruction.deltas").summary().totalAmount());
+        assertEquals(1, meterRegistry.get("essay.revision.reconstruction").timer().count());
+    }
+
+    @Test
+    @DisplayName("Should return empty for a revision that does not exist")
+    void find_Missing() {
+        when(revisionRepository.findChain(1L, 5)).thenReturn(List.of(revision(4, true, TEXT)));
+
+        assertTrue(history.find(1L, 5).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should list revisions as metadata only, without bodies or texts")
+    void list_ReturnsMetadata() {
+        LocalDateTime createdAt = LocalDateTime.now();
+        when(revisionRepository.findSummaries(1L)).thenReturn(List.of(
+                new EssayRevisionRepository.RevisionSummary(2, "Topic", false, 1440, 52, createdAt)));
+
+        List<EssayRevision> revisions = history.list(1L);
+
+        assertEquals(1, revisions.size());
+        EssayRevision revision = revisions.get(0);
+        assertEquals(2, revision.getRevision());
+        assertEquals("Topic", revision.getTopic());
+        assertFalse(revision.isSnapshot());
+        assertEquals(1440, revision.getContentLength());
+        assertEquals(52, revision.getStoredBytes());
+        assertEquals(createdAt, revision.getCreatedAt());
+        assertNull(revision.getBody());
+        assertNull(revision.getContent());
+    }
+
+    private EssayRevision saved() {
+        ArgumentCaptor<EssayRevision> captor = ArgumentCaptor.forClass(EssayRevision.class);
+        verify(revisionRepository).save(captor.capture());
+        return captor.getValue();
+    }
+
+    private static Essay essay(String topic, String content) {
+        return Essay.builder().id(1L).topic(topic).content(content).build();
+    }
+
+    private static EssayRevision revision(int revision, boolean snapshot, String body) {
+        return EssayRevision.builder().essayId(1L).revision(revision).topic("Topic").snapshot(snapshot)
+                .body(body).contentLength(0).storedBytes(body.length()).createdAt(LocalDateTime.now()).build();
+    }
+}
@@ -0,0 +1,69 @@
+package com.codehacks.postgen.revision;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TextDeltaTest {
+
+    private static final String PARAGRAPH = "Renewable energy has moved from the margins of the grid to its centre. "
+            + "Solar and wind are now the cheapest sources of new power in most of the world, ";
+
+    @Test
+    @DisplayName("Should store a small edit in a long text as copies around the edit")
+    void encode_SmallEditIsCompact() {
+        String base = PARAGRAPH.repeat(60);
+        String target = base.substring(0, 5000) + "A new sentence in the middle. " + base.substring(5000);
+
+        String delta = TextDelta.encode(base, target);
+
+        assertEquals(target, TextDelta.apply(base, delta));
+        assertTrue(delta.length() < 100, "delta was " + delta.length() + " characters");
+    }
+
+    @Test
+    @DisplayName("Should round-trip appends, prepends, deletions and rewrites")
+    void encode_RoundTrips() {
+        String base = PARAGRAPH.repeat(5);
+
+        for (String target : new String[] {
+                base + "And one more sentence.",
+                "A new opening. " + base,
+                base.substring(0, 100) + base.substring(200),
+                "Something else entirely.",
+                base.replace("wind", "geothermal"),
+                ""}) {
+            assertEquals(target, TextDelta.apply(base, TextDelta.encode(base, target)));
+        }
+    }
+
+    @Test
+    @DisplayName("Should encode against an empty or short base as a single insert")
+    void encode_ShortBase() {
+        assertEquals("I5:hello", TextDelta.encode("", "hello"));
+        assertEquals("hello", TextDelta.apply("", "I5:hello"));
+        assertEquals("I5:hello", TextDelta.encode("short", "hello"));
+    }
+
+    @Test
+    @DisplayName("Should keep characters outside the basic plane and delimiter characters intact")
+    void encode_UnusualCharacters() {
+        String base = PARAGRAPH + "Emoji \uD83C\uDF0D and delimiters I3:C1,2; in text.";
+        String target = base.replace("Emoji", "Symbols") + " \u00e9t\u00e9";
+
+        assertEquals(target, TextDelta.apply(base, TextDelta.encode(base, target)));
+    }
+
+    @Test
+    @DisplayName("Should reject malformed deltas and copies outside the base")
+    void apply_RejectsMalformedDeltas() {
+        assertThrows(IllegalArgumentException.class, () -> TextDelta.apply("base", "X1:a"));
+        assertThrows(IllegalArgumentException.class, () -> TextDelta.apply("base", "I9:short"));
+        assertThrows(IllegalArgumentException.class, () -> TextDelta.apply("base", "C0,2"));
+        assertThrows(IllegalArgumentException.class, () -> TextDelta.apply("base", "C2,10;"));
+        assertThrows(IllegalArgumentException.class, () -> TextDelta.apply("base", "Ca,b;"));
+    }
+}
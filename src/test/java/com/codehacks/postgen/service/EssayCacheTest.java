@@ -0,0 +1,125 @@
+package com.codehacks.postgen.service;
+
+import com.codehacks.postgen.config.BatchGetProperties;
+import com.codehacks.postgen.model.Essay;
+import com.codehacks.postgen.model.EssayStatus;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EssayCacheTest {
+
+    private BatchGetProperties properties;
+    private SimpleMeterRegistry meterRegistry;
+    private EssayCache cache;
+
+    @BeforeEach
+    void setUp() {
+        properties = new BatchGetProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        cache = new EssayCache(properties, meterRegistry);
+    }
+
+    @Test
+    @DisplayName("Should return copies of cached essays and count hits and misses")
+    void getAll_ReturnsCopies() {
+        Essay essay = essay(1L);
+        cache.putAll(List.of(essay), cache.version());
+        essay.setTopic("Changed after caching");
+
+        Map<Long, Essay> found = cache.getAll(List.of(1L, 2L));
+
+        assertEquals(1, found.size());
+        assertEquals("Topic 1", found.get(1L).getTopic());
+        assertNotSame(found.get(1L), cache.getAll(List.of(1L)).get(1L));
+        assertEquals(2.0, meterRegistry.get("essay.cache.requests").tag("result", "hit").counter().count());
+        assertEquals(1.0, meterRegistry.get("essay.cache.requests").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should not cache a load that overlapped an eviction")
+    void putAll_SkippedAfterEviction() {
+        long version = cache.version();
+        cache.evict(1L);
+
+        cache.putAll(List.of(essay(1L)), version);
+
+        assertTrue(cache.getAll(List.of(1L)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should evict again when the writing transaction completes")
+    void evict_AgainAfterTransaction() {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            cache.evict(1L);
+            // A load that read the old row before the write committed
+            cache.putAll(List.of(essay(1L)), cache.version());
+            assertEquals(1, cache.getAll(List.of(1L)).size());
+
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+            assertTrue(cache.getAll(List.of(1L)).isEmpty());
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    @DisplayName("Should drop the least recently used essays beyond max-entries")
+    void putAll_DropsLeastRecentlyUsed() {
+        properties.getCache().setMaxEntries(2);
+        EssayCache small = new EssayCache(properties, new SimpleMeterRegistry());
+
+        small.putAll(List.of(essay(1L), essay(2L)), small.version());
+        small.getAll(List.of(1L));
+        small.putAll(List.of(essay(3L)), small.version());
+
+        assertEquals(Map.of(1L, "Topic 1", 3L, "Topic 3"), topics(small.getAll(List.of(1L, 2L, 3L))));
+    }
+
+    @Test
+    @DisplayName("Should stop serving essays older than the ttl")
+    void getAll_DropsExpired() throws Exception {
+        properties.getCache().setTtl(Duration.ofMillis(1));
+        EssayCache shortLived = new EssayCache(properties, new SimpleMeterRegistry());
+
+        shortLived.putAll(List.of(essay(1L)), shortLived.version());
+        Thread.sleep(20);
+
+        assertTrue(shortLived.getAll(List.of(1L)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should cache nothing when disabled")
+    void disabled() {
+        properties.getCache().setEnabled(false);
+        EssayCache disabled = new EssayCache(properties, new SimpleMeterRegistry());
+
+        disabled.putAll(List.of(essay(1L)), disabled.version());
+
+        assertTrue(disabled.getAll(List.of(1L)).isEmpty());
+    }
+
+    private static Map<Long, String> topics(Map<Long, Essay> essays) {
+        return essays.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().getTopic()));
+    }
+
+    private static Essay essay(Long id) {
+        return Essay.builder().id(id).topic("Topic " + id).content("Content " + id).status(EssayStatus.DRAFT).build();
+    }
+}
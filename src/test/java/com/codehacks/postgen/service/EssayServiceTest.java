@@ -1,11 +1,30 @@
 package com.codehacks.postgen.service;
 
 import com.codehacks.postgen.model.Essay;
+import com.codehacks.postgen.model.EssayContent;
+import com.codehacks.postgen.model.EssayRevision;
 import com.codehacks.postgen.model.EssayStatus;
+import com.codehacks.postgen.outbox.EssayChangeType;
+import com.codehacks.postgen.outbox.EssayOutbox;
+import com.codehacks.postgen.repository.EssayContentRepository;
 import com.codehacks.postgen.repository.EssayRepository;
+import com.codehacks.postgen.revision.EssayRevisionHistory;
 import com.codehacks.postgen.exception.EssayGenerationException;
 import com.codehacks.postgen.exception.EssayServiceException;
 import com.codehacks.postgen.exception.DuplicateEssayTopicException;
+import com.codehacks.postgen.config.BatchGetProperties;
+import com.codehacks.postgen.config.LlmProperties;
+import com.codehacks.postgen.llm.EssayPromptBuilder;
+import com.codehacks.postgen.llm.LlmCallExecutor;
+import com.codehacks.postgen.llm.LlmCallRecorder;
+import com.codehacks.postgen.llm.LongFormGenerator;
+import com.codehacks.postgen.llm.ModelCascade;
+import com.codehacks.postgen.llm.OutputLimiter;
+import com.codehacks.postgen.llm.TopicBatcher;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.observation.ObservationRegistry;
+import io.micrometer.observation.tck.TestObservationRegistry;
+import io.micrometer.observation.tck.TestObservationRegistryAssert;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -13,12 +32,21 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.metadata.ChatResponseMetadata;
+import org.springframework.ai.chat.metadata.DefaultUsage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.chat.model.Generation;
+import org.springframework.ai.chat.prompt.ChatOptions;
+import org.springframework.transaction.support.TransactionOperations;
 
 import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Supplier;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -28,13 +56,15 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.doNothing;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
-import static org.mockito.Mockito.doThrow;
 
 @ExtendWith(MockitoExtension.class)
 class EssayServiceTest {
@@ -42,17 +72,60 @@ class EssayServiceTest {
     @Mock
     private EssayRepository essayRepository;
 
+    @Mock
+    private EssayContentRepository essayContentRepository;
+
+    @Mock
+    private EssayRevisionHistory revisionHistory;
+
+    @Mock
+    private EssayOutbox outbox;
+
     @Mock
     private ChatClient.Builder chatClientBuilder;
 
     @Mock
     private ChatClient chatClient;
 
+    @Mock
+    private LlmCallExecutor llmCallExecutor;
+
+    @Mock
+    private LongFormGenerator longFormGenerator;
+
+    private final ModelCascade modelCascade = new ModelCascade(new LlmProperties.Cascade(), new SimpleMeterRegistry());
+
+    private final TopicBatcher topicBatcher = new TopicBatcher(new LlmProperties.Batching(), new SimpleMeterRegistry());
+
+    private final EssayPromptBuilder promptBuilder = new EssayPromptBuilder(new LlmProperties.Prompt(), new SimpleMeterRegistry());
+
+    private final OutputLimiter outputLimiter = new OutputLimiter(new LlmProperties.Output(), new SimpleMeterRegistry());
+
+    private final LlmCallRecorder callRecorder = new LlmCallRecorder(new SimpleMeterRegistry(), ObservationRegistry.NOOP);
+
+    private final BatchGetProperties batchGetProperties = new BatchGetProperties();
+
+    private final EssayCache essayCache = new EssayCache(batchGetProperties, new SimpleMeterRegistry());
+
     private EssayServiceImpl essayService;
 
     @BeforeEach
     void setUp() {
-        essayService = new EssayServiceImpl(essayRepository, chatClientBuilder);
+        lenient().when(llmCallExecutor.execute(any())).thenAnswer(invocation -> {
+            Supplier<?> call = invocation.getArgument(0);
+            return call.get();
+        });
+        lenient().when(llmCallExecutor.execute(any(), any())).thenAnswer(invocation -> {
+            Supplier<?> call = invocation.getArgument(1);
+            return call.get();
+        });
+        essayService = newService();
+    }
+
+    private EssayServiceImpl newService() {
+        return new EssayServiceImpl(essayRepository, essayContentRepository, revisionHistory, outbox, essayCache,
+                batchGetProperties, chatClientBuilder, llmCallExecutor, modelCascade, topicBatcher, longFormGenerator, promptBuilder,
+                outputLimiter, callRecorder, ObservationRegistry.NOOP, TransactionOperations.withoutTransaction());
     }
 
 
@@ -69,9 +142,9 @@ class EssayServiceTest {
         when(requestSpec.call()).thenReturn(callResponseSpec);
         String longMockContent = getContentForTesting();
 
-        when(callResponseSpec.content()).thenReturn(longMockContent);
+        when(callResponseSpec.chatResponse()).thenReturn(chatResponse(longMockContent));
 
-        EssayServiceImpl testEssayService = new EssayServiceImpl(essayRepository, chatClientBuilder);
+        EssayServiceImpl testEssayService = newService();
 
         String topic = "The Future of AI";
         String expectedContent = getContentForTesting();
@@ -95,6 +168,73 @@ class EssayServiceTest {
 
         verify(chatClient, times(1)).prompt(anyString());
         verify(essayRepository, times(1)).save(any(Essay.class));
+        verify(essayContentRepository, times(1)).save(argThat(content ->
+                content.getEssay() == savedEssay && expectedContent.equals(content.getContent())));
+        verify(revisionHistory, times(1)).recordInitial(savedEssay);
+        verify(outbox, times(1)).record(EssayChangeType.CREATED, savedEssay);
+    }
+
+    @Test
+    @DisplayName("Should store the model, token usage and generation time with the essay")
+    void generateAndSaveEssay_StoresUsage() {
+        when(chatClientBuilder.build()).thenReturn(chatClient);
+        ChatClient.ChatClientRequestSpec requestSpec = mock(ChatClient.ChatClientRequestSpec.class);
+        when(chatClient.prompt(anyString())).thenReturn(requestSpec);
+        ChatClient.CallResponseSpec callResponseSpec = mock(ChatClient.CallResponseSpec.class);
+        when(requestSpec.call()).thenReturn(callResponseSpec);
+        ChatResponseMetadata metadata = ChatResponseMetadata.builder()
+                .model("gemini-2.0-flash")
+                .usage(new DefaultUsage(42, 180))
+                .build();
+        when(callResponseSpec.chatResponse()).thenReturn(
+                new ChatResponse(List.of(new Generation(new AssistantMessage(getContentForTesting()))), metadata));
+        when(essayRepository.save(any(Essay.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        EssayServiceImpl testEssayService = newService();
+
+        Essay savedEssay = testEssayService.generateAndSaveEssay("Usage Topic");
+
+        assertEquals("gemini-2.0-flash", savedEssay.getModel());
+        assertEquals(42, savedEssay.getPromptTokens());
+        assertEquals(180, savedEssay.getCompletionTokens());
+        assertNotNull(savedEssay.getGenerationMillis());
+        assertTrue(savedEssay.getGenerationMillis() >= 0);
+    }
+
+    @Test
+    @DisplayName("Should observe each generation stage as a child of the essay.generate observation")
+    void generateAndSaveEssay_ObservesStages() {
+        when(chatClientBuilder.build()).thenReturn(chatClient);
+        ChatClient.ChatClientRequestSpec requestSpec = mock(ChatClient.ChatClientRequestSpec.class);
+        when(chatClient.prompt(anyString())).thenReturn(requestSpec);
+        ChatClient.CallResponseSpec callResponseSpec = mock(ChatClient.CallResponseSpec.class);
+        when(requestSpec.call()).thenReturn(callResponseSpec);
+        when(callResponseSpec.chatResponse()).thenReturn(chatResponse(getContentForTesting()));
+        when(essayRepository.save(any(Essay.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        TestObservationRegistry observationRegistry = TestObservationRegistry.create();
+
+        EssayServiceImpl testEssayService = new EssayServiceImpl(essayRepository, essayContentRepository, revisionHistory,
+                outbox, essayCache, batchGetProperties, chatClientBuilder, llmCallExecutor, modelCascade, topicBatcher,
+                longFormGenerator, promptBuilder, outputLimiter,
+                new LlmCallRecorder(new SimpleMeterRegistry(), observationRegistry), observationRegistry,
+                TransactionOperations.withoutTransaction());
+
+        testEssayService.generateAndSaveEssay("Traced Topic");
+
+        TestObservationRegistryAssert.assertThat(observationRegistry)
+                .hasObservationWithNameEqualTo("essay.generate").that()
+                .hasBeenStopped()
+                .hasLowCardinalityKeyValue("kind", "single")
+                .hasHighCardinalityKeyValue("essay.topic.length", "12")
+                .hasHighCardinalityKeyValue("essay.words", "73");
+        TestObservationRegistryAssert.assertThat(observationRegistry)
+                .hasNumberOfObservationsWithNameEqualTo("essay.generate.stage", 4)
+                .hasObservationWithNameEqualTo("essay.llm.call");
+    }
+
+    private static ChatResponse chatResponse(String text) {
+        return text == null ? new ChatResponse(List.of())
+                : new ChatResponse(List.of(new Generation(new AssistantMessage(text))));
     }
 
     private String getContentForTesting() {
@@ -129,6 +269,21 @@ class EssayServiceTest {
         verify(essayRepository, times(1)).findById(essayId);
     }
 
+    @Test
+    @DisplayName("Should load the essay text from its own table when retrieving by ID")
+    void getEssayById_LoadsContentSeparately() {
+        Long essayId = 1L;
+        Essay metadata = Essay.builder().id(essayId).topic("Topic").lengthWords(2).status(EssayStatus.DRAFT).build();
+
+        when(essayRepository.findById(essayId)).thenReturn(Optional.of(metadata));
+        when(essayContentRepository.findContentByEssayId(essayId)).thenReturn(Optional.of("Stored content"));
+
+        Optional<Essay> foundEssay = essayService.getEssayById(essayId);
+
+        assertTrue(foundEssay.isPresent());
+        assertEquals("Stored content", foundEssay.get().getContent());
+    }
+
     @Test
     @DisplayName("Should return empty Optional when essay by ID is not found")
     void getEssayById_NotFound() {
@@ -159,6 +314,24 @@ class EssayServiceTest {
         verify(essayRepository, times(1)).findAll();
     }
 
+    @Test
+    @DisplayName("Should load the texts of all essays with one query")
+    void getAllEssays_LoadsContentsInOneQuery() {
+        Essay first = Essay.builder().id(1L).topic("Topic 1").status(EssayStatus.DRAFT).build();
+        Essay second = Essay.builder().id(2L).topic("Topic 2").status(EssayStatus.DRAFT).build();
+
+        when(essayRepository.findAll()).thenReturn(List.of(first, second));
+        when(essayContentRepository.findByEssayIdIn(List.of(1L, 2L))).thenReturn(List.of(
+                EssayContent.builder().essayId(1L).content("Content 1").build(),
+                EssayContent.builder().essayId(2L).content("Content 2").build()));
+
+        List<Essay> allEssays = essayService.getAllEssays();
+
+        assertEquals("Content 1", allEssays.get(0).getContent());
+        assertEquals("Content 2", allEssays.get(1).getContent());
+        verify(essayContentRepository, times(1)).findByEssayIdIn(List.of(1L, 2L));
+    }
+
     @Test
     @DisplayName("Should return empty list when no essays exist")
     void getAllEssays_Empty() {
@@ -168,6 +341,85 @@ class EssayServiceTest {
 
         assertTrue(allEssays.isEmpty());
         verify(essayRepository, times(1)).findAll();
+        verify(essayContentRepository, never()).findByEssayIdIn(any());
+    }
+
+    @Test
+    @DisplayName("Should load the essays of several IDs with one query each on essays and essay_contents")
+    void getEssaysByIds_LoadsMissingInOneQuery() {
+        Essay first = Essay.builder().id(1L).topic("Topic 1").status(EssayStatus.DRAFT).build();
+        Essay second = Essay.builder().id(2L).topic("Topic 2").status(EssayStatus.DRAFT).build();
+        when(essayRepository.findAllById(List.of(2L, 9L, 1L))).thenReturn(List.of(first, second));
+        when(essayContentRepository.findByEssayIdIn(List.of(1L, 2L))).thenReturn(List.of(
+                EssayContent.builder().essayId(1L).content("Content 1").build(),
+                EssayContent.builder().essayId(2L).content("Content 2").build()));
+
+        Map<Long, Essay> essays = essayService.getEssaysByIds(Arrays.asList(2L, 9L, 1L, 2L, 0L, null));
+
+        assertEquals(2, essays.size());
+        assertEquals("Content 1", essays.get(1L).getContent());
+        assertEquals("Content 2", essays.get(2L).getContent());
+        assertFalse(essays.containsKey(9L));
+        verify(essayRepository, times(1)).findAllById(List.of(2L, 9L, 1L));
+    }
+
+    @Test
+    @DisplayName("Should serve essays fetched before from the cache without touching the repositories")
+    void getEssaysByIds_ServesCachedEssays() {
+        Essay first = Essay.builder().id(1L).topic("Topic 1").status(EssayStatus.DRAFT).build();
+        when(essayRepository.findAllById(List.of(1L))).thenReturn(List.of(first));
+        when(essayContentRepository.findByEssayIdIn(List.of(1L))).thenReturn(List.of(
+                EssayContent.builder().essayId(1L).content("Content 1").build()));
+        essayService.getEssaysByIds(List.of(1L));
+
+        Map<Long, Essay> essays = essayService.getEssaysByIds(List.of(1L));
+
+        assertEquals("Content 1", essays.get(1L).getContent());
+        verify(essayRepository, times(1)).findAllById(any());
+        verify(essayContentRepository, times(1)).findByEssayIdIn(any());
+    }
+
+    @Test
+    @DisplayName("Should open a transaction only to load the essays missing from the cache")
+    void getEssaysByIds_TransactionOnlyForMisses() {
+        TransactionOperations transactions = spy(TransactionOperations.withoutTransaction());
+        EssayServiceImpl service = new EssayServiceImpl(essayRepository, essayContentRepository, revisionHistory,
+                outbox, essayCache, batchGetProperties, chatClientBuilder, llmCallExecutor, modelCascade, topicBatcher,
+                longFormGenerator, promptBuilder, outputLimiter, callRecorder, ObservationRegistry.NOOP, transactions);
+        Essay first = Essay.builder().id(1L).topic("Topic 1").status(EssayStatus.DRAFT).build();
+        when(essayRepository.findAllById(List.of(1L))).thenReturn(List.of(first));
+        service.getEssaysByIds(List.of(1L));
+
+        service.getEssaysByIds(List.of(1L));
+
+        verify(transactions, times(1)).execute(any());
+    }
+
+    @Test
+    @DisplayName("Should load an essay again after it was updated")
+    void getEssaysByIds_ReloadsAfterStatusUpdate() {
+        Essay first = Essay.builder().id(1L).topic("Topic 1").status(EssayStatus.DRAFT).build();
+        when(essayRepository.findAllById(List.of(1L))).thenReturn(List.of(first));
+        when(essayRepository.findWithLockById(1L)).thenReturn(Optional.of(first));
+        when(essayRepository.save(any(Essay.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        essayService.getEssaysByIds(List.of(1L));
+
+        essayService.updateEssayStatus(1L, EssayStatus.PUBLISHED);
+        Map<Long, Essay> essays = essayService.getEssaysByIds(List.of(1L));
+
+        assertEquals(EssayStatus.PUBLISHED, essays.get(1L).getStatus());
+        verify(essayRepository, times(2)).findAllById(List.of(1L));
+    }
+
+    @Test
+    @DisplayName("Should reject more IDs than app.batch-get.max-ids, or none")
+    void getEssaysByIds_TooManyIds() {
+        batchGetProperties.setMaxIds(2);
+        EssayServiceImpl limitedService = newService();
+
+        assertThrows(IllegalArgumentException.class, () -> limitedService.getEssaysByIds(List.of(1L, 2L, 3L)));
+        assertThrows(IllegalArgumentException.class, () -> limitedService.getEssaysByIds(List.of()));
+        verify(essayRepository, never()).findAllById(any());
     }
 
     @Test
@@ -191,8 +443,9 @@ class EssayServiceTest {
                 .status(EssayStatus.PUBLISHED)
                 .build();
 
-        when(essayRepository.findById(essayId)).thenReturn(Optional.of(existingEssay));
+        when(essayRepository.findWithLockById(essayId)).thenReturn(Optional.of(existingEssay));
         when(essayRepository.save(any(Essay.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(essayContentRepository.findContentByEssayId(essayId)).thenReturn(Optional.of("Original Content"));
 
         Optional<Essay> result = essayService.updateEssay(essayId, updatedDetails);
 
@@ -206,8 +459,11 @@ class EssayServiceTest {
         assertTrue(essay.getUpdatedAt().isAfter(originalCreatedAt));
         assertEquals(updatedDetails.getStatus(), essay.getStatus());
 
-        verify(essayRepository, times(1)).findById(essayId);
+        verify(essayRepository, times(1)).findWithLockById(essayId);
         verify(essayRepository, times(1)).save(existingEssay);
+        verify(essayContentRepository, times(1)).updateContent(essayId, updatedDetails.getContent());
+        verify(revisionHistory, times(1)).recordUpdate(existingEssay, "Original Topic", "Original Content");
+        verify(outbox, times(1)).record(EssayChangeType.UPDATED, existingEssay);
     }
 
     @Test
@@ -220,13 +476,14 @@ class EssayServiceTest {
                 .status(EssayStatus.PUBLISHED)
                 .build();
 
-        when(essayRepository.findById(essayId)).thenReturn(Optional.empty());
+        when(essayRepository.findWithLockById(essayId)).thenReturn(Optional.empty());
 
         Optional<Essay> result = essayService.updateEssay(essayId, updatedDetails);
 
         assertFalse(result.isPresent());
-        verify(essayRepository, times(1)).findById(essayId);
+        verify(essayRepository, times(1)).findWithLockById(essayId);
         verify(essayRepository, never()).save(any(Essay.class));
+        verify(outbox, never()).record(any(), any());
     }
 
     @Test
@@ -244,7 +501,7 @@ class EssayServiceTest {
                 .status(EssayStatus.DRAFT)
                 .build();
 
-        when(essayRepository.findById(essayId)).thenReturn(Optional.of(existingEssay));
+        when(essayRepository.findWithLockById(essayId)).thenReturn(Optional.of(existingEssay));
         when(essayRepository.save(any(Essay.class))).thenAnswer(invocation -> invocation.getArgument(0));
 
         Optional<Essay> result = essayService.updateEssayStatus(essayId, EssayStatus.PUBLISHED);
@@ -254,21 +511,72 @@ class EssayServiceTest {
         assertEquals(EssayStatus.PUBLISHED, essay.getStatus());
         assertTrue(essay.getUpdatedAt().isAfter(originalUpdatedAt));
 
-        verify(essayRepository, times(1)).findById(essayId);
+        verify(essayRepository, times(1)).findWithLockById(essayId);
         verify(essayRepository, times(1)).save(existingEssay);
+        verify(essayContentRepository, never()).updateContent(anyLong(), anyString());
+        verify(outbox, times(1)).record(EssayChangeType.STATUS_CHANGED, existingEssay);
+    }
+
+    @Test
+    @DisplayName("Should return the essay text with a status change without writing it")
+    void updateEssayStatus_ReadsContentWithoutWritingIt() {
+        Long essayId = 1L;
+        Essay existingEssay = Essay.builder()
+                .id(essayId)
+                .topic("Topic")
+                .lengthWords(1)
+                .createdAt(LocalDateTime.now().minusDays(2))
+                .updatedAt(LocalDateTime.now().minusDays(1))
+                .status(EssayStatus.DRAFT)
+                .build();
+
+        when(essayRepository.findWithLockById(essayId)).thenReturn(Optional.of(existingEssay));
+        when(essayRepository.save(any(Essay.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        when(essayContentRepository.findContentByEssayId(essayId)).thenReturn(Optional.of("Stored content"));
+
+        Optional<Essay> result = essayService.updateEssayStatus(essayId, EssayStatus.PUBLISHED);
+
+        assertTrue(result.isPresent());
+        assertEquals("Stored content", result.get().getContent());
+        verify(essayContentRepository, never()).updateContent(anyLong(), anyString());
+        verify(essayContentRepository, never()).save(any(EssayContent.class));
     }
 
     @Test
     @DisplayName("Should return empty Optional when updating status of non-existent essay")
     void updateEssayStatus_NotFound() {
         Long essayId = 99L;
-        when(essayRepository.findById(essayId)).thenReturn(Optional.empty());
+        when(essayRepository.findWithLockById(essayId)).thenReturn(Optional.empty());
 
         Optional<Essay> result = essayService.updateEssayStatus(essayId, EssayStatus.ARCHIVED);
 
         assertFalse(result.isPresent());
-        verify(essayRepository, times(1)).findById(essayId);
+        verify(essayRepository, times(1)).findWithLockById(essayId);
         verify(essayRepository, never()).save(any(Essay.class));
+        verify(outbox, never()).record(any(), any());
+    }
+
+    @Test
+    @DisplayName("Should return a revision with its rebuilt content")
+    void getRevision_DelegatesToHistory() {
+        EssayRevision revision = EssayRevision.builder().essayId(1L).revision(2).content("Text").build();
+        when(revisionHistory.find(1L, 2)).thenReturn(Optional.of(revision));
+
+        assertEquals(Optional.of(revision), essayService.getRevision(1L, 2));
+        assertTrue(essayService.getRevision(1L, 0).isEmpty());
+        assertTrue(essayService.getRevisions(-1L).isEmpty());
+        verify(revisionHistory, never()).list(anyLong());
+    }
+
+    @Test
+    @DisplayName("Should check that an essay exists without loading it")
+    void essayExists_DoesNotLoadEssay() {
+        when(essayRepository.existsById(1L)).thenReturn(true);
+
+        assertTrue(essayService.essayExists(1L));
+        assertFalse(essayService.essayExists(0L));
+        verify(essayRepository, never()).findById(anyLong());
+        verify(essayContentRepository, never()).findContentByEssayId(anyLong());
     }
 
     @Test
@@ -276,19 +584,30 @@ class EssayServiceTest {
     void deleteEssay_Success() {
         Long essayId = 1L;
 
-        when(essayRepository.existsById(essayId)).thenReturn(true);
-        doNothing().when(essayRepository).deleteById(essayId);
+        when(essayRepository.deleteEssayById(essayId)).thenReturn(1);
+
+        assertTrue(essayService.deleteEssay(essayId));
+
+        verify(essayRepository, times(1)).deleteEssayById(essayId);
+        verify(essayRepository, never()).existsById(anyLong());
+        verify(essayRepository, never()).findById(anyLong());
+        verify(outbox, times(1)).recordDeleted(essayId);
+    }
+
+    @Test
+    @DisplayName("Should report a missing essay without recording a delete")
+    void deleteEssay_NotFound() {
+        when(essayRepository.deleteEssayById(99L)).thenReturn(0);
 
-        essayService.deleteEssay(essayId);
+        assertFalse(essayService.deleteEssay(99L));
 
-        verify(essayRepository, times(1)).existsById(essayId);
-        verify(essayRepository, times(1)).deleteById(essayId);
+        verify(outbox, never()).recordDeleted(anyLong());
     }
 
     @Test
     @DisplayName("Should throw exception for null topic")
     void generateAndSaveEssay_NullTopic() {
-        EssayServiceImpl testEssayService = new EssayServiceImpl(essayRepository, chatClientBuilder);
+        EssayServiceImpl testEssayService = newService();
 
         assertThrows(IllegalArgumentException.class,
                 () -> testEssayService.generateAndSaveEssay(null)
@@ -301,7 +620,7 @@ class EssayServiceTest {
     @Test
     @DisplayName("Should throw exception for empty topic")
     void generateAndSaveEssay_EmptyTopic() {
-        EssayServiceImpl testEssayService = new EssayServiceImpl(essayRepository, chatClientBuilder);
+        EssayServiceImpl testEssayService = newService();
 
         assertThrows(IllegalArgumentException.class,
                 () -> testEssayService.generateAndSaveEssay("")
@@ -314,7 +633,7 @@ class EssayServiceTest {
     @Test
     @DisplayName("Should throw exception for whitespace-only topic")
     void generateAndSaveEssay_WhitespaceOnlyTopic() {
-        EssayServiceImpl testEssayService = new EssayServiceImpl(essayRepository, chatClientBuilder);
+        EssayServiceImpl testEssayService = newService();
 
         assertThrows(IllegalArgumentException.class,
                 () -> testEssayService.generateAndSaveEssay("   \t\n  ")
@@ -327,7 +646,7 @@ class EssayServiceTest {
     @Test
     @DisplayName("Should throw exception for very long topic")
     void generateAndSaveEssay_VeryLongTopic() {
-        EssayServiceImpl testEssayService = new EssayServiceImpl(essayRepository, chatClientBuilder);
+        EssayServiceImpl testEssayService = newService();
 
         // Create a very long topic (exceeds 500 characters)
         String veryLongTopic = "A".repeat(501);
@@ -343,7 +662,7 @@ class EssayServiceTest {
     @Test
     @DisplayName("Should throw exception for single character topic")
     void generateAndSaveEssay_SingleCharacterTopic() {
-        EssayServiceImpl testEssayService = new EssayServiceImpl(essayRepository, chatClientBuilder);
+        EssayServiceImpl testEssayService = newService();
 
         // Test with single character topic - should throw exception (minimum 3 characters)
         assertThrows(IllegalArgumentException.class,
@@ -357,7 +676,7 @@ class EssayServiceTest {
     @Test
     @DisplayName("Should throw exception for topic with invalid characters")
     void generateAndSaveEssay_InvalidCharactersTopic() {
-        EssayServiceImpl testEssayService = new EssayServiceImpl(essayRepository, chatClientBuilder);
+        EssayServiceImpl testEssayService = newService();
 
         assertThrows(IllegalArgumentException.class,
                 () -> testEssayService.generateAndSaveEssay("AI <script>alert('xss')</script>")
@@ -370,7 +689,7 @@ class EssayServiceTest {
     @Test
     @DisplayName("Should throw exception for topic with inappropriate content")
     void generateAndSaveEssay_InappropriateContentTopic() {
-        EssayServiceImpl testEssayService = new EssayServiceImpl(essayRepository, chatClientBuilder);
+        EssayServiceImpl testEssayService = newService();
 
         assertThrows(IllegalArgumentException.class,
                 () -> testEssayService.generateAndSaveEssay("Buy viagra now")
@@ -393,9 +712,9 @@ class EssayServiceTest {
         when(requestSpec.call()).thenReturn(callResponseSpec);
         String longMockContent = getContentForTesting();
 
-        when(callResponseSpec.content()).thenReturn(longMockContent);
+        when(callResponseSpec.chatResponse()).thenReturn(chatResponse(longMockContent));
 
-        EssayServiceImpl testEssayService = new EssayServiceImpl(essayRepository, chatClientBuilder);
+        EssayServiceImpl testEssayService = newService();
 
         when(essayRepository.save(any(Essay.class))).thenAnswer(invocation -> {
             Essay essay = invocation.getArgument(0);
@@ -430,9 +749,9 @@ class EssayServiceTest {
         when(requestSpec.call()).thenReturn(callResponseSpec);
         String longMockContent = getContentForTesting();
 
-        when(callResponseSpec.content()).thenReturn(longMockContent);
+        when(callResponseSpec.chatResponse()).thenReturn(chatResponse(longMockContent));
 
-        EssayServiceImpl testEssayService = new EssayServiceImpl(essayRepository, chatClientBuilder);
+        EssayServiceImpl testEssayService = newService();
 
         when(essayRepository.save(any(Essay.class))).thenAnswer(invocation -> {
             Essay essay = invocation.getArgument(0);
@@ -467,9 +786,9 @@ class EssayServiceTest {
         when(requestSpec.call()).thenReturn(callResponseSpec);
         String longMockContent = getContentForTesting();
 
-        when(callResponseSpec.content()).thenReturn(longMockContent);
+        when(callResponseSpec.chatResponse()).thenReturn(chatResponse(longMockContent));
 
-        EssayServiceImpl testEssayService = new EssayServiceImpl(essayRepository, chatClientBuilder);
+        EssayServiceImpl testEssayService = newService();
 
         when(essayRepository.save(any(Essay.class))).thenAnswer(invocation -> {
             Essay essay = invocation.getArgument(0);
@@ -491,6 +810,59 @@ class EssayServiceTest {
         verify(essayRepository, times(1)).save(any(Essay.class));
     }
 
+    @Test
+    @DisplayName("Should include additional context and target length in the prompt")
+    void generateAndSaveEssay_WithContextAndTargetWords() {
+        when(chatClientBuilder.build()).thenReturn(chatClient);
+        ChatClient.ChatClientRequestSpec requestSpec = mock(ChatClient.ChatClientRequestSpec.class);
+        when(chatClient.prompt(anyString())).thenReturn(requestSpec);
+        when(requestSpec.options(any(ChatOptions.class))).thenReturn(requestSpec);
+        ChatClient.CallResponseSpec callResponseSpec = mock(ChatClient.CallResponseSpec.class);
+        when(requestSpec.call()).thenReturn(callResponseSpec);
+        when(callResponseSpec.chatResponse()).thenReturn(chatResponse(getContentForTesting()));
+        when(essayRepository.save(any(Essay.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        EssayServiceImpl testEssayService = newService();
+
+        testEssayService.generateAndSaveEssay("Ocean Currents", "Focus on the Gulf Stream.", 500);
+
+        verify(chatClient, times(1)).prompt("Write a comprehensive essay on the topic: Ocean Currents"
+                + "\n\nAim for about 500 words."
+                + "\n\nTake this additional context into account:\nFocus on the Gulf Stream.");
+        // 500 words * 1.4 tokens per word * 1.25 headroom
+        verify(requestSpec, times(1)).options(argThat((ChatOptions options) -> options.getMaxTokens() == 875));
+    }
+
+    @Test
+    @DisplayName("Should save a long essay stitched from parallel sections with DRAFT status")
+    void generateAndSaveLongEssay_Success() {
+        String topic = "The History of Computing";
+        String stitched = "## Introduction\n\n" + getContentForTesting();
+        when(longFormGenerator.generate(eq(topic), any(), eq(10000), any())).thenReturn(stitched);
+        when(essayRepository.save(any(Essay.class))).thenAnswer(invocation -> {
+            Essay essay = invocation.getArgument(0);
+            essay.setId(1L);
+            return essay;
+        });
+
+        Essay savedEssay = essayService.generateAndSaveLongEssay(topic, null);
+
+        assertEquals(stitched, savedEssay.getContent());
+        assertEquals(EssayStatus.DRAFT, savedEssay.getStatus());
+        verify(essayRepository, times(1)).save(any(Essay.class));
+    }
+
+    @Test
+    @DisplayName("Should reject a stitched long essay that breaks the content rules")
+    void generateAndSaveLongEssay_InvalidContent() {
+        String topic = "The History of Computing";
+        when(longFormGenerator.generate(eq(topic), any(), eq(10000), any())).thenReturn("## Introduction\n\nToo short.");
+
+        assertThrows(EssayGenerationException.class, () -> essayService.generateAndSaveLongEssay(topic, null));
+
+        verify(essayRepository, never()).save(any(Essay.class));
+    }
+
     // ==============================================
     // AREA 2: ERROR HANDLING & EXCEPTION SCENARIOS
     // ==============================================
@@ -508,9 +880,9 @@ class EssayServiceTest {
         when(requestSpec.call()).thenReturn(callResponseSpec);
 
         // Simulate AI service failure
-        when(callResponseSpec.content()).thenThrow(new RuntimeException("AI service unavailable"));
+        when(callResponseSpec.chatResponse()).thenThrow(new RuntimeException("AI service unavailable"));
 
-        EssayServiceImpl testEssayService = new EssayServiceImpl(essayRepository, chatClientBuilder);
+        EssayServiceImpl testEssayService = newService();
 
         EssayGenerationException exception = assertThrows(
                 EssayGenerationException.class,
@@ -536,9 +908,9 @@ class EssayServiceTest {
         ChatClient.CallResponseSpec callResponseSpec = mock(ChatClient.CallResponseSpec.class);
 
         when(requestSpec.call()).thenReturn(callResponseSpec);
-        when(callResponseSpec.content()).thenReturn(getContentForTesting());
+        when(callResponseSpec.chatResponse()).thenReturn(chatResponse(getContentForTesting()));
 
-        EssayServiceImpl testEssayService = new EssayServiceImpl(essayRepository, chatClientBuilder);
+        EssayServiceImpl testEssayService = newService();
 
         when(essayRepository.save(any(Essay.class))).thenThrow(new RuntimeException("Database connection failed"));
 
@@ -567,9 +939,9 @@ class EssayServiceTest {
         when(requestSpec.call()).thenReturn(callResponseSpec);
 
         // Simulate null AI response
-        when(callResponseSpec.content()).thenReturn(null);
+        when(callResponseSpec.chatResponse()).thenReturn(chatResponse(null));
 
-        EssayServiceImpl testEssayService = new EssayServiceImpl(essayRepository, chatClientBuilder);
+        EssayServiceImpl testEssayService = newService();
 
         EssayGenerationException exception = assertThrows(
                 EssayGenerationException.class,
@@ -597,9 +969,9 @@ class EssayServiceTest {
         when(requestSpec.call()).thenReturn(callResponseSpec);
 
         // Simulate empty AI response
-        when(callResponseSpec.content()).thenReturn("");
+        when(callResponseSpec.chatResponse()).thenReturn(chatResponse(""));
 
-        EssayServiceImpl testEssayService = new EssayServiceImpl(essayRepository, chatClientBuilder);
+        EssayServiceImpl testEssayService = newService();
 
         EssayGenerationException exception = assertThrows(
                 EssayGenerationException.class,
@@ -626,9 +998,9 @@ class EssayServiceTest {
 
         when(requestSpec.call()).thenReturn(callResponseSpec);
 
-        when(callResponseSpec.content()).thenReturn("This is a short response with only ten words.");
+        when(callResponseSpec.chatResponse()).thenReturn(chatResponse("This is a short response with only ten words."));
 
-        EssayServiceImpl testEssayService = new EssayServiceImpl(essayRepository, chatClientBuilder);
+        EssayServiceImpl testEssayService = newService();
 
         EssayGenerationException exception = assertThrows(
                 EssayGenerationException.class,
@@ -657,9 +1029,9 @@ class EssayServiceTest {
 
         // Simulate very long AI response (exceeds 10,000 characters)
         String veryLongContent = "word ".repeat(10001); // 10,001 characters
-        when(callResponseSpec.content()).thenReturn(veryLongContent);
+        when(callResponseSpec.chatResponse()).thenReturn(chatResponse(veryLongContent));
 
-        EssayServiceImpl testEssayService = new EssayServiceImpl(essayRepository, chatClientBuilder);
+        EssayServiceImpl testEssayService = newService();
 
         EssayGenerationException exception = assertThrows(
                 EssayGenerationException.class,
@@ -717,7 +1089,7 @@ class EssayServiceTest {
                 .content("Original content")
                 .status(EssayStatus.DRAFT)
                 .build();
-        when(essayRepository.findById(1L)).thenReturn(Optional.of(existingEssay));
+        when(essayRepository.findWithLockById(1L)).thenReturn(Optional.of(existingEssay));
 
         when(essayRepository.save(any(Essay.class))).thenThrow(new EssayServiceException("Database connection failed"));
 
@@ -736,7 +1108,7 @@ class EssayServiceTest {
         assertNotNull(exception.getCause());
         assertEquals("Database connection failed", exception.getCause().getMessage());
 
-        verify(essayRepository, times(1)).findById(1L);
+        verify(essayRepository, times(1)).findWithLockById(1L);
         verify(essayRepository, times(1)).save(any(Essay.class));
     }
 
@@ -749,7 +1121,7 @@ class EssayServiceTest {
                 .content("Test content")
                 .status(EssayStatus.DRAFT)
                 .build();
-        when(essayRepository.findById(1L)).thenReturn(Optional.of(existingEssay));
+        when(essayRepository.findWithLockById(1L)).thenReturn(Optional.of(existingEssay));
 
         when(essayRepository.save(any(Essay.class))).thenThrow(new EssayServiceException("Database connection failed"));
 
@@ -762,16 +1134,14 @@ class EssayServiceTest {
         assertNotNull(exception.getCause());
         assertEquals("Database connection failed", exception.getCause().getMessage());
 
-        verify(essayRepository, times(1)).findById(1L);
+        verify(essayRepository, times(1)).findWithLockById(1L);
         verify(essayRepository, times(1)).save(any(Essay.class));
     }
 
     @Test
     @DisplayName("Should handle database delete failure")
     void deleteEssay_DatabaseFailure() {
-        when(essayRepository.existsById(1L)).thenReturn(true);
-
-        doThrow(new EssayServiceException("Database connection failed")).when(essayRepository).deleteById(1L);
+        when(essayRepository.deleteEssayById(1L)).thenThrow(new EssayServiceException("Database connection failed"));
 
         EssayServiceException exception = assertThrows(
                 EssayServiceException.class,
@@ -782,8 +1152,8 @@ class EssayServiceTest {
         assertNotNull(exception.getCause());
         assertEquals("Database connection failed", exception.getCause().getMessage());
 
-        verify(essayRepository, times(1)).existsById(1L);
-        verify(essayRepository, times(1)).deleteById(1L);
+        verify(essayRepository, times(1)).deleteEssayById(1L);
+        verify(outbox, never()).recordDeleted(anyLong());
     }
 
     @Test
@@ -796,7 +1166,7 @@ class EssayServiceTest {
 
         assertEquals("Updated essay cannot be null", exception.getMessage());
 
-        verify(essayRepository, never()).findById(anyLong());
+        verify(essayRepository, never()).findWithLockById(anyLong());
         verify(essayRepository, never()).save(any(Essay.class));
     }
 
@@ -810,7 +1180,7 @@ class EssayServiceTest {
 
         assertEquals("New status cannot be null", exception.getMessage());
 
-        verify(essayRepository, never()).findById(anyLong());
+        verify(essayRepository, never()).findWithLockById(anyLong());
         verify(essayRepository, never()).save(any(Essay.class));
     }
 
@@ -830,7 +1200,7 @@ class EssayServiceTest {
 
         assertEquals("Content cannot be empty or contain only whitespace", exception.getMessage());
 
-        verify(essayRepository, never()).findById(anyLong());
+        verify(essayRepository, never()).findWithLockById(anyLong());
         verify(essayRepository, never()).save(any(Essay.class));
     }
 
@@ -864,7 +1234,7 @@ class EssayServiceTest {
                 .status(EssayStatus.DRAFT)
                 .build();
 
-        when(essayRepository.findAll()).thenReturn(List.of(existingEssay));
+        when(essayRepository.existsByTopicIgnoreCaseAndIdNot("Duplicate Topic", 1L)).thenReturn(true);
 
         DuplicateEssayTopicException exception = assertThrows(
                 DuplicateEssayTopicException.class,
@@ -872,8 +1242,9 @@ class EssayServiceTest {
         );
 
         assertEquals("An essay with the topic 'Duplicate Topic' already exists.", exception.getMessage());
-        verify(essayRepository, times(1)).findAll();
-        verify(essayRepository, never()).findById(anyLong());
+        verify(essayRepository, times(1)).existsByTopicIgnoreCaseAndIdNot("Duplicate Topic", 1L);
+        verify(essayRepository, never()).findAll();
+        verify(essayRepository, never()).findWithLockById(anyLong());
         verify(essayRepository, never()).save(any(Essay.class));
     }
 }
\ No newline at end of file